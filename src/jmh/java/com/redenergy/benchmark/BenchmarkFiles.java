@@ -0,0 +1,77 @@
+package com.redenergy.benchmark;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.generator.SimpleNem12Generator;
+import com.redenergy.generator.SimpleNem12GeneratorConfig;
+
+import java.io.File;
+import java.time.LocalDate;
+
+/**
+ * Writes valid Simple NEM12 files of a given size for the benchmarks, with
+ * <code>SimpleNem12Generator</code>.
+ *
+ * Files are generated with a fixed seed and kept in the temp directory between runs, so every
+ * fork and every run of a size parses the same bytes.
+ */
+public final class BenchmarkFiles {
+
+  private static final LocalDate FIRST_DATE = LocalDate.of(2020, 1, 1);
+  private static final int DAYS_PER_NMI = 365;
+  private static final long SEED = 12L;
+
+  private BenchmarkFiles() {
+  }
+
+  /**
+   * Parse a size such as 1MB, 100MB or 1GB.
+   *
+   * @param size the size with a KB, MB or GB suffix
+   * @return the size in bytes.
+   */
+  public static long parseSize(String size) {
+    String unit = size.substring(size.length() - 2).toUpperCase();
+    long value = Long.parseLong(size.substring(0, size.length() - 2));
+    switch (unit) {
+      case "KB":
+        return value << 10;
+      case "MB":
+        return value << 20;
+      case "GB":
+        return value << 30;
+      default:
+        throw new IllegalArgumentException("Unknown size " + size);
+    }
+  }
+
+  /**
+   * Get a generated file of at least the given size, generating it on first use.
+   *
+   * @param size the size with a KB, MB or GB suffix
+   * @return the generated file.
+   */
+  public static File simpleNem12File(String size) {
+    File file = new File(System.getProperty("java.io.tmpdir"),
+        "SimpleNem12_" + size + "_" + SEED + ".csv");
+    long targetSize = parseSize(size);
+    if (file.length() < targetSize) {
+      write(file, targetSize);
+    }
+    return file;
+  }
+
+  private static void write(File file, long targetSize) {
+    SimpleNem12GeneratorConfig config = new SimpleNem12GeneratorConfig();
+    config.setSeed(SEED);
+    config.setNmiCount(Integer.MAX_VALUE);
+    config.setFirstDate(FIRST_DATE);
+    config.setDaysPerNmi(DAYS_PER_NMI);
+    config.setTargetBytes(targetSize);
+    try {
+      new SimpleNem12Generator(config).generate(file, (nmi, expectedTotals) -> {
+      });
+    } catch (SimpleNem12ParserException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
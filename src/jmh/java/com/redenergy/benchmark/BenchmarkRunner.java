@@ -0,0 +1,34 @@
+package com.redenergy.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar, takes the usual JMH command line and always adds the GC
+ * profiler so allocation rates are reported next to throughput.
+ *
+ * <pre>
+ *   mvn -Pjmh package -DskipTests
+ *   java -jar target/benchmarks.jar                       # everything
+ *   java -jar target/benchmarks.jar HotPath               # micro benchmarks only
+ *   java -jar target/benchmarks.jar Parser -p fileSize=1GB -jvmArgsAppend "-Xms16g -Xmx16g"
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+  }
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    Options options = new OptionsBuilder()
+        .parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class)
+        .build();
+    new Runner(options).run();
+  }
+}
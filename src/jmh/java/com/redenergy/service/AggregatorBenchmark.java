@@ -0,0 +1,76 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.EnergyUnit;
+import com.redenergy.model.Quality;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of ConcurrentNmiAggregator as the number of adding threads grows, run with
+ * <code>-t 1</code>, <code>-t 4</code> and so on to compare.
+ *
+ * Every thread adds consecutive days to its own run of NMIs, as parser threads of different
+ * files mostly do, with the aggregator shared by all threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(Threads.MAX)
+@Fork(1)
+public class AggregatorBenchmark {
+
+  private static final int NMIS = 4096;
+
+  private ConcurrentNmiAggregator aggregator;
+  private String[] nmis;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    aggregator = new ConcurrentNmiAggregator();
+    nmis = new String[NMIS];
+    for (int i = 0; i < NMIS; i++) {
+      nmis[i] = String.valueOf(6_000_000_000L + i);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadCursor {
+
+    private static int threadCount;
+
+    private int nmiIndex;
+    private long epochDay;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+      synchronized (ThreadCursor.class) {
+        nmiIndex = (threadCount++ * 257) % NMIS;
+      }
+      epochDay = 17_000;
+    }
+  }
+
+  @Benchmark
+  public void addVolume(ThreadCursor cursor) throws SimpleNem12ParserException {
+    aggregator.add(nmis[cursor.nmiIndex], EnergyUnit.KWH, cursor.epochDay++, 2396, 2, Quality.A);
+    if (cursor.epochDay == 17_366) {
+      cursor.epochDay = 17_000;
+      cursor.nmiIndex = (cursor.nmiIndex + 1) % NMIS;
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package com.redenergy.service;
+
+import com.redenergy.benchmark.BenchmarkFiles;
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.ColumnarMeterVolumes;
+import com.redenergy.model.EnergyUnit;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterVolume;
+import com.redenergy.model.Quality;
+import com.redenergy.repository.MeterRecordLine;
+import com.redenergy.repository.MeterRecordsReader;
+import com.redenergy.validation.Nem12Validators;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmarks of the per line work of the parser: reading lines, parsing 200 and 300
+ * records, dates, volumes, the validators and the volume totals.
+ *
+ * The benchmarks of a single record run over the records of one generated 200 block, so the
+ * branch predictor sees real variety in dates, volumes and qualities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotPathBenchmark {
+
+  private static final int BLOCK_SIZE = 366;
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+  @Param({"TREE_MAP", "COLUMNAR"})
+  public VolumeStorage volumeStorage;
+
+  @Param({"BIG_DECIMAL", "FIXED_POINT"})
+  public DecimalMode decimalMode;
+
+  private File smallFile;
+  private String[] block;
+  private String[] dates;
+  private String[] volumes;
+  private MeterRecordLine[] childRecords;
+  private MeterReadAssembler meterReadAssembler;
+  private Nem12DateDecoder dateDecoder;
+  private MeterRead meterRead;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SimpleNem12ParserException {
+    smallFile = BenchmarkFiles.simpleNem12File("1MB");
+    List<String> lines = new MeterRecordsReader().readLines(smallFile);
+    block = lines.subList(1, 1 + BLOCK_SIZE).toArray(new String[0]);
+
+    int children = BLOCK_SIZE - 1;
+    dates = new String[children];
+    volumes = new String[children];
+    childRecords = new MeterRecordLine[children];
+    for (int i = 0; i < children; i++) {
+      String[] fields = block[i + 1].split(",");
+      dates[i] = fields[1];
+      volumes[i] = fields[2];
+      childRecords[i] = new MeterRecordLine().tokenize(block[i + 1], i + 2L);
+    }
+
+    SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+    config.setVolumeStorage(volumeStorage);
+    config.setDecimalMode(decimalMode);
+    meterReadAssembler = new MeterReadAssembler(config);
+    dateDecoder = new Nem12DateDecoder();
+
+    for (int i = 0; i < BLOCK_SIZE; i++) {
+      meterReadAssembler.accept(block[i], i + 2L);
+    }
+    meterRead = meterReadAssembler.finish();
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public List<String> readLines() throws SimpleNem12ParserException {
+    return new MeterRecordsReader().readLines(smallFile);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BLOCK_SIZE)
+  public MeterRead parseMeterRecords() throws SimpleNem12ParserException {
+    for (int i = 0; i < BLOCK_SIZE; i++) {
+      meterReadAssembler.accept(block[i], i + 2L);
+    }
+    return meterReadAssembler.finish();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BLOCK_SIZE - 1)
+  public void parseDate(Blackhole blackhole) throws SimpleNem12ParserException {
+    for (MeterRecordLine childRecord : childRecords) {
+      blackhole.consume(dateDecoder.decode(childRecord, 1));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BLOCK_SIZE - 1)
+  public void parseDateWithFormatter(Blackhole blackhole) {
+    for (String date : dates) {
+      blackhole.consume(LocalDate.parse(date, DATE_FORMAT));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BLOCK_SIZE - 1)
+  public void createMeterVolume(Blackhole blackhole) {
+    for (String volume : volumes) {
+      blackhole.consume(new MeterVolume(new BigDecimal(volume), Quality.A));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BLOCK_SIZE - 1)
+  public void validators(Blackhole blackhole) {
+    for (int i = 0; i < BLOCK_SIZE - 1; i++) {
+      blackhole.consume(Nem12Validators.isValidNmi(10).test("6123456789"));
+      blackhole.consume(Nem12Validators.isValidEnergyUnit().test(EnergyUnit.KWH.toString()));
+      blackhole.consume(Nem12Validators.isValidQuality().test(Quality.A.toString()));
+    }
+  }
+
+  @Benchmark
+  public BigDecimal getTotalVolume() {
+    return meterRead.getTotalVolume();
+  }
+
+  @Benchmark
+  public BigDecimal getTotalVolumeUncached() {
+    if (meterRead.getVolumes() instanceof ColumnarMeterVolumes) {
+      //a replace invalidates the running total, forcing a rebuild on the next read
+      LocalDate firstDate = meterRead.getVolumes().firstKey();
+      meterRead.getVolumes().put(firstDate, meterRead.getVolumes().get(firstDate));
+    }
+    return meterRead.getTotalVolume();
+  }
+}
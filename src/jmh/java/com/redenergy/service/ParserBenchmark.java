@@ -0,0 +1,88 @@
+package com.redenergy.service;
+
+import com.redenergy.benchmark.BenchmarkFiles;
+import com.redenergy.model.MeterRead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end parse of generated Simple NEM12 files, for every reader and parser.
+ *
+ * The default sizes fit the 4GB fork heap. Larger sizes need a heap of a few times the file
+ * size as every MeterRead is kept, so run them on their own with a heap to match, such as
+ * <code>-p fileSize=1GB -jvmArgsAppend "-Xms16g -Xmx16g"</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParserBenchmark {
+
+  @Param({"1MB", "100MB"})
+  public String fileSize;
+
+  @Param({"LINES", "MAPPED", "PARALLEL"})
+  public String parser;
+
+  @Param({"TREE_MAP", "COLUMNAR"})
+  public VolumeStorage volumeStorage;
+
+  @Param({"BIG_DECIMAL", "FIXED_POINT"})
+  public DecimalMode decimalMode;
+
+  private File simpleNem12File;
+  private SimpleNem12Parser simpleNem12Parser;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    simpleNem12File = BenchmarkFiles.simpleNem12File(fileSize);
+
+    SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+    config.setVolumeStorage(volumeStorage);
+    config.setDecimalMode(decimalMode);
+    if ("PARALLEL".equals(parser)) {
+      simpleNem12Parser = new ParallelSimpleNem12Parser(
+          Runtime.getRuntime().availableProcessors(), 1024 * 1024, config);
+    } else {
+      config.setReaderMode(ReaderMode.valueOf(parser));
+      simpleNem12Parser = new SimpleNem12ParserImpl(config);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (simpleNem12Parser instanceof ParallelSimpleNem12Parser) {
+      ((ParallelSimpleNem12Parser) simpleNem12Parser).close();
+    }
+  }
+
+  @Benchmark
+  public Collection<MeterRead> parseSimpleNem12() {
+    return simpleNem12Parser.parseSimpleNem12(simpleNem12File);
+  }
+
+  @Benchmark
+  public long parseSimpleNem12Streaming() throws Exception {
+    long[] volumeCount = new long[1];
+    simpleNem12Parser.parseSimpleNem12(simpleNem12File,
+        meterRead -> volumeCount[0] += meterRead.getVolumeCount());
+    return volumeCount[0];
+  }
+}
@@ -0,0 +1,87 @@
+package com.redenergy.service;
+
+import com.redenergy.benchmark.BenchmarkFiles;
+import com.redenergy.model.MeterRead;
+import com.redenergy.repository.Compression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing parsed MeterReads back out as Simple NEM12 to a channel discarding the bytes, so
+ * only the encoding and compression are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class WriterBenchmark {
+
+  @Param({"1MB", "100MB"})
+  public String fileSize;
+
+  @Param({"TREE_MAP", "COLUMNAR"})
+  public VolumeStorage volumeStorage;
+
+  @Param({"NONE", "GZIP"})
+  public Compression compression;
+
+  private Collection<MeterRead> meterReads;
+  private SimpleNem12Writer simpleNem12Writer;
+  private final DiscardingChannel channel = new DiscardingChannel();
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+    config.setVolumeStorage(volumeStorage);
+    config.setDecimalMode(volumeStorage == VolumeStorage.COLUMNAR
+        ? DecimalMode.FIXED_POINT : DecimalMode.BIG_DECIMAL);
+    meterReads = new SimpleNem12ParserImpl(config)
+        .parseSimpleNem12(BenchmarkFiles.simpleNem12File(fileSize));
+    simpleNem12Writer = new SimpleNem12Writer(compression);
+  }
+
+  @Benchmark
+  public long writeSimpleNem12() throws Exception {
+    simpleNem12Writer.writeSimpleNem12(meterReads, channel);
+    return channel.written;
+  }
+
+  private static final class DiscardingChannel implements WritableByteChannel {
+
+    private long written;
+
+    @Override
+    public int write(ByteBuffer source) {
+      int length = source.remaining();
+      source.position(source.limit());
+      written += length;
+      return length;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
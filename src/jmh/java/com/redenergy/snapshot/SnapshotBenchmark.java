@@ -0,0 +1,69 @@
+package com.redenergy.snapshot;
+
+import com.redenergy.benchmark.BenchmarkFiles;
+import com.redenergy.model.MeterRead;
+import com.redenergy.service.DecimalMode;
+import com.redenergy.service.SimpleNem12ParserConfig;
+import com.redenergy.service.SimpleNem12ParserImpl;
+import com.redenergy.service.VolumeStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a snapshot against parsing the Simple NEM12 file it was written from, compare with
+ * <code>ParserBenchmark.parseSimpleNem12</code> of the same size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SnapshotBenchmark {
+
+  @Param({"1MB", "100MB"})
+  public String fileSize;
+
+  @Param({"TREE_MAP", "COLUMNAR"})
+  public VolumeStorage volumeStorage;
+
+  private File snapshotFile;
+  private MeterReadSnapshotReader snapshotReader;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+    config.setVolumeStorage(VolumeStorage.COLUMNAR);
+    config.setDecimalMode(DecimalMode.FIXED_POINT);
+    Collection<MeterRead> meterReads = new SimpleNem12ParserImpl(config)
+        .parseSimpleNem12(BenchmarkFiles.simpleNem12File(fileSize));
+    snapshotFile = File.createTempFile("SimpleNem12_" + fileSize, ".snapshot");
+    new MeterReadSnapshotWriter().writeSnapshot(meterReads, snapshotFile);
+    snapshotReader = new MeterReadSnapshotReader(volumeStorage);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    snapshotFile.delete();
+  }
+
+  @Benchmark
+  public Collection<MeterRead> readSnapshot() throws Exception {
+    return snapshotReader.readSnapshot(snapshotFile);
+  }
+}
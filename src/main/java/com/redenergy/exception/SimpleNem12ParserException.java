@@ -1,16 +1,37 @@
 package com.redenergy.exception;
 
+import com.redenergy.validation.ValidationRule;
+
 /**
  * For Exceptions thrown while parsing Interval Metering Data.
  */
 public class SimpleNem12ParserException extends Exception{
 
+  private final ValidationRule rule;
+
   public SimpleNem12ParserException(String message) {
-    super(message);
+    this(message, (ValidationRule) null);
   }
 
   public SimpleNem12ParserException(String message, Throwable cause) {
     super(message, cause);
+    this.rule = null;
+  }
+
+  /**
+   * @param message the reason of the failed validation
+   * @param rule    the rule the validation checked
+   */
+  public SimpleNem12ParserException(String message, ValidationRule rule) {
+    super(message);
+    this.rule = rule;
+  }
+
+  /**
+   * @return the rule of the failed validation, null if the exception is not a failed validation.
+   */
+  public ValidationRule getRule() {
+    return rule;
   }
 
 }
@@ -0,0 +1,82 @@
+package com.redenergy.generator;
+
+import com.redenergy.model.VolumeAggregate;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * What SimpleNem12Generator wrote: the counts of records and, unless they were streamed to a
+ * consumer, the expected volume totals of every NMI.
+ */
+public final class SimpleNem12GenerationResult {
+
+  private final long byteCount;
+  private final int nmiCount;
+  private final long volumeCount;
+  private final long estimatedCount;
+  private final int duplicateBlockCount;
+  private final long badRecordCount;
+  private final Map<String, VolumeAggregate> expectedTotals;
+
+  SimpleNem12GenerationResult(long byteCount, int nmiCount, long volumeCount,
+                              long estimatedCount, int duplicateBlockCount, long badRecordCount,
+                              Map<String, VolumeAggregate> expectedTotals) {
+    this.byteCount = byteCount;
+    this.nmiCount = nmiCount;
+    this.volumeCount = volumeCount;
+    this.estimatedCount = estimatedCount;
+    this.duplicateBlockCount = duplicateBlockCount;
+    this.badRecordCount = badRecordCount;
+    this.expectedTotals = Collections.unmodifiableMap(expectedTotals);
+  }
+
+  public long getByteCount() {
+    return byteCount;
+  }
+
+  public int getNmiCount() {
+    return nmiCount;
+  }
+
+  /**
+   * @return the volumes a parser keeps, one per NMI and date, after duplicate blocks replaced
+   *     earlier volumes and bad records were skipped.
+   */
+  public long getVolumeCount() {
+    return volumeCount;
+  }
+
+  /**
+   * @return the volumes kept with the E quality.
+   */
+  public long getEstimatedCount() {
+    return estimatedCount;
+  }
+
+  public int getDuplicateBlockCount() {
+    return duplicateBlockCount;
+  }
+
+  /**
+   * @return the 300 records written with a bad field, each skipped in the LENIENT error mode.
+   */
+  public long getBadRecordCount() {
+    return badRecordCount;
+  }
+
+  /**
+   * @return the sum, count, min and max of the volumes kept for each NMI in file order, empty
+   *     when they were handed to a consumer instead.
+   */
+  public Map<String, VolumeAggregate> getExpectedTotals() {
+    return expectedTotals;
+  }
+
+  @Override
+  public String toString() {
+    return "SimpleNem12GenerationResult{bytes=" + byteCount + ", nmis=" + nmiCount
+        + ", volumes=" + volumeCount + ", estimated=" + estimatedCount + ", duplicateBlocks="
+        + duplicateBlockCount + ", badRecords=" + badRecordCount + '}';
+  }
+}
@@ -0,0 +1,317 @@
+package com.redenergy.generator;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.Quality;
+import com.redenergy.model.VolumeAggregate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.BiConsumer;
+
+/**
+ * Writes seeded, synthetic Simple NEM12 files for load and soak testing, valid or with
+ * deliberately bad records.
+ *
+ * Every NMI has a 200 block with a 300 record per day. Volumes have 0 to 3 decimal places and
+ * some are negative. A 200 block may be followed by a second block of the same NMI, reading a
+ * run of its dates again with new volumes. A 300 record may be written with a 7 digit date, a
+ * volume that is not a number, an unknown quality or no quality field. Bad records are skipped in
+ * the LENIENT error mode, with enough errors allowed, and fail the file in the STRICT mode.
+ *
+ * The volumes a parser keeps for a NMI are tracked while its blocks are written, with later
+ * blocks replacing earlier volumes and bad records skipped, so the expected totals are known as
+ * soon as the NMI is written. Lines are encoded straight into a byte buffer from precomputed
+ * dates and digits. The same seed and options always give the same bytes. A generator is not
+ * thread safe.
+ */
+public class SimpleNem12Generator {
+
+  private static final int BUFFER_SIZE = 256 * 1024;
+  private static final int MAX_LINE_LENGTH = 64;
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+  private static final byte[] HEADER = "100\n".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] TRAILER = "900\n".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] PARENT_PREFIX = "200,".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] PARENT_SUFFIX = ",KWH\n".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] CHILD_PREFIX = "300,".getBytes(StandardCharsets.US_ASCII);
+  private static final int MAX_SCALE = 3;
+  private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L};
+  private static final int BAD_FIELD_KINDS = 4;
+
+  private final SimpleNem12GeneratorConfig config;
+  private final byte[][] dates;
+
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position;
+  private long flushedBytes;
+  private FileChannel channel;
+  private SplittableRandom random;
+
+  //the volumes kept for the NMI being written, by day
+  private final long[] unscaledVolumes;
+  private final byte[] scales;
+  private final byte[] qualities;
+  private final boolean[] read;
+
+  private long volumeCount;
+  private long estimatedCount;
+  private int duplicateBlockCount;
+  private long badRecordCount;
+
+  /**
+   * @param config the options of the generated files.
+   */
+  public SimpleNem12Generator(SimpleNem12GeneratorConfig config) {
+    if (config.getNmiCount() < 0 || config.getDaysPerNmi() < 1) {
+      throw new IllegalArgumentException("nmiCount must not be negative and daysPerNmi positive");
+    }
+    if (config.getFirstNmi() < 1_000_000_000L
+        || config.getFirstNmi() + config.getNmiCount() > 10_000_000_000L) {
+      throw new IllegalArgumentException("Every NMI must have 10 digits");
+    }
+    checkShare("estimatedShare", config.getEstimatedShare());
+    checkShare("duplicateBlockRate", config.getDuplicateBlockRate());
+    checkShare("badFieldRate", config.getBadFieldRate());
+    this.config = config;
+    int days = config.getDaysPerNmi();
+    dates = new byte[days][];
+    for (int day = 0; day < days; day++) {
+      dates[day] = config.getFirstDate().plusDays(day).format(DATE_FORMAT)
+          .getBytes(StandardCharsets.US_ASCII);
+    }
+    unscaledVolumes = new long[days];
+    scales = new byte[days];
+    qualities = new byte[days];
+    read = new boolean[days];
+  }
+
+  /**
+   * Write a file, replacing it if it exists, and keep the expected totals of every NMI.
+   *
+   * @param simpleNem12File the file to write
+   * @return the counts of what was written and the expected totals by NMI.
+   * @throws SimpleNem12ParserException if the file cannot be written.
+   */
+  public SimpleNem12GenerationResult generate(File simpleNem12File)
+      throws SimpleNem12ParserException {
+    Map<String, VolumeAggregate> expectedTotals = new LinkedHashMap<>();
+    return generate(simpleNem12File, expectedTotals::put, expectedTotals);
+  }
+
+  /**
+   * Write a file, replacing it if it exists, handing the expected totals of each NMI to the
+   * consumer once its last block is written instead of keeping them, for files with more NMIs
+   * than fit in memory.
+   *
+   * @param simpleNem12File        the file to write
+   * @param expectedTotalsConsumer the consumer of the NMI and the sum, count, min and max of its
+   *                               volumes
+   * @return the counts of what was written.
+   * @throws SimpleNem12ParserException if the file cannot be written.
+   */
+  public SimpleNem12GenerationResult generate(File simpleNem12File,
+                                              BiConsumer<String, VolumeAggregate>
+                                                  expectedTotalsConsumer)
+      throws SimpleNem12ParserException {
+    return generate(simpleNem12File, expectedTotalsConsumer, new LinkedHashMap<>());
+  }
+
+  private SimpleNem12GenerationResult generate(File simpleNem12File,
+                                               BiConsumer<String, VolumeAggregate>
+                                                   expectedTotalsConsumer,
+                                               Map<String, VolumeAggregate> expectedTotals)
+      throws SimpleNem12ParserException {
+    try (FileChannel fileChannel = FileChannel.open(simpleNem12File.toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      begin(fileChannel);
+      writeBytes(HEADER);
+      int nmiCount = 0;
+      while (nmiCount < config.getNmiCount()
+          && (config.getTargetBytes() <= 0 || byteCount() < config.getTargetBytes())) {
+        String nmi = Long.toString(config.getFirstNmi() + nmiCount);
+        writeNmi(nmi);
+        expectedTotalsConsumer.accept(nmi, expectedTotals());
+        nmiCount++;
+      }
+      writeBytes(TRAILER);
+      flush();
+      return new SimpleNem12GenerationResult(byteCount(), nmiCount, volumeCount, estimatedCount,
+          duplicateBlockCount, badRecordCount, expectedTotals);
+    } catch (IOException ex) {
+      throw new SimpleNem12ParserException("Error writing " + simpleNem12File, ex);
+    } finally {
+      channel = null;
+    }
+  }
+
+  private void begin(FileChannel fileChannel) {
+    channel = fileChannel;
+    random = new SplittableRandom(config.getSeed());
+    position = 0;
+    flushedBytes = 0;
+    volumeCount = 0;
+    estimatedCount = 0;
+    duplicateBlockCount = 0;
+    badRecordCount = 0;
+  }
+
+  private void writeNmi(String nmi) throws IOException {
+    Arrays.fill(read, false);
+    byte[] nmiBytes = nmi.getBytes(StandardCharsets.US_ASCII);
+    int days = dates.length;
+    writeBlock(nmiBytes, 0, days);
+    if (config.getDuplicateBlockRate() > 0
+        && random.nextDouble() < config.getDuplicateBlockRate()) {
+      int from = random.nextInt(days);
+      writeBlock(nmiBytes, from, from + 1 + random.nextInt(days - from));
+      duplicateBlockCount++;
+    }
+  }
+
+  private void writeBlock(byte[] nmi, int fromDay, int toDay) throws IOException {
+    writeBytes(PARENT_PREFIX);
+    writeBytes(nmi);
+    writeBytes(PARENT_SUFFIX);
+    for (int day = fromDay; day < toDay; day++) {
+      int scale = random.nextInt(MAX_SCALE + 1);
+      long unscaledVolume = random.nextLong(-20 * POWERS_OF_TEN[scale],
+          200 * POWERS_OF_TEN[scale]);
+      Quality quality = random.nextDouble() < config.getEstimatedShare() ? Quality.E : Quality.A;
+      if (config.getBadFieldRate() > 0 && random.nextDouble() < config.getBadFieldRate()) {
+        writeBadRecord(day, unscaledVolume, scale, quality, random.nextInt(BAD_FIELD_KINDS));
+        badRecordCount++;
+        continue;
+      }
+      writeRecord(day, unscaledVolume, scale, quality);
+      unscaledVolumes[day] = unscaledVolume;
+      scales[day] = (byte) scale;
+      qualities[day] = (byte) quality.ordinal();
+      read[day] = true;
+    }
+  }
+
+  private void writeRecord(int day, long unscaledVolume, int scale, Quality quality)
+      throws IOException {
+    ensureRemaining(MAX_LINE_LENGTH);
+    putBytes(CHILD_PREFIX);
+    putBytes(dates[day]);
+    buffer[position++] = ',';
+    putVolume(unscaledVolume, scale);
+    buffer[position++] = ',';
+    buffer[position++] = (byte) quality.name().charAt(0);
+    buffer[position++] = '\n';
+  }
+
+  private void writeBadRecord(int day, long unscaledVolume, int scale, Quality quality,
+                              int badFieldKind) throws IOException {
+    ensureRemaining(MAX_LINE_LENGTH);
+    putBytes(CHILD_PREFIX);
+    if (badFieldKind == 0) {
+      //a 7 digit date cannot be parsed
+      System.arraycopy(dates[day], 0, buffer, position, dates[day].length - 1);
+      position += dates[day].length - 1;
+    } else {
+      putBytes(dates[day]);
+    }
+    buffer[position++] = ',';
+    putVolume(unscaledVolume, scale);
+    if (badFieldKind == 1) {
+      buffer[position++] = 'x';
+    }
+    if (badFieldKind != 3) {
+      buffer[position++] = ',';
+      buffer[position++] = badFieldKind == 2 ? (byte) 'X' : (byte) quality.name().charAt(0);
+    }
+    buffer[position++] = '\n';
+  }
+
+  /**
+   * Put the digits of a volume of at most 3 decimal places.
+   */
+  private void putVolume(long unscaledVolume, int scale) {
+    if (unscaledVolume < 0) {
+      buffer[position++] = '-';
+    }
+    long magnitude = Math.abs(unscaledVolume);
+    putDigits(magnitude / POWERS_OF_TEN[scale], 1);
+    if (scale > 0) {
+      buffer[position++] = '.';
+      putDigits(magnitude % POWERS_OF_TEN[scale], scale);
+    }
+  }
+
+  /**
+   * Put the digits of a non negative value, zero padded to at least the given width.
+   */
+  private void putDigits(long value, int width) {
+    int digits = 1;
+    for (long rest = value / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    digits = Math.max(digits, width);
+    for (int i = position + digits - 1; i >= position; i--) {
+      buffer[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    position += digits;
+  }
+
+  private VolumeAggregate expectedTotals() {
+    VolumeAggregate volumeAggregate = new VolumeAggregate();
+    for (int day = 0; day < read.length; day++) {
+      if (read[day]) {
+        volumeAggregate.add(unscaledVolumes[day], scales[day]);
+        volumeCount++;
+        if (qualities[day] == Quality.E.ordinal()) {
+          estimatedCount++;
+        }
+      }
+    }
+    return volumeAggregate;
+  }
+
+  private long byteCount() {
+    return flushedBytes + position;
+  }
+
+  private void writeBytes(byte[] bytes) throws IOException {
+    ensureRemaining(bytes.length);
+    putBytes(bytes);
+  }
+
+  private void putBytes(byte[] bytes) {
+    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+    position += bytes.length;
+  }
+
+  private void ensureRemaining(int bytes) throws IOException {
+    if (buffer.length - position < bytes) {
+      flush();
+    }
+  }
+
+  private void flush() throws IOException {
+    ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, position);
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+    flushedBytes += position;
+    position = 0;
+  }
+
+  private static void checkShare(String name, double share) {
+    if (!(share >= 0 && share <= 1)) {
+      throw new IllegalArgumentException(name + " must be between 0 and 1");
+    }
+  }
+}
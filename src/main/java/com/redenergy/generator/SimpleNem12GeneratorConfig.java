@@ -0,0 +1,118 @@
+package com.redenergy.generator;
+
+import java.time.LocalDate;
+
+/**
+ * Options of SimpleNem12Generator, the defaults give a valid file of 1000 NMIs with a year of
+ * volumes each.
+ */
+public class SimpleNem12GeneratorConfig {
+
+  private long seed = 1L;
+  private int nmiCount = 1000;
+  private long firstNmi = 6123456789L;
+  private int daysPerNmi = 365;
+  private LocalDate firstDate = LocalDate.of(2020, 1, 1);
+  private double estimatedShare = 0.1;
+  private double duplicateBlockRate = 0;
+  private double badFieldRate = 0;
+  private long targetBytes = 0;
+
+  /**
+   * @return the seed of the random volumes, the same seed and options give the same bytes.
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * @return the most NMIs written, each in its own 200 block.
+   */
+  public int getNmiCount() {
+    return nmiCount;
+  }
+
+  public void setNmiCount(int nmiCount) {
+    this.nmiCount = nmiCount;
+  }
+
+  /**
+   * @return the first NMI, the next NMIs counting up from it.
+   */
+  public long getFirstNmi() {
+    return firstNmi;
+  }
+
+  public void setFirstNmi(long firstNmi) {
+    this.firstNmi = firstNmi;
+  }
+
+  public int getDaysPerNmi() {
+    return daysPerNmi;
+  }
+
+  public void setDaysPerNmi(int daysPerNmi) {
+    this.daysPerNmi = daysPerNmi;
+  }
+
+  /**
+   * @return the date of the first 300 record of every NMI.
+   */
+  public LocalDate getFirstDate() {
+    return firstDate;
+  }
+
+  public void setFirstDate(LocalDate firstDate) {
+    this.firstDate = firstDate;
+  }
+
+  /**
+   * @return the share of 300 records with the E quality, between 0 and 1.
+   */
+  public double getEstimatedShare() {
+    return estimatedShare;
+  }
+
+  public void setEstimatedShare(double estimatedShare) {
+    this.estimatedShare = estimatedShare;
+  }
+
+  /**
+   * @return the share of 200 blocks followed by a second block of the same NMI, reading a run
+   *     of its dates again with new volumes.
+   */
+  public double getDuplicateBlockRate() {
+    return duplicateBlockRate;
+  }
+
+  public void setDuplicateBlockRate(double duplicateBlockRate) {
+    this.duplicateBlockRate = duplicateBlockRate;
+  }
+
+  /**
+   * @return the share of 300 records written with an invalid date, volume or quality or a
+   *     missing field, between 0 and 1.
+   */
+  public double getBadFieldRate() {
+    return badFieldRate;
+  }
+
+  public void setBadFieldRate(double badFieldRate) {
+    this.badFieldRate = badFieldRate;
+  }
+
+  /**
+   * @return the size at which no further NMI is started, 0 to write every NMI.
+   */
+  public long getTargetBytes() {
+    return targetBytes;
+  }
+
+  public void setTargetBytes(long targetBytes) {
+    this.targetBytes = targetBytes;
+  }
+}
@@ -0,0 +1,439 @@
+// Copyright Red Energy Limited 2017
+
+package com.redenergy.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Compact alternative to a <code>TreeMap</code> for the volumes of a <code>MeterRead</code>.
+ *
+ * Volumes are held in parallel primitive columns sorted by date: epoch-day keys, the unscaled
+ * value and scale of each volume and its quality. Volumes arriving in date order are appended,
+ * only out of order dates are binary searched and inserted. <code>LocalDate</code> and
+ * <code>MeterVolume</code> objects are created on demand when the map is read, so this is a
+ * lazy <code>SortedMap</code> view. Sub maps are date bounded views over the same columns.
+ *
+ * The total, count and min/max of the volumes are kept up to date as volumes are appended,
+ * so reading them is O(1). Replacing or removing volumes marks them to be rebuilt on next read.
+ */
+public class ColumnarMeterVolumes extends AbstractMap<LocalDate, MeterVolume>
+    implements SortedMap<LocalDate, MeterVolume>, FixedPointVolumes {
+
+  private static final int INITIAL_CAPACITY = 8;
+  private static final Quality[] QUALITIES = Quality.values();
+
+  private final Columns columns;
+  private final long fromDay;
+  private final long toDay;
+
+  public ColumnarMeterVolumes() {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * @param initialCapacity the number of volumes held before the columns grow.
+   */
+  public ColumnarMeterVolumes(int initialCapacity) {
+    this(new Columns(Math.max(1, initialCapacity)), Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  private ColumnarMeterVolumes(Columns columns, long fromDay, long toDay) {
+    this.columns = columns;
+    this.fromDay = fromDay;
+    this.toDay = toDay;
+  }
+
+  /**
+   * Add or replace the volume on a date without creating any objects for the common case
+   * of dates arriving in order.
+   *
+   * @param epochDay       the date as epoch day
+   * @param unscaledVolume the unscaled volume
+   * @param scale          the scale of the volume
+   * @param quality        the quality
+   */
+  public void put(long epochDay, long unscaledVolume, int scale, Quality quality) {
+    checkInRange(epochDay);
+    columns.put(toIntDay(epochDay), unscaledVolume, toByteScale(scale), quality);
+  }
+
+  @Override
+  public MeterVolume put(LocalDate localDate, MeterVolume meterVolume) {
+    BigDecimal volume = meterVolume.getVolume();
+    if (volume.unscaledValue().bitLength() > 63) {
+      throw new ArithmeticException("Volume " + volume + " exceeds the fixed point range");
+    }
+    MeterVolume previous = get(localDate);
+    put(localDate.toEpochDay(), volume.unscaledValue().longValue(), volume.scale(),
+        meterVolume.getQuality());
+    return previous;
+  }
+
+  @Override
+  public MeterVolume get(Object key) {
+    int index = indexOf(key);
+    return index < 0 ? null : columns.meterVolume(index);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  /**
+   * @param epochDay the date as epoch day
+   * @return true if there is a volume on the date, found without creating any objects.
+   */
+  public boolean containsEpochDay(long epochDay) {
+    if (epochDay < fromDay || epochDay >= toDay
+        || epochDay < Integer.MIN_VALUE || epochDay > Integer.MAX_VALUE) {
+      return false;
+    }
+    return columns.indexOf((int) epochDay) >= 0;
+  }
+
+  @Override
+  public MeterVolume remove(Object key) {
+    int index = indexOf(key);
+    if (index < 0) {
+      return null;
+    }
+    MeterVolume previous = columns.meterVolume(index);
+    columns.remove(index);
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    int low = lowIndex();
+    columns.removeRange(low, highIndex());
+  }
+
+  @Override
+  public int size() {
+    return highIndex() - lowIndex();
+  }
+
+  @Override
+  public Comparator<? super LocalDate> comparator() {
+    return null;
+  }
+
+  @Override
+  public SortedMap<LocalDate, MeterVolume> subMap(LocalDate fromKey, LocalDate toKey) {
+    if (fromKey.isAfter(toKey)) {
+      throw new IllegalArgumentException("fromKey > toKey");
+    }
+    long from = Math.max(fromDay, fromKey.toEpochDay());
+    long to = Math.min(toDay, toKey.toEpochDay());
+    return new ColumnarMeterVolumes(columns, from, Math.max(from, to));
+  }
+
+  @Override
+  public SortedMap<LocalDate, MeterVolume> headMap(LocalDate toKey) {
+    return new ColumnarMeterVolumes(columns, fromDay,
+        Math.max(fromDay, Math.min(toDay, toKey.toEpochDay())));
+  }
+
+  @Override
+  public SortedMap<LocalDate, MeterVolume> tailMap(LocalDate fromKey) {
+    return new ColumnarMeterVolumes(columns, Math.min(toDay,
+        Math.max(fromDay, fromKey.toEpochDay())), toDay);
+  }
+
+  @Override
+  public LocalDate firstKey() {
+    int low = lowIndex();
+    if (low >= highIndex()) {
+      throw new NoSuchElementException();
+    }
+    return LocalDate.ofEpochDay(columns.epochDays[low]);
+  }
+
+  @Override
+  public LocalDate lastKey() {
+    int high = highIndex();
+    if (lowIndex() >= high) {
+      throw new NoSuchElementException();
+    }
+    return LocalDate.ofEpochDay(columns.epochDays[high - 1]);
+  }
+
+  /**
+   * @return the sum of the volumes, kept as a running fixed point total for the whole map.
+   */
+  public BigDecimal getTotalVolume() {
+    return stats().getSum();
+  }
+
+  /**
+   * @return the smallest volume, the first in date order when several are equal.
+   */
+  public Optional<BigDecimal> getMinVolume() {
+    return stats().getMin();
+  }
+
+  /**
+   * @return the largest volume, the first in date order when several are equal.
+   */
+  public Optional<BigDecimal> getMaxVolume() {
+    return stats().getMax();
+  }
+
+  /**
+   * @return the sum, count, min and max of the volumes within the bounds of this map.
+   */
+  @Override
+  public VolumeAggregate getVolumeAggregate() {
+    VolumeAggregate volumeAggregate = new VolumeAggregate();
+    volumeAggregate.merge(stats());
+    return volumeAggregate;
+  }
+
+  /**
+   * Hand every volume within the bounds of this map to the consumer in date order, without
+   * creating any objects.
+   *
+   * @param volumeConsumer the consumer of the volumes
+   */
+  @Override
+  public void forEachVolume(FixedPointVolumeConsumer volumeConsumer) {
+    for (int index = lowIndex(), high = highIndex(); index < high; index++) {
+      volumeConsumer.accept(columns.epochDays[index], columns.unscaledVolumes[index],
+          columns.scales[index], QUALITIES[columns.qualities[index]]);
+    }
+  }
+
+  @Override
+  public Set<Entry<LocalDate, MeterVolume>> entrySet() {
+    return new AbstractSet<Entry<LocalDate, MeterVolume>>() {
+      @Override
+      public Iterator<Entry<LocalDate, MeterVolume>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return ColumnarMeterVolumes.this.size();
+      }
+    };
+  }
+
+  /**
+   * The cached statistics of the whole map, or a scan of the bounded range of a view.
+   */
+  private VolumeAggregate stats() {
+    if (fromDay == Long.MIN_VALUE && toDay == Long.MAX_VALUE) {
+      return columns.stats();
+    }
+    return columns.scan(lowIndex(), highIndex());
+  }
+
+  private int indexOf(Object key) {
+    if (!(key instanceof LocalDate)) {
+      return -1;
+    }
+    long epochDay = ((LocalDate) key).toEpochDay();
+    if (epochDay < fromDay || epochDay >= toDay) {
+      return -1;
+    }
+    return columns.indexOf(toIntDay(epochDay));
+  }
+
+  private int lowIndex() {
+    return fromDay == Long.MIN_VALUE ? 0 : columns.lowerBound(fromDay);
+  }
+
+  private int highIndex() {
+    return toDay == Long.MAX_VALUE ? columns.size : columns.lowerBound(toDay);
+  }
+
+  private void checkInRange(long epochDay) {
+    if (epochDay < fromDay || epochDay >= toDay) {
+      throw new IllegalArgumentException("key out of range");
+    }
+  }
+
+  private static int toIntDay(long epochDay) {
+    if (epochDay < Integer.MIN_VALUE || epochDay > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Epoch day " + epochDay + " is out of range");
+    }
+    return (int) epochDay;
+  }
+
+  private static byte toByteScale(int scale) {
+    if (scale < Byte.MIN_VALUE || scale > Byte.MAX_VALUE) {
+      throw new ArithmeticException("Volume scale " + scale + " exceeds the fixed point range");
+    }
+    return (byte) scale;
+  }
+
+  /**
+   * Iterates the entries within the bounds, creating each entry when it is reached.
+   */
+  private class EntryIterator implements Iterator<Entry<LocalDate, MeterVolume>> {
+
+    private int next = lowIndex();
+    private int end = highIndex();
+    private int last = -1;
+
+    @Override
+    public boolean hasNext() {
+      return next < end;
+    }
+
+    @Override
+    public Entry<LocalDate, MeterVolume> next() {
+      if (next >= end) {
+        throw new NoSuchElementException();
+      }
+      last = next++;
+      return new SimpleImmutableEntry<>(LocalDate.ofEpochDay(columns.epochDays[last]),
+          columns.meterVolume(last));
+    }
+
+    @Override
+    public void remove() {
+      if (last < 0) {
+        throw new IllegalStateException();
+      }
+      columns.remove(last);
+      next = last;
+      end--;
+      last = -1;
+    }
+  }
+
+  /**
+   * The primitive columns shared by a map and its sub map views.
+   */
+  private static final class Columns {
+
+    private int[] epochDays;
+    private long[] unscaledVolumes;
+    private byte[] scales;
+    private byte[] qualities;
+    private int size;
+    private VolumeAggregate stats = new VolumeAggregate();
+    private boolean statsValid = true;
+
+    Columns(int capacity) {
+      epochDays = new int[capacity];
+      unscaledVolumes = new long[capacity];
+      scales = new byte[capacity];
+      qualities = new byte[capacity];
+    }
+
+    void put(int epochDay, long unscaledVolume, byte scale, Quality quality) {
+      int index;
+      if (size == 0 || epochDays[size - 1] < epochDay) {
+        index = size;
+        stats.add(unscaledVolume, scale);
+      } else {
+        //replaced or out of order volumes change the order statistics, rebuilt when next read
+        statsValid = false;
+        index = Arrays.binarySearch(epochDays, 0, size, epochDay);
+        if (index >= 0) {
+          set(index, epochDay, unscaledVolume, scale, quality);
+          return;
+        }
+        index = -index - 1;
+      }
+      ensureCapacity(size + 1);
+      int moved = size - index;
+      if (moved > 0) {
+        System.arraycopy(epochDays, index, epochDays, index + 1, moved);
+        System.arraycopy(unscaledVolumes, index, unscaledVolumes, index + 1, moved);
+        System.arraycopy(scales, index, scales, index + 1, moved);
+        System.arraycopy(qualities, index, qualities, index + 1, moved);
+      }
+      set(index, epochDay, unscaledVolume, scale, quality);
+      size++;
+    }
+
+    void remove(int index) {
+      removeRange(index, index + 1);
+    }
+
+    void removeRange(int from, int to) {
+      if (to <= from) {
+        return;
+      }
+      statsValid = false;
+      int moved = size - to;
+      System.arraycopy(epochDays, to, epochDays, from, moved);
+      System.arraycopy(unscaledVolumes, to, unscaledVolumes, from, moved);
+      System.arraycopy(scales, to, scales, from, moved);
+      System.arraycopy(qualities, to, qualities, from, moved);
+      size -= to - from;
+    }
+
+    int indexOf(int epochDay) {
+      if (size > 0 && epochDays[size - 1] == epochDay) {
+        return size - 1;
+      }
+      int index = Arrays.binarySearch(epochDays, 0, size, epochDay);
+      return index < 0 ? -1 : index;
+    }
+
+    int lowerBound(long epochDay) {
+      if (epochDay <= Integer.MIN_VALUE) {
+        return 0;
+      }
+      if (epochDay > Integer.MAX_VALUE) {
+        return size;
+      }
+      int index = Arrays.binarySearch(epochDays, 0, size, (int) epochDay);
+      return index < 0 ? -index - 1 : index;
+    }
+
+    VolumeAggregate stats() {
+      if (!statsValid) {
+        stats = scan(0, size);
+        statsValid = true;
+      }
+      return stats;
+    }
+
+    VolumeAggregate scan(int from, int to) {
+      VolumeAggregate volumeAggregate = new VolumeAggregate();
+      for (int index = from; index < to; index++) {
+        volumeAggregate.add(unscaledVolumes[index], scales[index]);
+      }
+      return volumeAggregate;
+    }
+
+    MeterVolume meterVolume(int index) {
+      return new MeterVolume(BigDecimal.valueOf(unscaledVolumes[index], scales[index]),
+          QUALITIES[qualities[index]]);
+    }
+
+    private void set(int index, int epochDay, long unscaledVolume, byte scale, Quality quality) {
+      epochDays[index] = epochDay;
+      unscaledVolumes[index] = unscaledVolume;
+      scales[index] = scale;
+      qualities[index] = (byte) Objects.requireNonNull(quality).ordinal();
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity > epochDays.length) {
+        int newCapacity = Math.max(capacity, epochDays.length + (epochDays.length >> 1));
+        epochDays = Arrays.copyOf(epochDays, newCapacity);
+        unscaledVolumes = Arrays.copyOf(unscaledVolumes, newCapacity);
+        scales = Arrays.copyOf(scales, newCapacity);
+        qualities = Arrays.copyOf(qualities, newCapacity);
+      }
+    }
+  }
+}
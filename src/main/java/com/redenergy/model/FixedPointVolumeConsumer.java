@@ -0,0 +1,17 @@
+package com.redenergy.model;
+
+/**
+ * Consumer of a volume held as primitives, so volumes can be read without creating
+ * LocalDate, BigDecimal or MeterVolume objects.
+ */
+@FunctionalInterface
+public interface FixedPointVolumeConsumer {
+
+  /**
+   * @param epochDay       the date as epoch day
+   * @param unscaledVolume the unscaled volume
+   * @param scale          the scale of the volume
+   * @param quality        the quality
+   */
+  void accept(long epochDay, long unscaledVolume, int scale, Quality quality);
+}
@@ -0,0 +1,20 @@
+package com.redenergy.model;
+
+/**
+ * Volumes held as fixed point primitives, such as <code>ColumnarMeterVolumes</code>, which can
+ * be read without creating LocalDate, BigDecimal or MeterVolume objects.
+ */
+public interface FixedPointVolumes {
+
+  /**
+   * Hand every volume to the consumer in date order.
+   *
+   * @param volumeConsumer the consumer of the volumes
+   */
+  void forEachVolume(FixedPointVolumeConsumer volumeConsumer);
+
+  /**
+   * @return the sum, count, min and max of the volumes.
+   */
+  VolumeAggregate getVolumeAggregate();
+}
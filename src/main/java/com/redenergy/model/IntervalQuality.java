@@ -0,0 +1,33 @@
+package com.redenergy.model;
+
+/**
+ * Quality flag of an interval value in a full NEM12 file, the first character of the quality
+ * method of a 300 or 400 record.
+ */
+public enum IntervalQuality {
+  /**
+   * Actual data.
+   */
+  A,
+  /**
+   * Forward estimated data.
+   */
+  E,
+  /**
+   * Final substituted data.
+   */
+  F,
+  /**
+   * Null data.
+   */
+  N,
+  /**
+   * Substituted data.
+   */
+  S,
+  /**
+   * Variable data, the quality of each interval is given by the 400 records following the 300
+   * record. Intervals no 400 record covers keep this flag.
+   */
+  V
+}
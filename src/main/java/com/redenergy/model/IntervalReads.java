@@ -0,0 +1,250 @@
+package com.redenergy.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * The interval values of one NMI data stream of a full NEM12 file, the 300 records of a 200
+ * block, held as packed primitive arrays.
+ *
+ * Each day holds intervalsPerDay values as fixed point longs sharing one scale per day, and a
+ * quality flag per interval as a byte. Days are kept sorted by date, a day read again replaces
+ * the one held. No object is created per interval, values are only turned into BigDecimal when
+ * read one at a time.
+ */
+public final class IntervalReads {
+
+  private static final int MINUTES_PER_DAY = 24 * 60;
+  private static final int INITIAL_DAYS = 8;
+  private static final IntervalQuality[] QUALITIES = IntervalQuality.values();
+
+  private final String nmiSuffix;
+  private final String unitOfMeasure;
+  private final int intervalLength;
+  private final int intervalsPerDay;
+  private int[] epochDays = new int[INITIAL_DAYS];
+  private byte[] scales = new byte[INITIAL_DAYS];
+  private long[] values;
+  private byte[] qualities;
+  private int dayCount;
+
+  /**
+   * @param nmiSuffix      the NMI suffix of the data stream, such as E1
+   * @param unitOfMeasure  the unit of measure of the values, such as KWH
+   * @param intervalLength the interval length in minutes, dividing a day
+   */
+  public IntervalReads(String nmiSuffix, String unitOfMeasure, int intervalLength) {
+    if (intervalLength <= 0 || MINUTES_PER_DAY % intervalLength != 0) {
+      throw new IllegalArgumentException("Interval length " + intervalLength
+          + " does not divide a day");
+    }
+    this.nmiSuffix = nmiSuffix;
+    this.unitOfMeasure = unitOfMeasure;
+    this.intervalLength = intervalLength;
+    this.intervalsPerDay = MINUTES_PER_DAY / intervalLength;
+    this.values = new long[INITIAL_DAYS * intervalsPerDay];
+    this.qualities = new byte[INITIAL_DAYS * intervalsPerDay];
+  }
+
+  /**
+   * Add or replace the intervals of a day.
+   *
+   * @param epochDay       the date as epoch day
+   * @param unscaledValues the unscaled value of each interval, intervalsPerDay of them
+   * @param scale          the scale of every value of the day
+   * @param qualityFlags   the IntervalQuality ordinal of each interval
+   */
+  public void putDay(long epochDay, long[] unscaledValues, int scale, byte[] qualityFlags) {
+    if (epochDay < Integer.MIN_VALUE || epochDay > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Epoch day " + epochDay + " is out of range");
+    }
+    if (scale < Byte.MIN_VALUE || scale > Byte.MAX_VALUE) {
+      throw new ArithmeticException("Volume scale " + scale + " exceeds the fixed point range");
+    }
+    int day;
+    if (dayCount == 0 || epochDays[dayCount - 1] < epochDay) {
+      day = dayCount;
+    } else {
+      day = Arrays.binarySearch(epochDays, 0, dayCount, (int) epochDay);
+      if (day >= 0) {
+        setDay(day, (int) epochDay, unscaledValues, (byte) scale, qualityFlags);
+        return;
+      }
+      day = -day - 1;
+    }
+    ensureCapacity(dayCount + 1);
+    int moved = dayCount - day;
+    if (moved > 0) {
+      System.arraycopy(epochDays, day, epochDays, day + 1, moved);
+      System.arraycopy(scales, day, scales, day + 1, moved);
+      System.arraycopy(values, day * intervalsPerDay, values, (day + 1) * intervalsPerDay,
+          moved * intervalsPerDay);
+      System.arraycopy(qualities, day * intervalsPerDay, qualities,
+          (day + 1) * intervalsPerDay, moved * intervalsPerDay);
+    }
+    setDay(day, (int) epochDay, unscaledValues, (byte) scale, qualityFlags);
+    dayCount++;
+  }
+
+  /**
+   * Add or replace the days of another data stream with the same interval length.
+   *
+   * @param other the interval reads to merge in
+   */
+  public void merge(IntervalReads other) {
+    if (other.intervalLength != intervalLength) {
+      throw new IllegalArgumentException("Interval length " + other.intervalLength
+          + " differs from " + intervalLength);
+    }
+    long[] dayValues = new long[intervalsPerDay];
+    byte[] dayQualities = new byte[intervalsPerDay];
+    for (int day = 0; day < other.dayCount; day++) {
+      System.arraycopy(other.values, day * intervalsPerDay, dayValues, 0, intervalsPerDay);
+      System.arraycopy(other.qualities, day * intervalsPerDay, dayQualities, 0,
+          intervalsPerDay);
+      putDay(other.epochDays[day], dayValues, other.scales[day], dayQualities);
+    }
+  }
+
+  public String getNmiSuffix() {
+    return nmiSuffix;
+  }
+
+  public String getUnitOfMeasure() {
+    return unitOfMeasure;
+  }
+
+  /**
+   * @return the interval length in minutes.
+   */
+  public int getIntervalLength() {
+    return intervalLength;
+  }
+
+  /**
+   * @return the number of intervals of a day, 48, 96 or 288 for 30, 15 or 5 minute intervals.
+   */
+  public int getIntervalsPerDay() {
+    return intervalsPerDay;
+  }
+
+  public int getDayCount() {
+    return dayCount;
+  }
+
+  /**
+   * @return the index of the day of the date, or -1 if the date was not read.
+   */
+  public int indexOf(LocalDate date) {
+    long epochDay = date.toEpochDay();
+    if (epochDay < Integer.MIN_VALUE || epochDay > Integer.MAX_VALUE) {
+      return -1;
+    }
+    int day = Arrays.binarySearch(epochDays, 0, dayCount, (int) epochDay);
+    return day < 0 ? -1 : day;
+  }
+
+  public LocalDate getDate(int day) {
+    return LocalDate.ofEpochDay(epochDays[checkDay(day)]);
+  }
+
+  public long getEpochDay(int day) {
+    return epochDays[checkDay(day)];
+  }
+
+  /**
+   * @return the scale shared by the values of the day.
+   */
+  public int getScale(int day) {
+    return scales[checkDay(day)];
+  }
+
+  /**
+   * @param day      the index of the day
+   * @param interval the zero based interval of the day
+   * @return the unscaled value of the interval.
+   */
+  public long getUnscaledValue(int day, int interval) {
+    return values[index(day, interval)];
+  }
+
+  /**
+   * @param day      the index of the day
+   * @param interval the zero based interval of the day
+   * @return the value of the interval.
+   */
+  public BigDecimal getValue(int day, int interval) {
+    return BigDecimal.valueOf(values[index(day, interval)], scales[day]);
+  }
+
+  /**
+   * @param day      the index of the day
+   * @param interval the zero based interval of the day
+   * @return the quality flag of the interval.
+   */
+  public IntervalQuality getQuality(int day, int interval) {
+    return QUALITIES[qualities[index(day, interval)]];
+  }
+
+  /**
+   * @return the sum, count, min and max of the values of a day.
+   */
+  public VolumeAggregate getDayAggregate(int day) {
+    VolumeAggregate volumeAggregate = new VolumeAggregate();
+    int scale = scales[checkDay(day)];
+    for (int index = day * intervalsPerDay, end = index + intervalsPerDay; index < end;
+         index++) {
+      volumeAggregate.add(values[index], scale);
+    }
+    return volumeAggregate;
+  }
+
+  /**
+   * @return the sum, count, min and max of the values of every day.
+   */
+  public VolumeAggregate getVolumeAggregate() {
+    VolumeAggregate volumeAggregate = new VolumeAggregate();
+    for (int day = 0; day < dayCount; day++) {
+      for (int index = day * intervalsPerDay, end = index + intervalsPerDay; index < end;
+           index++) {
+        volumeAggregate.add(values[index], scales[day]);
+      }
+    }
+    return volumeAggregate;
+  }
+
+  private void setDay(int day, int epochDay, long[] unscaledValues, byte scale,
+                      byte[] qualityFlags) {
+    epochDays[day] = epochDay;
+    scales[day] = scale;
+    System.arraycopy(unscaledValues, 0, values, day * intervalsPerDay, intervalsPerDay);
+    System.arraycopy(qualityFlags, 0, qualities, day * intervalsPerDay, intervalsPerDay);
+  }
+
+  private int index(int day, int interval) {
+    checkDay(day);
+    if (interval < 0 || interval >= intervalsPerDay) {
+      throw new IndexOutOfBoundsException("Interval: " + interval + ", Intervals: "
+          + intervalsPerDay);
+    }
+    return day * intervalsPerDay + interval;
+  }
+
+  private int checkDay(int day) {
+    if (day < 0 || day >= dayCount) {
+      throw new IndexOutOfBoundsException("Day: " + day + ", Days: " + dayCount);
+    }
+    return day;
+  }
+
+  private void ensureCapacity(int days) {
+    if (days > epochDays.length) {
+      int newDays = Math.max(days, epochDays.length + (epochDays.length >> 1));
+      epochDays = Arrays.copyOf(epochDays, newDays);
+      scales = Arrays.copyOf(scales, newDays);
+      values = Arrays.copyOf(values, newDays * intervalsPerDay);
+      qualities = Arrays.copyOf(qualities, newDays * intervalsPerDay);
+    }
+  }
+}
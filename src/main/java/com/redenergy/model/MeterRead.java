@@ -4,7 +4,10 @@ package com.redenergy.model;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -17,11 +20,23 @@ public class MeterRead {
 
   private String nmi;
   private EnergyUnit energyUnit;
-  private SortedMap<LocalDate, MeterVolume> volumes = new TreeMap<>();
+  private SortedMap<LocalDate, MeterVolume> volumes;
+  private MeterReadRollup rollup;
+  private Map<String, IntervalReads> intervalReads;
 
   public MeterRead(String nmi, EnergyUnit energyUnit) {
+    this(nmi, energyUnit, new TreeMap<>());
+  }
+
+  /**
+   * @param nmi        the nmi
+   * @param energyUnit the energy unit
+   * @param volumes    the map holding the volumes, such as <code>ColumnarMeterVolumes</code>
+   */
+  public MeterRead(String nmi, EnergyUnit energyUnit, SortedMap<LocalDate, MeterVolume> volumes) {
     this.nmi = nmi;
     this.energyUnit = energyUnit;
+    this.volumes = volumes;
   }
 
   public String getNmi() {
@@ -48,6 +63,67 @@ public class MeterRead {
     this.volumes = volumes;
   }
 
+  /**
+   * @return the rollup of the volumes kept while parsing, null unless rollups were asked for.
+   */
+  public MeterReadRollup getRollup() {
+    return rollup;
+  }
+
+  public void setRollup(MeterReadRollup rollup) {
+    this.rollup = rollup;
+  }
+
+  /**
+   * @return the interval values of each data stream by NMI suffix, null unless parsed from a
+   * full NEM12 file.
+   */
+  public Map<String, IntervalReads> getIntervalReads() {
+    return intervalReads;
+  }
+
+  public void setIntervalReads(Map<String, IntervalReads> intervalReads) {
+    this.intervalReads = intervalReads;
+  }
+
+  /**
+   * Copy the MeterRead, its volumes, rollup and interval reads, so merging into the copy leaves
+   * this MeterRead unchanged. Columnar and off-heap volumes are copied into columnar volumes.
+   *
+   * @return the copy
+   */
+  public MeterRead copy() {
+    //read through the getters, a subclass such as an off-heap view may not fill the fields
+    SortedMap<LocalDate, MeterVolume> volumes = getVolumes();
+    SortedMap<LocalDate, MeterVolume> volumesCopy;
+    if (volumes instanceof FixedPointVolumes) {
+      ColumnarMeterVolumes columnarCopy = new ColumnarMeterVolumes(volumes.size());
+      ((FixedPointVolumes) volumes).forEachVolume(columnarCopy::put);
+      volumesCopy = columnarCopy;
+    } else {
+      volumesCopy = new TreeMap<>(volumes);
+    }
+    MeterRead meterRead = new MeterRead(getNmi(), getEnergyUnit(), volumesCopy);
+    MeterReadRollup rollup = getRollup();
+    if (rollup != null) {
+      MeterReadRollup rollupCopy = new MeterReadRollup();
+      rollupCopy.merge(rollup);
+      meterRead.setRollup(rollupCopy);
+    }
+    Map<String, IntervalReads> intervalReads = getIntervalReads();
+    if (intervalReads != null) {
+      Map<String, IntervalReads> intervalReadsCopy = new LinkedHashMap<>();
+      for (IntervalReads streamReads : intervalReads.values()) {
+        IntervalReads streamCopy = new IntervalReads(streamReads.getNmiSuffix(),
+            streamReads.getUnitOfMeasure(), streamReads.getIntervalLength());
+        streamCopy.merge(streamReads);
+        intervalReadsCopy.put(streamCopy.getNmiSuffix(), streamCopy);
+      }
+      meterRead.setIntervalReads(intervalReadsCopy);
+    }
+    return meterRead;
+  }
+
   MeterVolume getMeterVolume(LocalDate localDate) {
     return volumes.get(localDate);
   }
@@ -56,6 +132,23 @@ public class MeterRead {
     volumes.put(localDate, meterVolume);
   }
 
+  /**
+   * Append a fixed point volume, columnar volumes store it without creating any objects.
+   *
+   * @param epochDay       the date as epoch day
+   * @param unscaledVolume the unscaled volume
+   * @param scale          the scale of the volume
+   * @param quality        the quality
+   */
+  public void appendVolume(long epochDay, long unscaledVolume, int scale, Quality quality) {
+    if (volumes instanceof ColumnarMeterVolumes) {
+      ((ColumnarMeterVolumes) volumes).put(epochDay, unscaledVolume, scale, quality);
+    } else {
+      volumes.put(LocalDate.ofEpochDay(epochDay),
+          new MeterVolume(BigDecimal.valueOf(unscaledVolume, scale), quality));
+    }
+  }
+
   public boolean equals(Object o) {
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
@@ -67,9 +160,52 @@ public class MeterRead {
     return Objects.hash(getNmi());
   }
 
+  /**
+   * Total of the volumes, read from the running total of columnar volumes.
+   */
   public BigDecimal getTotalVolume() {
+    if (volumes instanceof ColumnarMeterVolumes) {
+      return ((ColumnarMeterVolumes) volumes).getTotalVolume();
+    }
+    if (volumes instanceof FixedPointVolumes) {
+      return ((FixedPointVolumes) volumes).getVolumeAggregate().getSum();
+    }
     return volumes.values().stream()
       .map(mr -> mr.getVolume())
       .reduce(BigDecimal.ZERO, BigDecimal::add);
   }
+
+  public int getVolumeCount() {
+    return volumes.size();
+  }
+
+  /**
+   * Smallest of the volumes, read from the running statistics of columnar volumes.
+   */
+  public Optional<BigDecimal> getMinVolume() {
+    if (volumes instanceof ColumnarMeterVolumes) {
+      return ((ColumnarMeterVolumes) volumes).getMinVolume();
+    }
+    if (volumes instanceof FixedPointVolumes) {
+      return ((FixedPointVolumes) volumes).getVolumeAggregate().getMin();
+    }
+    return volumes.values().stream()
+      .map(mr -> mr.getVolume())
+      .min(BigDecimal::compareTo);
+  }
+
+  /**
+   * Largest of the volumes, read from the running statistics of columnar volumes.
+   */
+  public Optional<BigDecimal> getMaxVolume() {
+    if (volumes instanceof ColumnarMeterVolumes) {
+      return ((ColumnarMeterVolumes) volumes).getMaxVolume();
+    }
+    if (volumes instanceof FixedPointVolumes) {
+      return ((FixedPointVolumes) volumes).getVolumeAggregate().getMax();
+    }
+    return volumes.values().stream()
+      .map(mr -> mr.getVolume())
+      .max(BigDecimal::compareTo);
+  }
 }
@@ -0,0 +1,174 @@
+package com.redenergy.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * List of MeterRead records holding one MeterRead per NMI, backed by a hash index from
+ * NMI to MeterRead.
+ *
+ * Adding a MeterRead of a NMI already in the list merges its volumes into the one already
+ * held instead of appending it, as <code>MeterRead.equals</code> compares the NMI only. The list
+ * keeps the order in which each NMI was first added, <code>get(nmi)</code> and
+ * <code>contains</code> take constant time. Equality is that of any other List. A view made with
+ * <code>unmodifiable</code> cannot be added to or removed from.
+ */
+public class MeterReadIndex extends AbstractList<MeterRead> implements RandomAccess {
+
+  private final List<MeterRead> meterReads;
+  private final Map<String, MeterRead> meterReadsByNmi;
+  private final boolean readOnly;
+
+  public MeterReadIndex() {
+    this(new ArrayList<>(), new HashMap<>(), false);
+  }
+
+  /**
+   * @param meterReads the MeterRead records to add, merged by NMI.
+   */
+  public MeterReadIndex(Collection<? extends MeterRead> meterReads) {
+    this();
+    addAll(meterReads);
+  }
+
+  private MeterReadIndex(List<MeterRead> meterReads, Map<String, MeterRead> meterReadsByNmi,
+                         boolean readOnly) {
+    this.meterReads = meterReads;
+    this.meterReadsByNmi = meterReadsByNmi;
+    this.readOnly = readOnly;
+  }
+
+  /**
+   * A read only view of a MeterReadIndex, for results shared between callers. Adding, removing
+   * or clearing throws UnsupportedOperationException, the MeterRead records are those of the
+   * index and must not be changed either.
+   *
+   * @param meterReadIndex the index
+   * @return the view, backed by the index.
+   */
+  public static MeterReadIndex unmodifiable(MeterReadIndex meterReadIndex) {
+    return meterReadIndex.readOnly ? meterReadIndex
+        : new MeterReadIndex(meterReadIndex.meterReads, meterReadIndex.meterReadsByNmi, true);
+  }
+
+  /**
+   * Get the MeterRead of a NMI.
+   *
+   * @param nmi the nmi
+   * @return the MeterRead, or null if the NMI was not read.
+   */
+  public MeterRead get(String nmi) {
+    return meterReadsByNmi.get(nmi);
+  }
+
+  public boolean containsNmi(String nmi) {
+    return meterReadsByNmi.containsKey(nmi);
+  }
+
+  /**
+   * @return the rollup of each NMI holding one, in the order of the list.
+   */
+  public Map<String, MeterReadRollup> getRollups() {
+    Map<String, MeterReadRollup> rollups = new LinkedHashMap<>();
+    for (MeterRead meterRead : meterReads) {
+      if (meterRead.getRollup() != null) {
+        rollups.put(meterRead.getNmi(), meterRead.getRollup());
+      }
+    }
+    return rollups;
+  }
+
+  /**
+   * Add a MeterRead, or merge its volumes, rollup and interval reads into the MeterRead already
+   * held for its NMI. A date read in both keeps the volume of the MeterRead added last, and
+   * the merged volumes are rolled up again. Rollups without volumes are added together.
+   *
+   * @param meterRead the MeterRead
+   * @return true, the list changes either way.
+   */
+  @Override
+  public boolean add(MeterRead meterRead) {
+    checkModifiable();
+    MeterRead existing = meterReadsByNmi.putIfAbsent(meterRead.getNmi(), meterRead);
+    if (existing == null) {
+      meterReads.add(meterRead);
+    } else if (existing != meterRead) {
+      //a rollup cannot take back the volume of a date read again, so it is rolled up again
+      boolean rollupAgain = existing.getRollup() != null && meterRead.getRollup() != null
+          && !existing.getVolumes().isEmpty()
+          && existing.getRollup().overlaps(meterRead.getRollup());
+      existing.getVolumes().putAll(meterRead.getVolumes());
+      if (rollupAgain) {
+        existing.setRollup(MeterReadRollup.of(existing.getVolumes()));
+      } else if (existing.getRollup() == null) {
+        existing.setRollup(meterRead.getRollup());
+      } else if (meterRead.getRollup() != null) {
+        existing.getRollup().merge(meterRead.getRollup());
+      }
+      mergeIntervalReads(existing, meterRead);
+    }
+    modCount++;
+    return true;
+  }
+
+  private static void mergeIntervalReads(MeterRead existing, MeterRead meterRead) {
+    if (meterRead.getIntervalReads() == null) {
+      return;
+    }
+    if (existing.getIntervalReads() == null) {
+      existing.setIntervalReads(meterRead.getIntervalReads());
+      return;
+    }
+    for (IntervalReads intervalReads : meterRead.getIntervalReads().values()) {
+      IntervalReads existingReads =
+          existing.getIntervalReads().putIfAbsent(intervalReads.getNmiSuffix(), intervalReads);
+      if (existingReads != null && existingReads != intervalReads) {
+        existingReads.merge(intervalReads);
+      }
+    }
+  }
+
+  @Override
+  public MeterRead remove(int index) {
+    checkModifiable();
+    MeterRead meterRead = meterReads.remove(index);
+    meterReadsByNmi.remove(meterRead.getNmi());
+    modCount++;
+    return meterRead;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof MeterRead && meterReadsByNmi.containsKey(((MeterRead) o).getNmi());
+  }
+
+  @Override
+  public MeterRead get(int index) {
+    return meterReads.get(index);
+  }
+
+  @Override
+  public int size() {
+    return meterReads.size();
+  }
+
+  @Override
+  public void clear() {
+    checkModifiable();
+    meterReads.clear();
+    meterReadsByNmi.clear();
+    modCount++;
+  }
+
+  private void checkModifiable() {
+    if (readOnly) {
+      throw new UnsupportedOperationException("The MeterReadIndex is read only");
+    }
+  }
+}
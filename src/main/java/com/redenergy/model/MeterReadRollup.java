@@ -0,0 +1,255 @@
+package com.redenergy.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Rollup of the volumes of a NMI, kept incrementally as its 300 records are parsed: the sum,
+ * count, min and max of all volumes, of each calendar month and of each quality, and the first
+ * and last date read.
+ *
+ * The dates read are kept, so a date read again can be told apart with <code>isRead</code>.
+ * Aggregates cannot take a volume back out, so a rollup adds every volume handed to it, and the
+ * volumes of a MeterRead reading a date twice are rolled up again with <code>of</code> to count
+ * only the last volume of the date. Volumes arrive in date order, so the aggregate of the current
+ * month is kept at hand and the month map is only looked up when the month changes.
+ */
+public final class MeterReadRollup {
+
+  private static final Quality[] QUALITIES = Quality.values();
+
+  private final VolumeAggregate total = new VolumeAggregate();
+  private final SortedMap<YearMonth, VolumeAggregate> monthly = new TreeMap<>();
+  private final VolumeAggregate[] byQuality = new VolumeAggregate[QUALITIES.length];
+  private long firstEpochDay = Long.MAX_VALUE;
+  private long lastEpochDay = Long.MIN_VALUE;
+
+  //the dates read, as epoch days from readDaysStart
+  private BitSet readDays = new BitSet();
+  private long readDaysStart;
+
+  //the aggregate of the month last added to, and its epoch days
+  private VolumeAggregate month;
+  private long monthStart = Long.MAX_VALUE;
+  private long monthEnd = Long.MIN_VALUE;
+
+  /**
+   * Roll up volumes, each date once.
+   *
+   * @param volumes the volumes of a MeterRead
+   * @return the rollup of the volumes.
+   */
+  public static MeterReadRollup of(SortedMap<LocalDate, MeterVolume> volumes) {
+    MeterReadRollup rollup = new MeterReadRollup();
+    if (volumes instanceof FixedPointVolumes) {
+      ((FixedPointVolumes) volumes).forEachVolume(rollup::add);
+    } else {
+      for (Map.Entry<LocalDate, MeterVolume> volume : volumes.entrySet()) {
+        rollup.add(volume.getKey(), volume.getValue().getVolume(),
+            volume.getValue().getQuality());
+      }
+    }
+    return rollup;
+  }
+
+  /**
+   * Add a fixed point volume.
+   *
+   * @param epochDay       the date as epoch day
+   * @param unscaledVolume the unscaled volume
+   * @param scale          the scale of the volume
+   * @param quality        the quality
+   */
+  public void add(long epochDay, long unscaledVolume, int scale, Quality quality) {
+    total.add(unscaledVolume, scale);
+    monthOf(epochDay).add(unscaledVolume, scale);
+    qualityOf(quality).add(unscaledVolume, scale);
+    addDate(epochDay);
+  }
+
+  /**
+   * Add a volume.
+   *
+   * @param date    the date
+   * @param volume  the volume
+   * @param quality the quality
+   */
+  public void add(LocalDate date, BigDecimal volume, Quality quality) {
+    long epochDay = date.toEpochDay();
+    total.add(volume);
+    monthOf(epochDay).add(volume);
+    qualityOf(quality).add(volume);
+    addDate(epochDay);
+  }
+
+  /**
+   * Add the volumes of another rollup of the same NMI, as if they had been added after the
+   * volumes of this one.
+   *
+   * @param other the other rollup
+   */
+  public void merge(MeterReadRollup other) {
+    total.merge(other.total);
+    for (Map.Entry<YearMonth, VolumeAggregate> otherMonth : other.monthly.entrySet()) {
+      monthly.computeIfAbsent(otherMonth.getKey(), key -> new VolumeAggregate())
+          .merge(otherMonth.getValue());
+    }
+    for (Quality quality : QUALITIES) {
+      if (other.byQuality[quality.ordinal()] != null) {
+        qualityOf(quality).merge(other.byQuality[quality.ordinal()]);
+      }
+    }
+    firstEpochDay = Math.min(firstEpochDay, other.firstEpochDay);
+    lastEpochDay = Math.max(lastEpochDay, other.lastEpochDay);
+    BitSet otherDays = other.readDays;
+    for (int day = otherDays.nextSetBit(0); day >= 0; day = otherDays.nextSetBit(day + 1)) {
+      markRead(other.readDaysStart + day);
+    }
+  }
+
+  /**
+   * @param epochDay the date as epoch day
+   * @return true if a volume of the date was rolled up.
+   */
+  public boolean isRead(long epochDay) {
+    return total.getCount() > 0 && epochDay >= firstEpochDay && epochDay <= lastEpochDay
+        && readDays.get((int) (epochDay - readDaysStart));
+  }
+
+  /**
+   * @param other another rollup of the same NMI
+   * @return true if both rollups read a date.
+   */
+  public boolean overlaps(MeterReadRollup other) {
+    BitSet otherDays = other.readDays;
+    for (int day = otherDays.nextSetBit(0); day >= 0; day = otherDays.nextSetBit(day + 1)) {
+      if (isRead(other.readDaysStart + day)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the sum, count, min and max of all volumes.
+   */
+  public VolumeAggregate getTotal() {
+    return total;
+  }
+
+  /**
+   * @return the aggregate of each calendar month read, in month order.
+   */
+  public SortedMap<YearMonth, VolumeAggregate> getMonthly() {
+    return Collections.unmodifiableSortedMap(monthly);
+  }
+
+  /**
+   * @param quality the quality
+   * @return the aggregate of the volumes of the quality, empty if none were read.
+   */
+  public VolumeAggregate getByQuality(Quality quality) {
+    VolumeAggregate volumeAggregate = byQuality[quality.ordinal()];
+    return volumeAggregate != null ? volumeAggregate : new VolumeAggregate();
+  }
+
+  /**
+   * @return the aggregate of each quality read.
+   */
+  public Map<Quality, VolumeAggregate> getByQuality() {
+    Map<Quality, VolumeAggregate> qualities = new EnumMap<>(Quality.class);
+    for (Quality quality : QUALITIES) {
+      if (byQuality[quality.ordinal()] != null) {
+        qualities.put(quality, byQuality[quality.ordinal()]);
+      }
+    }
+    return qualities;
+  }
+
+  /**
+   * @return the number of estimated volumes, of quality E.
+   */
+  public long getEstimatedCount() {
+    return getByQuality(Quality.E).getCount();
+  }
+
+  public long getCount() {
+    return total.getCount();
+  }
+
+  /**
+   * @return the earliest date read.
+   */
+  public Optional<LocalDate> getFirstReadDate() {
+    return total.getCount() == 0 ? Optional.empty()
+        : Optional.of(LocalDate.ofEpochDay(firstEpochDay));
+  }
+
+  /**
+   * @return the latest date read.
+   */
+  public Optional<LocalDate> getLastReadDate() {
+    return total.getCount() == 0 ? Optional.empty()
+        : Optional.of(LocalDate.ofEpochDay(lastEpochDay));
+  }
+
+  @Override
+  public String toString() {
+    return "MeterReadRollup{total=" + total + ", monthly=" + monthly + ", byQuality="
+        + getByQuality() + ", first=" + getFirstReadDate().orElse(null) + ", last="
+        + getLastReadDate().orElse(null) + '}';
+  }
+
+  private VolumeAggregate monthOf(long epochDay) {
+    if (epochDay < monthStart || epochDay >= monthEnd) {
+      LocalDate date = LocalDate.ofEpochDay(epochDay);
+      LocalDate firstOfMonth = date.withDayOfMonth(1);
+      monthStart = firstOfMonth.toEpochDay();
+      monthEnd = firstOfMonth.plusMonths(1).toEpochDay();
+      month = monthly.computeIfAbsent(YearMonth.from(date), key -> new VolumeAggregate());
+    }
+    return month;
+  }
+
+  private VolumeAggregate qualityOf(Quality quality) {
+    VolumeAggregate volumeAggregate = byQuality[quality.ordinal()];
+    if (volumeAggregate == null) {
+      volumeAggregate = new VolumeAggregate();
+      byQuality[quality.ordinal()] = volumeAggregate;
+    }
+    return volumeAggregate;
+  }
+
+  private void addDate(long epochDay) {
+    markRead(epochDay);
+    firstEpochDay = Math.min(firstEpochDay, epochDay);
+    lastEpochDay = Math.max(lastEpochDay, epochDay);
+  }
+
+  /**
+   * Set the bit of a date, moving the bits up when it is before the first date read. Dates of
+   * 300 records are within 10000 years, so the offset of a date fits an int.
+   */
+  private void markRead(long epochDay) {
+    if (readDays.isEmpty()) {
+      readDaysStart = epochDay;
+    } else if (epochDay < readDaysStart) {
+      int shift = (int) (readDaysStart - epochDay);
+      BitSet shifted = new BitSet(readDays.length() + shift);
+      for (int day = readDays.nextSetBit(0); day >= 0; day = readDays.nextSetBit(day + 1)) {
+        shifted.set(day + shift);
+      }
+      readDays = shifted;
+      readDaysStart = epochDay;
+    }
+    readDays.set((int) (epochDay - readDaysStart));
+  }
+}
@@ -8,6 +8,7 @@ public enum RecordType {
   RECORD_TYPE_START("100"),
   RECORD_TYPE_PARENT("200"),
   RECORD_TYPE_CHILD("300"),
+  RECORD_TYPE_INTERVAL_EVENT("400"),
   RECORD_TYPE_END("900");
 
   public final String recordType;
@@ -0,0 +1,236 @@
+package com.redenergy.model;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * Running sum, count, min and max of volumes.
+ *
+ * Volumes are added as fixed point unscaled values and scales and summed in a long, switching
+ * to BigDecimal arithmetic once a volume or the sum no longer fits. The sum has the scale a
+ * chain of <code>BigDecimal.add</code> from <code>BigDecimal.ZERO</code> would give, the
+ * largest scale seen and at least zero. When several volumes are equal the min and max keep
+ * the first one added.
+ */
+public final class VolumeAggregate {
+
+  private static final long[] POWERS_OF_TEN = new long[19];
+
+  static {
+    POWERS_OF_TEN[0] = 1L;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private long totalUnscaled;
+  private int totalScale;
+  private long minUnscaled;
+  private int minScale;
+  private long maxUnscaled;
+  private int maxScale;
+  private long count;
+
+  //set once the volumes no longer fit a long, then every statistic is kept as BigDecimal
+  private BigDecimal bigTotal;
+  private BigDecimal bigMin;
+  private BigDecimal bigMax;
+
+  /**
+   * Add a fixed point volume.
+   *
+   * @param unscaled the unscaled volume
+   * @param scale    the scale of the volume
+   */
+  public void add(long unscaled, int scale) {
+    if (bigTotal != null) {
+      addBig(BigDecimal.valueOf(unscaled, scale));
+      return;
+    }
+    if (count == 0 || compare(unscaled, scale, minUnscaled, minScale) < 0) {
+      minUnscaled = unscaled;
+      minScale = scale;
+    }
+    if (count == 0 || compare(unscaled, scale, maxUnscaled, maxScale) > 0) {
+      maxUnscaled = unscaled;
+      maxScale = scale;
+    }
+    count++;
+    try {
+      long total = totalUnscaled;
+      int newScale = totalScale;
+      if (scale > newScale) {
+        total = Math.multiplyExact(total, powerOfTen(scale - newScale));
+        newScale = scale;
+      }
+      totalUnscaled = Math.addExact(total,
+          Math.multiplyExact(unscaled, powerOfTen(newScale - scale)));
+      totalScale = newScale;
+    } catch (ArithmeticException e) {
+      count--;
+      switchToBig();
+      count++;
+      bigTotal = bigTotal.add(BigDecimal.valueOf(unscaled, scale));
+    }
+  }
+
+  /**
+   * Add a volume.
+   *
+   * @param volume the volume
+   */
+  public void add(BigDecimal volume) {
+    if (bigTotal == null && volume.unscaledValue().bitLength() < Long.SIZE) {
+      add(volume.unscaledValue().longValue(), volume.scale());
+    } else {
+      switchToBig();
+      addBig(volume);
+    }
+  }
+
+  /**
+   * Add the volumes of another aggregate, as if they had been added after the volumes of
+   * this one.
+   *
+   * @param other the other aggregate
+   */
+  public void merge(VolumeAggregate other) {
+    if (other.count == 0) {
+      return;
+    }
+    if (count == 0) {
+      copy(other);
+      return;
+    }
+    if (bigTotal == null && other.bigTotal == null) {
+      if (compare(other.minUnscaled, other.minScale, minUnscaled, minScale) < 0) {
+        minUnscaled = other.minUnscaled;
+        minScale = other.minScale;
+      }
+      if (compare(other.maxUnscaled, other.maxScale, maxUnscaled, maxScale) > 0) {
+        maxUnscaled = other.maxUnscaled;
+        maxScale = other.maxScale;
+      }
+      long otherCount = other.count;
+      count += otherCount;
+      try {
+        int scale = Math.max(totalScale, other.totalScale);
+        totalUnscaled = Math.addExact(
+            Math.multiplyExact(totalUnscaled, powerOfTen(scale - totalScale)),
+            Math.multiplyExact(other.totalUnscaled, powerOfTen(scale - other.totalScale)));
+        totalScale = scale;
+      } catch (ArithmeticException e) {
+        count -= otherCount;
+        switchToBig();
+        count += otherCount;
+        bigTotal = bigTotal.add(other.getSum());
+      }
+      return;
+    }
+    switchToBig();
+    BigDecimal otherMin = other.getMin().get();
+    BigDecimal otherMax = other.getMax().get();
+    if (otherMin.compareTo(bigMin) < 0) {
+      bigMin = otherMin;
+    }
+    if (otherMax.compareTo(bigMax) > 0) {
+      bigMax = otherMax;
+    }
+    bigTotal = bigTotal.add(other.getSum());
+    count += other.count;
+  }
+
+  /**
+   * @return the sum of the volumes, zero if none were added.
+   */
+  public BigDecimal getSum() {
+    return bigTotal != null ? bigTotal : BigDecimal.valueOf(totalUnscaled, totalScale);
+  }
+
+  /**
+   * @return the smallest volume.
+   */
+  public Optional<BigDecimal> getMin() {
+    if (count == 0) {
+      return Optional.empty();
+    }
+    return Optional.of(bigMin != null ? bigMin : BigDecimal.valueOf(minUnscaled, minScale));
+  }
+
+  /**
+   * @return the largest volume.
+   */
+  public Optional<BigDecimal> getMax() {
+    if (count == 0) {
+      return Optional.empty();
+    }
+    return Optional.of(bigMax != null ? bigMax : BigDecimal.valueOf(maxUnscaled, maxScale));
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    return "VolumeAggregate{sum=" + getSum() + ", min=" + getMin().orElse(null)
+        + ", max=" + getMax().orElse(null) + ", count=" + count + '}';
+  }
+
+  private void addBig(BigDecimal volume) {
+    if (count == 0 || volume.compareTo(bigMin) < 0) {
+      bigMin = volume;
+    }
+    if (count == 0 || volume.compareTo(bigMax) > 0) {
+      bigMax = volume;
+    }
+    bigTotal = bigTotal.add(volume);
+    count++;
+  }
+
+  private void switchToBig() {
+    if (bigTotal == null) {
+      bigTotal = BigDecimal.valueOf(totalUnscaled, totalScale);
+      if (count > 0) {
+        bigMin = BigDecimal.valueOf(minUnscaled, minScale);
+        bigMax = BigDecimal.valueOf(maxUnscaled, maxScale);
+      }
+    }
+  }
+
+  private void copy(VolumeAggregate other) {
+    totalUnscaled = other.totalUnscaled;
+    totalScale = other.totalScale;
+    minUnscaled = other.minUnscaled;
+    minScale = other.minScale;
+    maxUnscaled = other.maxUnscaled;
+    maxScale = other.maxScale;
+    count = other.count;
+    bigTotal = other.bigTotal;
+    bigMin = other.bigMin;
+    bigMax = other.bigMax;
+  }
+
+  private static int compare(long unscaled, int scale, long otherUnscaled, int otherScale) {
+    try {
+      if (scale < otherScale) {
+        return Long.compare(Math.multiplyExact(unscaled, powerOfTen(otherScale - scale)),
+            otherUnscaled);
+      } else if (scale > otherScale) {
+        return Long.compare(unscaled,
+            Math.multiplyExact(otherUnscaled, powerOfTen(scale - otherScale)));
+      }
+      return Long.compare(unscaled, otherUnscaled);
+    } catch (ArithmeticException e) {
+      return BigDecimal.valueOf(unscaled, scale)
+          .compareTo(BigDecimal.valueOf(otherUnscaled, otherScale));
+    }
+  }
+
+  private static long powerOfTen(int exponent) {
+    if (exponent >= POWERS_OF_TEN.length) {
+      throw new ArithmeticException("long overflow");
+    }
+    return POWERS_OF_TEN[exponent];
+  }
+}
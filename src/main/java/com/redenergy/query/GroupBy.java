@@ -0,0 +1,28 @@
+package com.redenergy.query;
+
+/**
+ * The dimensions a MeterReadQuery can group volumes by.
+ */
+public enum GroupBy {
+
+  /**
+   * One group per NMI.
+   */
+  NMI,
+
+  /**
+   * One group per date.
+   */
+  DAY,
+
+  /**
+   * One group per calendar month.
+   */
+  MONTH,
+
+  /**
+   * One group per Quality, actual or estimated.
+   */
+  QUALITY
+
+}
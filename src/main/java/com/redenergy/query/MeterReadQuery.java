@@ -0,0 +1,273 @@
+package com.redenergy.query;
+
+import com.redenergy.model.FixedPointVolumes;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterReadIndex;
+import com.redenergy.model.MeterVolume;
+import com.redenergy.model.Quality;
+import com.redenergy.model.VolumeAggregate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Aggregate query over parsed MeterRead records.
+ *
+ * Volumes can be filtered by NMI, by a date range and by quality, then grouped by any of
+ * NMI, day, month and quality into their sum, count, min and max.
+ *
+ * <pre>
+ *   VolumeQueryResult monthly = MeterReadQuery.over(meterReads)
+ *       .between(LocalDate.of(2016, 11, 1), LocalDate.of(2017, 1, 1))
+ *       .groupBy(GroupBy.NMI, GroupBy.MONTH)
+ *       .execute();
+ * </pre>
+ *
+ * The date range is taken from the sorted volumes with a sub map, so only the volumes in the
+ * range are read. Columnar and off-heap volumes are aggregated straight from their primitive
+ * columns. NMIs are looked up through the index of a MeterReadIndex, and MeterReads are
+ * aggregated in parallel on the common ForkJoinPool unless the query is made sequential.
+ */
+public class MeterReadQuery {
+
+  private final Collection<MeterRead> meterReads;
+  private Set<String> nmis;
+  private LocalDate fromDate;
+  private LocalDate toDate;
+  private Quality quality;
+  private Set<GroupBy> groupBy = EnumSet.noneOf(GroupBy.class);
+  private boolean parallel = true;
+
+  private MeterReadQuery(Collection<MeterRead> meterReads) {
+    this.meterReads = meterReads;
+  }
+
+  /**
+   * Start a query over the MeterRead records.
+   *
+   * @param meterReads the parsed MeterRead records
+   * @return the query selecting every volume.
+   */
+  public static MeterReadQuery over(Collection<MeterRead> meterReads) {
+    return new MeterReadQuery(meterReads);
+  }
+
+  /**
+   * Only select the volumes of the NMIs.
+   *
+   * @param nmis the NMIs
+   * @return this query
+   */
+  public MeterReadQuery forNmis(Collection<String> nmis) {
+    this.nmis = new LinkedHashSet<>(nmis);
+    return this;
+  }
+
+  /**
+   * Only select the volumes from a date, inclusive, to a date, exclusive.
+   *
+   * @param fromDate the first date, or null for no lower bound
+   * @param toDate   the date after the last, or null for no upper bound
+   * @return this query
+   */
+  public MeterReadQuery between(LocalDate fromDate, LocalDate toDate) {
+    if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+      throw new IllegalArgumentException("fromDate is after toDate");
+    }
+    this.fromDate = fromDate;
+    this.toDate = toDate;
+    return this;
+  }
+
+  /**
+   * Only select the volumes of a quality.
+   *
+   * @param quality the quality
+   * @return this query
+   */
+  public MeterReadQuery withQuality(Quality quality) {
+    this.quality = quality;
+    return this;
+  }
+
+  /**
+   * Group the selected volumes, all of them are one group when no dimension is given.
+   *
+   * @param dimensions the dimensions
+   * @return this query
+   */
+  public MeterReadQuery groupBy(GroupBy... dimensions) {
+    this.groupBy = dimensions.length == 0 ? EnumSet.noneOf(GroupBy.class)
+        : EnumSet.copyOf(Arrays.asList(dimensions));
+    return this;
+  }
+
+  /**
+   * @param parallel aggregate the MeterRead records on several threads.
+   * @return this query
+   */
+  public MeterReadQuery parallel(boolean parallel) {
+    this.parallel = parallel;
+    return this;
+  }
+
+  /**
+   * Run the query.
+   *
+   * @return the aggregate of every group and of all the selected volumes.
+   */
+  public VolumeQueryResult execute() {
+    List<MeterRead> selected = selectMeterReads();
+    Stream<MeterRead> stream = parallel ? selected.parallelStream() : selected.stream();
+    Map<VolumeGroup, VolumeAggregate> groups = stream.collect(HashMap::new,
+        (merged, meterRead) -> mergeGroups(merged, new GroupAccumulator(meterRead).aggregate()),
+        MeterReadQuery::mergeGroups);
+
+    SortedMap<VolumeGroup, VolumeAggregate> sortedGroups = new TreeMap<>(groups);
+    VolumeAggregate total = new VolumeAggregate();
+    for (VolumeAggregate volumeAggregate : sortedGroups.values()) {
+      total.merge(volumeAggregate);
+    }
+    return new VolumeQueryResult(sortedGroups, total);
+  }
+
+  private List<MeterRead> selectMeterReads() {
+    if (nmis == null) {
+      return new ArrayList<>(meterReads);
+    }
+    List<MeterRead> selected = new ArrayList<>();
+    if (meterReads instanceof MeterReadIndex) {
+      MeterReadIndex meterReadIndex = (MeterReadIndex) meterReads;
+      for (String nmi : nmis) {
+        MeterRead meterRead = meterReadIndex.get(nmi);
+        if (meterRead != null) {
+          selected.add(meterRead);
+        }
+      }
+    } else {
+      for (MeterRead meterRead : meterReads) {
+        if (nmis.contains(meterRead.getNmi())) {
+          selected.add(meterRead);
+        }
+      }
+    }
+    return selected;
+  }
+
+  private static void mergeGroups(Map<VolumeGroup, VolumeAggregate> merged,
+                                  Map<VolumeGroup, VolumeAggregate> groups) {
+    for (Map.Entry<VolumeGroup, VolumeAggregate> group : groups.entrySet()) {
+      VolumeAggregate volumeAggregate = merged.putIfAbsent(group.getKey(), group.getValue());
+      if (volumeAggregate != null) {
+        volumeAggregate.merge(group.getValue());
+      }
+    }
+  }
+
+  /**
+   * Aggregates the volumes of one MeterRead.
+   *
+   * Volumes arrive in date order, so the aggregates of the current day or month are kept at
+   * hand and the group map is only looked up when the day or month changes.
+   */
+  private final class GroupAccumulator {
+
+    private final MeterRead meterRead;
+    private final String nmi;
+    private final Map<VolumeGroup, VolumeAggregate> groups = new HashMap<>();
+    private final VolumeAggregate[] bucket = new VolumeAggregate[Quality.values().length];
+    private long bucketStart = Long.MAX_VALUE;
+    private long bucketEnd = Long.MIN_VALUE;
+    private LocalDate day;
+    private YearMonth month;
+
+    GroupAccumulator(MeterRead meterRead) {
+      this.meterRead = meterRead;
+      this.nmi = groupBy.contains(GroupBy.NMI) ? meterRead.getNmi() : null;
+    }
+
+    Map<VolumeGroup, VolumeAggregate> aggregate() {
+      SortedMap<LocalDate, MeterVolume> volumes = selectDates(meterRead.getVolumes());
+      if (volumes instanceof FixedPointVolumes) {
+        ((FixedPointVolumes) volumes).forEachVolume(this::acceptFixedPoint);
+      } else {
+        for (Map.Entry<LocalDate, MeterVolume> volume : volumes.entrySet()) {
+          MeterVolume meterVolume = volume.getValue();
+          if (quality == null || quality == meterVolume.getQuality()) {
+            aggregateFor(volume.getKey().toEpochDay(), volume.getKey(), meterVolume.getQuality())
+                .add(meterVolume.getVolume());
+          }
+        }
+      }
+      return groups;
+    }
+
+    private void acceptFixedPoint(long epochDay, long unscaledVolume, int scale,
+                                  Quality volumeQuality) {
+      if (quality == null || quality == volumeQuality) {
+        aggregateFor(epochDay, null, volumeQuality).add(unscaledVolume, scale);
+      }
+    }
+
+    private SortedMap<LocalDate, MeterVolume> selectDates(
+        SortedMap<LocalDate, MeterVolume> volumes) {
+      if (fromDate != null && toDate != null) {
+        return volumes.subMap(fromDate, toDate);
+      } else if (fromDate != null) {
+        return volumes.tailMap(fromDate);
+      } else if (toDate != null) {
+        return volumes.headMap(toDate);
+      }
+      return volumes;
+    }
+
+    private VolumeAggregate aggregateFor(long epochDay, LocalDate date, Quality volumeQuality) {
+      if (epochDay < bucketStart || epochDay >= bucketEnd) {
+        moveBucket(epochDay, date);
+      }
+      int index = groupBy.contains(GroupBy.QUALITY) ? volumeQuality.ordinal() : 0;
+      VolumeAggregate volumeAggregate = bucket[index];
+      if (volumeAggregate == null) {
+        VolumeGroup volumeGroup = new VolumeGroup(nmi, day, month,
+            groupBy.contains(GroupBy.QUALITY) ? volumeQuality : null);
+        volumeAggregate = groups.computeIfAbsent(volumeGroup, key -> new VolumeAggregate());
+        bucket[index] = volumeAggregate;
+      }
+      return volumeAggregate;
+    }
+
+    private void moveBucket(long epochDay, LocalDate date) {
+      Arrays.fill(bucket, null);
+      boolean byDay = groupBy.contains(GroupBy.DAY);
+      boolean byMonth = groupBy.contains(GroupBy.MONTH);
+      if (!byDay && !byMonth) {
+        bucketStart = Long.MIN_VALUE;
+        bucketEnd = Long.MAX_VALUE;
+        return;
+      }
+      LocalDate localDate = date != null ? date : LocalDate.ofEpochDay(epochDay);
+      YearMonth yearMonth = YearMonth.from(localDate);
+      day = byDay ? localDate : null;
+      month = byMonth ? yearMonth : null;
+      if (byDay) {
+        bucketStart = epochDay;
+        bucketEnd = epochDay + 1;
+      } else {
+        bucketStart = yearMonth.atDay(1).toEpochDay();
+        bucketEnd = bucketStart + yearMonth.lengthOfMonth();
+      }
+    }
+  }
+}
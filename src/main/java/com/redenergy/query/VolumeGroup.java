@@ -0,0 +1,75 @@
+package com.redenergy.query;
+
+import com.redenergy.model.Quality;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * The key of a group of volumes, a dimension the query does not group by is null.
+ *
+ * Groups sort by NMI, date, month and quality, with the null of an ungrouped dimension first.
+ */
+public final class VolumeGroup implements Comparable<VolumeGroup> {
+
+  private static final Comparator<VolumeGroup> ORDER =
+      Comparator.comparing(VolumeGroup::getNmi, Comparator.nullsFirst(Comparator.naturalOrder()))
+          .thenComparing(VolumeGroup::getDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+          .thenComparing(VolumeGroup::getMonth, Comparator.nullsFirst(Comparator.naturalOrder()))
+          .thenComparing(VolumeGroup::getQuality, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+  private final String nmi;
+  private final LocalDate date;
+  private final YearMonth month;
+  private final Quality quality;
+
+  public VolumeGroup(String nmi, LocalDate date, YearMonth month, Quality quality) {
+    this.nmi = nmi;
+    this.date = date;
+    this.month = month;
+    this.quality = quality;
+  }
+
+  public String getNmi() {
+    return nmi;
+  }
+
+  public LocalDate getDate() {
+    return date;
+  }
+
+  public YearMonth getMonth() {
+    return month;
+  }
+
+  public Quality getQuality() {
+    return quality;
+  }
+
+  @Override
+  public int compareTo(VolumeGroup other) {
+    return ORDER.compare(this, other);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    VolumeGroup that = (VolumeGroup) o;
+    return Objects.equals(nmi, that.nmi) && Objects.equals(date, that.date)
+        && Objects.equals(month, that.month) && quality == that.quality;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(nmi, date, month, quality);
+  }
+
+  @Override
+  public String toString() {
+    return "VolumeGroup{nmi=" + nmi + ", date=" + date + ", month=" + month
+        + ", quality=" + quality + '}';
+  }
+}
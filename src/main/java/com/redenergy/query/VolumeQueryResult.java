@@ -0,0 +1,46 @@
+package com.redenergy.query;
+
+import com.redenergy.model.VolumeAggregate;
+
+import java.util.Collections;
+import java.util.SortedMap;
+
+/**
+ * The sum, count, min and max of the volumes of every group of a MeterReadQuery, and of all
+ * the volumes it selected.
+ */
+public class VolumeQueryResult {
+
+  private final SortedMap<VolumeGroup, VolumeAggregate> groups;
+  private final VolumeAggregate total;
+
+  VolumeQueryResult(SortedMap<VolumeGroup, VolumeAggregate> groups, VolumeAggregate total) {
+    this.groups = Collections.unmodifiableSortedMap(groups);
+    this.total = total;
+  }
+
+  /**
+   * @return the aggregate of every group in VolumeGroup order, empty if nothing was selected.
+   */
+  public SortedMap<VolumeGroup, VolumeAggregate> getGroups() {
+    return groups;
+  }
+
+  /**
+   * Get the aggregate of a group.
+   *
+   * @param volumeGroup the group
+   * @return the aggregate, empty if the group has no volumes.
+   */
+  public VolumeAggregate get(VolumeGroup volumeGroup) {
+    VolumeAggregate volumeAggregate = groups.get(volumeGroup);
+    return volumeAggregate != null ? volumeAggregate : new VolumeAggregate();
+  }
+
+  /**
+   * @return the aggregate of every selected volume.
+   */
+  public VolumeAggregate getTotal() {
+    return total;
+  }
+}
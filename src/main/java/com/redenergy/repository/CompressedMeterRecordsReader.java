@@ -0,0 +1,198 @@
+package com.redenergy.repository;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Meter Records reader which streams the Simple NEM12 documents of a gzip or zip file without
+ * decompressing them to disk.
+ *
+ * A gzip file holds one document and a zip file one document per file entry, in the order of
+ * the archive. Documents are decompressed on a read ahead thread with large buffers while the
+ * lines already decompressed are parsed. A plain file is read as a single document.
+ */
+public class CompressedMeterRecordsReader implements AutoCloseable {
+
+  private static final int FILE_BUFFER_SIZE = 256 * 1024;
+  private static final int INFLATE_BUFFER_SIZE = 64 * 1024;
+  private static final int READ_AHEAD_CHUNK_SIZE = 256 * 1024;
+  private static final int READ_AHEAD_CHUNKS = 4;
+
+  private final File simpleNem12File;
+  private final Compression compression;
+  private ZipFile zipFile;
+  private Enumeration<? extends ZipEntry> zipEntries;
+  private boolean singleDocumentRead;
+  private String documentName;
+  private Stream<String> documentLines;
+
+  /**
+   * Open the documents of a file.
+   *
+   * @param simpleNem12File the input file.
+   * @return the reader, to be closed by the caller.
+   * @throws SimpleNem12ParserException if the file cannot be opened.
+   */
+  public static CompressedMeterRecordsReader open(File simpleNem12File)
+      throws SimpleNem12ParserException {
+    return new CompressedMeterRecordsReader(simpleNem12File, Compression.detect(simpleNem12File));
+  }
+
+  private CompressedMeterRecordsReader(File simpleNem12File, Compression compression)
+      throws SimpleNem12ParserException {
+    this.simpleNem12File = simpleNem12File;
+    this.compression = compression;
+    if (compression == Compression.ZIP) {
+      try {
+        zipFile = new ZipFile(simpleNem12File);
+        zipEntries = zipFile.entries();
+      } catch (IOException exception) {
+        throw new SimpleNem12ParserException(" Error reading meter records from csv file",
+            exception);
+      }
+    }
+  }
+
+  public Compression getCompression() {
+    return compression;
+  }
+
+  /**
+   * Move to the next document, closing the lines of the current one.
+   *
+   * @return the trimmed lines of the next document, or null when there are no more.
+   * @throws SimpleNem12ParserException if the document cannot be opened.
+   */
+  public Stream<String> nextDocument() throws SimpleNem12ParserException {
+    closeDocument();
+    try {
+      InputStream document = openNextDocument();
+      if (document == null) {
+        return null;
+      }
+      BufferedReader reader = new BufferedReader(
+          new InputStreamReader(document, MeterRecordLine.CHARSET), FILE_BUFFER_SIZE);
+      documentLines = reader.lines().map(String::trim).onClose(() -> {
+        try {
+          reader.close();
+        } catch (IOException exception) {
+          throw new UncheckedIOException(exception);
+        }
+      });
+      return documentLines;
+    } catch (IOException exception) {
+      throw new SimpleNem12ParserException(" Error reading meter records from csv file", exception);
+    }
+  }
+
+  /**
+   * @return the name of the current document, the zip entry name or the file name.
+   */
+  public String getDocumentName() {
+    return documentName;
+  }
+
+  /**
+   * Lazily read the lines of every document in turn, the stream closes this reader.
+   *
+   * @return stream of trimmed lines, to be closed by the caller.
+   */
+  public Stream<String> lines() {
+    Iterator<String> lines = new Iterator<String>() {
+      private Iterator<String> document = null;
+
+      @Override
+      public boolean hasNext() {
+        try {
+          while (document == null || !document.hasNext()) {
+            Stream<String> nextDocument = nextDocument();
+            if (nextDocument == null) {
+              return false;
+            }
+            document = nextDocument.iterator();
+          }
+          return true;
+        } catch (SimpleNem12ParserException exception) {
+          throw new UncheckedIOException(new IOException(exception.getMessage(),
+              exception.getCause()));
+        }
+      }
+
+      @Override
+      public String next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return document.next();
+      }
+    };
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(lines, Spliterator.ORDERED | Spliterator.NONNULL),
+        false).onClose(this::close);
+  }
+
+  @Override
+  public void close() {
+    closeDocument();
+    if (zipFile != null) {
+      try {
+        zipFile.close();
+      } catch (IOException exception) {
+        //nothing was written, closing cannot lose data
+      }
+    }
+  }
+
+  private InputStream openNextDocument() throws IOException {
+    if (compression == Compression.ZIP) {
+      while (zipEntries.hasMoreElements()) {
+        ZipEntry zipEntry = zipEntries.nextElement();
+        if (!zipEntry.isDirectory()) {
+          documentName = zipEntry.getName();
+          return readAhead(zipFile.getInputStream(zipEntry));
+        }
+      }
+      return null;
+    }
+    if (singleDocumentRead) {
+      return null;
+    }
+    singleDocumentRead = true;
+    documentName = simpleNem12File.getName();
+    InputStream fileStream = new BufferedInputStream(
+        Files.newInputStream(simpleNem12File.toPath()), FILE_BUFFER_SIZE);
+    if (compression == Compression.GZIP) {
+      return readAhead(new GZIPInputStream(fileStream, INFLATE_BUFFER_SIZE));
+    }
+    return fileStream;
+  }
+
+  private static InputStream readAhead(InputStream decompressed) {
+    return new ReadAheadInputStream(decompressed, READ_AHEAD_CHUNK_SIZE, READ_AHEAD_CHUNKS);
+  }
+
+  private void closeDocument() {
+    if (documentLines != null) {
+      documentLines.close();
+      documentLines = null;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.redenergy.repository;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * Compression of an input file, detected from its leading magic bytes rather than its name.
+ */
+public enum Compression {
+
+  NONE,
+
+  /**
+   * A gzip stream holding a single Simple NEM12 document.
+   */
+  GZIP,
+
+  /**
+   * A zip archive, every file entry is a Simple NEM12 document of its own.
+   */
+  ZIP;
+
+  private static final int GZIP_MAGIC = 0x1F8B;
+  private static final int ZIP_LOCAL_FILE_MAGIC = 0x504B0304;
+  private static final int ZIP_EMPTY_ARCHIVE_MAGIC = 0x504B0506;
+
+  /**
+   * Detect the compression of a file.
+   *
+   * @param file the input file
+   * @return the compression, NONE for plain text or when the file does not exist.
+   * @throws SimpleNem12ParserException if the file cannot be read.
+   */
+  public static Compression detect(File file) throws SimpleNem12ParserException {
+    if (file == null || !file.isFile()) {
+      return NONE;
+    }
+    byte[] magic = new byte[4];
+    int read = 0;
+    try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+      int count;
+      while (read < magic.length
+          && (count = inputStream.read(magic, read, magic.length - read)) > 0) {
+        read += count;
+      }
+    } catch (IOException exception) {
+      throw new SimpleNem12ParserException(" Error reading meter records from csv file", exception);
+    }
+    int magicShort = (magic[0] & 0xFF) << 8 | (magic[1] & 0xFF);
+    int magicInt = magicShort << 16 | (magic[2] & 0xFF) << 8 | (magic[3] & 0xFF);
+    if (read >= 2 && magicShort == GZIP_MAGIC) {
+      return GZIP;
+    }
+    if (read == 4 && (magicInt == ZIP_LOCAL_FILE_MAGIC || magicInt == ZIP_EMPTY_ARCHIVE_MAGIC)) {
+      return ZIP;
+    }
+    return NONE;
+  }
+}
@@ -0,0 +1,133 @@
+package com.redenergy.repository;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads only the first and the last line of a file, a few KB from each end, so the header and
+ * trailer can be checked without reading the whole file.
+ *
+ * Lines are split as <code>Files.lines</code> splits them: a line ends at '\n', '\r' or "\r\n",
+ * and a final line end ends the last line rather than starting an empty one.
+ */
+public class FileBoundaryReader {
+
+  private static final int INITIAL_READ_SIZE = 4 * 1024;
+  private static final byte NEW_LINE = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+
+  /**
+   * Read the first line of the file.
+   *
+   * @param simpleNem12File the input file.
+   * @return the tokenized first line, or null if the file is empty.
+   * @throws SimpleNem12ParserException
+   */
+  public MeterRecordLine readFirstLine(File simpleNem12File) throws SimpleNem12ParserException {
+    try (FileChannel fileChannel = open(simpleNem12File)) {
+      long fileSize = fileChannel.size();
+      if (fileSize == 0) {
+        return null;
+      }
+      int readSize = INITIAL_READ_SIZE;
+      while (true) {
+        ByteBuffer head = read(fileChannel, 0L, (int) Math.min(readSize, fileSize));
+        int lineEnd = indexOf(head, 0, head.limit());
+        if (lineEnd >= 0 || head.limit() == fileSize) {
+          return new MeterRecordLine().tokenize(head, 0, lineEnd >= 0 ? lineEnd : head.limit(),
+              0L, 1L);
+        }
+        readSize = growReadSize(simpleNem12File, readSize);
+      }
+    } catch (IOException exception) {
+      throw new SimpleNem12ParserException(" Error reading meter records from csv file", exception);
+    }
+  }
+
+  /**
+   * Read the last line of the file.
+   *
+   * @param simpleNem12File the input file.
+   * @return the tokenized last line with an unknown line number, or null if the file is empty.
+   * @throws SimpleNem12ParserException
+   */
+  public MeterRecordLine readLastLine(File simpleNem12File) throws SimpleNem12ParserException {
+    try (FileChannel fileChannel = open(simpleNem12File)) {
+      long fileSize = fileChannel.size();
+      if (fileSize == 0) {
+        return null;
+      }
+      int readSize = INITIAL_READ_SIZE;
+      while (true) {
+        long start = Math.max(0L, fileSize - readSize);
+        ByteBuffer tail = read(fileChannel, start, (int) (fileSize - start));
+        int end = tail.limit();
+        if (tail.get(end - 1) == NEW_LINE) {
+          end--;
+        }
+        if (end > 0 && tail.get(end - 1) == CARRIAGE_RETURN) {
+          end--;
+        }
+        int lineStart = lastIndexOf(tail, end) + 1;
+        if (lineStart > 0 || start == 0) {
+          return new MeterRecordLine().tokenize(tail, lineStart, end, start + lineStart, -1L);
+        }
+        readSize = growReadSize(simpleNem12File, readSize);
+      }
+    } catch (IOException exception) {
+      throw new SimpleNem12ParserException(" Error reading meter records from csv file", exception);
+    }
+  }
+
+  private static FileChannel open(File simpleNem12File) throws IOException {
+    return FileChannel.open(simpleNem12File.toPath(), StandardOpenOption.READ);
+  }
+
+  private static ByteBuffer read(FileChannel fileChannel, long position, int size)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    while (buffer.hasRemaining()) {
+      if (fileChannel.read(buffer, position + buffer.position()) < 0) {
+        break;
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static int indexOf(ByteBuffer buffer, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (isLineEnd(buffer.get(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int lastIndexOf(ByteBuffer buffer, int end) {
+    for (int i = end - 1; i >= 0; i--) {
+      if (isLineEnd(buffer.get(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isLineEnd(byte character) {
+    return character == NEW_LINE || character == CARRIAGE_RETURN;
+  }
+
+  private static int growReadSize(File simpleNem12File, int readSize)
+      throws SimpleNem12ParserException {
+    if (readSize >= Integer.MAX_VALUE / 2) {
+      throw new SimpleNem12ParserException(
+          "Line of " + simpleNem12File + " is longer than " + readSize + " bytes");
+    }
+    return readSize * 2;
+  }
+}
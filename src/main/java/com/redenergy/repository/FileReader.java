@@ -4,6 +4,7 @@ import com.redenergy.exception.SimpleNem12ParserException;
 
 import java.io.File;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Contract for a file Reader.
@@ -18,4 +19,13 @@ public interface FileReader {
    */
   public List<String> readLines(File fileName) throws SimpleNem12ParserException;
 
+  /**
+   * Lazily read the lines from the input file provided, only the current line is held in memory.
+   * The returned stream holds the file open and must be closed by the caller.
+   * @param fileName the input file name.
+   * @return stream of String.
+   * @throws SimpleNem12ParserException
+   */
+  public Stream<String> streamLines(File fileName) throws SimpleNem12ParserException;
+
 }
@@ -0,0 +1,265 @@
+package com.redenergy.repository;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.RecordType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meter Records reader which follows a CSV file still being written, handing out each line
+ * once its '\n' has been written and waiting for the file to grow when there is none.
+ *
+ * Reading starts from a byte offset, so a follower can resume from a checkpoint without
+ * reading earlier bytes again, and ends after the 900 trailer, which may be the last line
+ * without a '\n'. Growth is picked up from WatchService events on the directory of the file,
+ * falling back to polling at the poll interval where the directory cannot be watched.
+ */
+public class FollowingMeterRecordsReader implements MeterRecordSource {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final byte NEW_LINE = '\n';
+
+  private final File simpleNem12File;
+  private final FileChannel fileChannel;
+  private final long pollIntervalMillis;
+  private final long idleTimeoutMillis;
+  private final MeterRecordLine meterRecordLine = new MeterRecordLine();
+  private WatchService watchService;
+  private boolean polling;
+  private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private long bufferStart;
+  private int position;
+  private long lineNumber;
+  private long recordOffset = -1;
+  private boolean trailerRead;
+  private boolean ended;
+
+  /**
+   * Follow the input file from a byte offset.
+   *
+   * @param simpleNem12File    the input file.
+   * @param startOffset        the offset to read from, expected to be the start of a line.
+   * @param startLineNumber    the number of lines before the offset.
+   * @param pollIntervalMillis the longest wait between checks for new bytes.
+   * @param idleTimeoutMillis  how long the file may go without growing, 0 to wait forever.
+   * @return the reader, to be closed by the caller.
+   * @throws SimpleNem12ParserException
+   */
+  public static FollowingMeterRecordsReader open(File simpleNem12File, long startOffset,
+                                                 long startLineNumber, long pollIntervalMillis,
+                                                 long idleTimeoutMillis)
+      throws SimpleNem12ParserException {
+    try {
+      FileChannel fileChannel =
+          FileChannel.open(simpleNem12File.toPath(), StandardOpenOption.READ);
+      if (startOffset > fileChannel.size()) {
+        fileChannel.close();
+        throw new SimpleNem12ParserException(
+            "Checkpoint " + startOffset + " is past the end of " + simpleNem12File);
+      }
+      FollowingMeterRecordsReader reader = new FollowingMeterRecordsReader(simpleNem12File,
+          fileChannel, pollIntervalMillis, idleTimeoutMillis);
+      reader.bufferStart = startOffset;
+      reader.lineNumber = startLineNumber;
+      reader.buffer.flip();
+      return reader;
+    } catch (IOException exception) {
+      throw new SimpleNem12ParserException(" Error reading meter records from csv file", exception);
+    }
+  }
+
+  private FollowingMeterRecordsReader(File simpleNem12File, FileChannel fileChannel,
+                                      long pollIntervalMillis, long idleTimeoutMillis) {
+    this.simpleNem12File = simpleNem12File;
+    this.fileChannel = fileChannel;
+    this.pollIntervalMillis = Math.max(1L, pollIntervalMillis);
+    this.idleTimeoutMillis = idleTimeoutMillis;
+  }
+
+  @Override
+  public MeterRecordLine nextRecord() throws SimpleNem12ParserException {
+    if (ended) {
+      return null;
+    }
+    try {
+      long idleSince = System.nanoTime();
+      while (true) {
+        int newLine = indexOfNewLine();
+        if (newLine >= 0) {
+          return record(newLine, newLine + 1);
+        }
+        if (readMore()) {
+          idleSince = System.nanoTime();
+          continue;
+        }
+        //the trailer is complete without its '\n', nothing else may follow it
+        if (position < buffer.limit() && isEndRecord()) {
+          return record(buffer.limit(), buffer.limit());
+        }
+        awaitGrowth(idleSince);
+      }
+    } catch (IOException exception) {
+      throw new SimpleNem12ParserException(" Error reading meter records from csv file", exception);
+    }
+  }
+
+  /**
+   * @return the offset of the first byte not yet handed out, the start of the next line.
+   */
+  public long getOffset() {
+    return bufferStart + position;
+  }
+
+  /**
+   * @return the offset of the last line handed out, -1 before the first.
+   */
+  public long getRecordOffset() {
+    return recordOffset;
+  }
+
+  /**
+   * @return the number of lines handed out, counted from the start of the file.
+   */
+  public long getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * @return true once the 900 trailer has been handed out.
+   */
+  public boolean isTrailerRead() {
+    return trailerRead;
+  }
+
+  @Override
+  public void close() {
+    ended = true;
+    try {
+      fileChannel.close();
+    } catch (IOException exception) {
+      //nothing was written, closing cannot lose data
+    }
+    close(watchService);
+  }
+
+  private MeterRecordLine record(int lineEnd, int nextPosition) {
+    recordOffset = bufferStart + position;
+    meterRecordLine.tokenize(buffer, position, lineEnd, recordOffset, ++lineNumber);
+    position = nextPosition;
+    trailerRead = meterRecordLine.isRecordType(RecordType.RECORD_TYPE_END);
+    ended = trailerRead;
+    return meterRecordLine;
+  }
+
+  private int indexOfNewLine() {
+    for (int i = position, limit = buffer.limit(); i < limit; i++) {
+      if (buffer.get(i) == NEW_LINE) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isEndRecord() {
+    meterRecordLine.tokenize(buffer, position, buffer.limit(), bufferStart + position,
+        lineNumber + 1);
+    return meterRecordLine.isRecordType(RecordType.RECORD_TYPE_END);
+  }
+
+  /**
+   * Move the unread bytes to the front of the buffer and read whatever the file has after them.
+   *
+   * @return true if any bytes were read.
+   */
+  private boolean readMore() throws IOException, SimpleNem12ParserException {
+    long readFrom = bufferStart + buffer.limit();
+    long size = fileChannel.size();
+    if (size < readFrom) {
+      throw new SimpleNem12ParserException(simpleNem12File + " was truncated while following it");
+    }
+    if (size == readFrom) {
+      return false;
+    }
+    int unread = buffer.limit() - position;
+    if (unread == buffer.capacity()) {
+      //the current line is longer than the buffer
+      ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+      buffer.position(position);
+      larger.put(buffer);
+      buffer = larger;
+    } else {
+      buffer.position(position);
+      buffer.compact();
+    }
+    bufferStart += position;
+    position = 0;
+    int read = fileChannel.read(buffer, readFrom);
+    buffer.flip();
+    return read > 0;
+  }
+
+  private void awaitGrowth(long idleSince) throws SimpleNem12ParserException {
+    long idleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - idleSince);
+    if (idleTimeoutMillis > 0 && idleMillis >= idleTimeoutMillis) {
+      throw new SimpleNem12ParserException("No meter records were added to " + simpleNem12File
+          + " for " + idleTimeoutMillis + "ms before its 900 trailer");
+    }
+    try {
+      WatchService directoryWatch = watchDirectory();
+      if (directoryWatch == null) {
+        Thread.sleep(pollIntervalMillis);
+        return;
+      }
+      WatchKey watchKey = directoryWatch.poll(pollIntervalMillis, TimeUnit.MILLISECONDS);
+      if (watchKey != null) {
+        watchKey.pollEvents();
+        watchKey.reset();
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new SimpleNem12ParserException("Interrupted while following " + simpleNem12File,
+          exception);
+    }
+  }
+
+  /**
+   * Register for changes to the directory of the file the first time the reader has to wait.
+   *
+   * @return the watch service, or null to poll.
+   */
+  private WatchService watchDirectory() {
+    if (watchService == null && !polling) {
+      Path directory = simpleNem12File.getAbsoluteFile().toPath().getParent();
+      try {
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_CREATE);
+      } catch (IOException | UnsupportedOperationException exception) {
+        close(watchService);
+        watchService = null;
+        polling = true;
+      }
+    }
+    return watchService;
+  }
+
+  private static void close(WatchService watchService) {
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException exception) {
+        //falling back to polling either way
+      }
+    }
+  }
+}
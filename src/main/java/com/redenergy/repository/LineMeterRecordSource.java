@@ -0,0 +1,41 @@
+package com.redenergy.repository;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Meter record source over a lazily read stream of lines.
+ */
+public class LineMeterRecordSource implements MeterRecordSource {
+
+  private final Stream<String> lines;
+  private final Iterator<String> lineIterator;
+  private final MeterRecordLine meterRecordLine = new MeterRecordLine();
+  private long lineNumber;
+
+  public LineMeterRecordSource(Stream<String> lines) {
+    this.lines = lines;
+    this.lineIterator = lines.iterator();
+  }
+
+  @Override
+  public MeterRecordLine nextRecord() throws SimpleNem12ParserException {
+    try {
+      if (!lineIterator.hasNext()) {
+        return null;
+      }
+      return meterRecordLine.tokenize(lineIterator.next(), ++lineNumber);
+    } catch (UncheckedIOException exception) {
+      throw new SimpleNem12ParserException(" Error reading meter records from csv file",
+          exception.getCause());
+    }
+  }
+
+  @Override
+  public void close() {
+    lines.close();
+  }
+}
@@ -0,0 +1,189 @@
+package com.redenergy.repository;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.RecordType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Meter Records reader which memory maps the CSV file and scans the ASCII bytes for
+ * commas and newlines, without decoding lines to Strings.
+ *
+ * The file is mapped in windows so files larger than 2GB can be read, a window is
+ * remapped from the start of the current line when the line runs past its end.
+ * Lines end at '\n', '\r' or "\r\n", as <code>BufferedReader.readLine</code> ends them, so line
+ * numbers and chunk boundaries match those of the LINES reader.
+ */
+public class MappedMeterRecordsReader implements MeterRecordSource {
+
+  public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private static final byte NEW_LINE = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+  private static final String COMMA = ",";
+
+  private final FileChannel fileChannel;
+  private final long end;
+  private final MeterRecordLine meterRecordLine = new MeterRecordLine();
+  private int windowSize;
+  private MappedByteBuffer window;
+  private long windowStart;
+  private int position;
+  private long lineNumber;
+
+  /**
+   * Memory map the whole input file.
+   *
+   * @param simpleNem12File the input file.
+   * @return the reader, to be closed by the caller.
+   * @throws SimpleNem12ParserException
+   */
+  public static MappedMeterRecordsReader open(File simpleNem12File)
+      throws SimpleNem12ParserException {
+    return open(simpleNem12File, DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * Memory map the whole input file using windows of the given size.
+   *
+   * @param simpleNem12File the input file.
+   * @param windowSize      the number of bytes mapped at a time.
+   * @return the reader, to be closed by the caller.
+   * @throws SimpleNem12ParserException
+   */
+  public static MappedMeterRecordsReader open(File simpleNem12File, int windowSize)
+      throws SimpleNem12ParserException {
+    return open(simpleNem12File, 0L, Long.MAX_VALUE, windowSize);
+  }
+
+  /**
+   * Memory map the byte range of the input file, line numbers are counted from the range start.
+   *
+   * @param simpleNem12File the input file.
+   * @param start           the first byte of the range, expected to be the start of a line.
+   * @param end             the end of the range, exclusive, capped at the file size.
+   * @param windowSize      the number of bytes mapped at a time.
+   * @return the reader, to be closed by the caller.
+   * @throws SimpleNem12ParserException
+   */
+  public static MappedMeterRecordsReader open(File simpleNem12File, long start, long end,
+                                              int windowSize)
+      throws SimpleNem12ParserException {
+    try {
+      FileChannel fileChannel = FileChannel.open(simpleNem12File.toPath(), StandardOpenOption.READ);
+      try {
+        long rangeEnd = Math.min(end, fileChannel.size());
+        return new MappedMeterRecordsReader(fileChannel, Math.min(start, rangeEnd), rangeEnd,
+            windowSize);
+      } catch (IOException exception) {
+        fileChannel.close();
+        throw exception;
+      }
+    } catch (IOException exception) {
+      throw new SimpleNem12ParserException(" Error reading meter records from csv file", exception);
+    }
+  }
+
+  private MappedMeterRecordsReader(FileChannel fileChannel, long start, long end, int windowSize)
+      throws IOException {
+    this.fileChannel = fileChannel;
+    this.end = end;
+    this.windowSize = windowSize;
+    map(start);
+  }
+
+  /**
+   * Find the start of the first line at or after the offset that begins with the record
+   * type followed by a comma.
+   *
+   * @param simpleNem12File the input file.
+   * @param from            the offset to search from.
+   * @param recordType      the record type to look for.
+   * @return the offset of the line, or the file size if there is none.
+   * @throws SimpleNem12ParserException
+   */
+  public static long findRecordStart(File simpleNem12File, long from, RecordType recordType)
+      throws SimpleNem12ParserException {
+    if (from <= 0) {
+      return 0L;
+    }
+    String prefix = recordType.recordType + COMMA;
+    //start one byte early so a line beginning exactly at the offset is seen whole
+    try (MappedMeterRecordsReader reader =
+             open(simpleNem12File, from - 1, Long.MAX_VALUE, DEFAULT_WINDOW_SIZE)) {
+      //skip the line the offset falls in
+      reader.nextRecord();
+      MeterRecordLine meterRecordLine;
+      while ((meterRecordLine = reader.nextRecord()) != null) {
+        if (meterRecordLine.startsWith(prefix)) {
+          return meterRecordLine.getByteOffset();
+        }
+      }
+      return reader.end;
+    }
+  }
+
+  @Override
+  public MeterRecordLine nextRecord() throws SimpleNem12ParserException {
+    try {
+      while (true) {
+        long lineOffset = windowStart + position;
+        if (lineOffset >= end) {
+          return null;
+        }
+        int limit = window.limit();
+        int newLine = indexOfLineEnd(position, limit);
+        //a '\r' ending the window may be followed by the '\n' of the same line end
+        boolean open = newLine < 0
+            || newLine == limit - 1 && window.get(newLine) == CARRIAGE_RETURN;
+        if (open && windowStart + limit < end) {
+          if (position == 0) {
+            //the line is longer than a window
+            windowSize = (int) Math.min(Integer.MAX_VALUE, windowSize * 2L);
+          }
+          map(lineOffset);
+          continue;
+        }
+        int lineEnd = newLine < 0 ? limit : newLine;
+        meterRecordLine.tokenize(window, position, lineEnd, lineOffset, ++lineNumber);
+        position = newLine < 0 ? limit : newLine + 1;
+        if (newLine >= 0 && window.get(newLine) == CARRIAGE_RETURN && position < limit
+            && window.get(position) == NEW_LINE) {
+          position++;
+        }
+        return meterRecordLine;
+      }
+    } catch (IOException exception) {
+      throw new SimpleNem12ParserException(" Error reading meter records from csv file", exception);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      fileChannel.close();
+    } catch (IOException exception) {
+      //nothing more can be done with a channel that fails to close
+    }
+  }
+
+  private int indexOfLineEnd(int from, int limit) {
+    for (int i = from; i < limit; i++) {
+      byte character = window.get(i);
+      if (character == NEW_LINE || character == CARRIAGE_RETURN) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void map(long start) throws IOException {
+    window = fileChannel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, end - start));
+    windowStart = start;
+    position = 0;
+  }
+}
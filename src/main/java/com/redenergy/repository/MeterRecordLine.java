@@ -0,0 +1,236 @@
+package com.redenergy.repository;
+
+import com.redenergy.model.RecordType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A single trimmed meter record split on commas, held as field offsets over the source bytes.
+ *
+ * Instances are reused from line to line by the readers, so no String is created
+ * unless a field is explicitly asked for one.
+ *
+ * Every reader decodes lines as ISO-8859-1, one char per byte, so a line has the same fields
+ * and lengths whichever reader read it. Simple NEM12 records are ASCII, a line holding any other
+ * character is flagged with <code>isAscii</code> to be rejected.
+ */
+public final class MeterRecordLine {
+
+  /**
+   * The charset lines are decoded with by every reader.
+   */
+  public static final Charset CHARSET = StandardCharsets.ISO_8859_1;
+
+  private static final byte COMMA = ',';
+  private static final int INITIAL_FIELDS = 8;
+
+  private ByteBuffer buffer;
+  private byte[] heapBytes = new byte[128];
+  private int lineStart;
+  private int lineEnd;
+  private boolean ascii;
+  private int[] fieldStarts = new int[INITIAL_FIELDS];
+  private int[] fieldEnds = new int[INITIAL_FIELDS];
+  private int fieldCount;
+  private long lineNumber;
+  private long byteOffset;
+
+  /**
+   * Points this line at the bytes between start and end of the buffer, trimming
+   * surrounding whitespace the same way as String.trim.
+   *
+   * @param buffer     the source bytes
+   * @param start      first byte of the line
+   * @param end        end of the line, exclusive
+   * @param byteOffset offset of the line start in the source file
+   * @param lineNumber one based line number in the source file
+   * @return this line
+   */
+  public MeterRecordLine tokenize(ByteBuffer buffer, int start, int end,
+                                  long byteOffset, long lineNumber) {
+    this.buffer = buffer;
+    this.byteOffset = byteOffset;
+    this.lineNumber = lineNumber;
+    while (start < end && (buffer.get(start) & 0xff) <= ' ') {
+      start++;
+    }
+    while (end > start && (buffer.get(end - 1) & 0xff) <= ' ') {
+      end--;
+    }
+    lineStart = start;
+    lineEnd = end;
+    fieldCount = 0;
+    int fieldStart = start;
+    byte highBits = 0;
+    for (int i = start; i < end; i++) {
+      byte character = buffer.get(i);
+      highBits |= character;
+      if (character == COMMA) {
+        addField(fieldStart, i);
+        fieldStart = i + 1;
+      }
+    }
+    addField(fieldStart, end);
+    ascii = highBits >= 0;
+    return this;
+  }
+
+  /**
+   * Points this line at the characters of an already read String, encoded as ISO-8859-1 with
+   * any character outside it as the non ASCII byte of an inverted question mark.
+   *
+   * @param meterRecord the meter record
+   * @param lineNumber  one based line number in the source file
+   * @return this line
+   */
+  public MeterRecordLine tokenize(String meterRecord, long lineNumber) {
+    int length = meterRecord.length();
+    if (heapBytes.length < length) {
+      heapBytes = new byte[Math.max(length, heapBytes.length * 2)];
+    }
+    for (int i = 0; i < length; i++) {
+      char c = meterRecord.charAt(i);
+      heapBytes[i] = (byte) (c <= 0xff ? c : 0xbf);
+    }
+    return tokenize(ByteBuffer.wrap(heapBytes), 0, length, -1L, lineNumber);
+  }
+
+  private void addField(int start, int end) {
+    if (fieldCount == fieldStarts.length) {
+      fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+      fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+    }
+    fieldStarts[fieldCount] = start;
+    fieldEnds[fieldCount] = end;
+    fieldCount++;
+  }
+
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  public long getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * @return offset of the line in the source file, or -1 when the line was not read from bytes.
+   */
+  public long getByteOffset() {
+    return byteOffset;
+  }
+
+  public int fieldLength(int field) {
+    return fieldEnds[field] - fieldStarts[field];
+  }
+
+  /**
+   * @param field the field index
+   * @param index the byte index within the field
+   * @return the byte at the index within the field
+   */
+  public byte byteAt(int field, int index) {
+    return buffer.get(fieldStarts[field] + index);
+  }
+
+  /**
+   * @return true if every character of the trimmed line is ASCII.
+   */
+  public boolean isAscii() {
+    return ascii;
+  }
+
+  /**
+   * @return true if the line is empty.
+   */
+  public boolean isBlank() {
+    return lineStart == lineEnd;
+  }
+
+  /**
+   * @param recordType the record type
+   * @return true if the first field is exactly the record type.
+   */
+  public boolean isRecordType(RecordType recordType) {
+    return fieldEquals(0, recordType.recordType);
+  }
+
+  /**
+   * @param prefix ASCII prefix
+   * @return true if the trimmed line starts with the prefix.
+   */
+  public boolean startsWith(String prefix) {
+    int length = prefix.length();
+    if (lineEnd - lineStart < length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (buffer.get(lineStart + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param field the field index
+   * @param value ASCII value
+   * @return true if the field is exactly the value.
+   */
+  public boolean fieldEquals(int field, String value) {
+    int length = value.length();
+    if (fieldLength(field) != length) {
+      return false;
+    }
+    int start = fieldStarts[field];
+    for (int i = 0; i < length; i++) {
+      if (buffer.get(start + i) != value.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Copies the field into the destination as chars.
+   *
+   * @param field       the field index
+   * @param destination destination, at least fieldLength long
+   * @return the number of chars copied
+   */
+  public int fieldChars(int field, char[] destination) {
+    int start = fieldStarts[field];
+    int length = fieldLength(field);
+    for (int i = 0; i < length; i++) {
+      destination[i] = (char) (buffer.get(start + i) & 0xff);
+    }
+    return length;
+  }
+
+  /**
+   * @param field the field index
+   * @return a new String of the field.
+   */
+  public String fieldAsString(int field) {
+    return slice(fieldStarts[field], fieldEnds[field]);
+  }
+
+  /**
+   * @return a new String of the whole trimmed line.
+   */
+  @Override
+  public String toString() {
+    return slice(lineStart, lineEnd);
+  }
+
+  private String slice(int start, int end) {
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, CHARSET);
+  }
+}
@@ -0,0 +1,23 @@
+package com.redenergy.repository;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+
+/**
+ * Contract for a sequential source of tokenized meter records.
+ */
+public interface MeterRecordSource extends AutoCloseable {
+
+  /**
+   * Read the next meter record.
+   *
+   * @return the next record, valid until the following call, or null at the end of the source.
+   * @throws SimpleNem12ParserException if the source cannot be read.
+   */
+  MeterRecordLine nextRecord() throws SimpleNem12ParserException;
+
+  /**
+   * Release the underlying file.
+   */
+  @Override
+  void close();
+}
@@ -4,6 +4,7 @@ import com.redenergy.exception.SimpleNem12ParserException;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -11,6 +12,11 @@ import java.util.stream.Stream;
 
 /**
  * Meter Records reader which reads date from CSV file.
+ *
+ * Gzip and zip files are detected from their magic bytes and decompressed as they are read,
+ * the lines of every zip entry are read in turn. Use <code>CompressedMeterRecordsReader</code>
+ * to read each entry as a document of its own. Lines are decoded as
+ * <code>MeterRecordLine.CHARSET</code>, as the byte readers decode them.
  */
 public class MeterRecordsReader implements FileReader {
 
@@ -23,10 +29,29 @@ public class MeterRecordsReader implements FileReader {
    */
   @Override
   public List<String> readLines(File simpleNem12File) throws SimpleNem12ParserException {
-    try (Stream<String> lines = Files.lines(simpleNem12File.toPath())) {
-      List<String> meterRecords =
-          lines.map(String::trim).collect(Collectors.toList());
+    try (Stream<String> lines = streamLines(simpleNem12File)) {
+      List<String> meterRecords = lines.collect(Collectors.toList());
       return meterRecords;
+    } catch (UncheckedIOException exception) {
+      throw new SimpleNem12ParserException(" Error reading meter records from csv file",
+          exception.getCause());
+    }
+  }
+
+  /**
+   * Lazily read the data from csv line by line.
+   *
+   * @param simpleNem12File the input file.
+   * @return stream of String, to be closed by the caller.
+   * @throws SimpleNem12ParserException
+   */
+  @Override
+  public Stream<String> streamLines(File simpleNem12File) throws SimpleNem12ParserException {
+    if (Compression.detect(simpleNem12File) != Compression.NONE) {
+      return CompressedMeterRecordsReader.open(simpleNem12File).lines();
+    }
+    try {
+      return Files.lines(simpleNem12File.toPath(), MeterRecordLine.CHARSET).map(String::trim);
     } catch (IOException exception) {
       throw new SimpleNem12ParserException(" Error reading meter records from csv file", exception);
     }
@@ -0,0 +1,125 @@
+package com.redenergy.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * InputStream reading its source ahead on a thread of its own, so decompressing the source
+ * overlaps with parsing what has already been read.
+ *
+ * The source is read in chunks into a bounded queue, which caps the bytes read ahead. The source
+ * is closed by the reading thread once it is exhausted, fails or this stream is closed.
+ */
+final class ReadAheadInputStream extends InputStream {
+
+  private static final byte[] END = new byte[0];
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  private final BlockingQueue<Object> chunks;
+  private final Thread readAhead;
+  private byte[] chunk = new byte[0];
+  private int position;
+  private boolean ended;
+
+  /**
+   * @param source      the stream to read ahead
+   * @param chunkSize   the bytes read at a time
+   * @param chunksAhead the most chunks read before they are consumed
+   */
+  ReadAheadInputStream(InputStream source, int chunkSize, int chunksAhead) {
+    this.chunks = new ArrayBlockingQueue<>(chunksAhead);
+    this.readAhead = new Thread(() -> readAhead(source, chunkSize),
+        "nem12-read-ahead-" + THREAD_COUNT.incrementAndGet());
+    this.readAhead.setDaemon(true);
+    this.readAhead.start();
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!nextChunk()) {
+      return -1;
+    }
+    return chunk[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    if (!nextChunk()) {
+      return -1;
+    }
+    int read = Math.min(length, chunk.length - position);
+    System.arraycopy(chunk, position, bytes, offset, read);
+    position += read;
+    return read;
+  }
+
+  @Override
+  public int available() {
+    return chunk.length - position;
+  }
+
+  @Override
+  public void close() {
+    ended = true;
+    readAhead.interrupt();
+  }
+
+  private boolean nextChunk() throws IOException {
+    while (position == chunk.length) {
+      if (ended) {
+        return false;
+      }
+      Object next;
+      try {
+        next = chunks.take();
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while reading ahead");
+      }
+      if (next instanceof IOException) {
+        ended = true;
+        throw new IOException(((IOException) next).getMessage(), (IOException) next);
+      }
+      chunk = (byte[]) next;
+      position = 0;
+      ended = chunk == END;
+    }
+    return true;
+  }
+
+  private void readAhead(InputStream source, int chunkSize) {
+    try (InputStream input = source) {
+      while (true) {
+        byte[] buffer = new byte[chunkSize];
+        int filled = 0;
+        int read;
+        while (filled < chunkSize && (read = input.read(buffer, filled, chunkSize - filled)) > 0) {
+          filled += read;
+        }
+        if (filled > 0) {
+          chunks.put(filled == chunkSize ? buffer : Arrays.copyOf(buffer, filled));
+        }
+        if (filled < chunkSize) {
+          chunks.put(END);
+          return;
+        }
+      }
+    } catch (IOException exception) {
+      try {
+        chunks.put(exception);
+      } catch (InterruptedException interrupted) {
+        //closed, nobody is reading
+      }
+    } catch (InterruptedException exception) {
+      //closed, nobody is reading
+    }
+  }
+}
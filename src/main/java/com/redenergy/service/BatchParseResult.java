@@ -0,0 +1,73 @@
+package com.redenergy.service;
+
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterReadIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of a batch of files: the result of every file in input order, and the MeterRead
+ * records of the successful files merged by NMI.
+ *
+ * Merging follows input order, a NMI keeps the position of its first 200 block and a date read
+ * in several files keeps the volume of the last file. MeterReads are merged by
+ * <code>MeterReadIndex</code>, so rollups, interval reads and columnar volumes are kept.
+ */
+public class BatchParseResult {
+
+  private final List<FileParseResult> fileResults;
+  private final MeterReadIndex meterReads;
+
+  BatchParseResult(List<FileParseResult> fileResults) {
+    this.fileResults = Collections.unmodifiableList(fileResults);
+    this.meterReads = mergeByNmi(fileResults);
+  }
+
+  /**
+   * @return the result of every file, in input order.
+   */
+  public List<FileParseResult> getFileResults() {
+    return fileResults;
+  }
+
+  /**
+   * @return the results of the files that failed, in input order.
+   */
+  public List<FileParseResult> getFailures() {
+    List<FileParseResult> failures = new ArrayList<>();
+    for (FileParseResult fileResult : fileResults) {
+      if (!fileResult.isSuccess()) {
+        failures.add(fileResult);
+      }
+    }
+    return failures;
+  }
+
+  /**
+   * @return one MeterRead per NMI holding the volumes of every successful file.
+   */
+  public MeterReadIndex getMeterReads() {
+    return meterReads;
+  }
+
+  private static MeterReadIndex mergeByNmi(List<FileParseResult> fileResults) {
+    Map<String, Integer> blockCounts = new HashMap<>();
+    for (FileParseResult fileResult : fileResults) {
+      for (MeterRead meterRead : fileResult.getMeterReads()) {
+        blockCounts.merge(meterRead.getNmi(), 1, Integer::sum);
+      }
+    }
+    MeterReadIndex meterReads = new MeterReadIndex();
+    for (FileParseResult fileResult : fileResults) {
+      for (MeterRead meterRead : fileResult.getMeterReads()) {
+        //a NMI read in several files is merged from copies, the parsed MeterReads are untouched
+        meterReads.add(blockCounts.get(meterRead.getNmi()) > 1 ? meterRead.copy() : meterRead);
+      }
+    }
+    return meterReads;
+  }
+}
@@ -0,0 +1,376 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.ColumnarMeterVolumes;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterReadIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Decorator caching the parsed MeterRead records of each file.
+ *
+ * Results are keyed on the canonical path, size and last modified time of the file, and on a
+ * CRC32 of its content when content hashing is on, so a changed file is parsed again and its
+ * stale result evicted. Results are evicted least recently used first once their estimated heap
+ * weight exceeds the budget, the weight being estimated from the volume count of each MeterRead.
+ * A result heavier than the whole budget is returned but not cached.
+ *
+ * Parses of the same file running at the same time are coalesced, the first caller parses and
+ * the others wait for its result. Cached results are shared between callers, so they are handed
+ * out as read only collections, and the MeterRead records in them must not be changed. Streaming
+ * reads are served from the cache on a hit and otherwise stream from the decorated parser
+ * without being cached.
+ */
+public class CachingSimpleNem12Parser implements SimpleNem12Parser {
+
+  private static final long METER_READ_WEIGHT = 256;
+  private static final long COLUMNAR_VOLUME_WEIGHT = 16;
+  //TreeMap entry, LocalDate, MeterVolume and BigDecimal
+  private static final long TREE_MAP_VOLUME_WEIGHT = 144;
+  private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+  private final SimpleNem12Parser simpleNem12Parser;
+  private final long maxWeight;
+  private final boolean hashContent;
+
+  private final Object lock = new Object();
+  private final LinkedHashMap<FileIdentity, CachedResult> cachedResults =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, FileIdentity> identitiesByPath = new HashMap<>();
+  private final Map<FileIdentity, CompletableFuture<Collection<MeterRead>>> parsesInFlight =
+      new HashMap<>();
+  private long weight;
+  private long hitCount;
+  private long missCount;
+  private long coalescedCount;
+  private long evictionCount;
+
+  /**
+   * @param simpleNem12Parser the parser whose results are cached.
+   * @param maxWeightBytes    the estimated heap bytes of the results kept.
+   */
+  public CachingSimpleNem12Parser(SimpleNem12Parser simpleNem12Parser, long maxWeightBytes) {
+    this(simpleNem12Parser, maxWeightBytes, false);
+  }
+
+  /**
+   * @param simpleNem12Parser the parser whose results are cached.
+   * @param maxWeightBytes    the estimated heap bytes of the results kept.
+   * @param hashContent       also key results on a CRC32 of the file content, for files
+   *                          rewritten within the resolution of their last modified time.
+   */
+  public CachingSimpleNem12Parser(SimpleNem12Parser simpleNem12Parser, long maxWeightBytes,
+                                  boolean hashContent) {
+    if (maxWeightBytes < 0) {
+      throw new IllegalArgumentException("maxWeightBytes must not be negative");
+    }
+    this.simpleNem12Parser = simpleNem12Parser;
+    this.maxWeight = maxWeightBytes;
+    this.hashContent = hashContent;
+  }
+
+  /**
+   * Parses Simple NEM12 file, or returns the result cached for the file.
+   *
+   * @param simpleNem12File file in Simple NEM12 format
+   * @return read only Collection of <code>MeterRead</code>, shared with other callers.
+   */
+  @Override
+  public Collection<MeterRead> parseSimpleNem12(File simpleNem12File) {
+    FileIdentity fileIdentity = identify(simpleNem12File);
+    if (fileIdentity == null) {
+      return simpleNem12Parser.parseSimpleNem12(simpleNem12File);
+    }
+
+    CompletableFuture<Collection<MeterRead>> parse;
+    boolean parsing = false;
+    synchronized (lock) {
+      CachedResult cachedResult = cachedResults.get(fileIdentity);
+      if (cachedResult != null) {
+        hitCount++;
+        return cachedResult.meterReads;
+      }
+      parse = parsesInFlight.get(fileIdentity);
+      if (parse != null) {
+        coalescedCount++;
+      } else {
+        missCount++;
+        parse = new CompletableFuture<>();
+        parsesInFlight.put(fileIdentity, parse);
+        parsing = true;
+      }
+    }
+    if (!parsing) {
+      return join(parse);
+    }
+
+    try {
+      Collection<MeterRead> meterReads =
+          readOnly(simpleNem12Parser.parseSimpleNem12(simpleNem12File));
+      synchronized (lock) {
+        parsesInFlight.remove(fileIdentity);
+        cache(fileIdentity, meterReads);
+      }
+      parse.complete(meterReads);
+      return meterReads;
+    } catch (RuntimeException | Error ex) {
+      synchronized (lock) {
+        parsesInFlight.remove(fileIdentity);
+      }
+      parse.completeExceptionally(ex);
+      throw ex;
+    }
+  }
+
+  /**
+   * Opens a cursor over the cached result of the file, or streams the file when it is not
+   * cached.
+   *
+   * @param simpleNem12File file in Simple NEM12 format
+   * @return cursor of <code>MeterRead</code>, to be closed by the caller.
+   * @throws SimpleNem12ParserException if the file is not cached and cannot be opened.
+   */
+  @Override
+  public MeterReadCursor openSimpleNem12(File simpleNem12File) throws SimpleNem12ParserException {
+    Collection<MeterRead> meterReads = getCached(simpleNem12File);
+    if (meterReads == null) {
+      return simpleNem12Parser.openSimpleNem12(simpleNem12File);
+    }
+    Iterator<MeterRead> iterator = meterReads.iterator();
+    return new MeterReadCursor() {
+      @Override
+      public MeterRead next() {
+        return iterator.hasNext() ? iterator.next() : null;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  /**
+   * Hands the cached result of the file to the consumer, or streams the file when it is not
+   * cached.
+   *
+   * @param simpleNem12File   file in Simple NEM12 format
+   * @param meterReadConsumer consumer of <code>MeterRead</code> records
+   * @throws SimpleNem12ParserException if the file is not cached and is invalid.
+   */
+  @Override
+  public void parseSimpleNem12(File simpleNem12File, Consumer<MeterRead> meterReadConsumer)
+      throws SimpleNem12ParserException {
+    Collection<MeterRead> meterReads = getCached(simpleNem12File);
+    if (meterReads == null) {
+      simpleNem12Parser.parseSimpleNem12(simpleNem12File, meterReadConsumer);
+    } else {
+      meterReads.forEach(meterReadConsumer);
+    }
+  }
+
+  /**
+   * Evict the result cached for a file.
+   *
+   * @param simpleNem12File the file
+   */
+  public void invalidate(File simpleNem12File) {
+    String path = canonicalPath(simpleNem12File);
+    synchronized (lock) {
+      FileIdentity fileIdentity = identitiesByPath.get(path);
+      if (fileIdentity != null) {
+        evict(fileIdentity);
+      }
+    }
+  }
+
+  /**
+   * Evict every cached result.
+   */
+  public void invalidateAll() {
+    synchronized (lock) {
+      evictionCount += cachedResults.size();
+      cachedResults.clear();
+      identitiesByPath.clear();
+      weight = 0;
+    }
+  }
+
+  public ParseCacheStats getStats() {
+    synchronized (lock) {
+      return new ParseCacheStats(hitCount, missCount, coalescedCount, evictionCount,
+          cachedResults.size(), weight);
+    }
+  }
+
+  private Collection<MeterRead> getCached(File simpleNem12File) {
+    FileIdentity fileIdentity = identify(simpleNem12File);
+    if (fileIdentity == null) {
+      return null;
+    }
+    synchronized (lock) {
+      CachedResult cachedResult = cachedResults.get(fileIdentity);
+      if (cachedResult == null) {
+        missCount++;
+        return null;
+      }
+      hitCount++;
+      return cachedResult.meterReads;
+    }
+  }
+
+  private void cache(FileIdentity fileIdentity, Collection<MeterRead> meterReads) {
+    FileIdentity staleIdentity = identitiesByPath.get(fileIdentity.path);
+    if (staleIdentity != null) {
+      evict(staleIdentity);
+    }
+    long resultWeight = weigh(meterReads);
+    if (resultWeight > maxWeight) {
+      return;
+    }
+    cachedResults.put(fileIdentity, new CachedResult(meterReads, resultWeight));
+    identitiesByPath.put(fileIdentity.path, fileIdentity);
+    weight += resultWeight;
+    Iterator<Map.Entry<FileIdentity, CachedResult>> leastRecentlyUsed =
+        cachedResults.entrySet().iterator();
+    while (weight > maxWeight) {
+      Map.Entry<FileIdentity, CachedResult> eldest = leastRecentlyUsed.next();
+      leastRecentlyUsed.remove();
+      identitiesByPath.remove(eldest.getKey().path);
+      weight -= eldest.getValue().weight;
+      evictionCount++;
+    }
+  }
+
+  private void evict(FileIdentity fileIdentity) {
+    CachedResult cachedResult = cachedResults.remove(fileIdentity);
+    if (cachedResult != null) {
+      identitiesByPath.remove(fileIdentity.path);
+      weight -= cachedResult.weight;
+      evictionCount++;
+    }
+  }
+
+  private static long weigh(Collection<MeterRead> meterReads) {
+    long resultWeight = 0;
+    for (MeterRead meterRead : meterReads) {
+      long volumeWeight = meterRead.getVolumes() instanceof ColumnarMeterVolumes
+          ? COLUMNAR_VOLUME_WEIGHT : TREE_MAP_VOLUME_WEIGHT;
+      resultWeight += METER_READ_WEIGHT + volumeWeight * meterRead.getVolumeCount();
+    }
+    return resultWeight;
+  }
+
+  private static Collection<MeterRead> readOnly(Collection<MeterRead> meterReads) {
+    if (meterReads instanceof MeterReadIndex) {
+      return MeterReadIndex.unmodifiable((MeterReadIndex) meterReads);
+    }
+    return meterReads instanceof List ? Collections.unmodifiableList((List<MeterRead>) meterReads)
+        : Collections.unmodifiableCollection(meterReads);
+  }
+
+  private static Collection<MeterRead> join(CompletableFuture<Collection<MeterRead>> parse) {
+    try {
+      return parse.join();
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw ex;
+    }
+  }
+
+  /**
+   * The identity of a readable file, or null when the file cannot be identified and is parsed
+   * without the cache.
+   */
+  private FileIdentity identify(File simpleNem12File) {
+    if (simpleNem12File == null || !simpleNem12File.isFile()) {
+      return null;
+    }
+    try {
+      String path = simpleNem12File.getCanonicalPath();
+      long lastModified = simpleNem12File.lastModified();
+      long size = simpleNem12File.length();
+      long contentHash = hashContent ? hashContent(simpleNem12File) : 0;
+      return new FileIdentity(path, size, lastModified, contentHash);
+    } catch (IOException ex) {
+      return null;
+    }
+  }
+
+  private static String canonicalPath(File simpleNem12File) {
+    try {
+      return simpleNem12File.getCanonicalPath();
+    } catch (IOException ex) {
+      return simpleNem12File.getAbsolutePath();
+    }
+  }
+
+  private static long hashContent(File simpleNem12File) throws IOException {
+    CRC32 checksum = new CRC32();
+    byte[] buffer = new byte[HASH_BUFFER_SIZE];
+    try (InputStream inputStream = Files.newInputStream(simpleNem12File.toPath())) {
+      int read;
+      while ((read = inputStream.read(buffer)) > 0) {
+        checksum.update(buffer, 0, read);
+      }
+    }
+    return checksum.getValue();
+  }
+
+  private static final class CachedResult {
+
+    private final Collection<MeterRead> meterReads;
+    private final long weight;
+
+    CachedResult(Collection<MeterRead> meterReads, long weight) {
+      this.meterReads = meterReads;
+      this.weight = weight;
+    }
+  }
+
+  private static final class FileIdentity {
+
+    private final String path;
+    private final long size;
+    private final long lastModified;
+    private final long contentHash;
+
+    FileIdentity(String path, long size, long lastModified, long contentHash) {
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.contentHash = contentHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      FileIdentity that = (FileIdentity) o;
+      return size == that.size && lastModified == that.lastModified
+          && contentHash == that.contentHash && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, size, lastModified, contentHash);
+    }
+  }
+}
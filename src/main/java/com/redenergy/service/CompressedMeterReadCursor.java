@@ -0,0 +1,93 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.MeterRead;
+import com.redenergy.repository.CompressedMeterRecordsReader;
+import com.redenergy.repository.LineMeterRecordSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * MeterReadCursor over the documents of a gzip or zip file, each read as a Simple NEM12 file
+ * of its own with its own 100 header and 900 trailer.
+ *
+ * The header and trailer of a compressed document cannot be checked before it is read, so
+ * they are validated as the document streams through. Line numbers of skipped records count
+ * from the start of their document.
+ */
+class CompressedMeterReadCursor implements MeterReadCursor {
+
+  private final CompressedMeterRecordsReader compressedReader;
+  private final SimpleNem12ParserConfig config;
+  private final List<MeterRecordError> meterRecordErrors = new ArrayList<>();
+  private final List<RecordSourceMeterReadCursor> finishedDocumentCursors = new ArrayList<>();
+  private RecordSourceMeterReadCursor documentCursor;
+  private boolean finished;
+
+  CompressedMeterReadCursor(CompressedMeterRecordsReader compressedReader,
+                            SimpleNem12ParserConfig config) {
+    this.compressedReader = compressedReader;
+    this.config = config;
+  }
+
+  @Override
+  public MeterRead next() throws SimpleNem12ParserException {
+    while (!finished) {
+      if (documentCursor == null && !nextDocument()) {
+        finished = true;
+        return null;
+      }
+      MeterRead meterRead = documentCursor.next();
+      if (meterRead != null) {
+        return meterRead;
+      }
+      meterRecordErrors.addAll(documentCursor.getMeterRecordErrors());
+      finishedDocumentCursors.add(documentCursor);
+      documentCursor = null;
+    }
+    return null;
+  }
+
+  @Override
+  public List<MeterRecordError> getMeterRecordErrors() {
+    if (documentCursor == null) {
+      return Collections.unmodifiableList(meterRecordErrors);
+    }
+    List<MeterRecordError> errors = new ArrayList<>(meterRecordErrors);
+    errors.addAll(documentCursor.getMeterRecordErrors());
+    return errors;
+  }
+
+  /**
+   * Add the lines and records of every document read so far to the metrics of the file.
+   *
+   * @param recorder the recorder of the file
+   */
+  void addCountsTo(ParseMetricsRecorder recorder) {
+    for (RecordSourceMeterReadCursor finishedDocumentCursor : finishedDocumentCursors) {
+      finishedDocumentCursor.addCountsTo(recorder);
+    }
+    if (documentCursor != null) {
+      documentCursor.addCountsTo(recorder);
+    }
+  }
+
+  @Override
+  public void close() {
+    finished = true;
+    compressedReader.close();
+  }
+
+  private boolean nextDocument() throws SimpleNem12ParserException {
+    Stream<String> documentLines = compressedReader.nextDocument();
+    if (documentLines == null) {
+      return false;
+    }
+    documentCursor = new RecordSourceMeterReadCursor(new LineMeterRecordSource(documentLines),
+        config);
+    return true;
+  }
+}
@@ -0,0 +1,236 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.ColumnarMeterVolumes;
+import com.redenergy.model.EnergyUnit;
+import com.redenergy.model.FixedPointVolumes;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterReadIndex;
+import com.redenergy.model.MeterVolume;
+import com.redenergy.model.Quality;
+import com.redenergy.model.VolumeAggregate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe sink merging the daily volumes of many files by NMI while they are parsed.
+ *
+ * NMIs are held in a <code>ConcurrentHashMap</code> and each NMI has its own accumulator, so
+ * threads adding volumes of different NMIs never wait for each other and threads adding to the
+ * same NMI only wait for that NMI. The daily volumes of a NMI are held in
+ * <code>ColumnarMeterVolumes</code>, which keeps the running total, count, min and max.
+ *
+ * A date already aggregated for the NMI is replaced or rejected according to the
+ * <code>DuplicateDatePolicy</code>. Between threads "last" is the order in which they take the
+ * lock of the NMI, which only follows file order when the files are added one after another.
+ * A MeterRead is added under a single lock, so with the ERROR policy it is rejected as a whole
+ * and none of its volumes are added.
+ */
+public class ConcurrentNmiAggregator {
+
+  private static final long NO_DUPLICATE = Long.MIN_VALUE;
+
+  private final DuplicateDatePolicy duplicateDatePolicy;
+  private final ConcurrentHashMap<String, NmiAccumulator> accumulators = new ConcurrentHashMap<>();
+  private final LongAdder duplicateCount = new LongAdder();
+
+  /**
+   * Aggregator keeping the volume added last for a date read more than once.
+   */
+  public ConcurrentNmiAggregator() {
+    this(DuplicateDatePolicy.LAST_WRITER_WINS);
+  }
+
+  /**
+   * @param duplicateDatePolicy how a volume on a date already aggregated for its NMI is handled.
+   */
+  public ConcurrentNmiAggregator(DuplicateDatePolicy duplicateDatePolicy) {
+    this.duplicateDatePolicy = Objects.requireNonNull(duplicateDatePolicy, "duplicateDatePolicy");
+  }
+
+  /**
+   * Add a fixed point volume of a NMI.
+   *
+   * @param nmi            the NMI
+   * @param energyUnit     the energy unit, kept from the first volume of the NMI
+   * @param epochDay       the date as epoch day
+   * @param unscaledVolume the unscaled volume
+   * @param scale          the scale of the volume
+   * @param quality        the quality
+   * @throws SimpleNem12ParserException if the date is a duplicate under the ERROR policy, or the
+   *                                    scale does not fit a byte.
+   */
+  public void add(String nmi, EnergyUnit energyUnit, long epochDay, long unscaledVolume,
+                  int scale, Quality quality) throws SimpleNem12ParserException {
+    accumulator(nmi, energyUnit).add(epochDay, unscaledVolume, scale, quality);
+  }
+
+  /**
+   * Add every volume of a MeterRead to its NMI, taking the lock of the NMI once.
+   *
+   * @param meterRead the MeterRead
+   * @throws SimpleNem12ParserException if any of its dates is a duplicate under the ERROR policy,
+   *                                    or a volume does not fit a fixed point long.
+   */
+  public void add(MeterRead meterRead) throws SimpleNem12ParserException {
+    accumulator(meterRead.getNmi(), meterRead.getEnergyUnit()).addAll(meterRead.getVolumes());
+  }
+
+  /**
+   * @param nmi the NMI
+   * @return the sum, count, min and max of the volumes of the NMI, null if it was not added.
+   */
+  public VolumeAggregate getVolumeAggregate(String nmi) {
+    NmiAccumulator accumulator = accumulators.get(nmi);
+    return accumulator == null ? null : accumulator.getVolumeAggregate();
+  }
+
+  public int getNmiCount() {
+    return accumulators.size();
+  }
+
+  /**
+   * @return the volumes that were on a date already aggregated for their NMI, whether they were
+   *     replaced or rejected.
+   */
+  public long getDuplicateCount() {
+    return duplicateCount.sum();
+  }
+
+  /**
+   * Copy the aggregated volumes into one MeterRead per NMI. Volumes added while copying may or
+   * may not be included.
+   *
+   * Unlike the result of <code>SimpleNem12ParserImpl</code>, the MeterRead records are sorted by
+   * NMI rather than in the order they were read, which between threads depends on timing, and
+   * hold the volumes only. Rollups and interval reads of the added MeterRead records are not
+   * aggregated.
+   *
+   * @return the MeterRead records sorted by NMI, not changed by later additions.
+   */
+  public MeterReadIndex getMeterReads() {
+    List<String> nmis = new ArrayList<>(accumulators.keySet());
+    Collections.sort(nmis);
+    MeterReadIndex meterReads = new MeterReadIndex();
+    for (String nmi : nmis) {
+      meterReads.add(accumulators.get(nmi).toMeterRead());
+    }
+    return meterReads;
+  }
+
+  private NmiAccumulator accumulator(String nmi, EnergyUnit energyUnit) {
+    NmiAccumulator accumulator = accumulators.get(nmi);
+    if (accumulator == null) {
+      //computeIfAbsent locks a bin of the table, only taken for a NMI not seen yet
+      accumulator = accumulators.computeIfAbsent(nmi, key -> new NmiAccumulator(key, energyUnit));
+    }
+    return accumulator;
+  }
+
+  private SimpleNem12ParserException duplicateDate(String nmi, long epochDay) {
+    return new SimpleNem12ParserException(
+        "Volume of NMI " + nmi + " on " + LocalDate.ofEpochDay(epochDay) + " was already read");
+  }
+
+  /**
+   * The volumes of one NMI, guarded by its own monitor.
+   */
+  private final class NmiAccumulator {
+
+    private final String nmi;
+    private final EnergyUnit energyUnit;
+    private final ColumnarMeterVolumes volumes = new ColumnarMeterVolumes();
+    private long duplicateDay = NO_DUPLICATE;
+
+    NmiAccumulator(String nmi, EnergyUnit energyUnit) {
+      this.nmi = nmi;
+      this.energyUnit = energyUnit;
+    }
+
+    synchronized void add(long epochDay, long unscaledVolume, int scale, Quality quality)
+        throws SimpleNem12ParserException {
+      if (scale < Byte.MIN_VALUE || scale > Byte.MAX_VALUE) {
+        throw new SimpleNem12ParserException("Volume scale " + scale + " of NMI " + nmi
+            + " does not fit a byte");
+      }
+      if (volumes.containsEpochDay(epochDay)) {
+        duplicateCount.increment();
+        if (duplicateDatePolicy == DuplicateDatePolicy.ERROR) {
+          throw duplicateDate(nmi, epochDay);
+        }
+      }
+      volumes.put(epochDay, unscaledVolume, scale, quality);
+    }
+
+    synchronized void addAll(SortedMap<LocalDate, MeterVolume> meterVolumes)
+        throws SimpleNem12ParserException {
+      if (duplicateDatePolicy == DuplicateDatePolicy.ERROR) {
+        //checked before any volume is put, a rejected MeterRead adds nothing
+        findDuplicate(meterVolumes);
+        if (duplicateDay != NO_DUPLICATE) {
+          long epochDay = duplicateDay;
+          duplicateDay = NO_DUPLICATE;
+          duplicateCount.increment();
+          throw duplicateDate(nmi, epochDay);
+        }
+      }
+      if (meterVolumes instanceof FixedPointVolumes) {
+        ((FixedPointVolumes) meterVolumes).forEachVolume(this::putCounted);
+        return;
+      }
+      for (Map.Entry<LocalDate, MeterVolume> volume : meterVolumes.entrySet()) {
+        BigDecimal meterVolume = volume.getValue().getVolume();
+        if (meterVolume.unscaledValue().bitLength() >= Long.SIZE
+            || meterVolume.scale() < Byte.MIN_VALUE || meterVolume.scale() > Byte.MAX_VALUE) {
+          throw new SimpleNem12ParserException("Volume " + meterVolume + " of NMI " + nmi
+              + " does not fit a fixed point long");
+        }
+        putCounted(volume.getKey().toEpochDay(), meterVolume.unscaledValue().longValue(),
+            meterVolume.scale(), volume.getValue().getQuality());
+      }
+    }
+
+    synchronized VolumeAggregate getVolumeAggregate() {
+      return volumes.getVolumeAggregate();
+    }
+
+    synchronized MeterRead toMeterRead() {
+      ColumnarMeterVolumes copy = new ColumnarMeterVolumes(volumes.size());
+      volumes.forEachVolume(copy::put);
+      return new MeterRead(nmi, energyUnit, copy);
+    }
+
+    private void findDuplicate(SortedMap<LocalDate, MeterVolume> meterVolumes) {
+      if (meterVolumes instanceof FixedPointVolumes) {
+        ((FixedPointVolumes) meterVolumes).forEachVolume((epochDay, unscaled, scale, quality) -> {
+          if (duplicateDay == NO_DUPLICATE && volumes.containsEpochDay(epochDay)) {
+            duplicateDay = epochDay;
+          }
+        });
+        return;
+      }
+      for (LocalDate localDate : meterVolumes.keySet()) {
+        if (volumes.containsEpochDay(localDate.toEpochDay())) {
+          duplicateDay = localDate.toEpochDay();
+          return;
+        }
+      }
+    }
+
+    private void putCounted(long epochDay, long unscaledVolume, int scale, Quality quality) {
+      if (volumes.containsEpochDay(epochDay)) {
+        duplicateCount.increment();
+      }
+      volumes.put(epochDay, unscaledVolume, scale, quality);
+    }
+  }
+}
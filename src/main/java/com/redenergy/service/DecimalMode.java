@@ -0,0 +1,22 @@
+package com.redenergy.service;
+
+/**
+ * How SimpleNem12ParserImpl decodes the volume of a 300 record.
+ */
+public enum DecimalMode {
+
+  /**
+   * Decode each volume with the BigDecimal parser.
+   */
+  BIG_DECIMAL,
+
+  /**
+   * Decode plain decimal volumes straight into an unscaled long and scale, with an overflow
+   * check and an upper bound on the scale. BigDecimal is only created when a volume is read,
+   * with the scale BigDecimal would parse, so an exponent volume such as 1.5E+2 keeps its
+   * negative scale. Unlike BIG_DECIMAL, a volume with more decimal places than
+   * <code>SimpleNem12ParserConfig.getMaxVolumeScale</code> is an invalid record.
+   */
+  FIXED_POINT
+
+}
@@ -0,0 +1,18 @@
+package com.redenergy.service;
+
+/**
+ * How ConcurrentNmiAggregator handles a volume on a date already aggregated for its NMI.
+ */
+public enum DuplicateDatePolicy {
+
+  /**
+   * Replace the volume, the one added last is kept.
+   */
+  LAST_WRITER_WINS,
+
+  /**
+   * Reject the volume, or the whole MeterRead holding it, with a SimpleNem12ParserException.
+   */
+  ERROR
+
+}
@@ -0,0 +1,19 @@
+package com.redenergy.service;
+
+/**
+ * How SimpleNem12ParserImpl handles an invalid 200 or 300 record.
+ */
+public enum ErrorMode {
+
+  /**
+   * Stop at the first invalid record, the file yields no MeterRead records.
+   */
+  STRICT,
+
+  /**
+   * Skip an invalid 300 record, or a 200 record with its whole block, and keep a
+   * MeterRecordError for it. Parsing stops once more records than the error budget are invalid.
+   */
+  LENIENT
+
+}
@@ -0,0 +1,71 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.MeterRead;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of parsing one file of a batch, either its MeterRead records and the records
+ * skipped in the LENIENT error mode, or the exception that stopped it.
+ */
+public class FileParseResult {
+
+  private final File file;
+  private final List<MeterRead> meterReads;
+  private final List<MeterRecordError> meterRecordErrors;
+  private final SimpleNem12ParserException failure;
+
+  FileParseResult(File file, List<MeterRead> meterReads,
+                  List<MeterRecordError> meterRecordErrors) {
+    this.file = file;
+    this.meterReads = Collections.unmodifiableList(meterReads);
+    this.meterRecordErrors = Collections.unmodifiableList(meterRecordErrors);
+    this.failure = null;
+  }
+
+  FileParseResult(File file, SimpleNem12ParserException failure) {
+    this.file = file;
+    this.meterReads = Collections.emptyList();
+    this.meterRecordErrors = Collections.emptyList();
+    this.failure = failure;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * @return the MeterRead records of the file, empty if it failed.
+   */
+  public List<MeterRead> getMeterReads() {
+    return meterReads;
+  }
+
+  /**
+   * @return the records skipped in the LENIENT error mode, in file order.
+   */
+  public List<MeterRecordError> getMeterRecordErrors() {
+    return meterRecordErrors;
+  }
+
+  /**
+   * @return the exception that stopped the file, null if it was parsed.
+   */
+  public SimpleNem12ParserException getFailure() {
+    return failure;
+  }
+
+  public boolean isSuccess() {
+    return failure == null;
+  }
+
+  @Override
+  public String toString() {
+    return "FileParseResult{file=" + file
+        + (isSuccess() ? ", meterReads=" + meterReads.size() : ", failure=" + failure.getMessage())
+        + '}';
+  }
+}
@@ -0,0 +1,65 @@
+package com.redenergy.service;
+
+import java.util.Objects;
+
+/**
+ * Where to resume following a Simple NEM12 file, every MeterRead of the lines before the
+ * checkpoint has been handed out.
+ */
+public final class FollowCheckpoint {
+
+  /**
+   * The start of the file, before the 100 header.
+   */
+  public static final FollowCheckpoint START = new FollowCheckpoint(0L, 0L, false);
+
+  private final long byteOffset;
+  private final long lineNumber;
+  private final boolean complete;
+
+  /**
+   * @param byteOffset the offset of the first line not yet parsed.
+   * @param lineNumber the number of lines before the offset.
+   * @param complete   the 900 trailer has been read, there is nothing left to follow.
+   */
+  public FollowCheckpoint(long byteOffset, long lineNumber, boolean complete) {
+    if (byteOffset < 0 || lineNumber < 0) {
+      throw new IllegalArgumentException("byteOffset and lineNumber must not be negative");
+    }
+    this.byteOffset = byteOffset;
+    this.lineNumber = lineNumber;
+    this.complete = complete;
+  }
+
+  public long getByteOffset() {
+    return byteOffset;
+  }
+
+  public long getLineNumber() {
+    return lineNumber;
+  }
+
+  public boolean isComplete() {
+    return complete;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    FollowCheckpoint that = (FollowCheckpoint) o;
+    return byteOffset == that.byteOffset && lineNumber == that.lineNumber
+        && complete == that.complete;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(byteOffset, lineNumber, complete);
+  }
+
+  @Override
+  public String toString() {
+    return "FollowCheckpoint{byteOffset=" + byteOffset + ", lineNumber=" + lineNumber
+        + ", complete=" + complete + '}';
+  }
+}
@@ -0,0 +1,65 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.MeterRead;
+import com.redenergy.repository.FollowingMeterRecordsReader;
+
+import java.util.List;
+
+/**
+ * MeterReadCursor following a Simple NEM12 file while it is written.
+ *
+ * Each MeterRead is handed out once the next 200 record closes its block, <code>next</code>
+ * waits for the file to grow until then and returns null after the 900 trailer. The checkpoint
+ * moves to the start of the 200 record that closed the handed out block, so a follower resumed
+ * from it parses the open block again and never hands out a MeterRead twice.
+ */
+public class FollowingMeterReadCursor implements MeterReadCursor {
+
+  private final FollowingMeterRecordsReader followingReader;
+  private final RecordSourceMeterReadCursor meterReadCursor;
+  private FollowCheckpoint checkpoint;
+
+  FollowingMeterReadCursor(FollowingMeterRecordsReader followingReader,
+                           SimpleNem12ParserConfig config, FollowCheckpoint checkpoint) {
+    this.followingReader = followingReader;
+    //the header was validated by the follower that wrote a checkpoint past it
+    this.meterReadCursor = new RecordSourceMeterReadCursor(followingReader, config,
+        checkpoint.getByteOffset() == 0, true);
+    this.checkpoint = checkpoint;
+  }
+
+  @Override
+  public MeterRead next() throws SimpleNem12ParserException {
+    if (checkpoint.isComplete()) {
+      return null;
+    }
+    MeterRead meterRead = meterReadCursor.next();
+    if (followingReader.isTrailerRead()) {
+      checkpoint = new FollowCheckpoint(followingReader.getOffset(),
+          followingReader.getLineNumber(), true);
+    } else if (meterRead != null) {
+      //the 200 record that closed the block starts the block still open
+      checkpoint = new FollowCheckpoint(followingReader.getRecordOffset(),
+          followingReader.getLineNumber() - 1, false);
+    }
+    return meterRead;
+  }
+
+  /**
+   * @return the checkpoint to resume from once the MeterRead records handed out are processed.
+   */
+  public FollowCheckpoint getCheckpoint() {
+    return checkpoint;
+  }
+
+  @Override
+  public List<MeterRecordError> getMeterRecordErrors() {
+    return meterReadCursor.getMeterRecordErrors();
+  }
+
+  @Override
+  public void close() {
+    meterReadCursor.close();
+  }
+}
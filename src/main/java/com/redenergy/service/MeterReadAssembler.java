@@ -0,0 +1,714 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.ColumnarMeterVolumes;
+import com.redenergy.model.EnergyUnit;
+import com.redenergy.model.IntervalQuality;
+import com.redenergy.model.IntervalReads;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterReadRollup;
+import com.redenergy.model.MeterVolume;
+import com.redenergy.model.Quality;
+import com.redenergy.model.RecordType;
+import com.redenergy.repository.MeterRecordLine;
+import com.redenergy.validation.Nem12ValidationResult;
+import com.redenergy.validation.Nem12Validators;
+import com.redenergy.validation.Validation;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds MeterRead records from meter records (RecordType 200 and 300) one line at a time.
+ *
+ * Only the MeterRead of the current 200 block is held, it is handed back as soon as the
+ * next 200 record starts or the input is finished.
+ *
+ * Records are validated into a Nem12ValidationResult rather than by throwing, so an invalid
+ * record costs no stack trace. In the STRICT error mode the first invalid record is thrown as
+ * a SimpleNem12ParserException, in the LENIENT mode it is kept as a MeterRecordError and
+ * skipped, along with the rest of its block if it is a 200 record.
+ *
+ * When rollups are on, each valid volume is also added to the MeterReadRollup of its MeterRead
+ * as it is parsed, and in the ROLLUP_ONLY mode it is not appended to the volumes at all. A date
+ * read again within a 200 block is invalid in the ROLLUP_ONLY mode, otherwise the volumes of the
+ * block are rolled up again once it completes, so the rollup keeps the last volume of the date
+ * as the volumes do.
+ *
+ * In the FULL NEM12 format the intervals of a 300 record are parsed into reusable day arrays,
+ * which stay open for the 400 records following it and are copied into the IntervalReads of
+ * the 200 block once the next 200 or 300 record starts or the input is finished.
+ */
+class MeterReadAssembler {
+
+  private static final Integer NMI_LENGTH = 10;
+  private static final int PARENT_FIELD_COUNT = 3;
+  private static final int CHILD_FIELD_COUNT = 4;
+  private static final int INTERVAL_PARENT_FIELD_COUNT = 9;
+  private static final int INTERVAL_EVENT_FIELD_COUNT = 4;
+  private static final int NMI_SUFFIX_FIELD = 4;
+  private static final int UNIT_OF_MEASURE_FIELD = 7;
+  private static final int INTERVAL_LENGTH_FIELD = 8;
+  private static final long MAX_UNSCALED_BEFORE_DIGIT = (Long.MAX_VALUE - 9) / 10;
+  private static final Validation<String> NMI_VALIDATION = Nem12Validators.isValidNmi(NMI_LENGTH);
+
+  private final SimpleNem12ParserConfig config;
+  private final MeterRecordLine meterRecordLine = new MeterRecordLine();
+  private final Nem12DateDecoder dateDecoder = new Nem12DateDecoder();
+  private final List<MeterRecordError> meterRecordErrors = new ArrayList<>();
+  private final Validation<Integer> errorBudget;
+  private char[] volumeChars = new char[32];
+  private long unscaledVolume;
+  private int volumeScale;
+  private MeterRead currentMeterRead;
+  private boolean rollupAgain;
+  private IntervalReads currentIntervalReads;
+  private long[] dayValues = new long[0];
+  private int[] dayScales = new int[0];
+  private byte[] dayQualities = new byte[0];
+  private long dayEpochDay;
+  private int dayScale;
+  private boolean dayOpen;
+  private long parentRecordCount;
+  private long childRecordCount;
+
+  MeterReadAssembler(SimpleNem12ParserConfig config) {
+    this.config = config;
+    this.errorBudget = Nem12Validators.isWithinErrorBudget(config.getMaxErrors());
+  }
+
+  /**
+   * Parse a single meter record and create parent MeterRead record if its top level
+   * and create child MeterVolume and append to parent MeterRead record if the meter
+   * record is at child level.
+   *
+   * @param meterRecord a single line representing a single meter record
+   * @param lineNumber  the one based line number of the record
+   * @return the completed MeterRead when the record starts a new 200 block, otherwise null.
+   * @throws SimpleNem12ParserException
+   */
+  MeterRead accept(String meterRecord, long lineNumber) throws SimpleNem12ParserException {
+    return accept(meterRecordLine.tokenize(meterRecord, lineNumber));
+  }
+
+  /**
+   * Parse a single tokenized meter record, reading the fields straight from the line offsets.
+   *
+   * @param meterRecord a single tokenized meter record
+   * @return the completed MeterRead when the record starts a new 200 block, otherwise null.
+   * @throws SimpleNem12ParserException if the record is invalid in the STRICT error mode, or the
+   *                                    error budget is used up in the LENIENT mode.
+   */
+  MeterRead accept(MeterRecordLine meterRecord) throws SimpleNem12ParserException {
+
+    MeterRead completedMeterRead = null;
+    Nem12ValidationResult nem12ValidationResult = Nem12ValidationResult.ok();
+    boolean full = config.getNem12Format() == Nem12Format.FULL;
+
+    if (meterRecord.isRecordType(RecordType.RECORD_TYPE_PARENT)) {
+      parentRecordCount++;
+      //a new 200 record closes the current block, even when it is invalid itself
+      closeIntervalDay();
+      completedMeterRead = completeMeterRead();
+      nem12ValidationResult = validateFields(RecordType.RECORD_TYPE_PARENT, meterRecord,
+          full ? INTERVAL_PARENT_FIELD_COUNT : PARENT_FIELD_COUNT);
+      if (nem12ValidationResult.isValid()) {
+        nem12ValidationResult = full
+            ? validateIntervalMeterRead(meterRecord) : validateMeterRead(meterRecord);
+      }
+      if (nem12ValidationResult.isValid()) {
+        currentMeterRead = full
+            ? createIntervalMeterRead(meterRecord) : createMeterRead(meterRecord);
+      }
+    } else if (meterRecord.isRecordType(RecordType.RECORD_TYPE_CHILD)
+        && currentMeterRead != null) {
+      childRecordCount++;
+      closeIntervalDay();
+      nem12ValidationResult = validateFields(RecordType.RECORD_TYPE_CHILD, meterRecord,
+          full ? currentIntervalReads.getIntervalsPerDay() + 3 : CHILD_FIELD_COUNT);
+      if (nem12ValidationResult.isValid()) {
+        nem12ValidationResult = full
+            ? openIntervalDay(meterRecord) : createAndAppendVolume(currentMeterRead, meterRecord);
+      }
+    } else if (full && dayOpen && meterRecord.isRecordType(RecordType.RECORD_TYPE_INTERVAL_EVENT)) {
+      nem12ValidationResult = validateFields(RecordType.RECORD_TYPE_INTERVAL_EVENT,
+          meterRecord, INTERVAL_EVENT_FIELD_COUNT);
+      if (nem12ValidationResult.isValid()) {
+        nem12ValidationResult = applyIntervalEvent(meterRecord);
+      }
+    }
+
+    if (!nem12ValidationResult.isValid()) {
+      rejectMeterRecord(meterRecord, nem12ValidationResult);
+    }
+    return completedMeterRead;
+  }
+
+  /**
+   * Completes the current 200 block.
+   *
+   * @return the last MeterRead record, or null if no 200 record was seen.
+   */
+  MeterRead finish() {
+    closeIntervalDay();
+    return completeMeterRead();
+  }
+
+  /**
+   * Hand back the current MeterRead, rolling its volumes up again if a date was read twice.
+   */
+  private MeterRead completeMeterRead() {
+    MeterRead completedMeterRead = currentMeterRead;
+    currentMeterRead = null;
+    if (rollupAgain) {
+      rollupAgain = false;
+      completedMeterRead.setRollup(MeterReadRollup.of(completedMeterRead.getVolumes()));
+    }
+    return completedMeterRead;
+  }
+
+  /**
+   * @return the records skipped so far in the LENIENT error mode, in input order.
+   */
+  List<MeterRecordError> getMeterRecordErrors() {
+    return Collections.unmodifiableList(meterRecordErrors);
+  }
+
+  /**
+   * @return the number of 200 records read, valid or not.
+   */
+  long getParentRecordCount() {
+    return parentRecordCount;
+  }
+
+  /**
+   * @return the number of 300 records read within a 200 block, valid or not, 300 records of
+   * a skipped 200 block are not counted.
+   */
+  long getChildRecordCount() {
+    return childRecordCount;
+  }
+
+  /**
+   * Throw the failed validation in the STRICT error mode, keep it and go on in the LENIENT mode.
+   *
+   * @param meterRecord           the invalid meter record
+   * @param nem12ValidationResult the failed validation
+   * @throws SimpleNem12ParserException
+   */
+  private void rejectMeterRecord(MeterRecordLine meterRecord,
+                                 Nem12ValidationResult nem12ValidationResult)
+      throws SimpleNem12ParserException {
+    if (config.getErrorMode() != ErrorMode.LENIENT) {
+      throw new SimpleNem12ParserException(nem12ValidationResult.getReason(),
+          nem12ValidationResult.getRule());
+    }
+    meterRecordErrors.add(new MeterRecordError(meterRecord.getLineNumber(),
+        meterRecord.getByteOffset(), nem12ValidationResult.getRule(),
+        nem12ValidationResult.getReason()));
+    throwExceptionIfInvalid(errorBudget.test(meterRecordErrors.size()));
+  }
+
+  /**
+   * Validates the record is ASCII and has at least the fields its record type needs.
+   *
+   * @param recordType  the record type
+   * @param meterRecord the meter record
+   * @param fieldCount  the number of fields needed
+   * @return the result of validation.
+   */
+  private Nem12ValidationResult validateFields(RecordType recordType,
+                                               MeterRecordLine meterRecord, int fieldCount) {
+    if (!meterRecord.isAscii()) {
+      return Nem12Validators.isAscii().test(meterRecord.toString());
+    }
+    if (meterRecord.getFieldCount() < fieldCount) {
+      return Nem12Validators.isValidFieldCount(recordType, fieldCount)
+          .test(meterRecord.getFieldCount());
+    }
+    return Nem12ValidationResult.ok();
+  }
+
+  /**
+   * Create MeterRead Record using nmi and energyUnit.
+   *
+   * @param meterRecord the validated 200 meter record
+   * @return the MeterRead record
+   */
+  private MeterRead createMeterRead(MeterRecordLine meterRecord) {
+    String nmi = meterRecord.fieldAsString(1);
+    MeterRead meterRead = config.getVolumeStorage() == VolumeStorage.COLUMNAR
+        && config.getRollupMode() != RollupMode.ROLLUP_ONLY
+        ? new MeterRead(nmi, EnergyUnit.KWH, new ColumnarMeterVolumes())
+        : new MeterRead(nmi, EnergyUnit.KWH);
+    if (config.getRollupMode() != RollupMode.NONE) {
+      meterRead.setRollup(new MeterReadRollup());
+    }
+    return meterRead;
+  }
+
+  /**
+   * Create the MeterRead of a full NEM12 200 record, holding the IntervalReads of its data
+   * stream.
+   *
+   * @param meterRecord the validated 200 meter record
+   * @return the MeterRead record
+   */
+  private MeterRead createIntervalMeterRead(MeterRecordLine meterRecord) {
+    currentIntervalReads = new IntervalReads(meterRecord.fieldAsString(NMI_SUFFIX_FIELD),
+        meterRecord.fieldAsString(UNIT_OF_MEASURE_FIELD),
+        parseInt(meterRecord, INTERVAL_LENGTH_FIELD));
+    Map<String, IntervalReads> intervalReads = new LinkedHashMap<>();
+    intervalReads.put(currentIntervalReads.getNmiSuffix(), currentIntervalReads);
+    MeterRead meterRead = new MeterRead(meterRecord.fieldAsString(1), EnergyUnit.KWH);
+    meterRead.setIntervalReads(intervalReads);
+    return meterRead;
+  }
+
+  private Nem12ValidationResult validateIntervalMeterRead(MeterRecordLine meterRecord) {
+    if (meterRecord.fieldLength(1) != NMI_LENGTH) {
+      return NMI_VALIDATION.test(meterRecord.fieldAsString(1));
+    }
+    return Nem12Validators.isValidIntervalLength()
+        .test(parseInt(meterRecord, INTERVAL_LENGTH_FIELD));
+  }
+
+  /**
+   * Parse the date, interval values and quality method of a full NEM12 300 record into the
+   * day arrays, rescaling the values to the largest scale of the day. The day is only opened
+   * once every field is valid.
+   *
+   * @param meterRecord the 300 meter record
+   * @return the result of validation.
+   */
+  private Nem12ValidationResult openIntervalDay(MeterRecordLine meterRecord) {
+    int intervals = currentIntervalReads.getIntervalsPerDay();
+    long epochDay = dateDecoder.tryDecodeEpochDay(meterRecord, 1);
+    if (epochDay == Nem12DateDecoder.INVALID_DATE) {
+      return Nem12DateDecoder.invalidDate(meterRecord, 1);
+    }
+    int qualityField = intervals + 2;
+    IntervalQuality quality = decodeIntervalQuality(meterRecord, qualityField);
+    if (quality == null) {
+      return Nem12Validators.isValidIntervalQuality()
+          .test(meterRecord.fieldAsString(qualityField));
+    }
+    if (dayValues.length < intervals) {
+      dayValues = new long[intervals];
+      dayScales = new int[intervals];
+      dayQualities = new byte[intervals];
+    }
+    int scale = 0;
+    for (int interval = 0; interval < intervals; interval++) {
+      Nem12ValidationResult nem12ValidationResult =
+          parseFixedPointVolume(meterRecord, interval + 2);
+      if (!nem12ValidationResult.isValid()) {
+        return nem12ValidationResult;
+      }
+      dayValues[interval] = unscaledVolume;
+      dayScales[interval] = volumeScale;
+      scale = Math.max(scale, volumeScale);
+    }
+    for (int interval = 0; interval < intervals; interval++) {
+      try {
+        for (int rescale = dayScales[interval]; rescale < scale; rescale++) {
+          dayValues[interval] = Math.multiplyExact(dayValues[interval], 10L);
+        }
+      } catch (ArithmeticException ex) {
+        return Nem12Validators.isValidFixedPointVolume().test(
+            BigDecimal.valueOf(dayValues[interval], dayScales[interval]).setScale(scale));
+      }
+    }
+    Arrays.fill(dayQualities, 0, intervals, (byte) quality.ordinal());
+    dayEpochDay = epochDay;
+    dayScale = scale;
+    dayOpen = true;
+    return Nem12ValidationResult.ok();
+  }
+
+  /**
+   * Set the quality of a range of intervals of the open day from a 400 record.
+   *
+   * @param meterRecord the 400 meter record
+   * @return the result of validation.
+   */
+  private Nem12ValidationResult applyIntervalEvent(MeterRecordLine meterRecord) {
+    int endInterval = parseInt(meterRecord, 2);
+    Nem12ValidationResult nem12ValidationResult = Nem12Validators
+        .isValidInterval(currentIntervalReads.getIntervalsPerDay()).test(endInterval);
+    if (!nem12ValidationResult.isValid()) {
+      return nem12ValidationResult;
+    }
+    int startInterval = parseInt(meterRecord, 1);
+    nem12ValidationResult = Nem12Validators.isValidInterval(endInterval).test(startInterval);
+    if (!nem12ValidationResult.isValid()) {
+      return nem12ValidationResult;
+    }
+    IntervalQuality quality = decodeIntervalQuality(meterRecord, 3);
+    if (quality == null) {
+      return Nem12Validators.isValidIntervalQuality().test(meterRecord.fieldAsString(3));
+    }
+    Arrays.fill(dayQualities, startInterval - 1, endInterval, (byte) quality.ordinal());
+    return Nem12ValidationResult.ok();
+  }
+
+  /**
+   * Copy the open day, if any, into the IntervalReads of the current 200 block.
+   */
+  private void closeIntervalDay() {
+    if (dayOpen) {
+      dayOpen = false;
+      currentIntervalReads.putDay(dayEpochDay, dayValues, dayScale, dayQualities);
+    }
+  }
+
+  private Nem12ValidationResult validateMeterRead(MeterRecordLine meterRecord) {
+
+    //validates the input NMI, the field is only decoded when its length is wrong
+    if (meterRecord.fieldLength(1) != NMI_LENGTH) {
+      return NMI_VALIDATION.test(meterRecord.fieldAsString(1));
+    }
+
+    //validates the input EnergyUnit, the field is only decoded when it is invalid
+    if (!meterRecord.fieldEquals(2, EnergyUnit.KWH.toString())) {
+      return Nem12Validators.isValidEnergyUnit().test(meterRecord.fieldAsString(2));
+    }
+    return Nem12ValidationResult.ok();
+  }
+
+  /**
+   * create and Append Meter Volume to the parent MeterRead record, nothing is appended
+   * unless date, quality and volume are all valid.
+   *
+   * @param meterRead   parent meterRead record
+   * @param meterRecord the 300 meter record holding date, volume and quality
+   * @return the result of validation.
+   */
+  private Nem12ValidationResult createAndAppendVolume(MeterRead meterRead,
+                                                      MeterRecordLine meterRecord) {
+    boolean rollupOnly = config.getRollupMode() == RollupMode.ROLLUP_ONLY;
+    boolean primitive = config.getDecimalMode() == DecimalMode.FIXED_POINT
+        && (config.getVolumeStorage() == VolumeStorage.COLUMNAR || rollupOnly);
+
+    long epochDay = 0;
+    LocalDate date = null;
+    if (primitive) {
+      epochDay = dateDecoder.tryDecodeEpochDay(meterRecord, 1);
+    } else {
+      date = dateDecoder.tryDecode(meterRecord, 1);
+    }
+    if (primitive ? epochDay == Nem12DateDecoder.INVALID_DATE : date == null) {
+      return Nem12DateDecoder.invalidDate(meterRecord, 1);
+    }
+
+    Quality quality = decodeQuality(meterRecord, 3);
+    if (quality == null) {
+      return Nem12Validators.isValidQuality().test(meterRecord.fieldAsString(3));
+    }
+
+    if (config.getDecimalMode() == DecimalMode.FIXED_POINT) {
+      Nem12ValidationResult nem12ValidationResult = parseFixedPointVolume(meterRecord, 2);
+      if (!nem12ValidationResult.isValid()) {
+        return nem12ValidationResult;
+      }
+      if (!primitive) {
+        return appendVolume(meterRead, date, BigDecimal.valueOf(unscaledVolume, volumeScale),
+            quality);
+      }
+      //primitive path, neither LocalDate nor BigDecimal is created
+      if (meterRead.getRollup() != null) {
+        nem12ValidationResult = checkRollupDate(meterRead.getRollup(), epochDay);
+        if (!nem12ValidationResult.isValid()) {
+          return nem12ValidationResult;
+        }
+        meterRead.getRollup().add(epochDay, unscaledVolume, volumeScale, quality);
+      }
+      if (!rollupOnly) {
+        meterRead.appendVolume(epochDay, unscaledVolume, volumeScale, quality);
+      }
+      return Nem12ValidationResult.ok();
+    }
+
+    if (!isDecimal(meterRecord, 2)) {
+      return Nem12Validators.isValidVolume().test(meterRecord.fieldAsString(2));
+    }
+    BigDecimal volume = toBigDecimal(meterRecord, 2);
+    if (config.getVolumeStorage() == VolumeStorage.COLUMNAR) {
+      //columnar volumes hold the unscaled value in a long and the scale in a byte
+      Nem12ValidationResult nem12ValidationResult =
+          Nem12Validators.isValidFixedPointVolume().test(volume);
+      if (nem12ValidationResult.isValid()) {
+        nem12ValidationResult =
+            Nem12Validators.isValidColumnarVolumeScale().test(volume.scale());
+      }
+      if (!nem12ValidationResult.isValid()) {
+        return nem12ValidationResult;
+      }
+    }
+    return appendVolume(meterRead, date, volume, quality);
+  }
+
+  /**
+   * Roll the volume up and append it to the MeterRead, unless only the rollup is kept.
+   *
+   * @return the result of validation, invalid if only the rollup is kept and the date was read.
+   */
+  private Nem12ValidationResult appendVolume(MeterRead meterRead, LocalDate date,
+                                             BigDecimal volume, Quality quality) {
+    if (meterRead.getRollup() != null) {
+      Nem12ValidationResult nem12ValidationResult =
+          checkRollupDate(meterRead.getRollup(), date.toEpochDay());
+      if (!nem12ValidationResult.isValid()) {
+        return nem12ValidationResult;
+      }
+      meterRead.getRollup().add(date, volume, quality);
+    }
+    if (config.getRollupMode() != RollupMode.ROLLUP_ONLY) {
+      meterRead.appendVolume(date, new MeterVolume(volume, quality));
+    }
+    return Nem12ValidationResult.ok();
+  }
+
+  /**
+   * A date read again cannot be rolled up in the ROLLUP_ONLY mode, otherwise the volumes of
+   * the block are rolled up again once it completes.
+   *
+   * @param rollup   the rollup of the current block
+   * @param epochDay the date as epoch day
+   * @return the result of validation.
+   */
+  private Nem12ValidationResult checkRollupDate(MeterReadRollup rollup, long epochDay) {
+    if (!rollup.isRead(epochDay)) {
+      return Nem12ValidationResult.ok();
+    }
+    if (config.getRollupMode() == RollupMode.ROLLUP_ONLY) {
+      return Nem12Validators.isFirstRead().test(true);
+    }
+    rollupAgain = true;
+    return Nem12ValidationResult.ok();
+  }
+
+  /**
+   * Parse a plain decimal volume straight into unscaledVolume and volumeScale, volumes with an
+   * exponent or too many digits for the fast path go through BigDecimal and are checked
+   * against the fixed point range.
+   *
+   * @param meterRecord the meter record
+   * @param field       the volume field
+   * @return the result of validation, invalid if the volume does not fit the fixed point range.
+   */
+  private Nem12ValidationResult parseFixedPointVolume(MeterRecordLine meterRecord, int field) {
+    int length = meterRecord.fieldLength(field);
+    int index = 0;
+    boolean negative = false;
+    if (length > 0) {
+      byte sign = meterRecord.byteAt(field, 0);
+      if (sign == '-' || sign == '+') {
+        negative = sign == '-';
+        index++;
+      }
+    }
+    long unscaled = 0;
+    int scale = -1;
+    int digits = 0;
+    for (; index < length; index++) {
+      byte character = meterRecord.byteAt(field, index);
+      if (character >= '0' && character <= '9' && unscaled <= MAX_UNSCALED_BEFORE_DIGIT) {
+        unscaled = unscaled * 10 + (character - '0');
+        digits++;
+        if (scale >= 0) {
+          scale++;
+        }
+      } else if (character == '.' && scale < 0) {
+        scale = 0;
+      } else {
+        return parseBigDecimalVolume(meterRecord, field);
+      }
+    }
+    if (digits == 0) {
+      return parseBigDecimalVolume(meterRecord, field);
+    }
+    return setFixedPointVolume(negative ? -unscaled : unscaled, Math.max(scale, 0));
+  }
+
+  private Nem12ValidationResult parseBigDecimalVolume(MeterRecordLine meterRecord, int field) {
+    if (!isDecimal(meterRecord, field)) {
+      return Nem12Validators.isValidVolume().test(meterRecord.fieldAsString(field));
+    }
+    BigDecimal volume = toBigDecimal(meterRecord, field);
+    Nem12ValidationResult nem12ValidationResult =
+        Nem12Validators.isValidFixedPointVolume().test(volume);
+    if (!nem12ValidationResult.isValid()) {
+      return nem12ValidationResult;
+    }
+    return setFixedPointVolume(volume.unscaledValue().longValue(), volume.scale());
+  }
+
+  private Nem12ValidationResult setFixedPointVolume(long unscaled, int scale) {
+    if (scale > config.getMaxVolumeScale()) {
+      return Nem12Validators.isValidVolumeScale(config.getMaxVolumeScale()).test(scale);
+    }
+    //an exponent volume such as 1.5E+2 keeps its negative scale, as BigDecimal parses it
+    if ((scale < Byte.MIN_VALUE || scale > Byte.MAX_VALUE)
+        && config.getVolumeStorage() == VolumeStorage.COLUMNAR) {
+      return Nem12Validators.isValidColumnarVolumeScale().test(scale);
+    }
+    unscaledVolume = unscaled;
+    volumeScale = scale;
+    return Nem12ValidationResult.ok();
+  }
+
+  private BigDecimal toBigDecimal(MeterRecordLine meterRecord, int field) {
+    int length = meterRecord.fieldLength(field);
+    if (volumeChars.length < length) {
+      volumeChars = new char[length];
+    }
+    meterRecord.fieldChars(field, volumeChars);
+    return new BigDecimal(volumeChars, 0, length);
+  }
+
+  /**
+   * Checks the field against the grammar the BigDecimal parser accepts, an optional sign,
+   * digits with an optional decimal point and an optional exponent, so an invalid volume is
+   * reported without a NumberFormatException.
+   *
+   * @param meterRecord the meter record
+   * @param field       the volume field
+   * @return true if BigDecimal can parse the field.
+   */
+  private static boolean isDecimal(MeterRecordLine meterRecord, int field) {
+    int length = meterRecord.fieldLength(field);
+    int index = isSign(meterRecord, field, 0, length) ? 1 : 0;
+    int digits = 0;
+    boolean point = false;
+    for (; index < length; index++) {
+      byte character = meterRecord.byteAt(field, index);
+      if (character >= '0' && character <= '9') {
+        digits++;
+      } else if (character == '.' && !point) {
+        point = true;
+      } else {
+        break;
+      }
+    }
+    if (digits == 0) {
+      return false;
+    }
+    if (index == length) {
+      return true;
+    }
+    if (meterRecord.byteAt(field, index) != 'e' && meterRecord.byteAt(field, index) != 'E') {
+      return false;
+    }
+    index++;
+    if (isSign(meterRecord, field, index, length)) {
+      index++;
+    }
+    int exponentDigits = 0;
+    for (; index < length; index++) {
+      byte character = meterRecord.byteAt(field, index);
+      if (character < '0' || character > '9') {
+        return false;
+      }
+      exponentDigits++;
+    }
+    return exponentDigits > 0 && exponentDigits <= 9;
+  }
+
+  private static boolean isSign(MeterRecordLine meterRecord, int field, int index, int length) {
+    return index < length
+        && (meterRecord.byteAt(field, index) == '-' || meterRecord.byteAt(field, index) == '+');
+  }
+
+  /**
+   * Decode the quality with permissible values.
+   *
+   * @param meterRecord  the meter record
+   * @param qualityField the quality field
+   * @return the quality, or null if it is not one of the permissible values.
+   */
+  private static Quality decodeQuality(MeterRecordLine meterRecord, int qualityField) {
+    if (meterRecord.fieldLength(qualityField) == 1) {
+      byte quality = meterRecord.byteAt(qualityField, 0);
+      if (quality == 'A') {
+        return Quality.A;
+      } else if (quality == 'E') {
+        return Quality.E;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Decode the quality flag, the first character of a quality method such as A, E52 or V.
+   *
+   * @param meterRecord  the meter record
+   * @param qualityField the quality method field
+   * @return the quality, or null if the field does not start with a quality flag.
+   */
+  private static IntervalQuality decodeIntervalQuality(MeterRecordLine meterRecord,
+                                                       int qualityField) {
+    if (meterRecord.fieldLength(qualityField) > 0) {
+      switch (meterRecord.byteAt(qualityField, 0)) {
+        case 'A':
+          return IntervalQuality.A;
+        case 'E':
+          return IntervalQuality.E;
+        case 'F':
+          return IntervalQuality.F;
+        case 'N':
+          return IntervalQuality.N;
+        case 'S':
+          return IntervalQuality.S;
+        case 'V':
+          return IntervalQuality.V;
+        default:
+          return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Parse a field of up to 9 digits.
+   *
+   * @param meterRecord the meter record
+   * @param field       the field
+   * @return the number, or -1 if the field is not digits.
+   */
+  private static int parseInt(MeterRecordLine meterRecord, int field) {
+    int length = meterRecord.fieldLength(field);
+    if (length == 0 || length > 9) {
+      return -1;
+    }
+    int value = 0;
+    for (int index = 0; index < length; index++) {
+      byte character = meterRecord.byteAt(field, index);
+      if (character < '0' || character > '9') {
+        return -1;
+      }
+      value = value * 10 + (character - '0');
+    }
+    return value;
+  }
+
+  /**
+   * Throw SimpleNem12ParserException for invalid cases.
+   *
+   * @param nem12ValidationResult the result of validation.
+   * @throws SimpleNem12ParserException
+   */
+  private void throwExceptionIfInvalid(
+      Nem12ValidationResult nem12ValidationResult) throws SimpleNem12ParserException {
+    if (!nem12ValidationResult.isValid()) {
+      throw new SimpleNem12ParserException(nem12ValidationResult.getReason(),
+          nem12ValidationResult.getRule());
+    }
+  }
+}
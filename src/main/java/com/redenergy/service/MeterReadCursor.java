@@ -0,0 +1,40 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.MeterRead;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pull based reader of MeterRead records from a Simple NEM12 source.
+ *
+ * Each MeterRead is handed out as soon as its 300 block is complete, so only the current
+ * 200 block is held in memory. The cursor holds the underlying file open until it is
+ * exhausted or closed.
+ */
+public interface MeterReadCursor extends AutoCloseable {
+
+  /**
+   * Read the next MeterRead record.
+   *
+   * @return the next MeterRead, or null once the 900 trailer has been reached and validated.
+   * @throws SimpleNem12ParserException if the source is invalid or cannot be read.
+   */
+  MeterRead next() throws SimpleNem12ParserException;
+
+  /**
+   * The records skipped so far in the LENIENT error mode.
+   *
+   * @return the skipped records in file order, empty in the STRICT error mode.
+   */
+  default List<MeterRecordError> getMeterRecordErrors() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Release the underlying file.
+   */
+  @Override
+  void close();
+}
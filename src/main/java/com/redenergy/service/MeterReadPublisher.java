@@ -0,0 +1,161 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.MeterRead;
+
+import java.io.File;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher of the MeterRead records of a Simple NEM12 file, parsing only as far as the
+ * subscriber has asked for, so memory use is set by the demand of the subscriber rather than
+ * by the size of the file.
+ *
+ * Each subscriber gets its own streaming cursor over the file, opened when it first asks for
+ * records. Records are read and handed to the subscriber on the executor, one task at a time,
+ * and whenever the subscriber has no outstanding demand the parse stops and no task runs.
+ * Cancelling closes the cursor and its file. An invalid or unreadable file ends the
+ * subscription with onError of the <code>SimpleNem12ParserException</code>. It is a JDK
+ * <code>Flow.Publisher</code>, so any Flow subscriber or reactive streams adapter can consume it.
+ */
+public class MeterReadPublisher implements Flow.Publisher<MeterRead> {
+
+  private final SimpleNem12Parser simpleNem12Parser;
+  private final File simpleNem12File;
+  private final Executor executor;
+
+  /**
+   * Publisher reading the file on the thread asking for records.
+   *
+   * @param simpleNem12Parser the parser
+   * @param simpleNem12File   file in Simple NEM12 format
+   */
+  public MeterReadPublisher(SimpleNem12Parser simpleNem12Parser, File simpleNem12File) {
+    this(simpleNem12Parser, simpleNem12File, Runnable::run);
+  }
+
+  /**
+   * @param simpleNem12Parser the parser
+   * @param simpleNem12File   file in Simple NEM12 format
+   * @param executor          the executor reading the file and calling the subscribers.
+   */
+  public MeterReadPublisher(SimpleNem12Parser simpleNem12Parser, File simpleNem12File,
+                            Executor executor) {
+    this.simpleNem12Parser = Objects.requireNonNull(simpleNem12Parser);
+    this.simpleNem12File = simpleNem12File;
+    this.executor = Objects.requireNonNull(executor);
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super MeterRead> subscriber) {
+    Objects.requireNonNull(subscriber);
+    subscriber.onSubscribe(new MeterReadSubscription(subscriber));
+  }
+
+  /**
+   * Subscription reading the file as demand arrives. Requests and cancellation only update
+   * the demand and flags and schedule a drain, the cursor is only touched by the drain, which
+   * the pending count keeps to one task at a time.
+   */
+  private final class MeterReadSubscription implements Flow.Subscription {
+
+    private final Flow.Subscriber<? super MeterRead> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile IllegalArgumentException invalidRequest;
+
+    //only read and written by the drain
+    private MeterReadCursor cursor;
+    private boolean terminated;
+
+    MeterReadSubscription(Flow.Subscriber<? super MeterRead> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("Requested " + n + " MeterReads");
+      } else {
+        demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (pending.getAndIncrement() == 0) {
+        executor.execute(this::drain);
+      }
+    }
+
+    private void drain() {
+      int missed = 1;
+      do {
+        try {
+          drainDemand();
+        } catch (RuntimeException | Error ex) {
+          //thrown by the subscriber, it gets nothing more
+          terminate();
+          pending.set(0);
+          throw ex;
+        }
+        missed = pending.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void drainDemand() {
+      while (!terminated) {
+        if (cancelled) {
+          terminate();
+        } else if (invalidRequest != null) {
+          terminate();
+          subscriber.onError(invalidRequest);
+        } else if (demand.get() > 0) {
+          next();
+        } else {
+          return;
+        }
+      }
+    }
+
+    private void next() {
+      MeterRead meterRead;
+      try {
+        if (cursor == null) {
+          cursor = simpleNem12Parser.openSimpleNem12(simpleNem12File);
+        }
+        meterRead = cursor.next();
+      } catch (SimpleNem12ParserException | RuntimeException ex) {
+        terminate();
+        subscriber.onError(ex);
+        return;
+      }
+      if (meterRead == null) {
+        terminate();
+        subscriber.onComplete();
+        return;
+      }
+      demand.getAndUpdate(current -> current == Long.MAX_VALUE ? current : current - 1);
+      subscriber.onNext(meterRead);
+    }
+
+    private void terminate() {
+      terminated = true;
+      if (cursor != null) {
+        cursor.close();
+        cursor = null;
+      }
+    }
+  }
+}
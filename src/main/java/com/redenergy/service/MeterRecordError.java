@@ -0,0 +1,63 @@
+package com.redenergy.service;
+
+import com.redenergy.validation.ValidationRule;
+
+/**
+ * An invalid meter record skipped in the lenient error mode.
+ */
+public class MeterRecordError {
+
+  private final long lineNumber;
+  private final long byteOffset;
+  private final ValidationRule rule;
+  private final String reason;
+
+  public MeterRecordError(long lineNumber, long byteOffset, String reason) {
+    this(lineNumber, byteOffset, ValidationRule.OTHER, reason);
+  }
+
+  public MeterRecordError(long lineNumber, long byteOffset, ValidationRule rule, String reason) {
+    this.lineNumber = lineNumber;
+    this.byteOffset = byteOffset;
+    this.rule = rule;
+    this.reason = reason;
+  }
+
+  /**
+   * @return the one based line number of the record.
+   */
+  public long getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * @return the offset of the record in the file, -1 when the file was read as String lines.
+   */
+  public long getByteOffset() {
+    return byteOffset;
+  }
+
+  /**
+   * @return the rule of the failed validation.
+   */
+  public ValidationRule getRule() {
+    return rule;
+  }
+
+  /**
+   * @return the reason of the failed validation.
+   */
+  public String getReason() {
+    return reason;
+  }
+
+  MeterRecordError withLineOffset(long lineOffset) {
+    return new MeterRecordError(lineNumber + lineOffset, byteOffset, rule, reason);
+  }
+
+  @Override
+  public String toString() {
+    return "line " + lineNumber + (byteOffset >= 0 ? " (byte " + byteOffset + ")" : "") + ": "
+        + reason;
+  }
+}
@@ -0,0 +1,70 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.MeterRead;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * MeterReadCursor timing the reads of the cursor it decorates and counting what they allocate,
+ * the metrics of the file are reported once the cursor is exhausted, fails or is closed.
+ * Only used when the metrics sink is enabled.
+ */
+class MeteredMeterReadCursor implements MeterReadCursor {
+
+  private final MeterReadCursor meterReadCursor;
+  private final ParseMetricsRecorder recorder;
+  private final Consumer<ParseMetricsRecorder> recordCounts;
+
+  /**
+   * @param meterReadCursor the cursor
+   * @param recorder        the recorder of the file
+   * @param recordCounts    adds the line and record counts of the cursor to the recorder
+   */
+  MeteredMeterReadCursor(MeterReadCursor meterReadCursor, ParseMetricsRecorder recorder,
+                         Consumer<ParseMetricsRecorder> recordCounts) {
+    this.meterReadCursor = meterReadCursor;
+    this.recorder = recorder;
+    this.recordCounts = recordCounts;
+  }
+
+  @Override
+  public MeterRead next() throws SimpleNem12ParserException {
+    long allocationMark = recorder.allocationMark();
+    recorder.beginStage(ParseStage.PARSE);
+    MeterRead meterRead;
+    try {
+      meterRead = meterReadCursor.next();
+    } catch (SimpleNem12ParserException ex) {
+      recorder.addAllocatedSince(allocationMark);
+      report(ex);
+      throw ex;
+    }
+    recorder.endStage();
+    recorder.addAllocatedSince(allocationMark);
+    if (meterRead == null) {
+      report(null);
+    } else {
+      recorder.addMeterReads(1);
+    }
+    return meterRead;
+  }
+
+  @Override
+  public List<MeterRecordError> getMeterRecordErrors() {
+    return meterReadCursor.getMeterRecordErrors();
+  }
+
+  @Override
+  public void close() {
+    meterReadCursor.close();
+    report(null);
+  }
+
+  private void report(SimpleNem12ParserException failure) {
+    recorder.addMeterRecordErrors(meterReadCursor.getMeterRecordErrors());
+    recordCounts.accept(recorder);
+    recorder.report(failure);
+  }
+}
@@ -0,0 +1,38 @@
+package com.redenergy.service;
+
+/**
+ * Receives the metrics of every file parsed, to feed a monitoring system.
+ *
+ * Stages are only timed and the allocation counter only read when the sink is enabled, so
+ * with the disabled NO_OP sink the instrumentation costs a few counter increments per file.
+ * Metrics are reported on the thread that parsed the file, once it is parsed, has failed or its
+ * cursor is closed, and may be reported concurrently by the batch and parallel parsers.
+ */
+public interface MetricsSink {
+
+  /**
+   * The default sink, disabled and discarding everything.
+   */
+  MetricsSink NO_OP = new MetricsSink() {
+    @Override
+    public boolean isEnabled() {
+      return false;
+    }
+
+    @Override
+    public void fileParsed(ParseMetrics parseMetrics) {
+    }
+  };
+
+  /**
+   * @return false to skip timing and allocation tracking altogether.
+   */
+  default boolean isEnabled() {
+    return true;
+  }
+
+  /**
+   * @param parseMetrics the metrics of a parsed or failed file
+   */
+  void fileParsed(ParseMetrics parseMetrics);
+}
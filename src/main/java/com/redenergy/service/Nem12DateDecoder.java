@@ -0,0 +1,160 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.repository.MeterRecordLine;
+import com.redenergy.validation.Nem12ValidationResult;
+import com.redenergy.validation.ValidationRule;
+
+import java.time.LocalDate;
+
+import static java.lang.String.format;
+
+/**
+ * Decoder of the fixed 8 digit yyyyMMdd date of a 300 record, reading the digits straight from
+ * the record bytes.
+ *
+ * Dates are validated by hand with the same rules as <code>LocalDate.parse</code> with the
+ * <code>yyyyMMdd</code> pattern: years 0001 to 9999, months 1 to 12, and days 1 to 31 where a
+ * day past the end of the month resolves to the last day of the month. The LocalDate instances
+ * are kept in a small direct mapped cache keyed on epoch day, as a file only covers a handful
+ * of distinct dates. Instances are not thread safe, each parse uses its own decoder.
+ */
+public final class Nem12DateDecoder {
+
+  /**
+   * Returned by <code>tryDecodeEpochDay</code> for a field that is not a valid date.
+   */
+  public static final long INVALID_DATE = Long.MIN_VALUE;
+
+  private static final int DATE_LENGTH = 8;
+  private static final int CACHE_SIZE = 64;
+  private static final int CACHE_MASK = CACHE_SIZE - 1;
+  private static final long DAYS_0000_TO_1970 = 719528L;
+  private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+  private final long[] cachedEpochDays = new long[CACHE_SIZE];
+  private final LocalDate[] cachedDates = new LocalDate[CACHE_SIZE];
+
+  /**
+   * Decode the date field to a LocalDate, shared with earlier records of the same date.
+   *
+   * @param meterRecord the meter record
+   * @param field       the date field
+   * @return the LocalDate
+   * @throws SimpleNem12ParserException if the field is not a valid yyyyMMdd date.
+   */
+  public LocalDate decode(MeterRecordLine meterRecord, int field)
+      throws SimpleNem12ParserException {
+    LocalDate date = tryDecode(meterRecord, field);
+    if (date == null) {
+      Nem12ValidationResult invalidDate = invalidDate(meterRecord, field);
+      throw new SimpleNem12ParserException(invalidDate.getReason(), invalidDate.getRule());
+    }
+    return date;
+  }
+
+  /**
+   * Decode the date field to a LocalDate without throwing.
+   *
+   * @param meterRecord the meter record
+   * @param field       the date field
+   * @return the LocalDate, or null if the field is not a valid yyyyMMdd date.
+   */
+  public LocalDate tryDecode(MeterRecordLine meterRecord, int field) {
+    long epochDay = tryDecodeEpochDay(meterRecord, field);
+    if (epochDay == INVALID_DATE) {
+      return null;
+    }
+    int index = (int) epochDay & CACHE_MASK;
+    LocalDate date = cachedDates[index];
+    if (date == null || cachedEpochDays[index] != epochDay) {
+      date = LocalDate.ofEpochDay(epochDay);
+      cachedDates[index] = date;
+      cachedEpochDays[index] = epochDay;
+    }
+    return date;
+  }
+
+  /**
+   * Decode the date field to an epoch day without creating a LocalDate.
+   *
+   * @param meterRecord the meter record
+   * @param field       the date field
+   * @return the epoch day
+   * @throws SimpleNem12ParserException if the field is not a valid yyyyMMdd date.
+   */
+  public long decodeEpochDay(MeterRecordLine meterRecord, int field)
+      throws SimpleNem12ParserException {
+    long epochDay = tryDecodeEpochDay(meterRecord, field);
+    if (epochDay == INVALID_DATE) {
+      Nem12ValidationResult invalidDate = invalidDate(meterRecord, field);
+      throw new SimpleNem12ParserException(invalidDate.getReason(), invalidDate.getRule());
+    }
+    return epochDay;
+  }
+
+  /**
+   * Decode the date field to an epoch day without throwing.
+   *
+   * @param meterRecord the meter record
+   * @param field       the date field
+   * @return the epoch day, or INVALID_DATE if the field is not a valid yyyyMMdd date.
+   */
+  public long tryDecodeEpochDay(MeterRecordLine meterRecord, int field) {
+    if (meterRecord.fieldLength(field) != DATE_LENGTH) {
+      return INVALID_DATE;
+    }
+    int date = 0;
+    for (int i = 0; i < DATE_LENGTH; i++) {
+      int digit = meterRecord.byteAt(field, i) - '0';
+      if (digit < 0 || digit > 9) {
+        return INVALID_DATE;
+      }
+      date = date * 10 + digit;
+    }
+    int year = date / 10000;
+    int month = date / 100 % 100;
+    int day = date % 100;
+    if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31) {
+      return INVALID_DATE;
+    }
+    return toEpochDay(year, month, Math.min(day, lengthOfMonth(year, month)));
+  }
+
+  /**
+   * The failed validation of a date field.
+   *
+   * @param meterRecord the meter record
+   * @param field       the date field
+   * @return the validation result with the reason the date is invalid.
+   */
+  public static Nem12ValidationResult invalidDate(MeterRecordLine meterRecord, int field) {
+    return Nem12ValidationResult.fail(ValidationRule.DATE,
+        format("Input date %s cannot be parsed", meterRecord.fieldAsString(field)));
+  }
+
+  private static int lengthOfMonth(int year, int month) {
+    return month == 2 && isLeapYear(year) ? 29 : DAYS_IN_MONTH[month - 1];
+  }
+
+  private static boolean isLeapYear(int year) {
+    return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+  }
+
+  /**
+   * Same arithmetic as <code>LocalDate.toEpochDay</code> for positive years.
+   */
+  private static long toEpochDay(int year, int month, int day) {
+    long total = 365L * year;
+    total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+    total += (367 * month - 362) / 12;
+    total += day - 1;
+    if (month > 2) {
+      total--;
+      if (!isLeapYear(year)) {
+        total--;
+      }
+    }
+    return total - DAYS_0000_TO_1970;
+  }
+}
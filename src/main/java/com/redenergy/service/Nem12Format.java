@@ -0,0 +1,22 @@
+package com.redenergy.service;
+
+/**
+ * The format of the 200 and 300 records SimpleNem12ParserImpl reads.
+ */
+public enum Nem12Format {
+
+  /**
+   * Simple NEM12, a 200 record of NMI and energy unit and one 300 volume per day.
+   */
+  SIMPLE,
+
+  /**
+   * Full NEM12 interval data. A 200 record names a data stream of a NMI with its unit of
+   * measure and interval length, each 300 record holds the interval values of a day and
+   * 400 records set the quality of ranges of its intervals. The intervals are kept in the
+   * IntervalReads of each MeterRead by NMI suffix, the volumes and rollup stay empty and
+   * 500 and 550 records are skipped. Volumes are always read as fixed point.
+   */
+  FULL
+
+}
@@ -0,0 +1,339 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterReadIndex;
+import com.redenergy.model.RecordType;
+import com.redenergy.repository.Compression;
+import com.redenergy.repository.MappedMeterRecordsReader;
+import com.redenergy.validation.Nem12ValidationResult;
+import com.redenergy.validation.Nem12Validators;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Simple Nem12 parser which parses a single file on several cores.
+ *
+ * The file is split into byte ranges, each split point is moved forward to the next 200
+ * record so every chunk holds whole 200 blocks. Chunks are parsed on a ForkJoinPool with
+ * the memory mapped reader and the MeterRead lists are joined in file order, giving the
+ * same result as the sequential SimpleNem12ParserImpl. The 100 header is validated by the
+ * first chunk and the 900 trailer by the last, the error of the earliest failing chunk
+ * is reported. In the LENIENT error mode the records skipped by every chunk are joined in
+ * file order and held to the error budget of the whole file.
+ *
+ * The pool is held by the parser and shared by its parses, it is either given to the parser
+ * or created by it and shut down by <code>close</code>.
+ */
+public class ParallelSimpleNem12Parser implements SimpleNem12Parser, AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ParallelSimpleNem12Parser.class);
+  private static final long DEFAULT_MIN_CHUNK_SIZE = 1024 * 1024;
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private final ForkJoinPool forkJoinPool;
+  private final boolean ownsPool;
+  private final int parallelism;
+  private final long minChunkSize;
+  private final SimpleNem12ParserConfig config;
+  private final SimpleNem12ParserImpl sequentialParser;
+
+  /**
+   * Parser using one thread per available processor.
+   */
+  public ParallelSimpleNem12Parser() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param parallelism the number of threads parsing a file.
+   */
+  public ParallelSimpleNem12Parser(int parallelism) {
+    this(parallelism, DEFAULT_MIN_CHUNK_SIZE);
+  }
+
+  /**
+   * @param parallelism  the number of threads parsing a file.
+   * @param minChunkSize the smallest byte range worth handing to a thread.
+   */
+  public ParallelSimpleNem12Parser(int parallelism, long minChunkSize) {
+    this(parallelism, minChunkSize, new SimpleNem12ParserConfig());
+  }
+
+  /**
+   * @param parallelism  the number of threads parsing a file.
+   * @param minChunkSize the smallest byte range worth handing to a thread.
+   * @param config       the parser options, chunks are always read with the memory mapped reader.
+   */
+  public ParallelSimpleNem12Parser(int parallelism, long minChunkSize,
+                                   SimpleNem12ParserConfig config) {
+    this(newForkJoinPool(parallelism), true, minChunkSize, config);
+  }
+
+  /**
+   * @param forkJoinPool the pool parsing the chunks, its parallelism sets the number of chunks,
+   *                     it is left running by <code>close</code>.
+   * @param minChunkSize the smallest byte range worth handing to a thread.
+   * @param config       the parser options, chunks are always read with the memory mapped reader.
+   */
+  public ParallelSimpleNem12Parser(ForkJoinPool forkJoinPool, long minChunkSize,
+                                   SimpleNem12ParserConfig config) {
+    this(forkJoinPool, false, minChunkSize, config);
+  }
+
+  private ParallelSimpleNem12Parser(ForkJoinPool forkJoinPool, boolean ownsPool,
+                                    long minChunkSize, SimpleNem12ParserConfig config) {
+    if (minChunkSize < 1) {
+      throw new IllegalArgumentException("minChunkSize must be positive");
+    }
+    this.forkJoinPool = forkJoinPool;
+    this.ownsPool = ownsPool;
+    this.parallelism = forkJoinPool.getParallelism();
+    this.minChunkSize = minChunkSize;
+    this.config = config;
+    this.sequentialParser = new SimpleNem12ParserImpl(config);
+  }
+
+  private static ForkJoinPool newForkJoinPool(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive");
+    }
+    return new ForkJoinPool(parallelism);
+  }
+
+  /**
+   * Parses Simple Nem12 CSV file in parallel chunks and creates Collection of MeterRead records.
+   *
+   * @param simpleNem12File file in Simple NEM12 format
+   * @return the collection of MeterRead records indexed by NMI.
+   */
+  @Override
+  public MeterReadIndex parseSimpleNem12(File simpleNem12File) {
+    MeterReadIndex meterReadItems = new MeterReadIndex();
+    ParseMetricsRecorder recorder =
+        ParseMetricsRecorder.start(simpleNem12File, config.getMetricsSink());
+    long allocationMark = recorder.allocationMark();
+
+    try {
+      recorder.beginStage(ParseStage.VALIDATE);
+      //compressed files cannot be split into byte ranges
+      if (Compression.detect(simpleNem12File) != Compression.NONE) {
+        //the sequential parser reports the metrics of the file
+        recorder = ParseMetricsRecorder.start(simpleNem12File, MetricsSink.NO_OP);
+        return sequentialParser.parseSimpleNem12(simpleNem12File);
+      }
+
+      //validate the input file, its header and its trailer
+      throwExceptionIfInvalid(Nem12Validators.isFileExists().test(simpleNem12File));
+      throwExceptionIfInvalid(Nem12Validators.isValidFileBoundaries().test(simpleNem12File));
+
+      //chunks are read as they are parsed, reading is timed as PARSE
+      recorder.beginStage(ParseStage.PARSE);
+      List<Long> chunkStarts = splitIntoChunks(simpleNem12File);
+      meterReadItems = parseChunks(simpleNem12File, chunkStarts, recorder);
+
+      recorder.addMeterReads(meterReadItems.size());
+      recorder.addAllocatedSince(allocationMark);
+      recorder.report(null);
+    } catch (SimpleNem12ParserException ex) {
+      recorder.addAllocatedSince(allocationMark);
+      recorder.report(ex);
+      LOGGER.error("An Exception of type {} occurred while running SimpleNem12Parser. Cause : {}",
+          ex.getClass(), ex.getMessage());
+    }
+
+    return meterReadItems;
+  }
+
+  /**
+   * Streaming is sequential, delegates to SimpleNem12ParserImpl.
+   */
+  @Override
+  public MeterReadCursor openSimpleNem12(File simpleNem12File) throws SimpleNem12ParserException {
+    return sequentialParser.openSimpleNem12(simpleNem12File);
+  }
+
+  /**
+   * Streaming is sequential, delegates to SimpleNem12ParserImpl.
+   */
+  @Override
+  public void parseSimpleNem12(File simpleNem12File, Consumer<MeterRead> meterReadConsumer)
+      throws SimpleNem12ParserException {
+    sequentialParser.parseSimpleNem12(simpleNem12File, meterReadConsumer);
+  }
+
+  /**
+   * Shut down the pool created by the parser, a pool given to it is left running.
+   */
+  @Override
+  public void close() {
+    if (ownsPool) {
+      forkJoinPool.shutdown();
+    }
+  }
+
+  /**
+   * Split the file into byte ranges starting at 200 records.
+   *
+   * @param simpleNem12File the input file
+   * @return the start offsets of the chunks, followed by the file size.
+   * @throws SimpleNem12ParserException
+   */
+  private List<Long> splitIntoChunks(File simpleNem12File) throws SimpleNem12ParserException {
+    long fileSize = simpleNem12File.length();
+    long chunkCount = Math.max(1L,
+        Math.min((long) parallelism * CHUNKS_PER_THREAD, fileSize / minChunkSize));
+    long chunkSize = fileSize / chunkCount;
+
+    List<Long> chunkStarts = new ArrayList<>();
+    chunkStarts.add(0L);
+    for (long chunk = 1; chunk < chunkCount; chunk++) {
+      long previousStart = chunkStarts.get(chunkStarts.size() - 1);
+      long candidate = Math.max(chunk * chunkSize, previousStart + 1);
+      long chunkStart = MappedMeterRecordsReader.findRecordStart(simpleNem12File, candidate,
+          RecordType.RECORD_TYPE_PARENT);
+      if (chunkStart >= fileSize) {
+        break;
+      }
+      chunkStarts.add(chunkStart);
+    }
+    chunkStarts.add(fileSize);
+    return chunkStarts;
+  }
+
+  /**
+   * Parse every chunk on the pool of the parser and join the results in file order, merging
+   * 200 blocks of a NMI read by different chunks.
+   *
+   * @param simpleNem12File the input file
+   * @param chunkStarts     the start offsets of the chunks, followed by the file size.
+   * @param recorder        the recorder of the file, given the counts of every joined chunk.
+   * @return MeterRead records of the whole file.
+   * @throws SimpleNem12ParserException of the first failing chunk in file order.
+   */
+  private MeterReadIndex parseChunks(File simpleNem12File, List<Long> chunkStarts,
+                                     ParseMetricsRecorder recorder)
+      throws SimpleNem12ParserException {
+    int chunkCount = chunkStarts.size() - 1;
+    List<ForkJoinTask<ChunkResult>> chunkTasks = new ArrayList<>(chunkCount);
+    try {
+      for (int chunk = 0; chunk < chunkCount; chunk++) {
+        long start = chunkStarts.get(chunk);
+        long end = chunkStarts.get(chunk + 1);
+        boolean first = chunk == 0;
+        boolean last = chunk == chunkCount - 1;
+        boolean metered = recorder.isEnabled();
+        chunkTasks.add(forkJoinPool.submit(
+            () -> parseChunk(simpleNem12File, start, end, first, last, metered)));
+      }
+
+      MeterReadIndex meterReadList = new MeterReadIndex();
+      List<MeterRecordError> meterRecordErrors = new ArrayList<>();
+      long lineOffset = 0;
+      for (ForkJoinTask<ChunkResult> chunkTask : chunkTasks) {
+        ChunkResult chunkResult = joinChunk(chunkTask);
+        meterReadList.addAll(chunkResult.meterReads);
+        //line numbers of a chunk count from its own start
+        for (MeterRecordError meterRecordError : chunkResult.meterRecordErrors) {
+          meterRecordErrors.add(meterRecordError.withLineOffset(lineOffset));
+        }
+        lineOffset += chunkResult.lineCount;
+        recorder.addRecords(chunkResult.lineCount, chunkResult.parentRecordCount,
+            chunkResult.childRecordCount);
+        recorder.addAllocatedBytes(chunkResult.allocatedBytes);
+      }
+      recorder.addMeterRecordErrors(meterRecordErrors);
+      throwExceptionIfInvalid(Nem12Validators.isWithinErrorBudget(config.getMaxErrors())
+          .test(meterRecordErrors.size()));
+      SimpleNem12ParserImpl.logMeterRecordErrors(simpleNem12File, meterRecordErrors);
+      return meterReadList;
+    } finally {
+      //chunks not started once a chunk failed are not parsed
+      for (ForkJoinTask<ChunkResult> chunkTask : chunkTasks) {
+        chunkTask.cancel(false);
+      }
+    }
+  }
+
+  private ChunkResult parseChunk(File simpleNem12File, long start, long end,
+                                 boolean first, boolean last, boolean metered)
+      throws SimpleNem12ParserException {
+    long allocationMark = metered ? ParseMetricsRecorder.currentThreadAllocatedBytes() : 0;
+    List<MeterRead> meterReadList = new ArrayList<>();
+    try (RecordSourceMeterReadCursor meterReadCursor = new RecordSourceMeterReadCursor(
+        MappedMeterRecordsReader.open(simpleNem12File, start, end,
+            MappedMeterRecordsReader.DEFAULT_WINDOW_SIZE), config, first, last)) {
+      MeterRead meterRead;
+      while ((meterRead = meterReadCursor.next()) != null) {
+        meterReadList.add(meterRead);
+      }
+      long allocatedBytes =
+          metered ? ParseMetricsRecorder.currentThreadAllocatedBytes() - allocationMark : 0;
+      return new ChunkResult(meterReadList, meterReadCursor.getMeterRecordErrors(),
+          meterReadCursor.getLineCount(), meterReadCursor.getParentRecordCount(),
+          meterReadCursor.getChildRecordCount(), allocatedBytes);
+    }
+  }
+
+  private ChunkResult joinChunk(ForkJoinTask<ChunkResult> chunkTask)
+      throws SimpleNem12ParserException {
+    try {
+      return chunkTask.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new SimpleNem12ParserException("Interrupted while parsing meter records", ex);
+    } catch (ExecutionException ex) {
+      //checked exceptions of a submitted Callable come back wrapped in RuntimeExceptions
+      for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+        if (cause instanceof SimpleNem12ParserException) {
+          throw (SimpleNem12ParserException) cause;
+        }
+      }
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw new SimpleNem12ParserException(ex.getCause().getMessage(), ex.getCause());
+    }
+  }
+
+  private void throwExceptionIfInvalid(
+      Nem12ValidationResult nem12ValidationResult) throws SimpleNem12ParserException {
+    if (!nem12ValidationResult.isValid()) {
+      throw new SimpleNem12ParserException(nem12ValidationResult.getReason(),
+          nem12ValidationResult.getRule());
+    }
+  }
+
+  /**
+   * The MeterReads of a chunk, its skipped records, its number of lines and records and the
+   * bytes its thread allocated when metered.
+   */
+  private static final class ChunkResult {
+
+    private final List<MeterRead> meterReads;
+    private final List<MeterRecordError> meterRecordErrors;
+    private final long lineCount;
+    private final long parentRecordCount;
+    private final long childRecordCount;
+    private final long allocatedBytes;
+
+    private ChunkResult(List<MeterRead> meterReads, List<MeterRecordError> meterRecordErrors,
+                        long lineCount, long parentRecordCount, long childRecordCount,
+                        long allocatedBytes) {
+      this.meterReads = meterReads;
+      this.meterRecordErrors = meterRecordErrors;
+      this.lineCount = lineCount;
+      this.parentRecordCount = parentRecordCount;
+      this.childRecordCount = childRecordCount;
+      this.allocatedBytes = allocatedBytes;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.redenergy.service;
+
+/**
+ * Statistics of a <code>CachingSimpleNem12Parser</code> at the time they were read.
+ */
+public final class ParseCacheStats {
+
+  private final long hitCount;
+  private final long missCount;
+  private final long coalescedCount;
+  private final long evictionCount;
+  private final int entryCount;
+  private final long weight;
+
+  ParseCacheStats(long hitCount, long missCount, long coalescedCount, long evictionCount,
+                  int entryCount, long weight) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.coalescedCount = coalescedCount;
+    this.evictionCount = evictionCount;
+    this.entryCount = entryCount;
+    this.weight = weight;
+  }
+
+  /**
+   * @return the parses answered from the cache.
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return the parses that read the file.
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return the parses that waited for a parse of the same file already running.
+   */
+  public long getCoalescedCount() {
+    return coalescedCount;
+  }
+
+  /**
+   * @return the results evicted to stay within the weight budget or because their file changed.
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public int getEntryCount() {
+    return entryCount;
+  }
+
+  /**
+   * @return the estimated heap bytes of the cached results.
+   */
+  public long getWeight() {
+    return weight;
+  }
+
+  @Override
+  public String toString() {
+    return "ParseCacheStats{hits=" + hitCount + ", misses=" + missCount + ", coalesced="
+        + coalescedCount + ", evictions=" + evictionCount + ", entries=" + entryCount
+        + ", weight=" + weight + '}';
+  }
+}
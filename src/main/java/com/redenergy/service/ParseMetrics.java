@@ -0,0 +1,145 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.validation.ValidationRule;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The metrics of parsing one file, reported to a <code>MetricsSink</code>.
+ */
+public final class ParseMetrics {
+
+  private final File file;
+  private final long bytesRead;
+  private final long lineCount;
+  private final long parentRecordCount;
+  private final long childRecordCount;
+  private final long meterReadCount;
+  private final long[] stageNanos;
+  private final Map<ValidationRule, Long> failuresByRule;
+  private final long allocatedBytes;
+  private final SimpleNem12ParserException failure;
+
+  ParseMetrics(File file, long bytesRead, long lineCount, long parentRecordCount,
+               long childRecordCount, long meterReadCount, long[] stageNanos,
+               Map<ValidationRule, Long> failuresByRule, long allocatedBytes,
+               SimpleNem12ParserException failure) {
+    this.file = file;
+    this.bytesRead = bytesRead;
+    this.lineCount = lineCount;
+    this.parentRecordCount = parentRecordCount;
+    this.childRecordCount = childRecordCount;
+    this.meterReadCount = meterReadCount;
+    this.stageNanos = stageNanos;
+    this.failuresByRule = Collections.unmodifiableMap(failuresByRule);
+    this.allocatedBytes = allocatedBytes;
+    this.failure = failure;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * @return the size of the file on disk, compressed for a compressed file.
+   */
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * @return the lines read, including the 100 header and the 900 trailer.
+   */
+  public long getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * @return the 200 records read, valid or not.
+   */
+  public long getParentRecordCount() {
+    return parentRecordCount;
+  }
+
+  /**
+   * @return the 300 records of 200 blocks read, valid or not.
+   */
+  public long getChildRecordCount() {
+    return childRecordCount;
+  }
+
+  /**
+   * @return the MeterRead records produced.
+   */
+  public long getMeterReadCount() {
+    return meterReadCount;
+  }
+
+  /**
+   * @param stage the stage
+   * @return the wall time spent in the stage.
+   */
+  public long getStageNanos(ParseStage stage) {
+    return stageNanos[stage.ordinal()];
+  }
+
+  /**
+   * @return the wall time spent in all stages, excluding time spent by the caller between
+   * reads of a cursor.
+   */
+  public long getTotalNanos() {
+    long totalNanos = 0;
+    for (long nanos : stageNanos) {
+      totalNanos += nanos;
+    }
+    return totalNanos;
+  }
+
+  public double getLinesPerSecond() {
+    long totalNanos = getTotalNanos();
+    return totalNanos == 0 ? 0 : lineCount * (double) TimeUnit.SECONDS.toNanos(1) / totalNanos;
+  }
+
+  /**
+   * @return the failed validations by rule, the records skipped in the LENIENT error mode and
+   * the validation the parse failed on.
+   */
+  public Map<ValidationRule, Long> getFailuresByRule() {
+    return failuresByRule;
+  }
+
+  /**
+   * @return the bytes allocated by the parsing threads, -1 if the JVM cannot measure them.
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public boolean isSuccessful() {
+    return failure == null;
+  }
+
+  /**
+   * @return the exception the parse failed with, null if it succeeded.
+   */
+  public SimpleNem12ParserException getFailure() {
+    return failure;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder stages = new StringBuilder();
+    for (ParseStage stage : ParseStage.values()) {
+      stages.append(", ").append(stage.name().toLowerCase()).append("Nanos=")
+          .append(getStageNanos(stage));
+    }
+    return "ParseMetrics{file=" + file + ", bytes=" + bytesRead + ", lines=" + lineCount
+        + ", parentRecords=" + parentRecordCount + ", childRecords=" + childRecordCount
+        + ", meterReads=" + meterReadCount + stages + ", failures=" + failuresByRule
+        + ", allocatedBytes=" + allocatedBytes + ", successful=" + isSuccessful() + '}';
+  }
+}
@@ -0,0 +1,218 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.validation.ValidationRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the metrics of parsing one file and reports them to the sink once.
+ *
+ * Stages are timed by switching between them, the time of the current stage running until the
+ * next stage begins or the stage ends, so a stage cut short by an exception is still counted.
+ * A recorder for a disabled sink is shared and ignores everything.
+ */
+final class ParseMetricsRecorder {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ParseMetricsRecorder.class);
+  private static final ValidationRule[] RULES = ValidationRule.values();
+  private static final ParseMetricsRecorder DISABLED = new ParseMetricsRecorder(null, null);
+
+  private final File file;
+  private final MetricsSink metricsSink;
+  private final boolean enabled;
+  private final long[] stageNanos = new long[ParseStage.values().length];
+  private final long[] failureCounts = new long[RULES.length];
+  private ParseStage currentStage;
+  private long stageStartNanos;
+  private long lineCount;
+  private long parentRecordCount;
+  private long childRecordCount;
+  private long meterReadCount;
+  private long allocatedBytes;
+  private boolean reported;
+
+  private ParseMetricsRecorder(File file, MetricsSink metricsSink) {
+    this.file = file;
+    this.metricsSink = metricsSink;
+    this.enabled = metricsSink != null;
+  }
+
+  /**
+   * @param file        the file being parsed
+   * @param metricsSink the sink of the parser
+   * @return a recorder for the file, or the shared disabled recorder.
+   */
+  static ParseMetricsRecorder start(File file, MetricsSink metricsSink) {
+    return metricsSink.isEnabled() ? new ParseMetricsRecorder(file, metricsSink) : DISABLED;
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * End the current stage and begin timing the next.
+   *
+   * @param stage the stage beginning
+   */
+  void beginStage(ParseStage stage) {
+    if (enabled) {
+      long now = System.nanoTime();
+      endStage(now);
+      currentStage = stage;
+      stageStartNanos = now;
+    }
+  }
+
+  /**
+   * End the current stage, time from now on is not counted until the next stage begins.
+   */
+  void endStage() {
+    if (enabled) {
+      endStage(System.nanoTime());
+    }
+  }
+
+  private void endStage(long now) {
+    if (currentStage != null) {
+      stageNanos[currentStage.ordinal()] += now - stageStartNanos;
+      currentStage = null;
+    }
+  }
+
+  void addRecords(long lines, long parentRecords, long childRecords) {
+    if (enabled) {
+      lineCount += lines;
+      parentRecordCount += parentRecords;
+      childRecordCount += childRecords;
+    }
+  }
+
+  void addMeterReads(long meterReads) {
+    if (enabled) {
+      meterReadCount += meterReads;
+    }
+  }
+
+  /**
+   * Count the failed validations of the records skipped in the LENIENT error mode.
+   *
+   * @param meterRecordErrors the skipped records
+   */
+  void addMeterRecordErrors(List<MeterRecordError> meterRecordErrors) {
+    if (enabled) {
+      for (MeterRecordError meterRecordError : meterRecordErrors) {
+        failureCounts[meterRecordError.getRule().ordinal()]++;
+      }
+    }
+  }
+
+  /**
+   * @return the allocation counter of the current thread, to be passed to addAllocatedSince.
+   */
+  long allocationMark() {
+    return enabled ? currentThreadAllocatedBytes() : 0;
+  }
+
+  /**
+   * Count the bytes the current thread allocated since the mark.
+   *
+   * @param allocationMark the allocation counter of the current thread when the work began
+   */
+  void addAllocatedSince(long allocationMark) {
+    if (enabled) {
+      addAllocatedBytes(currentThreadAllocatedBytes() - allocationMark);
+    }
+  }
+
+  /**
+   * @return the bytes the current thread allocated since it started, 0 if the JVM cannot
+   * measure them.
+   */
+  static long currentThreadAllocatedBytes() {
+    return AllocationCounter.currentThreadAllocatedBytes();
+  }
+
+  /**
+   * Count bytes allocated by another thread working on the file.
+   *
+   * @param bytes the allocated bytes
+   */
+  void addAllocatedBytes(long bytes) {
+    if (enabled) {
+      allocatedBytes += bytes;
+    }
+  }
+
+  /**
+   * End the current stage and report the metrics to the sink, only the first call reports.
+   *
+   * @param failure the exception the parse failed with, null if it succeeded.
+   */
+  void report(SimpleNem12ParserException failure) {
+    if (!enabled || reported) {
+      return;
+    }
+    endStage();
+    reported = true;
+    if (failure != null && failure.getRule() != null) {
+      failureCounts[failure.getRule().ordinal()]++;
+    }
+    Map<ValidationRule, Long> failuresByRule = new EnumMap<>(ValidationRule.class);
+    for (ValidationRule rule : RULES) {
+      if (failureCounts[rule.ordinal()] > 0) {
+        failuresByRule.put(rule, failureCounts[rule.ordinal()]);
+      }
+    }
+    ParseMetrics parseMetrics = new ParseMetrics(file, file.length(), lineCount,
+        parentRecordCount, childRecordCount, meterReadCount, stageNanos.clone(), failuresByRule,
+        AllocationCounter.SUPPORTED ? allocatedBytes : -1, failure);
+    try {
+      metricsSink.fileParsed(parseMetrics);
+    } catch (RuntimeException ex) {
+      //a failing sink must not fail the parse
+      LOGGER.warn("MetricsSink failed to take the metrics of {}", file, ex);
+    }
+  }
+
+  /**
+   * Reads the per thread allocation counter of the com.sun.management ThreadMXBean, held in its
+   * own class so the bean is only looked up once a sink is enabled. Where the bean cannot
+   * count allocations the allocated bytes are reported as -1.
+   */
+  private static final class AllocationCounter {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMXBean();
+    private static final boolean SUPPORTED = THREAD_MX_BEAN != null;
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+      try {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+          com.sun.management.ThreadMXBean allocationMXBean =
+              (com.sun.management.ThreadMXBean) threadMXBean;
+          if (allocationMXBean.isThreadAllocatedMemorySupported()) {
+            allocationMXBean.setThreadAllocatedMemoryEnabled(true);
+            return allocationMXBean;
+          }
+        }
+      } catch (LinkageError | RuntimeException ex) {
+        //not a HotSpot based JVM, or allocation tracking cannot be switched on
+      }
+      return null;
+    }
+
+    static long currentThreadAllocatedBytes() {
+      return SUPPORTED
+          ? THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package com.redenergy.service;
+
+/**
+ * The timed stages of parsing a file.
+ */
+public enum ParseStage {
+  /**
+   * Checking the file exists and its header and trailer, and opening it.
+   */
+  VALIDATE,
+  /**
+   * Reading lines from the file, separately timed for files read whole into memory and for
+   * streamed plain files. Reading compressed files is timed as PARSE.
+   */
+  READ,
+  /**
+   * Validating meter records and building MeterRead records from them.
+   */
+  PARSE
+}
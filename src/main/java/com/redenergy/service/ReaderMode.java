@@ -0,0 +1,18 @@
+package com.redenergy.service;
+
+/**
+ * How SimpleNem12ParserImpl reads the input file.
+ */
+public enum ReaderMode {
+
+  /**
+   * Decode the file to trimmed String lines.
+   */
+  LINES,
+
+  /**
+   * Memory map the file and tokenize the ASCII bytes directly.
+   */
+  MAPPED
+
+}
@@ -0,0 +1,167 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.RecordType;
+import com.redenergy.repository.MeterRecordLine;
+import com.redenergy.repository.MeterRecordSource;
+import com.redenergy.validation.Nem12ValidationResult;
+import com.redenergy.validation.Nem12Validators;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * MeterReadCursor over a sequential source of meter records.
+ *
+ * The 100 header is validated on the first read and the 900 trailer once the records
+ * are exhausted, MeterRead records completed before that are handed out as they close.
+ */
+class RecordSourceMeterReadCursor implements MeterReadCursor {
+
+  private final MeterRecordSource meterRecordSource;
+  private final MeterReadAssembler meterReadAssembler;
+  private final boolean validateStart;
+  private final boolean validateEnd;
+
+  private boolean started;
+  private boolean finished;
+  private boolean lastLineIsEnd;
+  private long lineCount;
+
+  RecordSourceMeterReadCursor(MeterRecordSource meterRecordSource,
+                              SimpleNem12ParserConfig config) {
+    this(meterRecordSource, config, true, true);
+  }
+
+  /**
+   * Cursor over a part of a file, the header is only validated for the first part
+   * and the trailer for the last.
+   *
+   * @param meterRecordSource the meter records
+   * @param config            the parser options
+   * @param validateStart     validate the records start with the 100 header
+   * @param validateEnd       validate the records end with the 900 trailer
+   */
+  RecordSourceMeterReadCursor(MeterRecordSource meterRecordSource,
+                              SimpleNem12ParserConfig config, boolean validateStart,
+                              boolean validateEnd) {
+    this.meterRecordSource = meterRecordSource;
+    this.meterReadAssembler = new MeterReadAssembler(config);
+    this.validateStart = validateStart;
+    this.validateEnd = validateEnd;
+  }
+
+  @Override
+  public MeterRead next() throws SimpleNem12ParserException {
+    if (finished) {
+      return null;
+    }
+    if (!started) {
+      if (validateStart) {
+        validateStartLine();
+      }
+      started = true;
+    }
+    MeterRecordLine meterRecord;
+    while ((meterRecord = meterRecordSource.nextRecord()) != null) {
+      lineCount = meterRecord.getLineNumber();
+      lastLineIsEnd = meterRecord.isRecordType(RecordType.RECORD_TYPE_END);
+      if (meterRecord.startsWith(RecordType.RECORD_TYPE_START.recordType)
+          || meterRecord.startsWith(RecordType.RECORD_TYPE_END.recordType)) {
+        continue;
+      }
+      MeterRead completedMeterRead = meterReadAssembler.accept(meterRecord);
+      if (completedMeterRead != null) {
+        return completedMeterRead;
+      }
+    }
+    if (validateEnd) {
+      validateEndLine();
+    }
+    finished = true;
+    return meterReadAssembler.finish();
+  }
+
+  @Override
+  public List<MeterRecordError> getMeterRecordErrors() {
+    return meterReadAssembler.getMeterRecordErrors();
+  }
+
+  /**
+   * @return the number of lines read so far.
+   */
+  long getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * @return the number of 200 records read so far.
+   */
+  long getParentRecordCount() {
+    return meterReadAssembler.getParentRecordCount();
+  }
+
+  /**
+   * @return the number of 300 records read so far.
+   */
+  long getChildRecordCount() {
+    return meterReadAssembler.getChildRecordCount();
+  }
+
+  /**
+   * Add the lines and records read so far to the metrics of the file.
+   *
+   * @param recorder the recorder of the file
+   */
+  void addCountsTo(ParseMetricsRecorder recorder) {
+    recorder.addRecords(lineCount, getParentRecordCount(), getChildRecordCount());
+  }
+
+  @Override
+  public void close() {
+    finished = true;
+    meterRecordSource.close();
+  }
+
+  /**
+   * Validates the file has meter records and the start of csv is 100.
+   *
+   * @throws SimpleNem12ParserException
+   */
+  private void validateStartLine() throws SimpleNem12ParserException {
+    MeterRecordLine firstLine = meterRecordSource.nextRecord();
+    Nem12ValidationResult nem12ValidationResult = Nem12Validators.isFileEmpty()
+        .test(firstLine == null ? Collections.emptyList() : Collections.singletonList(firstLine.toString()));
+    throwExceptionIfInvalid(nem12ValidationResult);
+
+    lineCount = firstLine.getLineNumber();
+    lastLineIsEnd = firstLine.isRecordType(RecordType.RECORD_TYPE_END);
+    nem12ValidationResult = Nem12Validators.isValidStartLine(RecordType.RECORD_TYPE_START)
+        .test(Optional.of(firstLine).filter(elem -> elem.isRecordType(RecordType.RECORD_TYPE_START))
+            .map(MeterRecordLine::toString));
+    throwExceptionIfInvalid(nem12ValidationResult);
+  }
+
+  /**
+   * Validates the end of csv is 900.
+   *
+   * @throws SimpleNem12ParserException
+   */
+  private void validateEndLine() throws SimpleNem12ParserException {
+    Nem12ValidationResult nem12ValidationResult =
+        Nem12Validators.isValidEndLine(RecordType.RECORD_TYPE_END)
+            .test(lastLineIsEnd ? Optional.of(RecordType.RECORD_TYPE_END.recordType)
+                : Optional.empty());
+    throwExceptionIfInvalid(nem12ValidationResult);
+  }
+
+  private void throwExceptionIfInvalid(
+      Nem12ValidationResult nem12ValidationResult) throws SimpleNem12ParserException {
+    if (!nem12ValidationResult.isValid()) {
+      throw new SimpleNem12ParserException(nem12ValidationResult.getReason(),
+          nem12ValidationResult.getRule());
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package com.redenergy.service;
+
+/**
+ * Whether SimpleNem12ParserImpl rolls volumes up into a MeterReadRollup while parsing.
+ */
+public enum RollupMode {
+
+  /**
+   * Keep the volumes only.
+   */
+  NONE,
+
+  /**
+   * Keep the volumes and the rollup of each MeterRead, a date read twice is rolled up with its
+   * last volume only.
+   */
+  WITH_VOLUMES,
+
+  /**
+   * Keep the rollup of each MeterRead only, its volumes stay empty. A volume cannot be taken
+   * back out of the rollup, so a date read twice within a 200 block is an invalid record.
+   */
+  ROLLUP_ONLY
+
+}
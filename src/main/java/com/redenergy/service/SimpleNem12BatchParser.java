@@ -0,0 +1,231 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.MeterRead;
+import com.redenergy.validation.Nem12ValidationResult;
+import com.redenergy.validation.Nem12Validators;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parses batches of Simple NEM12 files concurrently.
+ *
+ * Every file is parsed on its own task, on virtual threads when the runtime has them and on a
+ * fixed pool of platform threads otherwise. The number of files open at once is capped, and so
+ * is the total size of the files being parsed, which bounds the concurrent parsing work only:
+ * a file's budget is released once it is parsed, while its MeterRead records stay in its
+ * FileParseResult until the caller drops them. A file larger than the whole budget is parsed on
+ * its own. A file that fails is reported in its FileParseResult and does not stop the rest of
+ * the batch.
+ */
+public class SimpleNem12BatchParser {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SimpleNem12BatchParser.class);
+  private static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 256L * 1024 * 1024;
+  private static final int BYTES_PER_PERMIT = 1024;
+
+  private final SimpleNem12Parser simpleNem12Parser;
+  private final int maxOpenFiles;
+  private final int maxInFlightPermits;
+
+  /**
+   * Batch parser with one open file per available processor and a 256MB in flight budget.
+   */
+  public SimpleNem12BatchParser() {
+    this(new SimpleNem12ParserImpl(), Runtime.getRuntime().availableProcessors(),
+        DEFAULT_MAX_IN_FLIGHT_BYTES);
+  }
+
+  /**
+   * @param simpleNem12Parser the parser of a single file.
+   * @param maxOpenFiles      the most files parsed at once.
+   * @param maxInFlightBytes  the most bytes of input being parsed at once.
+   */
+  public SimpleNem12BatchParser(SimpleNem12Parser simpleNem12Parser, int maxOpenFiles,
+                                long maxInFlightBytes) {
+    if (maxOpenFiles < 1 || maxInFlightBytes < 1) {
+      throw new IllegalArgumentException("maxOpenFiles and maxInFlightBytes must be positive");
+    }
+    this.simpleNem12Parser = simpleNem12Parser;
+    this.maxOpenFiles = maxOpenFiles;
+    this.maxInFlightPermits = (int) Math.min(Integer.MAX_VALUE,
+        (maxInFlightBytes + BYTES_PER_PERMIT - 1) / BYTES_PER_PERMIT);
+  }
+
+  /**
+   * Parses every file of a directory, in file name order.
+   *
+   * @param directory the directory holding files in Simple NEM12 format
+   * @return the result of every file and their MeterRead records merged by NMI.
+   * @throws SimpleNem12ParserException if the directory does not exist.
+   */
+  public BatchParseResult parseSimpleNem12Directory(File directory)
+      throws SimpleNem12ParserException {
+    throwExceptionIfInvalid(Nem12Validators.isDirectoryExists().test(directory));
+    File[] files = directory.listFiles(file -> file.isFile() && !file.isHidden());
+    if (files == null) {
+      throw new SimpleNem12ParserException("Error listing files of directory " + directory);
+    }
+    Arrays.sort(files);
+    return parseSimpleNem12Files(Arrays.asList(files));
+  }
+
+  /**
+   * Parses the files concurrently.
+   *
+   * @param simpleNem12Files files in Simple NEM12 format
+   * @return the result of every file in input order and their MeterRead records merged by NMI.
+   * @throws SimpleNem12ParserException if the batch is interrupted.
+   */
+  public BatchParseResult parseSimpleNem12Files(List<File> simpleNem12Files)
+      throws SimpleNem12ParserException {
+    return new BatchParseResult(parseFiles(simpleNem12Files, null));
+  }
+
+  /**
+   * Parses the files concurrently, each parsing thread adding the MeterRead records of its file
+   * to the aggregator once the whole file is parsed, so a file that fails adds nothing, as
+   * <code>parseSimpleNem12Files</code> returns nothing for it. The MeterRead records of a file
+   * are only held until they are added. A MeterRead rejected by the aggregator fails its file,
+   * the MeterRead records of the file added before it stay in the aggregate.
+   *
+   * @param simpleNem12Files files in Simple NEM12 format
+   * @param aggregator       the aggregator the MeterRead records are added to
+   * @return the result of every file in input order, holding no MeterRead records.
+   * @throws SimpleNem12ParserException if the batch is interrupted.
+   */
+  public List<FileParseResult> aggregateSimpleNem12Files(List<File> simpleNem12Files,
+                                                         ConcurrentNmiAggregator aggregator)
+      throws SimpleNem12ParserException {
+    return parseFiles(simpleNem12Files, Objects.requireNonNull(aggregator, "aggregator"));
+  }
+
+  private List<FileParseResult> parseFiles(List<File> simpleNem12Files,
+                                           ConcurrentNmiAggregator aggregator)
+      throws SimpleNem12ParserException {
+    if (simpleNem12Files.isEmpty()) {
+      return Collections.emptyList();
+    }
+    Semaphore openFiles = new Semaphore(maxOpenFiles);
+    Semaphore inFlightBytes = new Semaphore(maxInFlightPermits);
+    ExecutorService executorService = newExecutorService();
+    try {
+      List<Future<FileParseResult>> fileTasks = new ArrayList<>(simpleNem12Files.size());
+      for (File simpleNem12File : simpleNem12Files) {
+        fileTasks.add(executorService.submit(
+            () -> parseFile(simpleNem12File, openFiles, inFlightBytes, aggregator)));
+      }
+
+      List<FileParseResult> fileResults = new ArrayList<>(fileTasks.size());
+      for (int i = 0; i < fileTasks.size(); i++) {
+        fileResults.add(joinFile(simpleNem12Files.get(i), fileTasks.get(i)));
+      }
+      return fileResults;
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Parse a file into its MeterRead records, or into the aggregator once the file is parsed
+   * when there is one.
+   */
+  private FileParseResult parseFile(File simpleNem12File, Semaphore openFiles,
+                                    Semaphore inFlightBytes, ConcurrentNmiAggregator aggregator)
+      throws InterruptedException {
+    int permits = (int) Math.max(1L, Math.min(maxInFlightPermits,
+        (simpleNem12File.length() + BYTES_PER_PERMIT - 1) / BYTES_PER_PERMIT));
+    //always taken in the same order, open file first, so tasks cannot deadlock
+    openFiles.acquire();
+    try {
+      inFlightBytes.acquire(permits);
+      try {
+        List<MeterRead> meterReads = new ArrayList<>();
+        try (MeterReadCursor meterReadCursor =
+                 simpleNem12Parser.openSimpleNem12(simpleNem12File)) {
+          MeterRead meterRead;
+          while ((meterRead = meterReadCursor.next()) != null) {
+            meterReads.add(meterRead);
+          }
+          if (aggregator != null) {
+            for (MeterRead parsedMeterRead : meterReads) {
+              aggregator.add(parsedMeterRead);
+            }
+            meterReads = Collections.emptyList();
+          }
+          return new FileParseResult(simpleNem12File, meterReads,
+              meterReadCursor.getMeterRecordErrors());
+        }
+      } finally {
+        inFlightBytes.release(permits);
+      }
+    } catch (SimpleNem12ParserException ex) {
+      return failed(simpleNem12File, ex);
+    } catch (RuntimeException ex) {
+      return failed(simpleNem12File, new SimpleNem12ParserException(ex.toString(), ex));
+    } finally {
+      openFiles.release();
+    }
+  }
+
+  private FileParseResult joinFile(File simpleNem12File, Future<FileParseResult> fileTask)
+      throws SimpleNem12ParserException {
+    try {
+      return fileTask.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new SimpleNem12ParserException("Interrupted while parsing meter records", ex);
+    } catch (ExecutionException ex) {
+      return failed(simpleNem12File,
+          new SimpleNem12ParserException(ex.getCause().toString(), ex.getCause()));
+    }
+  }
+
+  private static FileParseResult failed(File simpleNem12File, SimpleNem12ParserException ex) {
+    LOGGER.error(
+        "An Exception of type {} occurred while running SimpleNem12Parser on {}. Cause : {}",
+        ex.getClass(), simpleNem12File, ex.getMessage());
+    return new FileParseResult(simpleNem12File, ex);
+  }
+
+  /**
+   * A virtual thread per file on runtimes that have them, the open files semaphore is what
+   * bounds the work. Otherwise a pool of one platform thread per open file.
+   */
+  private ExecutorService newExecutorService() {
+    try {
+      Method newVirtualThreadPerTaskExecutor =
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+    } catch (ReflectiveOperationException ex) {
+      AtomicInteger threadCount = new AtomicInteger();
+      return Executors.newFixedThreadPool(maxOpenFiles, runnable -> {
+        Thread thread = new Thread(runnable, "nem12-batch-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  private void throwExceptionIfInvalid(
+      Nem12ValidationResult nem12ValidationResult) throws SimpleNem12ParserException {
+    if (!nem12ValidationResult.isValid()) {
+      throw new SimpleNem12ParserException(nem12ValidationResult.getReason(),
+          nem12ValidationResult.getRule());
+    }
+  }
+}
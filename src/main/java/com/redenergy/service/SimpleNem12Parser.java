@@ -2,10 +2,14 @@
 
 package com.redenergy.service;
 
+import com.redenergy.exception.SimpleNem12ParserException;
 import com.redenergy.model.MeterRead;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
 
 public interface SimpleNem12Parser {
 
@@ -17,4 +21,41 @@ public interface SimpleNem12Parser {
    */
   Collection<MeterRead> parseSimpleNem12(File simpleNem12File);
 
+  /**
+   * Opens a streaming cursor over a Simple NEM12 file. MeterRead records are read one at a
+   * time as each 200 block closes, so memory use does not grow with the file size.
+   *
+   * @param simpleNem12File file in Simple NEM12 format
+   * @return cursor of <code>MeterRead</code>, to be closed by the caller.
+   * @throws SimpleNem12ParserException if the file does not exist, cannot be opened or does not
+   *                                    start with the 100 header and end with the 900 trailer.
+   */
+  MeterReadCursor openSimpleNem12(File simpleNem12File) throws SimpleNem12ParserException;
+
+  /**
+   * Parses Simple NEM12 file, handing each <code>MeterRead</code> to the consumer as soon as
+   * its 300 block is complete. The 100 header and 900 trailer are checked before parsing starts,
+   * records handed out before an invalid line is detected have already been consumed when the
+   * exception is thrown.
+   *
+   * @param simpleNem12File   file in Simple NEM12 format
+   * @param meterReadConsumer consumer of <code>MeterRead</code> records
+   * @throws SimpleNem12ParserException if the file is invalid or cannot be read.
+   */
+  void parseSimpleNem12(File simpleNem12File, Consumer<MeterRead> meterReadConsumer)
+      throws SimpleNem12ParserException;
+
+  /**
+   * Publishes the MeterRead records of a Simple NEM12 file, parsing only as far as each
+   * subscriber has asked for. Errors, including an invalid file, are handed to the subscriber.
+   *
+   * @param simpleNem12File file in Simple NEM12 format
+   * @param executor        the executor reading the file and calling the subscribers.
+   * @return publisher of <code>MeterRead</code>, each subscriber reading the file on its own.
+   */
+  default Flow.Publisher<MeterRead> publishSimpleNem12(File simpleNem12File,
+                                                        Executor executor) {
+    return new MeterReadPublisher(this, simpleNem12File, executor);
+  }
+
 }
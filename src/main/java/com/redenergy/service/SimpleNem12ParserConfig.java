@@ -0,0 +1,130 @@
+package com.redenergy.service;
+
+/**
+ * Options of SimpleNem12ParserImpl, the defaults match the original parser behaviour.
+ */
+public class SimpleNem12ParserConfig {
+
+  private ReaderMode readerMode = ReaderMode.LINES;
+  private VolumeStorage volumeStorage = VolumeStorage.TREE_MAP;
+  private DecimalMode decimalMode = DecimalMode.BIG_DECIMAL;
+  private int maxVolumeScale = 6;
+  private ErrorMode errorMode = ErrorMode.STRICT;
+  private int maxErrors = 1000;
+  private long followPollMillis = 1000;
+  private long followIdleTimeoutMillis = 0;
+  private MetricsSink metricsSink = MetricsSink.NO_OP;
+  private RollupMode rollupMode = RollupMode.NONE;
+  private Nem12Format nem12Format = Nem12Format.SIMPLE;
+
+  public ReaderMode getReaderMode() {
+    return readerMode;
+  }
+
+  public void setReaderMode(ReaderMode readerMode) {
+    this.readerMode = readerMode;
+  }
+
+  public VolumeStorage getVolumeStorage() {
+    return volumeStorage;
+  }
+
+  public void setVolumeStorage(VolumeStorage volumeStorage) {
+    this.volumeStorage = volumeStorage;
+  }
+
+  public DecimalMode getDecimalMode() {
+    return decimalMode;
+  }
+
+  public void setDecimalMode(DecimalMode decimalMode) {
+    this.decimalMode = decimalMode;
+  }
+
+  /**
+   * A volume with more decimal places is an invalid record in the FIXED_POINT decimal mode,
+   * although the BIG_DECIMAL mode keeps it, so summing fixed point volumes rescales them by a
+   * bounded power of ten.
+   *
+   * @return the most decimal places a volume may have in the FIXED_POINT decimal mode.
+   */
+  public int getMaxVolumeScale() {
+    return maxVolumeScale;
+  }
+
+  public void setMaxVolumeScale(int maxVolumeScale) {
+    this.maxVolumeScale = maxVolumeScale;
+  }
+
+  public ErrorMode getErrorMode() {
+    return errorMode;
+  }
+
+  public void setErrorMode(ErrorMode errorMode) {
+    this.errorMode = errorMode;
+  }
+
+  /**
+   * @return the most invalid records skipped in the LENIENT error mode before parsing stops.
+   */
+  public int getMaxErrors() {
+    return maxErrors;
+  }
+
+  public void setMaxErrors(int maxErrors) {
+    this.maxErrors = maxErrors;
+  }
+
+  /**
+   * @return the longest wait between checks for new bytes when following a file.
+   */
+  public long getFollowPollMillis() {
+    return followPollMillis;
+  }
+
+  public void setFollowPollMillis(long followPollMillis) {
+    this.followPollMillis = followPollMillis;
+  }
+
+  /**
+   * @return how long a followed file may go without growing before its 900 trailer, 0 to wait
+   * forever.
+   */
+  public long getFollowIdleTimeoutMillis() {
+    return followIdleTimeoutMillis;
+  }
+
+  public void setFollowIdleTimeoutMillis(long followIdleTimeoutMillis) {
+    this.followIdleTimeoutMillis = followIdleTimeoutMillis;
+  }
+
+  /**
+   * @return the sink of the metrics of every parsed file, disabled by default.
+   */
+  public MetricsSink getMetricsSink() {
+    return metricsSink;
+  }
+
+  public void setMetricsSink(MetricsSink metricsSink) {
+    this.metricsSink = metricsSink;
+  }
+
+  /**
+   * @return whether volumes are rolled up into a MeterReadRollup while parsing.
+   */
+  public RollupMode getRollupMode() {
+    return rollupMode;
+  }
+
+  public void setRollupMode(RollupMode rollupMode) {
+    this.rollupMode = rollupMode;
+  }
+
+  public Nem12Format getNem12Format() {
+    return nem12Format;
+  }
+
+  public void setNem12Format(Nem12Format nem12Format) {
+    this.nem12Format = nem12Format;
+  }
+}
@@ -4,68 +4,91 @@ import com.redenergy.exception.SimpleNem12ParserException;
 import com.redenergy.model.*;
 
 import java.io.File;
-import java.math.BigDecimal;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.*;
-
+import java.util.function.Consumer;
+
+import com.redenergy.repository.CompressedMeterRecordsReader;
+import com.redenergy.repository.Compression;
+import com.redenergy.repository.FollowingMeterRecordsReader;
+import com.redenergy.repository.LineMeterRecordSource;
+import com.redenergy.repository.MappedMeterRecordsReader;
+import com.redenergy.repository.MeterRecordSource;
 import com.redenergy.repository.MeterRecordsReader;
 import com.redenergy.validation.Nem12ValidationResult;
 import com.redenergy.validation.Nem12Validators;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.stream.Collectors;
-
-import static java.lang.String.format;
-
 /**
  * Implementation of Simple Nem12 parser, which reads SimpleNem12 csv file and
  * returns the collection of MeterRead.
+ *
+ * Gzip and zip files are streamed whatever the reader mode, every entry of a zip file being
+ * parsed as a Simple NEM12 file of its own.
  */
 public class SimpleNem12ParserImpl implements SimpleNem12Parser {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(SimpleNem12ParserImpl.class);
-  private static final String COMMA = ",";
-  private static final Integer NMI_LENGTH = 10;
 
   private MeterRecordsReader meterRecordsReader;
+  private SimpleNem12ParserConfig config;
 
   public SimpleNem12ParserImpl() {
+    this(new SimpleNem12ParserConfig());
+  }
+
+  public SimpleNem12ParserImpl(ReaderMode readerMode) {
+    this(new SimpleNem12ParserConfig());
+    config.setReaderMode(readerMode);
+  }
+
+  public SimpleNem12ParserImpl(SimpleNem12ParserConfig config) {
     this.meterRecordsReader = new MeterRecordsReader();
+    this.config = config;
   }
 
   /**
-   * Parses Simple Nem12 CSV file and creates Collection of MeterRead records.
+   * Parses Simple Nem12 CSV file and creates Collection of MeterRead records, 200 blocks
+   * repeating a NMI are merged into one MeterRead.
    *
    * @param simpleNem12File file in Simple NEM12 format
-   * @return the collection of MeterRead records.
+   * @return the collection of MeterRead records indexed by NMI.
    */
   @Override
-  public Collection<MeterRead> parseSimpleNem12(File simpleNem12File) {
-    Collection<MeterRead> meterReadItems = new ArrayList<>();
+  public MeterReadIndex parseSimpleNem12(File simpleNem12File) {
+    MeterReadIndex meterReadItems = new MeterReadIndex();
+    ParseMetricsRecorder recorder =
+        ParseMetricsRecorder.start(simpleNem12File, config.getMetricsSink());
+    long allocationMark = recorder.allocationMark();
 
     try {
-      //validate the input file
+      recorder.beginStage(ParseStage.VALIDATE);
+      if (config.getReaderMode() == ReaderMode.MAPPED
+          || Compression.detect(simpleNem12File) != Compression.NONE) {
+        //streamed, the cursor reports the metrics of the file
+        recorder = ParseMetricsRecorder.start(simpleNem12File, MetricsSink.NO_OP);
+        MeterReadIndex meterReadIndex = new MeterReadIndex();
+        parseSimpleNem12(simpleNem12File, meterReadIndex::add);
+        return meterReadIndex;
+      }
+
+      //validate the input file, its header and its trailer
       validateInputCsvFile(simpleNem12File);
 
       //read the list of meter records from the input csv file.
+      recorder.beginStage(ParseStage.READ);
       List<String> meterRecords = meterRecordsReader.readLines(simpleNem12File);
 
-      //validate the input file contents
-      validateInputCsvFileData(meterRecords);
-
-      List<String> validMeterRecords =
-          meterRecords.stream().filter(
-              line -> !(line.startsWith(RecordType.RECORD_TYPE_START.recordType)
-                  || line.startsWith(RecordType.RECORD_TYPE_END.recordType)))
-              .collect(Collectors.toList());
-
-      //parse and build MeterRead collection from valid meter records.
-      meterReadItems = parseMeteringData(validMeterRecords);
+      //parse and build MeterRead collection from the meter records between 100 and 900.
+      recorder.beginStage(ParseStage.PARSE);
+      meterReadItems = parseMeteringData(simpleNem12File, meterRecords, recorder);
 
+      recorder.addMeterReads(meterReadItems.size());
+      recorder.addAllocatedSince(allocationMark);
+      recorder.report(null);
     } catch (SimpleNem12ParserException ex) {
+      recorder.addAllocatedSince(allocationMark);
+      recorder.report(ex);
       LOGGER.error("An Exception of type {} occurred while running SimpleNem12Parser. Cause : {}",
           ex.getClass(), ex.getMessage());
     }
@@ -74,183 +97,178 @@ public class SimpleNem12ParserImpl implements SimpleNem12Parser {
   }
 
   /**
-   * Validates the input csv file.
+   * Opens a streaming cursor over a Simple NEM12 CSV file, holding only the current
+   * 200 block in memory.
    *
-   * @param simpleNem12File
-   * @throws SimpleNem12ParserException
+   * @param simpleNem12File file in Simple NEM12 format
+   * @return cursor of MeterRead records, to be closed by the caller.
+   * @throws SimpleNem12ParserException if the file does not exist, cannot be opened or has an
+   *                                    invalid header or trailer.
    */
-  private void validateInputCsvFile(File simpleNem12File) throws SimpleNem12ParserException {
-    Nem12ValidationResult nem12ValidationResult =
-        Nem12Validators.isFileExists().test(simpleNem12File);
-
-    throwExceptionIfInvalid(nem12ValidationResult);
+  @Override
+  public MeterReadCursor openSimpleNem12(File simpleNem12File) throws SimpleNem12ParserException {
+    ParseMetricsRecorder recorder =
+        ParseMetricsRecorder.start(simpleNem12File, config.getMetricsSink());
+    if (!recorder.isEnabled()) {
+      return openCursor(simpleNem12File, recorder);
+    }
+    long allocationMark = recorder.allocationMark();
+    recorder.beginStage(ParseStage.VALIDATE);
+    try {
+      MeterReadCursor meterReadCursor = openCursor(simpleNem12File, recorder);
+      recorder.endStage();
+      recorder.addAllocatedSince(allocationMark);
+      return meterReadCursor;
+    } catch (SimpleNem12ParserException ex) {
+      recorder.addAllocatedSince(allocationMark);
+      recorder.report(ex);
+      throw ex;
+    }
   }
 
-
   /**
-   * Validates the contents of Input CSV File.
+   * Open the cursor of a compressed or plain file, timed and metered when the recorder is
+   * enabled.
    *
-   * @param meterRecords
+   * @param simpleNem12File file in Simple NEM12 format
+   * @param recorder        the recorder of the file
+   * @return cursor of MeterRead records.
    * @throws SimpleNem12ParserException
    */
-  private void validateInputCsvFileData(List<String> meterRecords)
+  private MeterReadCursor openCursor(File simpleNem12File, ParseMetricsRecorder recorder)
       throws SimpleNem12ParserException {
-
-    //validate if the file is empty
-    Nem12ValidationResult nem12ValidationResult = Nem12Validators.isFileEmpty().test(meterRecords);
-    throwExceptionIfInvalid(nem12ValidationResult);
-
-    //validate if the start of csv is 100
-    nem12ValidationResult = Nem12Validators.isValidStartLine(RecordType.RECORD_TYPE_START)
-        .test(meterRecords.stream().findFirst()
-            .filter(elem -> elem.split(COMMA)[0].equals(RecordType.RECORD_TYPE_START.recordType)));
-
-    throwExceptionIfInvalid(nem12ValidationResult);
-
-    //validate if the end of csv is 900
-    nem12ValidationResult = Nem12Validators.isValidEndLine(RecordType.RECORD_TYPE_END)
-        .test(meterRecords.stream().reduce((first, second) -> second)
-            .filter(elem -> elem.split(COMMA)[0].equals(RecordType.RECORD_TYPE_END.recordType)));
-
-    throwExceptionIfInvalid(nem12ValidationResult);
+    if (Compression.detect(simpleNem12File) != Compression.NONE) {
+      CompressedMeterReadCursor compressedCursor = new CompressedMeterReadCursor(
+          CompressedMeterRecordsReader.open(simpleNem12File), config);
+      return recorder.isEnabled()
+          ? new MeteredMeterReadCursor(compressedCursor, recorder, compressedCursor::addCountsTo)
+          : compressedCursor;
+    }
+    validateInputCsvFile(simpleNem12File);
+    MeterRecordSource meterRecordSource = config.getReaderMode() == ReaderMode.MAPPED
+        ? MappedMeterRecordsReader.open(simpleNem12File)
+        : new LineMeterRecordSource(meterRecordsReader.streamLines(simpleNem12File));
+    if (!recorder.isEnabled()) {
+      return new RecordSourceMeterReadCursor(meterRecordSource, config);
+    }
+    RecordSourceMeterReadCursor meterReadCursor = new RecordSourceMeterReadCursor(
+        new TimedMeterRecordSource(meterRecordSource, recorder), config);
+    return new MeteredMeterReadCursor(meterReadCursor, recorder, meterReadCursor::addCountsTo);
   }
 
-
   /**
-   * Parse valid Metering data and create a collection of MeterRead records.
+   * Follows a Simple Nem12 CSV file while it is still being written, from a checkpoint.
+   * MeterRead records are handed out as each 200 block closes and the cursor waits for the
+   * file to grow until its 900 trailer, only the bytes after the checkpoint are read.
    *
-   * @param validMeterRecords
-   * @return collection of MeterRead records.
-   * @throws SimpleNem12ParserException
+   * @param simpleNem12File file in Simple NEM12 format, possibly incomplete
+   * @param checkpoint      where to resume, <code>FollowCheckpoint.START</code> for a new file
+   * @return following cursor of MeterRead records, to be closed by the caller.
+   * @throws SimpleNem12ParserException if the file does not exist or cannot be opened.
    */
-  private Collection<MeterRead> parseMeteringData(List<String> validMeterRecords)
+  public FollowingMeterReadCursor followSimpleNem12(File simpleNem12File,
+                                                   FollowCheckpoint checkpoint)
       throws SimpleNem12ParserException {
-    List<MeterRead> meterReadList = new ArrayList<>();
-    for (String meterRecord : validMeterRecords) {
-      try {
-        parseMeterRecord(meterRecord, meterReadList);
-      } catch (SimpleNem12ParserException ex) {
-        throw new SimpleNem12ParserException(ex.getMessage());
-      }
-    }
-
-    return meterReadList;
+    throwExceptionIfInvalid(Nem12Validators.isFileExists().test(simpleNem12File));
+    FollowingMeterRecordsReader followingReader = FollowingMeterRecordsReader.open(
+        simpleNem12File, checkpoint.getByteOffset(), checkpoint.getLineNumber(),
+        config.getFollowPollMillis(), config.getFollowIdleTimeoutMillis());
+    return new FollowingMeterReadCursor(followingReader, config, checkpoint);
   }
 
   /**
-   * Parse a single meter record and create parent MeterRead record if its top level
-   * and create child MeterVolume and append to parent MeterRead record if the meter
-   * record is at child level.
+   * Parses Simple Nem12 CSV file and hands each MeterRead record to the consumer
+   * as soon as its 300 block is complete.
    *
-   * @param meterRecord   a single line representing a single meter record
-   * @param meterReadList list of meter reads
-   * @throws SimpleNem12ParserException
+   * @param simpleNem12File   file in Simple NEM12 format
+   * @param meterReadConsumer consumer of MeterRead records
+   * @throws SimpleNem12ParserException if the file is invalid or cannot be read.
    */
-  private void parseMeterRecord(String meterRecord, List<MeterRead> meterReadList)
+  @Override
+  public void parseSimpleNem12(File simpleNem12File, Consumer<MeterRead> meterReadConsumer)
       throws SimpleNem12ParserException {
-
-    String[] elements = meterRecord.split(COMMA);
-
-    MeterRead meterRead;
-
-    if (elements[0].equals(RecordType.RECORD_TYPE_PARENT.recordType)) {
-      meterRead = validateAndCreateMeterRead(elements[1], elements[2]);
-      meterReadList.add(meterRead);
-    } else if (elements[0].equals(RecordType.RECORD_TYPE_CHILD.recordType)
-        && !meterReadList.isEmpty()) {
-      //list maintains the order,
-      // so get the previous element and append the child records
-      meterRead = meterReadList.get(meterReadList.size() - 1);
-      createAndAppendVolume(meterRead, elements[1], elements[2], elements[3]);
+    try (MeterReadCursor meterReadCursor = openSimpleNem12(simpleNem12File)) {
+      MeterRead meterRead;
+      while ((meterRead = meterReadCursor.next()) != null) {
+        meterReadConsumer.accept(meterRead);
+      }
+      logMeterRecordErrors(simpleNem12File, meterReadCursor.getMeterRecordErrors());
     }
   }
 
   /**
-   * Validates and create MeterRead Record using nmi and energyUnit.
+   * Validates the input csv file exists, has meter records, starts with 100 and ends with 900.
+   * Only the head and tail of the file are read, so an invalid file is rejected before any
+   * parsing work is done.
    *
-   * @param nmi        the input nmi
-   * @param energyUnit the input energyUnit
-   * @return
+   * @param simpleNem12File
    * @throws SimpleNem12ParserException
    */
-  private MeterRead validateAndCreateMeterRead(String nmi, String energyUnit)
-      throws SimpleNem12ParserException {
-
-    validateMeterRead(nmi, energyUnit);
-    MeterRead meterRead = new MeterRead(nmi, EnergyUnit.KWH);
-    return meterRead;
-  }
+  private void validateInputCsvFile(File simpleNem12File) throws SimpleNem12ParserException {
+    Nem12ValidationResult nem12ValidationResult =
+        Nem12Validators.isFileExists().test(simpleNem12File);
 
-  private void validateMeterRead(String nmi, String energyUnit) throws SimpleNem12ParserException {
+    throwExceptionIfInvalid(nem12ValidationResult);
 
-    //validates the input NMI
-    Nem12ValidationResult nem12ValidationResult = Nem12Validators.isValidNmi(NMI_LENGTH).test(nmi);
-    if (!nem12ValidationResult.isValid()) {
-      throw new SimpleNem12ParserException(nem12ValidationResult.getReason());
-    }
+    nem12ValidationResult = Nem12Validators.isValidFileBoundaries().test(simpleNem12File);
 
-    //validates the input EnergyUnit
-    nem12ValidationResult = Nem12Validators.isValidEnergyUnit().test(energyUnit);
     throwExceptionIfInvalid(nem12ValidationResult);
   }
 
-  /**
-   * create and Append Meter Volume to the parent MeterRead record
-   *
-   * @param meterRead parent meterRead record
-   * @param date      the date
-   * @param volume    the volume
-   * @param quality   the quality
-   * @throws SimpleNem12ParserException
-   */
-  private void createAndAppendVolume(MeterRead meterRead, String date,
-                                     String volume, String quality)
-      throws SimpleNem12ParserException {
-    meterRead.appendVolume(parseDate(date), createMeterVolume(volume, quality));
-  }
 
   /**
-   * Parse the meter volume date to local date.
+   * Parse Metering data and create a collection of MeterRead records, the 100 and 900
+   * records are skipped.
    *
-   * @param date the meter volume date
-   * @return the LocalDate
+   * @param simpleNem12File the input file
+   * @param meterRecords    every line of the file
+   * @param recorder        the recorder of the file, given the counts even if parsing fails
+   * @return collection of MeterRead records indexed by NMI.
    * @throws SimpleNem12ParserException
    */
-  private LocalDate parseDate(String date) throws SimpleNem12ParserException {
+  private MeterReadIndex parseMeteringData(File simpleNem12File, List<String> meterRecords,
+                                           ParseMetricsRecorder recorder)
+      throws SimpleNem12ParserException {
+    MeterReadIndex meterReadList = new MeterReadIndex();
+    MeterReadAssembler meterReadAssembler = new MeterReadAssembler(config);
+    long lineNumber = 0;
     try {
-      DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
-      return LocalDate.parse(date, formatter);
-    } catch (DateTimeParseException e) {
-      throw new SimpleNem12ParserException(format("Input date %s cannot be parsed", date));
+      for (String meterRecord : meterRecords) {
+        lineNumber++;
+        if (meterRecord.startsWith(RecordType.RECORD_TYPE_START.recordType)
+            || meterRecord.startsWith(RecordType.RECORD_TYPE_END.recordType)) {
+          continue;
+        }
+        MeterRead completedMeterRead = meterReadAssembler.accept(meterRecord, lineNumber);
+        if (completedMeterRead != null) {
+          meterReadList.add(completedMeterRead);
+        }
+      }
+    } finally {
+      recorder.addRecords(lineNumber, meterReadAssembler.getParentRecordCount(),
+          meterReadAssembler.getChildRecordCount());
+      recorder.addMeterRecordErrors(meterReadAssembler.getMeterRecordErrors());
     }
-  }
-
+    MeterRead lastMeterRead = meterReadAssembler.finish();
+    if (lastMeterRead != null) {
+      meterReadList.add(lastMeterRead);
+    }
+    logMeterRecordErrors(simpleNem12File, meterReadAssembler.getMeterRecordErrors());
 
-  /**
-   * Create Meter Volume using volume and quality.
-   *
-   * @param volume  the volume
-   * @param quality the quality
-   * @return MeterVolume child record
-   * @throws SimpleNem12ParserException
-   */
-  private MeterVolume createMeterVolume(String volume, String quality)
-      throws SimpleNem12ParserException {
-    validateQuality(quality);
-    return new MeterVolume(new BigDecimal(volume),
-        quality.equals("A") ? Quality.A : Quality.E);
+    return meterReadList;
   }
 
   /**
-   * Validate the quality with permissible values.
+   * Log a summary of the records skipped in the LENIENT error mode.
    *
-   * @param quality input quality
-   * @throws SimpleNem12ParserException
+   * @param simpleNem12File   the input file
+   * @param meterRecordErrors the skipped records
    */
-  private void validateQuality(String quality) throws SimpleNem12ParserException {
-    Nem12ValidationResult nem12ValidationResult =
-        Nem12Validators.isValidQuality().test(quality);
-    throwExceptionIfInvalid(nem12ValidationResult);
+  static void logMeterRecordErrors(File simpleNem12File, List<MeterRecordError> meterRecordErrors) {
+    if (!meterRecordErrors.isEmpty()) {
+      LOGGER.warn("Skipped {} invalid meter records of {}. First : {}",
+          meterRecordErrors.size(), simpleNem12File, meterRecordErrors.get(0));
+    }
   }
 
   /**
@@ -262,7 +280,8 @@ public class SimpleNem12ParserImpl implements SimpleNem12Parser {
   private void throwExceptionIfInvalid(
       Nem12ValidationResult nem12ValidationResult) throws SimpleNem12ParserException {
     if (!nem12ValidationResult.isValid()) {
-      throw new SimpleNem12ParserException(nem12ValidationResult.getReason());
+      throw new SimpleNem12ParserException(nem12ValidationResult.getReason(),
+          nem12ValidationResult.getRule());
     }
   }
 
@@ -0,0 +1,380 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.EnergyUnit;
+import com.redenergy.model.FixedPointVolumeConsumer;
+import com.redenergy.model.FixedPointVolumes;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterVolume;
+import com.redenergy.model.Quality;
+import com.redenergy.model.RecordType;
+import com.redenergy.repository.Compression;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes MeterRead records as a Simple NEM12 file, which <code>SimpleNem12ParserImpl</code>
+ * parses back to the same NMIs, energy units, dates, volumes and qualities.
+ *
+ * Lines are encoded straight into a reusable byte buffer, dates as yyyyMMdd digits computed
+ * from their epoch day and volumes as the digits of their unscaled value and scale, so no
+ * String is created per line. A volume with a negative scale, such as 1.5E+2, is written with
+ * an exponent (15E+1) rather than as plain digits, which would parse back with scale 0.
+ * Columnar and off-heap volumes are written from their primitive columns. The output is
+ * optionally gzip compressed, which the parser detects when reading it. A writer is not thread
+ * safe.
+ */
+public class SimpleNem12Writer {
+
+  private static final int BUFFER_SIZE = 256 * 1024;
+  //the longest 300 line: record type, date, a signed long with a point and zeros, quality
+  private static final int MAX_VOLUME_LINE = 512;
+  //scales written from the unscaled long, others are written from their string
+  private static final int MIN_SCALE = Byte.MIN_VALUE;
+  private static final int MAX_SCALE = Byte.MAX_VALUE;
+  private static final byte COMMA = ',';
+  private static final byte NEW_LINE = '\n';
+  private static final byte[] START = recordType(RecordType.RECORD_TYPE_START);
+  private static final byte[] PARENT = recordType(RecordType.RECORD_TYPE_PARENT);
+  private static final byte[] CHILD = recordType(RecordType.RECORD_TYPE_CHILD);
+  private static final byte[] END = recordType(RecordType.RECORD_TYPE_END);
+  private static final byte[][] ENERGY_UNITS = names(EnergyUnit.values());
+  private static final byte[][] QUALITIES = names(Quality.values());
+
+  private final Compression compression;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+  private final byte[] digits = new byte[20];
+  private final VolumeLineWriter volumeLineWriter = new VolumeLineWriter();
+  private int position;
+  private WritableByteChannel channel;
+  private GZIPOutputStream gzipOutputStream;
+  private String nmi;
+
+  /**
+   * Writer of uncompressed Simple NEM12 files.
+   */
+  public SimpleNem12Writer() {
+    this(Compression.NONE);
+  }
+
+  /**
+   * @param compression NONE or GZIP, a zip archive is not written.
+   */
+  public SimpleNem12Writer(Compression compression) {
+    if (compression == Compression.ZIP) {
+      throw new IllegalArgumentException("Simple NEM12 files are not written as zip archives");
+    }
+    this.compression = compression;
+  }
+
+  /**
+   * Write the MeterRead records to a file, replacing the file if it exists.
+   *
+   * @param meterReads      the MeterRead records, one 200 block each in iteration order
+   * @param simpleNem12File the output file
+   * @throws SimpleNem12ParserException if the file cannot be written or a date cannot be
+   *                                    written as yyyyMMdd.
+   */
+  public void writeSimpleNem12(Collection<MeterRead> meterReads, File simpleNem12File)
+      throws SimpleNem12ParserException {
+    try (FileChannel fileChannel = FileChannel.open(simpleNem12File.toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeSimpleNem12(meterReads, fileChannel);
+    } catch (IOException ex) {
+      throw new SimpleNem12ParserException("Error writing Simple NEM12 file " + simpleNem12File,
+          ex);
+    }
+  }
+
+  /**
+   * Write the MeterRead records to a channel, which is left open.
+   *
+   * @param meterReads the MeterRead records, one 200 block each in iteration order
+   * @param channel    the output channel
+   * @throws SimpleNem12ParserException if the channel cannot be written or a date cannot be
+   *                                    written as yyyyMMdd.
+   */
+  public void writeSimpleNem12(Collection<MeterRead> meterReads, WritableByteChannel channel)
+      throws SimpleNem12ParserException {
+    try {
+      begin(channel);
+      writeLine(START);
+      for (MeterRead meterRead : meterReads) {
+        writeMeterRead(meterRead);
+      }
+      writeLine(END);
+      finish();
+    } catch (IOException ex) {
+      throw new SimpleNem12ParserException("Error writing Simple NEM12 records", ex);
+    } finally {
+      this.channel = null;
+      gzipOutputStream = null;
+      nmi = null;
+    }
+  }
+
+  private void begin(WritableByteChannel outputChannel) throws IOException {
+    channel = outputChannel;
+    position = 0;
+    if (compression == Compression.GZIP) {
+      gzipOutputStream = new GZIPOutputStream(Channels.newOutputStream(outputChannel),
+          BUFFER_SIZE);
+    }
+  }
+
+  private void writeMeterRead(MeterRead meterRead)
+      throws IOException, SimpleNem12ParserException {
+    nmi = meterRead.getNmi();
+    ensureRemaining(PARENT.length + 1);
+    put(PARENT);
+    put(COMMA);
+    writeBytes(nmi.getBytes(StandardCharsets.UTF_8));
+    ensureRemaining(ENERGY_UNITS[0].length + 2);
+    put(COMMA);
+    put(ENERGY_UNITS[meterRead.getEnergyUnit().ordinal()]);
+    put(NEW_LINE);
+
+    if (meterRead.getVolumes() instanceof FixedPointVolumes) {
+      volumeLineWriter.failure = null;
+      ((FixedPointVolumes) meterRead.getVolumes()).forEachVolume(volumeLineWriter);
+      volumeLineWriter.rethrow();
+      return;
+    }
+    for (Map.Entry<LocalDate, MeterVolume> volume : meterRead.getVolumes().entrySet()) {
+      BigDecimal meterVolume = volume.getValue().getVolume();
+      int qualityOrdinal = volume.getValue().getQuality().ordinal();
+      if (meterVolume.unscaledValue().bitLength() < Long.SIZE
+          && meterVolume.scale() >= MIN_SCALE && meterVolume.scale() <= MAX_SCALE) {
+        writeVolumeLine(volume.getKey().toEpochDay(), meterVolume.unscaledValue().longValue(),
+            meterVolume.scale(), qualityOrdinal);
+      } else {
+        writeVolumeLine(volume.getKey().toEpochDay(),
+            toVolumeString(meterVolume).getBytes(StandardCharsets.US_ASCII), qualityOrdinal);
+      }
+    }
+  }
+
+  private void writeVolumeLine(long epochDay, long unscaledVolume, int scale, int quality)
+      throws IOException, SimpleNem12ParserException {
+    ensureRemaining(MAX_VOLUME_LINE);
+    beginVolumeLine(epochDay);
+    putVolume(unscaledVolume, scale);
+    endVolumeLine(quality);
+  }
+
+  private void writeVolumeLine(long epochDay, byte[] volume, int quality)
+      throws IOException, SimpleNem12ParserException {
+    ensureRemaining(MAX_VOLUME_LINE);
+    beginVolumeLine(epochDay);
+    writeBytes(volume);
+    ensureRemaining(MAX_VOLUME_LINE);
+    endVolumeLine(quality);
+  }
+
+  private void beginVolumeLine(long epochDay) throws SimpleNem12ParserException {
+    put(CHILD);
+    put(COMMA);
+    putDate(epochDay);
+    put(COMMA);
+  }
+
+  private void endVolumeLine(int quality) {
+    put(COMMA);
+    put(QUALITIES[quality]);
+    put(NEW_LINE);
+  }
+
+  /**
+   * The volume as plain digits, or with an exponent for a negative scale so it parses back to
+   * the same scale.
+   */
+  private static String toVolumeString(BigDecimal volume) {
+    if (volume.scale() < 0) {
+      return volume.unscaledValue() + "E+" + -(long) volume.scale();
+    }
+    return volume.toPlainString();
+  }
+
+  /**
+   * Put the date as yyyyMMdd, converting the epoch day to the civil date arithmetically.
+   */
+  private void putDate(long epochDay) throws SimpleNem12ParserException {
+    //days since 0000-03-01, grouped in 400 year eras starting after a leap day
+    long days = epochDay + 719468;
+    long era = Math.floorDiv(days, 146097);
+    long dayOfEra = days - era * 146097;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long shiftedMonth = (5 * dayOfYear + 2) / 153;
+    int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+    int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    if (year < 1 || year > 9999) {
+      throw new SimpleNem12ParserException("Date " + LocalDate.ofEpochDay(epochDay)
+          + " of NMI " + nmi + " cannot be written as yyyyMMdd");
+    }
+    int yyyy = (int) year;
+    buffer[position++] = (byte) ('0' + yyyy / 1000);
+    buffer[position++] = (byte) ('0' + yyyy / 100 % 10);
+    buffer[position++] = (byte) ('0' + yyyy / 10 % 10);
+    buffer[position++] = (byte) ('0' + yyyy % 10);
+    buffer[position++] = (byte) ('0' + month / 10);
+    buffer[position++] = (byte) ('0' + month % 10);
+    buffer[position++] = (byte) ('0' + day / 10);
+    buffer[position++] = (byte) ('0' + day % 10);
+  }
+
+  /**
+   * Put the decimal digits of unscaledVolume x 10^-scale, keeping the trailing zeros of a
+   * positive scale and writing a negative scale as an exponent, so the volume parsed back in
+   * BIG_DECIMAL mode has the same scale.
+   */
+  private void putVolume(long unscaledVolume, int scale) {
+    //digits are taken from the negative value, which also holds Long.MIN_VALUE
+    long negative = unscaledVolume < 0 ? unscaledVolume : -unscaledVolume;
+    int digitCount = 0;
+    do {
+      digits[digitCount++] = (byte) ('0' - negative % 10);
+      negative /= 10;
+    } while (negative != 0);
+    if (unscaledVolume < 0) {
+      put((byte) '-');
+    }
+    if (scale == 0) {
+      putDigits(digitCount, digitCount);
+    } else if (scale < 0) {
+      //an exponent keeps the negative scale, which trailing zeros would lose
+      putDigits(digitCount, digitCount);
+      put((byte) 'E');
+      put((byte) '+');
+      putVolume(-scale, 0);
+    } else if (scale >= digitCount) {
+      put((byte) '0');
+      put((byte) '.');
+      for (int i = digitCount; i < scale; i++) {
+        put((byte) '0');
+      }
+      putDigits(digitCount, digitCount);
+    } else {
+      putDigits(digitCount, digitCount - scale);
+      put((byte) '.');
+      putDigits(scale, scale);
+    }
+  }
+
+  /**
+   * Put count digits from the reversed digits, starting at the from-th least significant.
+   */
+  private void putDigits(int from, int count) {
+    for (int i = from - 1, end = from - count; i >= end; i--) {
+      buffer[position++] = digits[i];
+    }
+  }
+
+  private void writeLine(byte[] recordType) throws IOException {
+    ensureRemaining(recordType.length + 1);
+    put(recordType);
+    put(NEW_LINE);
+  }
+
+  private void put(byte value) {
+    buffer[position++] = value;
+  }
+
+  private void put(byte[] bytes) {
+    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+    position += bytes.length;
+  }
+
+  private void writeBytes(byte[] bytes) throws IOException {
+    for (int offset = 0; offset < bytes.length; ) {
+      ensureRemaining(1);
+      int length = Math.min(buffer.length - position, bytes.length - offset);
+      System.arraycopy(bytes, offset, buffer, position, length);
+      position += length;
+      offset += length;
+    }
+  }
+
+  private void ensureRemaining(int bytes) throws IOException {
+    if (buffer.length - position < bytes) {
+      flush();
+    }
+  }
+
+  private void flush() throws IOException {
+    if (gzipOutputStream != null) {
+      gzipOutputStream.write(buffer, 0, position);
+    } else {
+      byteBuffer.clear().limit(position);
+      while (byteBuffer.hasRemaining()) {
+        channel.write(byteBuffer);
+      }
+    }
+    position = 0;
+  }
+
+  private void finish() throws IOException {
+    flush();
+    if (gzipOutputStream != null) {
+      //writes the gzip trailer without closing the channel
+      gzipOutputStream.finish();
+      gzipOutputStream.flush();
+    }
+  }
+
+  private static byte[] recordType(RecordType recordType) {
+    return recordType.recordType.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static byte[][] names(Enum<?>[] values) {
+    byte[][] names = new byte[values.length][];
+    for (int i = 0; i < values.length; i++) {
+      names[i] = values[i].name().getBytes(StandardCharsets.US_ASCII);
+    }
+    return names;
+  }
+
+  /**
+   * Writes the 300 lines of fixed point volumes, holding the first failure until forEachVolume
+   * returns as the consumer cannot throw checked exceptions.
+   */
+  private final class VolumeLineWriter implements FixedPointVolumeConsumer {
+
+    private Exception failure;
+
+    @Override
+    public void accept(long epochDay, long unscaledVolume, int scale, Quality quality) {
+      if (failure == null) {
+        try {
+          writeVolumeLine(epochDay, unscaledVolume, scale, quality.ordinal());
+        } catch (IOException | SimpleNem12ParserException ex) {
+          failure = ex;
+        }
+      }
+    }
+
+    void rethrow() throws IOException, SimpleNem12ParserException {
+      if (failure instanceof IOException) {
+        throw (IOException) failure;
+      }
+      if (failure != null) {
+        throw (SimpleNem12ParserException) failure;
+      }
+    }
+  }
+}
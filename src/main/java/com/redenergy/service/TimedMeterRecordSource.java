@@ -0,0 +1,35 @@
+package com.redenergy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.repository.MeterRecordLine;
+import com.redenergy.repository.MeterRecordSource;
+
+/**
+ * MeterRecordSource timing the reading of each line as the READ stage, switching back to the
+ * PARSE stage once the line is handed out. Only used when the metrics sink is enabled.
+ */
+class TimedMeterRecordSource implements MeterRecordSource {
+
+  private final MeterRecordSource meterRecordSource;
+  private final ParseMetricsRecorder recorder;
+
+  TimedMeterRecordSource(MeterRecordSource meterRecordSource, ParseMetricsRecorder recorder) {
+    this.meterRecordSource = meterRecordSource;
+    this.recorder = recorder;
+  }
+
+  @Override
+  public MeterRecordLine nextRecord() throws SimpleNem12ParserException {
+    recorder.beginStage(ParseStage.READ);
+    try {
+      return meterRecordSource.nextRecord();
+    } finally {
+      recorder.beginStage(ParseStage.PARSE);
+    }
+  }
+
+  @Override
+  public void close() {
+    meterRecordSource.close();
+  }
+}
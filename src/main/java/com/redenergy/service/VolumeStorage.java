@@ -0,0 +1,18 @@
+package com.redenergy.service;
+
+/**
+ * How the volumes of each parsed MeterRead are held.
+ */
+public enum VolumeStorage {
+
+  /**
+   * A TreeMap of LocalDate to MeterVolume.
+   */
+  TREE_MAP,
+
+  /**
+   * Primitive date, volume and quality columns behind a lazy SortedMap view.
+   */
+  COLUMNAR
+
+}
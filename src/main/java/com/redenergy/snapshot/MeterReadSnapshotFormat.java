@@ -0,0 +1,70 @@
+package com.redenergy.snapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of a MeterRead snapshot file, all numbers big endian.
+ *
+ * <pre>
+ * header, HEADER_SIZE bytes
+ *   magic            4 bytes "NEMS"
+ *   version          short
+ *   flags            short, 0
+ *   meterReadCount   int
+ *   nmiCount         int
+ *   volumeCount      long
+ *   bodyLength       long
+ *   checksum         long, CRC32 of the body
+ * body
+ *   nmi dictionary   nmiCount x (varint length, UTF-8 bytes)
+ *   meter reads      meterReadCount x
+ *     nmi index        varint
+ *     energy unit      byte, ordinal
+ *     volume count     varint
+ *     volumes          volume count x
+ *       epoch day        zigzag varint of the first day, varint delta from the previous day after
+ *       scale            zigzag varint
+ *       unscaled volume  zigzag varint
+ *     qualities        QUALITY_BITS bits per volume, packed from the low bit, padded to a byte
+ * </pre>
+ */
+final class MeterReadSnapshotFormat {
+
+  static final int MAGIC = 0x4E454D53;
+  static final short VERSION = 1;
+  static final int HEADER_SIZE = 40;
+  static final int QUALITY_BITS = 1;
+  static final Charset NMI_CHARSET = StandardCharsets.UTF_8;
+
+  private MeterReadSnapshotFormat() {
+  }
+
+  static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Read an unsigned LEB128 varint.
+   */
+  static long readVarLong(ByteBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    while (true) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+      shift += 7;
+      if (shift > 63) {
+        throw new IllegalStateException("Malformed varint");
+      }
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package com.redenergy.snapshot;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.ColumnarMeterVolumes;
+import com.redenergy.model.EnergyUnit;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterReadIndex;
+import com.redenergy.model.Quality;
+import com.redenergy.service.VolumeStorage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static com.redenergy.snapshot.MeterReadSnapshotFormat.HEADER_SIZE;
+import static com.redenergy.snapshot.MeterReadSnapshotFormat.MAGIC;
+import static com.redenergy.snapshot.MeterReadSnapshotFormat.NMI_CHARSET;
+import static com.redenergy.snapshot.MeterReadSnapshotFormat.QUALITY_BITS;
+import static com.redenergy.snapshot.MeterReadSnapshotFormat.VERSION;
+import static com.redenergy.snapshot.MeterReadSnapshotFormat.readVarLong;
+import static com.redenergy.snapshot.MeterReadSnapshotFormat.unZigZag;
+
+/**
+ * Loads the MeterRead records of a snapshot written by <code>MeterReadSnapshotWriter</code>.
+ *
+ * The snapshot is memory mapped, its magic, version and checksum are verified and the volumes
+ * are decoded straight from the mapping into the volumes of each MeterRead, without parsing
+ * dates or decimals. Snapshots are limited to 2GB, the largest single mapping.
+ */
+public class MeterReadSnapshotReader {
+
+  private static final EnergyUnit[] ENERGY_UNITS = EnergyUnit.values();
+  private static final Quality[] QUALITIES = Quality.values();
+  private static final int CHECKSUM_CHUNK = 64 * 1024;
+
+  private final VolumeStorage volumeStorage;
+
+  /**
+   * Reader loading the volumes into <code>ColumnarMeterVolumes</code>.
+   */
+  public MeterReadSnapshotReader() {
+    this(VolumeStorage.COLUMNAR);
+  }
+
+  /**
+   * @param volumeStorage how the volumes of each loaded MeterRead are held.
+   */
+  public MeterReadSnapshotReader(VolumeStorage volumeStorage) {
+    this.volumeStorage = volumeStorage;
+  }
+
+  /**
+   * Load the MeterRead records of a snapshot.
+   *
+   * @param snapshotFile the snapshot file
+   * @return the MeterRead records in the order they were written, indexed by NMI.
+   * @throws SimpleNem12ParserException if the file cannot be read, is not a snapshot, has an
+   *                                    unsupported version or is corrupt.
+   */
+  public MeterReadIndex readSnapshot(File snapshotFile) throws SimpleNem12ParserException {
+    try (FileChannel channel = FileChannel.open(snapshotFile.toPath(),
+        StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE) {
+        throw new SimpleNem12ParserException(snapshotFile + " is not a MeterRead snapshot");
+      }
+      if (size > Integer.MAX_VALUE) {
+        throw new SimpleNem12ParserException(snapshotFile + " is larger than 2GB");
+      }
+      MappedByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      return readSnapshot(snapshotFile, snapshot);
+    } catch (IOException ex) {
+      throw new SimpleNem12ParserException("Error reading snapshot " + snapshotFile, ex);
+    }
+  }
+
+  private MeterReadIndex readSnapshot(File snapshotFile, ByteBuffer snapshot)
+      throws SimpleNem12ParserException {
+    if (snapshot.getInt() != MAGIC) {
+      throw new SimpleNem12ParserException(snapshotFile + " is not a MeterRead snapshot");
+    }
+    short version = snapshot.getShort();
+    if (version != VERSION) {
+      throw new SimpleNem12ParserException(
+          "Unsupported version " + version + " of snapshot " + snapshotFile);
+    }
+    snapshot.getShort();
+    int meterReadCount = snapshot.getInt();
+    int nmiCount = snapshot.getInt();
+    snapshot.getLong();
+    long bodyLength = snapshot.getLong();
+    long expectedChecksum = snapshot.getLong();
+    if (bodyLength != snapshot.remaining() || checksum(snapshot) != expectedChecksum) {
+      throw new SimpleNem12ParserException("Snapshot " + snapshotFile + " is corrupt");
+    }
+
+    try {
+      String[] nmis = new String[nmiCount];
+      byte[] nmiBytes = new byte[32];
+      for (int i = 0; i < nmiCount; i++) {
+        int length = (int) readVarLong(snapshot);
+        if (length > nmiBytes.length) {
+          nmiBytes = new byte[length];
+        }
+        snapshot.get(nmiBytes, 0, length);
+        nmis[i] = new String(nmiBytes, 0, length, NMI_CHARSET);
+      }
+      MeterReadIndex meterReads = new MeterReadIndex();
+      VolumeDecoder volumeDecoder = new VolumeDecoder();
+      for (int i = 0; i < meterReadCount; i++) {
+        String nmi = nmis[(int) readVarLong(snapshot)];
+        EnergyUnit energyUnit = ENERGY_UNITS[snapshot.get()];
+        int volumeCount = (int) readVarLong(snapshot);
+        //every volume takes at least three bytes, so a corrupt count cannot allocate much
+        if (volumeCount < 0 || volumeCount > snapshot.remaining()) {
+          throw new IllegalStateException("Invalid volume count " + volumeCount);
+        }
+        MeterRead meterRead = volumeStorage == VolumeStorage.COLUMNAR
+            ? new MeterRead(nmi, energyUnit, new ColumnarMeterVolumes(volumeCount))
+            : new MeterRead(nmi, energyUnit);
+        volumeDecoder.decode(snapshot, volumeCount, meterRead);
+        meterReads.add(meterRead);
+      }
+      return meterReads;
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalStateException
+        | ArithmeticException ex) {
+      //a scale or date out of the range of columnar volumes is as corrupt as a short body
+      throw new SimpleNem12ParserException("Snapshot " + snapshotFile + " is corrupt", ex);
+    }
+  }
+
+  private static long checksum(ByteBuffer snapshot) {
+    CRC32 checksum = new CRC32();
+    ByteBuffer body = snapshot.duplicate();
+    byte[] chunk = new byte[CHECKSUM_CHUNK];
+    while (body.hasRemaining()) {
+      int length = Math.min(chunk.length, body.remaining());
+      body.get(chunk, 0, length);
+      checksum.update(chunk, 0, length);
+    }
+    return checksum.getValue();
+  }
+
+  /**
+   * Decodes the volumes of one MeterRead, they are held until the packed qualities following
+   * them are read.
+   */
+  private static final class VolumeDecoder {
+
+    private long[] epochDays = new long[512];
+    private long[] unscaledVolumes = new long[512];
+    private int[] scales = new int[512];
+
+    void decode(ByteBuffer snapshot, int volumeCount, MeterRead meterRead) {
+      if (volumeCount > epochDays.length) {
+        epochDays = Arrays.copyOf(epochDays, volumeCount);
+        unscaledVolumes = Arrays.copyOf(unscaledVolumes, volumeCount);
+        scales = Arrays.copyOf(scales, volumeCount);
+      }
+      long epochDay = 0;
+      for (int i = 0; i < volumeCount; i++) {
+        long day = readVarLong(snapshot);
+        epochDay = i == 0 ? unZigZag(day) : epochDay + day;
+        epochDays[i] = epochDay;
+        scales[i] = (int) unZigZag(readVarLong(snapshot));
+        unscaledVolumes[i] = unZigZag(readVarLong(snapshot));
+      }
+      int qualityMask = (1 << QUALITY_BITS) - 1;
+      int bits = 0;
+      int bitCount = 0;
+      for (int i = 0; i < volumeCount; i++) {
+        if (bitCount < QUALITY_BITS) {
+          bits |= (snapshot.get() & 0xFF) << bitCount;
+          bitCount += Byte.SIZE;
+        }
+        meterRead.appendVolume(epochDays[i], unscaledVolumes[i], scales[i],
+            QUALITIES[bits & qualityMask]);
+        bits >>>= QUALITY_BITS;
+        bitCount -= QUALITY_BITS;
+      }
+    }
+  }
+}
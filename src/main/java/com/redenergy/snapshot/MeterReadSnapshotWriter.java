@@ -0,0 +1,216 @@
+package com.redenergy.snapshot;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.FixedPointVolumes;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterVolume;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static com.redenergy.snapshot.MeterReadSnapshotFormat.HEADER_SIZE;
+import static com.redenergy.snapshot.MeterReadSnapshotFormat.MAGIC;
+import static com.redenergy.snapshot.MeterReadSnapshotFormat.NMI_CHARSET;
+import static com.redenergy.snapshot.MeterReadSnapshotFormat.QUALITY_BITS;
+import static com.redenergy.snapshot.MeterReadSnapshotFormat.VERSION;
+import static com.redenergy.snapshot.MeterReadSnapshotFormat.zigZag;
+
+/**
+ * Writes parsed MeterRead records to a compact binary snapshot, to be loaded back by
+ * <code>MeterReadSnapshotReader</code> without parsing the Simple NEM12 file again.
+ *
+ * NMIs are written once to a dictionary and referenced by index, dates are delta encoded from
+ * the previous date of the MeterRead, volumes are written as fixed point varints and qualities
+ * are packed into bits. Columnar and off-heap volumes are written straight from their primitive
+ * columns.
+ * The body is checksummed as it is written and the header is written last.
+ */
+public class MeterReadSnapshotWriter {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private final CRC32 checksum = new CRC32();
+  private FileChannel channel;
+  private long bodyLength;
+
+  //volumes of the MeterRead being written, kept to pack the qualities after the volumes
+  private long[] epochDays = new long[512];
+  private long[] unscaledVolumes = new long[512];
+  private int[] scales = new int[512];
+  private byte[] qualities = new byte[512];
+  private int volumeCount;
+
+  /**
+   * Write the MeterRead records to a snapshot file, replacing the file if it exists.
+   *
+   * @param meterReads   the parsed MeterRead records
+   * @param snapshotFile the snapshot file
+   * @throws SimpleNem12ParserException if the file cannot be written or a volume does not fit
+   *                                    a fixed point long.
+   */
+  public void writeSnapshot(Collection<MeterRead> meterReads, File snapshotFile)
+      throws SimpleNem12ParserException {
+    try (FileChannel fileChannel = FileChannel.open(snapshotFile.toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      begin(fileChannel);
+      Map<String, Integer> nmiDictionary = new LinkedHashMap<>();
+      for (MeterRead meterRead : meterReads) {
+        nmiDictionary.putIfAbsent(meterRead.getNmi(), nmiDictionary.size());
+      }
+      for (String nmi : nmiDictionary.keySet()) {
+        byte[] nmiBytes = nmi.getBytes(NMI_CHARSET);
+        writeVarLong(nmiBytes.length);
+        writeBytes(nmiBytes);
+      }
+      long totalVolumeCount = 0;
+      for (MeterRead meterRead : meterReads) {
+        writeVarLong(nmiDictionary.get(meterRead.getNmi()));
+        writeByte(meterRead.getEnergyUnit().ordinal());
+        collectVolumes(meterRead);
+        writeVolumes();
+        totalVolumeCount += volumeCount;
+      }
+      flushBody();
+      writeHeader(meterReads.size(), nmiDictionary.size(), totalVolumeCount);
+    } catch (IOException ex) {
+      throw new SimpleNem12ParserException("Error writing snapshot " + snapshotFile, ex);
+    } finally {
+      channel = null;
+    }
+  }
+
+  private void begin(FileChannel fileChannel) throws IOException {
+    channel = fileChannel;
+    channel.position(HEADER_SIZE);
+    buffer.clear();
+    checksum.reset();
+    bodyLength = 0;
+  }
+
+  private void collectVolumes(MeterRead meterRead) throws SimpleNem12ParserException {
+    volumeCount = 0;
+    if (meterRead.getVolumes() instanceof FixedPointVolumes) {
+      ((FixedPointVolumes) meterRead.getVolumes()).forEachVolume(
+          (epochDay, unscaledVolume, scale, quality) ->
+              collectVolume(epochDay, unscaledVolume, scale, quality.ordinal()));
+      return;
+    }
+    for (Map.Entry<LocalDate, MeterVolume> volume : meterRead.getVolumes().entrySet()) {
+      BigDecimal meterVolume = volume.getValue().getVolume();
+      if (meterVolume.unscaledValue().bitLength() >= Long.SIZE) {
+        throw new SimpleNem12ParserException("Volume " + meterVolume + " of NMI "
+            + meterRead.getNmi() + " does not fit a snapshot");
+      }
+      collectVolume(volume.getKey().toEpochDay(), meterVolume.unscaledValue().longValue(),
+          meterVolume.scale(), volume.getValue().getQuality().ordinal());
+    }
+  }
+
+  private void collectVolume(long epochDay, long unscaledVolume, int scale, int quality) {
+    if (volumeCount == epochDays.length) {
+      int capacity = volumeCount * 2;
+      epochDays = Arrays.copyOf(epochDays, capacity);
+      unscaledVolumes = Arrays.copyOf(unscaledVolumes, capacity);
+      scales = Arrays.copyOf(scales, capacity);
+      qualities = Arrays.copyOf(qualities, capacity);
+    }
+    epochDays[volumeCount] = epochDay;
+    unscaledVolumes[volumeCount] = unscaledVolume;
+    scales[volumeCount] = scale;
+    qualities[volumeCount] = (byte) quality;
+    volumeCount++;
+  }
+
+  private void writeVolumes() throws IOException {
+    writeVarLong(volumeCount);
+    for (int i = 0; i < volumeCount; i++) {
+      //volumes are sorted by date, so after the first the deltas are small and positive
+      writeVarLong(i == 0 ? zigZag(epochDays[0]) : epochDays[i] - epochDays[i - 1]);
+      writeVarLong(zigZag(scales[i]));
+      writeVarLong(zigZag(unscaledVolumes[i]));
+    }
+    int bits = 0;
+    int bitCount = 0;
+    for (int i = 0; i < volumeCount; i++) {
+      bits |= qualities[i] << bitCount;
+      bitCount += QUALITY_BITS;
+      if (bitCount >= Byte.SIZE) {
+        writeByte(bits);
+        bits >>>= Byte.SIZE;
+        bitCount -= Byte.SIZE;
+      }
+    }
+    if (bitCount > 0) {
+      writeByte(bits);
+    }
+  }
+
+  private void writeVarLong(long value) throws IOException {
+    ensureRemaining(10);
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private void writeByte(int value) throws IOException {
+    ensureRemaining(1);
+    buffer.put((byte) value);
+  }
+
+  private void writeBytes(byte[] bytes) throws IOException {
+    for (int offset = 0; offset < bytes.length; ) {
+      ensureRemaining(1);
+      int length = Math.min(buffer.remaining(), bytes.length - offset);
+      buffer.put(bytes, offset, length);
+      offset += length;
+    }
+  }
+
+  private void ensureRemaining(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flushBody();
+    }
+  }
+
+  private void flushBody() throws IOException {
+    checksum.update(buffer.array(), 0, buffer.position());
+    bodyLength += buffer.position();
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private void writeHeader(int meterReadCount, int nmiCount, long totalVolumeCount)
+      throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC)
+        .putShort(VERSION)
+        .putShort((short) 0)
+        .putInt(meterReadCount)
+        .putInt(nmiCount)
+        .putLong(totalVolumeCount)
+        .putLong(bodyLength)
+        .putLong(checksum.getValue());
+    header.flip();
+    long position = 0;
+    while (header.hasRemaining()) {
+      position += channel.write(header, position);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.redenergy.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read only mapping of a file of any size as 1GB segments, addressed by file offset.
+ *
+ * A single mapping is limited to 2GB. Values are expected not to straddle segments, which
+ * holds for longs, ints and shorts at offsets aligned to their size.
+ */
+final class MappedSegments {
+
+  private static final int SEGMENT_BITS = 30;
+  private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+  private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+  private final MappedByteBuffer[] segments;
+  private final long size;
+
+  private MappedSegments(MappedByteBuffer[] segments, long size) {
+    this.segments = segments;
+    this.size = size;
+  }
+
+  static MappedSegments map(FileChannel channel) throws IOException {
+    long size = channel.size();
+    int segmentCount = (int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS);
+    MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+    for (int segment = 0; segment < segments.length; segment++) {
+      long position = segment * SEGMENT_SIZE;
+      segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+          Math.min(SEGMENT_SIZE, size - position));
+    }
+    return new MappedSegments(segments, size);
+  }
+
+  long size() {
+    return size;
+  }
+
+  long getLong(long offset) {
+    return segments[(int) (offset >>> SEGMENT_BITS)].getLong((int) (offset & SEGMENT_MASK));
+  }
+
+  int getInt(long offset) {
+    return segments[(int) (offset >>> SEGMENT_BITS)].getInt((int) (offset & SEGMENT_MASK));
+  }
+
+  short getShort(long offset) {
+    return segments[(int) (offset >>> SEGMENT_BITS)].getShort((int) (offset & SEGMENT_MASK));
+  }
+
+  byte get(long offset) {
+    return segments[(int) (offset >>> SEGMENT_BITS)].get((int) (offset & SEGMENT_MASK));
+  }
+}
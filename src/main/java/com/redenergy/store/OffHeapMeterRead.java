@@ -0,0 +1,73 @@
+package com.redenergy.store;
+
+import com.redenergy.model.EnergyUnit;
+import com.redenergy.model.IntervalReads;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterReadRollup;
+import com.redenergy.model.MeterVolume;
+import com.redenergy.model.Quality;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Read only flyweight <code>MeterRead</code> over one entry of a mapped store, its NMI is
+ * decoded when first read and its volumes are read from the mapping on demand.
+ */
+final class OffHeapMeterRead extends MeterRead {
+
+  private final OffHeapMeterReadStore store;
+  private final int meterReadNumber;
+  private String nmi;
+
+  OffHeapMeterRead(OffHeapMeterReadStore store, int meterReadNumber, EnergyUnit energyUnit,
+                   OffHeapMeterVolumes volumes) {
+    super(null, energyUnit, volumes);
+    this.store = store;
+    this.meterReadNumber = meterReadNumber;
+  }
+
+  @Override
+  public String getNmi() {
+    if (nmi == null) {
+      nmi = store.nmi(meterReadNumber);
+    }
+    return nmi;
+  }
+
+  @Override
+  public void setNmi(String nmi) {
+    throw new UnsupportedOperationException("MeterRead stores are read only");
+  }
+
+  @Override
+  public void setEnergyUnit(EnergyUnit energyUnit) {
+    throw new UnsupportedOperationException("MeterRead stores are read only");
+  }
+
+  @Override
+  public void setVolumes(SortedMap<LocalDate, MeterVolume> volumes) {
+    throw new UnsupportedOperationException("MeterRead stores are read only");
+  }
+
+  @Override
+  public void setRollup(MeterReadRollup rollup) {
+    throw new UnsupportedOperationException("MeterRead stores are read only");
+  }
+
+  @Override
+  public void setIntervalReads(Map<String, IntervalReads> intervalReads) {
+    throw new UnsupportedOperationException("MeterRead stores are read only");
+  }
+
+  @Override
+  public void appendVolume(LocalDate localDate, MeterVolume meterVolume) {
+    throw new UnsupportedOperationException("MeterRead stores are read only");
+  }
+
+  @Override
+  public void appendVolume(long epochDay, long unscaledVolume, int scale, Quality quality) {
+    throw new UnsupportedOperationException("MeterRead stores are read only");
+  }
+}
@@ -0,0 +1,210 @@
+package com.redenergy.store;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.EnergyUnit;
+import com.redenergy.model.MeterRead;
+import com.redenergy.service.MeterReadCursor;
+import com.redenergy.service.SimpleNem12Parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+import static com.redenergy.store.OffHeapStoreFormat.HEADER_SIZE;
+import static com.redenergy.store.OffHeapStoreFormat.MAGIC;
+import static com.redenergy.store.OffHeapStoreFormat.NMI_CHARSET;
+import static com.redenergy.store.OffHeapStoreFormat.TABLE_ENTRY_SIZE;
+import static com.redenergy.store.OffHeapStoreFormat.VERSION;
+import static com.redenergy.store.OffHeapStoreFormat.firstSlot;
+
+/**
+ * Read only list of the MeterRead records of a store file written by
+ * <code>OffHeapMeterReadStoreWriter</code>, memory mapped so that neither NMIs nor volumes are
+ * held on the heap.
+ *
+ * Each MeterRead handed out is a flyweight view over the mapping, its NMI is decoded when
+ * first read and its volumes are read on demand, so heap use does not grow with the number of
+ * volumes stored. The file can be mapped by several processes at once. Views must not be read
+ * once the store is closed.
+ */
+public class OffHeapMeterReadStore extends AbstractList<MeterRead>
+    implements RandomAccess, AutoCloseable {
+
+  private static final EnergyUnit[] ENERGY_UNITS = EnergyUnit.values();
+
+  private final File storeFile;
+  private final boolean temporary;
+  private final int meterReadCount;
+  private final int indexCapacity;
+  private final long volumeCount;
+  private final long tableOffset;
+  private final long indexOffset;
+  private volatile MappedSegments segments;
+
+  private OffHeapMeterReadStore(File storeFile, boolean temporary, MappedSegments segments)
+      throws SimpleNem12ParserException {
+    this.storeFile = storeFile;
+    this.temporary = temporary;
+    this.segments = segments;
+    if (segments.size() < HEADER_SIZE || segments.getInt(0) != MAGIC) {
+      throw new SimpleNem12ParserException(storeFile + " is not a MeterRead store");
+    }
+    short version = segments.getShort(4);
+    if (version != VERSION) {
+      throw new SimpleNem12ParserException(
+          "Unsupported version " + version + " of MeterRead store " + storeFile);
+    }
+    meterReadCount = segments.getInt(8);
+    indexCapacity = segments.getInt(12);
+    volumeCount = segments.getLong(16);
+    tableOffset = segments.getLong(24);
+    indexOffset = segments.getLong(32);
+    if (meterReadCount < 0 || Integer.bitCount(indexCapacity) != 1
+        || tableOffset + (long) meterReadCount * TABLE_ENTRY_SIZE > indexOffset
+        || indexOffset + (long) indexCapacity * Integer.BYTES != segments.size()) {
+      throw new SimpleNem12ParserException("MeterRead store " + storeFile + " is corrupt");
+    }
+  }
+
+  /**
+   * Map a store file.
+   *
+   * @param storeFile the store file
+   * @return the store, to be closed by the caller.
+   * @throws SimpleNem12ParserException if the file cannot be read, is not a store or has an
+   *                                    unsupported version.
+   */
+  public static OffHeapMeterReadStore open(File storeFile) throws SimpleNem12ParserException {
+    return open(storeFile, false);
+  }
+
+  static OffHeapMeterReadStore open(File storeFile, boolean temporary)
+      throws SimpleNem12ParserException {
+    try (FileChannel channel = FileChannel.open(storeFile.toPath(), StandardOpenOption.READ)) {
+      //the mapping stays valid once the channel is closed
+      return new OffHeapMeterReadStore(storeFile, temporary, MappedSegments.map(channel));
+    } catch (IOException ex) {
+      throw new SimpleNem12ParserException("Error reading MeterRead store " + storeFile, ex);
+    }
+  }
+
+  /**
+   * Stream the MeterRead records of a Simple NEM12 file into a store file, without holding
+   * them on the heap. The 200 blocks of a NMI read more than once are merged into one
+   * MeterRead, as <code>MeterReadIndex</code> merges them.
+   *
+   * @param simpleNem12Parser the parser
+   * @param simpleNem12File   file in Simple NEM12 format
+   * @param storeFile         the store file, replaced if it exists
+   * @return the store, to be closed by the caller.
+   * @throws SimpleNem12ParserException if the Simple NEM12 file is invalid or the store cannot
+   *                                    be written.
+   */
+  public static OffHeapMeterReadStore load(SimpleNem12Parser simpleNem12Parser,
+                                           File simpleNem12File, File storeFile)
+      throws SimpleNem12ParserException {
+    try (OffHeapMeterReadStoreWriter writer = OffHeapMeterReadStoreWriter.create(storeFile);
+         MeterReadCursor cursor = simpleNem12Parser.openSimpleNem12(simpleNem12File)) {
+      for (MeterRead meterRead = cursor.next(); meterRead != null; meterRead = cursor.next()) {
+        writer.add(meterRead);
+      }
+      return writer.finish();
+    }
+  }
+
+  /**
+   * @return a flyweight view of the MeterRead, read from the mapping on demand.
+   */
+  @Override
+  public MeterRead get(int index) {
+    if (index < 0 || index >= meterReadCount) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + meterReadCount);
+    }
+    MappedSegments mapping = mapping();
+    long entry = tableOffset + (long) index * TABLE_ENTRY_SIZE;
+    OffHeapMeterVolumes volumes = new OffHeapMeterVolumes(mapping, mapping.getLong(entry),
+        mapping.getInt(entry + 16));
+    return new OffHeapMeterRead(this, index, ENERGY_UNITS[mapping.get(entry + 22)], volumes);
+  }
+
+  /**
+   * Get the MeterRead of a NMI.
+   *
+   * @param nmi the nmi
+   * @return the MeterRead of the NMI, or null if the NMI was not stored.
+   */
+  public MeterRead get(String nmi) {
+    int index = indexOf(nmi);
+    return index < 0 ? null : get(index);
+  }
+
+  public boolean containsNmi(String nmi) {
+    return indexOf(nmi) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return meterReadCount;
+  }
+
+  /**
+   * @return the number of volumes of all the MeterRead records.
+   */
+  public long getVolumeCount() {
+    return volumeCount;
+  }
+
+  public File getStoreFile() {
+    return storeFile;
+  }
+
+  /**
+   * Release the mapping, deleting the file of a temporary store. The mapping itself is
+   * released by the garbage collector, a MappedByteBuffer has no supported way to be unmapped
+   * explicitly.
+   */
+  @Override
+  public void close() {
+    if (segments != null) {
+      segments = null;
+      if (temporary) {
+        storeFile.delete();
+      }
+    }
+  }
+
+  String nmi(int index) {
+    MappedSegments mapping = mapping();
+    long entry = tableOffset + (long) index * TABLE_ENTRY_SIZE;
+    long nmiOffset = mapping.getLong(entry + 8);
+    byte[] nmiBytes = new byte[mapping.getShort(entry + 20)];
+    for (int i = 0; i < nmiBytes.length; i++) {
+      nmiBytes[i] = mapping.get(nmiOffset + i);
+    }
+    return new String(nmiBytes, NMI_CHARSET);
+  }
+
+  private int indexOf(String nmi) {
+    MappedSegments mapping = mapping();
+    for (int slot = firstSlot(nmi, indexCapacity); ; slot = (slot + 1) & (indexCapacity - 1)) {
+      int meterReadNumber = mapping.getInt(indexOffset + (long) slot * Integer.BYTES);
+      if (meterReadNumber == 0) {
+        return -1;
+      }
+      if (nmi(meterReadNumber - 1).equals(nmi)) {
+        return meterReadNumber - 1;
+      }
+    }
+  }
+
+  private MappedSegments mapping() {
+    MappedSegments mapping = segments;
+    if (mapping == null) {
+      throw new IllegalStateException("MeterRead store " + storeFile + " is closed");
+    }
+    return mapping;
+  }
+}
@@ -0,0 +1,480 @@
+package com.redenergy.store;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.FixedPointVolumes;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterVolume;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.redenergy.store.OffHeapStoreFormat.HEADER_SIZE;
+import static com.redenergy.store.OffHeapStoreFormat.MAGIC;
+import static com.redenergy.store.OffHeapStoreFormat.NMI_CHARSET;
+import static com.redenergy.store.OffHeapStoreFormat.VERSION;
+import static com.redenergy.store.OffHeapStoreFormat.align;
+import static com.redenergy.store.OffHeapStoreFormat.epochDayColumn;
+import static com.redenergy.store.OffHeapStoreFormat.firstSlot;
+import static com.redenergy.store.OffHeapStoreFormat.qualityColumn;
+import static com.redenergy.store.OffHeapStoreFormat.scaleColumn;
+
+/**
+ * Writes MeterRead records one at a time to an off-heap store file, to be read back through
+ * <code>OffHeapMeterReadStore</code>.
+ *
+ * The NMI and volumes of each MeterRead are written as soon as it is added, only a few
+ * primitives per MeterRead are held until the table and NMI index are written by finish,
+ * so a parse can be streamed into the store without its MeterRead records piling up on the
+ * heap. A NMI added more than once is merged by finish, as <code>MeterReadIndex</code> merges
+ * it: the store holds one MeterRead per NMI, at the position and with the energy unit of the
+ * first added, and a date read more than once keeps the volume added last. Only the volumes
+ * of the NMI being merged are read back onto the heap.
+ */
+public class OffHeapMeterReadStoreWriter implements AutoCloseable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int INITIAL_CAPACITY = 1024;
+  //keeps the index, twice as many slots as MeterReads, within an int
+  private static final int MAX_METER_READS = 1 << 29;
+
+  private final File storeFile;
+  private final boolean temporary;
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private long bufferStart = HEADER_SIZE;
+  private boolean finished;
+
+  //per MeterRead, written to the table by finish
+  private long[] volumeOffsets = new long[INITIAL_CAPACITY];
+  private long[] nmiOffsets = new long[INITIAL_CAPACITY];
+  private int[] volumeCounts = new int[INITIAL_CAPACITY];
+  private short[] nmiLengths = new short[INITIAL_CAPACITY];
+  private byte[] energyUnits = new byte[INITIAL_CAPACITY];
+  private int[] nmiHashes = new int[INITIAL_CAPACITY];
+  private int meterReadCount;
+  private long totalVolumeCount;
+
+  //per MeterRead, the next MeterRead of the same NMI plus one, built by finish
+  private int[] nextDuplicates;
+  private int[] lastDuplicates;
+
+  //volumes of the MeterRead being added, written column by column
+  private long[] unscaledVolumes = new long[512];
+  private int[] epochDays = new int[512];
+  private byte[] scales = new byte[512];
+  private byte[] qualities = new byte[512];
+  private int volumeCount;
+
+  private OffHeapMeterReadStoreWriter(File storeFile, boolean temporary, FileChannel channel) {
+    this.storeFile = storeFile;
+    this.temporary = temporary;
+    this.channel = channel;
+  }
+
+  /**
+   * Start a store file, replacing the file if it exists.
+   *
+   * @param storeFile the store file
+   * @return the writer, to be finished or closed by the caller.
+   * @throws SimpleNem12ParserException if the file cannot be created.
+   */
+  public static OffHeapMeterReadStoreWriter create(File storeFile)
+      throws SimpleNem12ParserException {
+    return create(storeFile, false);
+  }
+
+  /**
+   * Start a scratch store in a temporary file, deleted when the store is closed.
+   *
+   * @return the writer, to be finished or closed by the caller.
+   * @throws SimpleNem12ParserException if the file cannot be created.
+   */
+  public static OffHeapMeterReadStoreWriter createTemporary() throws SimpleNem12ParserException {
+    try {
+      File storeFile = File.createTempFile("meter-reads", ".store");
+      storeFile.deleteOnExit();
+      return create(storeFile, true);
+    } catch (IOException ex) {
+      throw new SimpleNem12ParserException("Error creating a scratch MeterRead store", ex);
+    }
+  }
+
+  private static OffHeapMeterReadStoreWriter create(File storeFile, boolean temporary)
+      throws SimpleNem12ParserException {
+    try {
+      FileChannel channel = FileChannel.open(storeFile.toPath(), StandardOpenOption.CREATE,
+          StandardOpenOption.READ, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING);
+      return new OffHeapMeterReadStoreWriter(storeFile, temporary, channel);
+    } catch (IOException ex) {
+      throw new SimpleNem12ParserException("Error creating MeterRead store " + storeFile, ex);
+    }
+  }
+
+  /**
+   * Write a MeterRead to the store.
+   *
+   * @param meterRead the MeterRead
+   * @throws SimpleNem12ParserException if the store cannot be written or a volume does not fit
+   *                                    a fixed point long.
+   */
+  public void add(MeterRead meterRead) throws SimpleNem12ParserException {
+    if (finished) {
+      throw new IllegalStateException("The store is finished");
+    }
+    collectVolumes(meterRead);
+    byte[] nmiBytes = meterRead.getNmi().getBytes(NMI_CHARSET);
+    if (nmiBytes.length > Short.MAX_VALUE) {
+      throw new SimpleNem12ParserException("NMI " + meterRead.getNmi() + " is too long");
+    }
+    if (meterReadCount == MAX_METER_READS) {
+      throw new SimpleNem12ParserException("MeterRead store " + storeFile + " is full");
+    }
+    try {
+      ensureMeterReadCapacity(meterReadCount + 1);
+      nmiOffsets[meterReadCount] = position();
+      nmiLengths[meterReadCount] = (short) nmiBytes.length;
+      nmiHashes[meterReadCount] = meterRead.getNmi().hashCode();
+      energyUnits[meterReadCount] = (byte) meterRead.getEnergyUnit().ordinal();
+      writeBytes(nmiBytes, nmiBytes.length);
+      pad();
+      volumeOffsets[meterReadCount] = writeVolumes();
+      volumeCounts[meterReadCount] = volumeCount;
+    } catch (IOException ex) {
+      throw new SimpleNem12ParserException("Error writing MeterRead store " + storeFile, ex);
+    }
+    meterReadCount++;
+    totalVolumeCount += volumeCount;
+  }
+
+  /**
+   * Merge the MeterRead records of NMIs added more than once, then write the table, NMI index
+   * and header and open the store for reading.
+   *
+   * @return the store, to be closed by the caller.
+   * @throws SimpleNem12ParserException if the store cannot be written.
+   */
+  public OffHeapMeterReadStore finish() throws SimpleNem12ParserException {
+    if (finished) {
+      throw new IllegalStateException("The store is finished");
+    }
+    try {
+      int[] index = buildIndex();
+      mergeDuplicates(index);
+      long tableOffset = position();
+      for (int i = 0; i < meterReadCount; i++) {
+        ensureRemaining(OffHeapStoreFormat.TABLE_ENTRY_SIZE);
+        buffer.putLong(volumeOffsets[i])
+            .putLong(nmiOffsets[i])
+            .putInt(volumeCounts[i])
+            .putShort(nmiLengths[i])
+            .put(energyUnits[i])
+            .put((byte) 0);
+      }
+      long indexOffset = position();
+      for (int slot : index) {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(slot);
+      }
+      flush();
+      writeHeader(tableOffset, indexOffset, index.length);
+      channel.close();
+      finished = true;
+    } catch (IOException ex) {
+      close();
+      throw new SimpleNem12ParserException("Error writing MeterRead store " + storeFile, ex);
+    }
+    return OffHeapMeterReadStore.open(storeFile, temporary);
+  }
+
+  /**
+   * Abandon a store that was not finished, deleting its file.
+   */
+  @Override
+  public void close() {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    try {
+      channel.close();
+    } catch (IOException ex) {
+      //the file is deleted either way
+    }
+    storeFile.delete();
+  }
+
+  private void collectVolumes(MeterRead meterRead) throws SimpleNem12ParserException {
+    volumeCount = 0;
+    if (meterRead.getVolumes() instanceof FixedPointVolumes) {
+      ((FixedPointVolumes) meterRead.getVolumes()).forEachVolume(
+          (epochDay, unscaledVolume, scale, quality) ->
+              collectVolume(epochDay, unscaledVolume, scale, quality.ordinal()));
+      return;
+    }
+    for (Map.Entry<LocalDate, MeterVolume> volume : meterRead.getVolumes().entrySet()) {
+      BigDecimal meterVolume = volume.getValue().getVolume();
+      if (meterVolume.unscaledValue().bitLength() >= Long.SIZE
+          || meterVolume.scale() < Byte.MIN_VALUE || meterVolume.scale() > Byte.MAX_VALUE) {
+        throw new SimpleNem12ParserException("Volume " + meterVolume + " of NMI "
+            + meterRead.getNmi() + " does not fit a MeterRead store");
+      }
+      collectVolume(volume.getKey().toEpochDay(), meterVolume.unscaledValue().longValue(),
+          meterVolume.scale(), volume.getValue().getQuality().ordinal());
+    }
+  }
+
+  private void collectVolume(long epochDay, long unscaledVolume, int scale, int quality) {
+    if (volumeCount == unscaledVolumes.length) {
+      int capacity = volumeCount * 2;
+      unscaledVolumes = Arrays.copyOf(unscaledVolumes, capacity);
+      epochDays = Arrays.copyOf(epochDays, capacity);
+      scales = Arrays.copyOf(scales, capacity);
+      qualities = Arrays.copyOf(qualities, capacity);
+    }
+    unscaledVolumes[volumeCount] = unscaledVolume;
+    epochDays[volumeCount] = Math.toIntExact(epochDay);
+    scales[volumeCount] = (byte) scale;
+    qualities[volumeCount] = (byte) quality;
+    volumeCount++;
+  }
+
+  private long writeVolumes() throws IOException {
+    long block = position();
+    for (int i = 0; i < volumeCount; i++) {
+      ensureRemaining(Long.BYTES);
+      buffer.putLong(unscaledVolumes[i]);
+    }
+    for (int i = 0; i < volumeCount; i++) {
+      ensureRemaining(Integer.BYTES);
+      buffer.putInt(epochDays[i]);
+    }
+    writeBytes(scales, volumeCount);
+    writeBytes(qualities, volumeCount);
+    pad();
+    return block;
+  }
+
+  /**
+   * Build the open addressing index from NMI to the number plus one of the first MeterRead of
+   * the NMI, with at least twice as many slots as MeterReads, chaining the MeterReads of a NMI
+   * added again to its first. Only the NMIs of colliding hashes are read back.
+   */
+  private int[] buildIndex() throws IOException {
+    int capacity = Integer.highestOneBit(Math.max(2, meterReadCount * 2 - 1)) << 1;
+    int[] index = new int[capacity];
+    flush();
+    for (int i = 0; i < meterReadCount; i++) {
+      String nmi = readNmi(i);
+      int slot = firstSlot(nmi, capacity);
+      boolean duplicate = false;
+      while (index[slot] != 0) {
+        int other = index[slot] - 1;
+        if (nmiHashes[other] == nmiHashes[i] && readNmi(other).equals(nmi)) {
+          duplicate = true;
+          break;
+        }
+        slot = (slot + 1) & (capacity - 1);
+      }
+      if (duplicate) {
+        chainDuplicate(index[slot] - 1, i);
+      } else {
+        index[slot] = i + 1;
+      }
+    }
+    return index;
+  }
+
+  private void chainDuplicate(int first, int duplicate) {
+    if (nextDuplicates == null) {
+      nextDuplicates = new int[meterReadCount];
+      lastDuplicates = new int[meterReadCount];
+    }
+    int last = lastDuplicates[first] == 0 ? first : lastDuplicates[first] - 1;
+    nextDuplicates[last] = duplicate + 1;
+    lastDuplicates[first] = duplicate + 1;
+  }
+
+  /**
+   * Write the merged volumes of each NMI added more than once as a new block of its first
+   * MeterRead, drop the MeterReads merged away from the table and renumber the index.
+   */
+  private void mergeDuplicates(int[] index) throws IOException {
+    if (nextDuplicates == null) {
+      return;
+    }
+    //the new number of each MeterRead kept, -1 for those merged away
+    int[] numbers = new int[meterReadCount];
+    int kept = 0;
+    for (int i = 0; i < meterReadCount; i++) {
+      if (numbers[i] < 0) {
+        continue;
+      }
+      if (lastDuplicates[i] != 0) {
+        volumeCount = 0;
+        for (int next = i; next >= 0; next = nextDuplicates[next] - 1) {
+          readVolumes(next);
+          totalVolumeCount -= volumeCounts[next];
+          if (next != i) {
+            numbers[next] = -1;
+          }
+        }
+        keepLastVolumes();
+        volumeOffsets[i] = writeVolumes();
+        volumeCounts[i] = volumeCount;
+        totalVolumeCount += volumeCount;
+      }
+      numbers[i] = kept;
+      volumeOffsets[kept] = volumeOffsets[i];
+      nmiOffsets[kept] = nmiOffsets[i];
+      volumeCounts[kept] = volumeCounts[i];
+      nmiLengths[kept] = nmiLengths[i];
+      energyUnits[kept] = energyUnits[i];
+      nmiHashes[kept] = nmiHashes[i];
+      kept++;
+    }
+    meterReadCount = kept;
+    for (int slot = 0; slot < index.length; slot++) {
+      if (index[slot] != 0) {
+        index[slot] = numbers[index[slot] - 1] + 1;
+      }
+    }
+  }
+
+  /**
+   * Read the volume block of a MeterRead back from the file, after the volumes collected.
+   */
+  private void readVolumes(int meterRead) throws IOException {
+    int count = volumeCounts[meterRead];
+    ByteBuffer block = ByteBuffer.allocate(
+        Math.toIntExact(qualityColumn(0, count) + count));
+    long position = volumeOffsets[meterRead];
+    while (block.hasRemaining()) {
+      position += channel.read(block, position);
+    }
+    int epochDayColumn = (int) epochDayColumn(0, count);
+    int scaleColumn = (int) scaleColumn(0, count);
+    int qualityColumn = (int) qualityColumn(0, count);
+    for (int i = 0; i < count; i++) {
+      collectVolume(block.getInt(epochDayColumn + i * Integer.BYTES),
+          block.getLong(i * Long.BYTES), block.get(scaleColumn + i),
+          block.get(qualityColumn + i));
+    }
+  }
+
+  /**
+   * Sort the collected volumes by date, keeping the volume collected last of a date collected
+   * more than once.
+   */
+  private void keepLastVolumes() {
+    //the epoch day in the high half and the collection order in the low half
+    long[] order = new long[volumeCount];
+    for (int i = 0; i < volumeCount; i++) {
+      order[i] = (long) epochDays[i] << 32 | i;
+    }
+    Arrays.sort(order);
+    long[] keptUnscaledVolumes = new long[unscaledVolumes.length];
+    int[] keptEpochDays = new int[epochDays.length];
+    byte[] keptScales = new byte[scales.length];
+    byte[] keptQualities = new byte[qualities.length];
+    int kept = 0;
+    for (int i = 0; i < order.length; i++) {
+      if (i + 1 < order.length && order[i + 1] >> 32 == order[i] >> 32) {
+        continue;
+      }
+      int volume = (int) order[i];
+      keptUnscaledVolumes[kept] = unscaledVolumes[volume];
+      keptEpochDays[kept] = epochDays[volume];
+      keptScales[kept] = scales[volume];
+      keptQualities[kept] = qualities[volume];
+      kept++;
+    }
+    unscaledVolumes = keptUnscaledVolumes;
+    epochDays = keptEpochDays;
+    scales = keptScales;
+    qualities = keptQualities;
+    volumeCount = kept;
+  }
+
+  private String readNmi(int meterRead) throws IOException {
+    ByteBuffer nmiBytes = ByteBuffer.allocate(nmiLengths[meterRead]);
+    long position = nmiOffsets[meterRead];
+    while (nmiBytes.hasRemaining()) {
+      position += channel.read(nmiBytes, position);
+    }
+    return new String(nmiBytes.array(), NMI_CHARSET);
+  }
+
+  private void writeHeader(long tableOffset, long indexOffset, int indexCapacity)
+      throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC)
+        .putShort(VERSION)
+        .putShort((short) 0)
+        .putInt(meterReadCount)
+        .putInt(indexCapacity)
+        .putLong(totalVolumeCount)
+        .putLong(tableOffset)
+        .putLong(indexOffset);
+    header.flip();
+    long position = 0;
+    while (header.hasRemaining()) {
+      position += channel.write(header, position);
+    }
+  }
+
+  private long position() {
+    return bufferStart + buffer.position();
+  }
+
+  private void pad() throws IOException {
+    int padding = (int) (align(position()) - position());
+    ensureRemaining(padding);
+    for (int i = 0; i < padding; i++) {
+      buffer.put((byte) 0);
+    }
+  }
+
+  private void writeBytes(byte[] bytes, int length) throws IOException {
+    for (int offset = 0; offset < length; ) {
+      ensureRemaining(1);
+      int chunk = Math.min(buffer.remaining(), length - offset);
+      buffer.put(bytes, offset, chunk);
+      offset += chunk;
+    }
+  }
+
+  private void ensureRemaining(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush();
+    }
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      bufferStart += channel.write(buffer, bufferStart);
+    }
+    buffer.clear();
+  }
+
+  private void ensureMeterReadCapacity(int capacity) {
+    if (capacity > volumeOffsets.length) {
+      int newCapacity = Math.min(MAX_METER_READS,
+          Math.max(capacity, volumeOffsets.length + (volumeOffsets.length >> 1)));
+      volumeOffsets = Arrays.copyOf(volumeOffsets, newCapacity);
+      nmiOffsets = Arrays.copyOf(nmiOffsets, newCapacity);
+      volumeCounts = Arrays.copyOf(volumeCounts, newCapacity);
+      nmiLengths = Arrays.copyOf(nmiLengths, newCapacity);
+      energyUnits = Arrays.copyOf(energyUnits, newCapacity);
+      nmiHashes = Arrays.copyOf(nmiHashes, newCapacity);
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package com.redenergy.store;
+
+import com.redenergy.model.FixedPointVolumeConsumer;
+import com.redenergy.model.FixedPointVolumes;
+import com.redenergy.model.MeterVolume;
+import com.redenergy.model.Quality;
+import com.redenergy.model.VolumeAggregate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+
+import static com.redenergy.store.OffHeapStoreFormat.epochDayColumn;
+import static com.redenergy.store.OffHeapStoreFormat.qualityColumn;
+import static com.redenergy.store.OffHeapStoreFormat.scaleColumn;
+
+/**
+ * Read only <code>SortedMap</code> view of the volume columns of one MeterRead in a mapped store.
+ *
+ * Nothing is copied to the heap, dates are binary searched in the epoch day column and
+ * <code>LocalDate</code> and <code>MeterVolume</code> objects are created only when the map is
+ * read. Sub maps are views over a range of the same columns.
+ */
+final class OffHeapMeterVolumes extends AbstractMap<LocalDate, MeterVolume>
+    implements SortedMap<LocalDate, MeterVolume>, FixedPointVolumes {
+
+  private static final Quality[] QUALITIES = Quality.values();
+
+  private final MappedSegments segments;
+  private final long block;
+  private final int volumeCount;
+  private final int low;
+  private final int high;
+
+  OffHeapMeterVolumes(MappedSegments segments, long block, int volumeCount) {
+    this(segments, block, volumeCount, 0, volumeCount);
+  }
+
+  private OffHeapMeterVolumes(MappedSegments segments, long block, int volumeCount, int low,
+                              int high) {
+    this.segments = segments;
+    this.block = block;
+    this.volumeCount = volumeCount;
+    this.low = low;
+    this.high = high;
+  }
+
+  @Override
+  public MeterVolume get(Object key) {
+    int index = indexOf(key);
+    return index < 0 ? null : meterVolume(index);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return high - low;
+  }
+
+  @Override
+  public Comparator<? super LocalDate> comparator() {
+    return null;
+  }
+
+  @Override
+  public SortedMap<LocalDate, MeterVolume> subMap(LocalDate fromKey, LocalDate toKey) {
+    if (fromKey.isAfter(toKey)) {
+      throw new IllegalArgumentException("fromKey > toKey");
+    }
+    int from = lowerBound(fromKey.toEpochDay());
+    return view(from, Math.max(from, lowerBound(toKey.toEpochDay())));
+  }
+
+  @Override
+  public SortedMap<LocalDate, MeterVolume> headMap(LocalDate toKey) {
+    return view(low, lowerBound(toKey.toEpochDay()));
+  }
+
+  @Override
+  public SortedMap<LocalDate, MeterVolume> tailMap(LocalDate fromKey) {
+    return view(lowerBound(fromKey.toEpochDay()), high);
+  }
+
+  @Override
+  public LocalDate firstKey() {
+    if (low >= high) {
+      throw new NoSuchElementException();
+    }
+    return LocalDate.ofEpochDay(epochDay(low));
+  }
+
+  @Override
+  public LocalDate lastKey() {
+    if (low >= high) {
+      throw new NoSuchElementException();
+    }
+    return LocalDate.ofEpochDay(epochDay(high - 1));
+  }
+
+  /**
+   * @return the sum, count, min and max of the volumes within the bounds of this map, scanned
+   * from the mapped columns.
+   */
+  @Override
+  public VolumeAggregate getVolumeAggregate() {
+    VolumeAggregate volumeAggregate = new VolumeAggregate();
+    for (int index = low; index < high; index++) {
+      volumeAggregate.add(unscaledVolume(index), scale(index));
+    }
+    return volumeAggregate;
+  }
+
+  @Override
+  public void forEachVolume(FixedPointVolumeConsumer volumeConsumer) {
+    for (int index = low; index < high; index++) {
+      volumeConsumer.accept(epochDay(index), unscaledVolume(index), scale(index),
+          QUALITIES[quality(index)]);
+    }
+  }
+
+  @Override
+  public Set<Entry<LocalDate, MeterVolume>> entrySet() {
+    return new AbstractSet<Entry<LocalDate, MeterVolume>>() {
+      @Override
+      public Iterator<Entry<LocalDate, MeterVolume>> iterator() {
+        return new Iterator<Entry<LocalDate, MeterVolume>>() {
+          private int next = low;
+
+          @Override
+          public boolean hasNext() {
+            return next < high;
+          }
+
+          @Override
+          public Entry<LocalDate, MeterVolume> next() {
+            if (next >= high) {
+              throw new NoSuchElementException();
+            }
+            int index = next++;
+            return new SimpleImmutableEntry<>(LocalDate.ofEpochDay(epochDay(index)),
+                meterVolume(index));
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return OffHeapMeterVolumes.this.size();
+      }
+    };
+  }
+
+  private OffHeapMeterVolumes view(int from, int to) {
+    return new OffHeapMeterVolumes(segments, block, volumeCount, from, to);
+  }
+
+  private int indexOf(Object key) {
+    if (!(key instanceof LocalDate)) {
+      return -1;
+    }
+    long epochDay = ((LocalDate) key).toEpochDay();
+    int index = lowerBound(epochDay);
+    return index < high && epochDay(index) == epochDay ? index : -1;
+  }
+
+  /**
+   * @return the first index within the bounds whose date is not before the epoch day.
+   */
+  private int lowerBound(long epochDay) {
+    int from = low;
+    int to = high;
+    while (from < to) {
+      int middle = (from + to) >>> 1;
+      if (epochDay(middle) < epochDay) {
+        from = middle + 1;
+      } else {
+        to = middle;
+      }
+    }
+    return from;
+  }
+
+  private MeterVolume meterVolume(int index) {
+    return new MeterVolume(BigDecimal.valueOf(unscaledVolume(index), scale(index)),
+        QUALITIES[quality(index)]);
+  }
+
+  private long unscaledVolume(int index) {
+    return segments.getLong(block + (long) index * Long.BYTES);
+  }
+
+  private int epochDay(int index) {
+    return segments.getInt(epochDayColumn(block, volumeCount) + (long) index * Integer.BYTES);
+  }
+
+  private int scale(int index) {
+    return segments.get(scaleColumn(block, volumeCount) + index);
+  }
+
+  private int quality(int index) {
+    return segments.get(qualityColumn(block, volumeCount) + index);
+  }
+}
@@ -0,0 +1,68 @@
+package com.redenergy.store;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of an off-heap MeterRead store file.
+ *
+ * <pre>
+ *   header   magic, version, MeterRead count, index capacity, volume count, table offset,
+ *            index offset
+ *   blocks   per MeterRead its NMI bytes, then its volume columns: unscaled volumes as longs,
+ *            epoch days as ints, scales and qualities as bytes
+ *   table    per MeterRead the offsets of its volume columns and NMI, its volume count,
+ *            NMI length and energy unit
+ *   index    open addressing hash table from NMI to MeterRead number plus one
+ * </pre>
+ *
+ * Every section and volume block starts on an 8 byte boundary, so no long, int or short
+ * straddles a mapped segment.
+ */
+final class OffHeapStoreFormat {
+
+  static final int MAGIC = 0x4E454D4F;
+  static final short VERSION = 1;
+  static final int HEADER_SIZE = 40;
+  static final int TABLE_ENTRY_SIZE = 24;
+  static final Charset NMI_CHARSET = StandardCharsets.UTF_8;
+
+  private OffHeapStoreFormat() {
+  }
+
+  /**
+   * @return the index slot to probe first for a NMI.
+   */
+  static int firstSlot(String nmi, int capacity) {
+    int hash = nmi.hashCode();
+    return (hash ^ (hash >>> 16)) & (capacity - 1);
+  }
+
+  /**
+   * @return the offset rounded up to an 8 byte boundary.
+   */
+  static long align(long offset) {
+    return (offset + 7) & ~7L;
+  }
+
+  /**
+   * @return the offset of the epoch day column of a volume block.
+   */
+  static long epochDayColumn(long block, int volumeCount) {
+    return block + (long) volumeCount * Long.BYTES;
+  }
+
+  /**
+   * @return the offset of the scale column of a volume block.
+   */
+  static long scaleColumn(long block, int volumeCount) {
+    return block + (long) volumeCount * (Long.BYTES + Integer.BYTES);
+  }
+
+  /**
+   * @return the offset of the quality column of a volume block.
+   */
+  static long qualityColumn(long block, int volumeCount) {
+    return block + (long) volumeCount * (Long.BYTES + Integer.BYTES + 1);
+  }
+}
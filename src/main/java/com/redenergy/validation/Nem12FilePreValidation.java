@@ -0,0 +1,60 @@
+package com.redenergy.validation;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.RecordType;
+import com.redenergy.repository.FileBoundaryReader;
+import com.redenergy.repository.MeterRecordLine;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Optional;
+
+/**
+ * Fail fast validation of a Simple NEM12 file before any parsing work is done.
+ *
+ * Only the first and the last line are read, a few KB from each end of the file, and checked
+ * with the same validators as a full read: the file has meter records, starts with the 100
+ * header and ends with the 900 trailer.
+ */
+public class Nem12FilePreValidation implements Validation<File> {
+
+  private final FileBoundaryReader fileBoundaryReader = new FileBoundaryReader();
+
+  /**
+   * Validate the header and trailer of the file.
+   *
+   * @param simpleNem12File the input file, expected to exist.
+   * @return the result of the first failing check, or ok.
+   */
+  @Override
+  public Nem12ValidationResult test(File simpleNem12File) {
+    try {
+      MeterRecordLine firstLine = fileBoundaryReader.readFirstLine(simpleNem12File);
+      Nem12ValidationResult nem12ValidationResult = Nem12Validators.isFileEmpty()
+          .test(firstLine == null ? Collections.emptyList()
+              : Collections.singletonList(firstLine.toString()));
+      if (!nem12ValidationResult.isValid()) {
+        return nem12ValidationResult;
+      }
+
+      nem12ValidationResult = Nem12Validators.isValidStartLine(RecordType.RECORD_TYPE_START)
+          .test(recordOfType(firstLine, RecordType.RECORD_TYPE_START));
+      if (!nem12ValidationResult.isValid()) {
+        return nem12ValidationResult;
+      }
+
+      MeterRecordLine lastLine = fileBoundaryReader.readLastLine(simpleNem12File);
+      return Nem12Validators.isValidEndLine(RecordType.RECORD_TYPE_END)
+          .test(recordOfType(lastLine, RecordType.RECORD_TYPE_END));
+    } catch (SimpleNem12ParserException exception) {
+      return Nem12ValidationResult.fail(ValidationRule.FILE_READABLE, exception.getMessage());
+    }
+  }
+
+  private static Optional<String> recordOfType(MeterRecordLine meterRecordLine,
+                                               RecordType recordType) {
+    return Optional.ofNullable(meterRecordLine)
+        .filter(elem -> elem.isRecordType(recordType))
+        .map(MeterRecordLine::toString);
+  }
+}
@@ -2,6 +2,7 @@ package com.redenergy.validation;
 
 
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * The core validation class which executes the predicate and return validation result.
@@ -10,8 +11,10 @@ import java.util.function.Predicate;
  */
 public class Nem12Validation<K> implements Validation<K> {
 
+  private ValidationRule rule;
   private Predicate<K> predicate;
-  private String errorMessage;
+  private Supplier<String> errorMessageSupplier;
+  private volatile String errorMessage;
 
   /**
    * Method which accepts the predicate and error message
@@ -22,18 +25,50 @@ public class Nem12Validation<K> implements Validation<K> {
    * @return the Nem12Validation object
    */
   public static <K> Nem12Validation<K> from(Predicate<K> predicate, String errorMessage) {
-    return new Nem12Validation<K>(predicate, errorMessage);
+    return new Nem12Validation<K>(ValidationRule.OTHER, predicate, () -> errorMessage);
+  }
+
+  /**
+   * Method which accepts the predicate and a supplier of the error message, the message is
+   * only built the first time the predicate evaluates to false.
+   *
+   * @param predicate            the predicate
+   * @param errorMessageSupplier builds the error message if predicate evaluate to false
+   * @param <K>                  any type
+   * @return the Nem12Validation object
+   */
+  public static <K> Nem12Validation<K> from(Predicate<K> predicate,
+                                            Supplier<String> errorMessageSupplier) {
+    return new Nem12Validation<K>(ValidationRule.OTHER, predicate, errorMessageSupplier);
+  }
+
+  /**
+   * Method which accepts the rule the predicate checks, the predicate and a supplier of the
+   * error message.
+   *
+   * @param rule                 the rule a failure is counted against
+   * @param predicate            the predicate
+   * @param errorMessageSupplier builds the error message if predicate evaluate to false
+   * @param <K>                  any type
+   * @return the Nem12Validation object
+   */
+  public static <K> Nem12Validation<K> from(ValidationRule rule, Predicate<K> predicate,
+                                            Supplier<String> errorMessageSupplier) {
+    return new Nem12Validation<K>(rule, predicate, errorMessageSupplier);
   }
 
   /**
    * Nem12Validation constructor
    *
-   * @param predicate    the predicate
-   * @param errorMessage the error message
+   * @param rule                 the rule
+   * @param predicate            the predicate
+   * @param errorMessageSupplier the error message supplier
    */
-  private Nem12Validation(Predicate<K> predicate, String errorMessage) {
+  private Nem12Validation(ValidationRule rule, Predicate<K> predicate,
+                          Supplier<String> errorMessageSupplier) {
+    this.rule = rule;
     this.predicate = predicate;
-    this.errorMessage = errorMessage;
+    this.errorMessageSupplier = errorMessageSupplier;
   }
 
   /**
@@ -46,6 +81,15 @@ public class Nem12Validation<K> implements Validation<K> {
   @Override
   public Nem12ValidationResult test(K param) {
     return predicate.test(param) ? Nem12ValidationResult.ok() :
-        Nem12ValidationResult.fail(errorMessage);
+        Nem12ValidationResult.fail(rule, getErrorMessage());
+  }
+
+  private String getErrorMessage() {
+    String message = errorMessage;
+    if (message == null) {
+      message = errorMessageSupplier.get();
+      errorMessage = message;
+    }
+    return message;
   }
 }
@@ -6,8 +6,11 @@ package com.redenergy.validation;
  */
 public class Nem12ValidationResult {
 
-  private boolean valid;
-  private String reason;
+  private static final Nem12ValidationResult OK = new Nem12ValidationResult(true);
+
+  private final boolean valid;
+  private final ValidationRule rule;
+  private final String reason;
 
   public boolean isValid() {
     return valid;
@@ -17,21 +20,36 @@ public class Nem12ValidationResult {
     return reason;
   }
 
+  /**
+   * @return the rule a failed validation broke, null for a successful validation.
+   */
+  public ValidationRule getRule() {
+    return rule;
+  }
+
+  /**
+   * @return the shared result of a successful validation.
+   */
   public static Nem12ValidationResult ok() {
-    return new Nem12ValidationResult(true);
+    return OK;
   }
 
   private Nem12ValidationResult(boolean valid) {
-    this.valid = valid;
+    this(valid, null, null);
   }
 
-  private Nem12ValidationResult(boolean valid, String reason) {
+  private Nem12ValidationResult(boolean valid, ValidationRule rule, String reason) {
     this.valid = valid;
+    this.rule = rule;
     this.reason = reason;
   }
 
   public static Nem12ValidationResult fail(String reason) {
-    return new Nem12ValidationResult(false, reason);
+    return fail(ValidationRule.OTHER, reason);
+  }
+
+  public static Nem12ValidationResult fail(ValidationRule rule, String reason) {
+    return new Nem12ValidationResult(false, rule, reason);
   }
 
 }
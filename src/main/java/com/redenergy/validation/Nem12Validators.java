@@ -1,13 +1,20 @@
 package com.redenergy.validation;
 
 import com.redenergy.model.EnergyUnit;
+import com.redenergy.model.IntervalQuality;
 import com.redenergy.model.Quality;
 import com.redenergy.model.RecordType;
 
 
 import java.io.File;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 
 import static java.lang.String.format;
@@ -16,16 +23,122 @@ import static java.lang.String.format;
  * The list of validators with SimpleNem12Parsing.
  * This gives flexibility to configure validators from a single place
  * to evaluate and produce error message.
+ *
+ * Validators are compiled once and shared, and error messages are only formatted when a
+ * validation fails, so validating a valid record does not allocate.
  */
 public class Nem12Validators {
 
+  private static final Validation<File> FILE_EXISTS =
+      Nem12Validation.from(ValidationRule.FILE_EXISTS, elem -> elem.exists(),
+          () -> format("The File Does Not Exists"));
+
+  private static final Validation<File> DIRECTORY_EXISTS =
+      Nem12Validation.from(ValidationRule.DIRECTORY_EXISTS, elem -> elem.isDirectory(),
+          () -> format("The Directory Does Not Exists"));
+
+  private static final Validation<List<String>> FILE_NOT_EMPTY =
+      Nem12Validation.from(ValidationRule.FILE_NOT_EMPTY,
+          elem -> (elem != null && !elem.isEmpty()),
+          () -> format("The input file doesn't have any meter records"));
+
+  private static final Validation<String> VALID_ASCII =
+      Nem12Validation.from(ValidationRule.ASCII,
+          elem -> elem.chars().allMatch(character -> character < 0x80),
+          () -> format("Meter record should only hold ASCII characters"));
+
+  private static final Validation<String> VALID_ENERGY_UNIT =
+      Nem12Validation.from(ValidationRule.ENERGY_UNIT,
+          elem -> (elem.equals(EnergyUnit.KWH.toString())),
+          () -> format("EnergyUnit value should be %s", EnergyUnit.KWH));
+
+  private static final Validation<String> VALID_QUALITY =
+      Nem12Validation.from(ValidationRule.QUALITY,
+          elem -> (elem.equals(Quality.A.toString())
+              || elem.equals(Quality.E.toString())),
+          () -> format("Quality should be either %s or %s", Quality.A, Quality.E));
+
+  private static final Validation<String> VALID_INTERVAL_QUALITY =
+      Nem12Validation.from(ValidationRule.QUALITY,
+          elem -> (!elem.isEmpty() && Arrays.stream(IntervalQuality.values())
+              .anyMatch(quality -> quality.name().charAt(0) == elem.charAt(0))),
+          () -> format("Quality method should start with one of %s",
+              Arrays.toString(IntervalQuality.values())));
+
+  private static final Validation<Integer> VALID_INTERVAL_LENGTH =
+      Nem12Validation.from(ValidationRule.INTERVAL_LENGTH,
+          elem -> (elem == 1 || elem == 5 || elem == 10 || elem == 15 || elem == 30),
+          () -> format("Interval length should be 1, 5, 10, 15 or 30 minutes"));
+
+  private static final Pattern DECIMAL = Pattern.compile(
+      "[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d{1,9})?");
+
+  private static final Validation<String> VALID_VOLUME =
+      Nem12Validation.from(ValidationRule.VOLUME,
+          elem -> DECIMAL.matcher(elem).matches(),
+          () -> format("Volume should be a decimal number"));
+
+  private static final Validation<BigDecimal> VALID_FIXED_POINT_VOLUME =
+      Nem12Validation.from(ValidationRule.FIXED_POINT_VOLUME,
+          elem -> (elem.unscaledValue().bitLength() < Long.SIZE),
+          () -> format("Volume should fit %s significant digits", 18));
+
+  private static final Validation<Integer> VALID_COLUMNAR_VOLUME_SCALE =
+      Nem12Validation.from(ValidationRule.VOLUME_SCALE,
+          elem -> (elem >= Byte.MIN_VALUE && elem <= Byte.MAX_VALUE),
+          () -> format("Volume scale should be between %s and %s", Byte.MIN_VALUE,
+              Byte.MAX_VALUE));
+
+  private static final Validation<Boolean> VALID_FIRST_READ =
+      Nem12Validation.from(ValidationRule.DUPLICATE_DATE, elem -> !elem,
+          () -> format("Date should be read once in a 200 block when only the rollup is kept"));
+
+  private static final Validation<File> VALID_FILE_BOUNDARIES = new Nem12FilePreValidation();
+
+  private static final Map<RecordType, Validation<Optional<String>>> VALID_START_LINES =
+      new EnumMap<>(RecordType.class);
+
+  private static final Map<RecordType, Validation<Optional<String>>> VALID_END_LINES =
+      new EnumMap<>(RecordType.class);
+
+  private static final Map<Integer, Validation<String>> VALID_NMIS = new ConcurrentHashMap<>();
+
+  private static final Map<Integer, Validation<Integer>> VALID_VOLUME_SCALES =
+      new ConcurrentHashMap<>();
+
+  private static final Map<Integer, Validation<Integer>> VALID_INTERVALS =
+      new ConcurrentHashMap<>();
+
+  private static final Map<Integer, Validation<Integer>> VALID_ERROR_COUNTS =
+      new ConcurrentHashMap<>();
+
+  static {
+    for (RecordType recordType : RecordType.values()) {
+      VALID_START_LINES.put(recordType, Nem12Validation.from(ValidationRule.START_LINE,
+          elem -> elem.isPresent(),
+          () -> format("RecordType %s must be the first line in the file", recordType)));
+      VALID_END_LINES.put(recordType, Nem12Validation.from(ValidationRule.END_LINE,
+          elem -> elem.isPresent(),
+          () -> format("RecordType %s must be the last line in the file", recordType)));
+    }
+  }
+
   /**
    * Validates if file exists
    *
    * @return Core Validation Object with predicate and error message.
    */
   public static Validation<File> isFileExists() {
-    return Nem12Validation.from(elem -> elem.exists(), format("The File Does Not Exists"));
+    return FILE_EXISTS;
+  }
+
+  /**
+   * Validates if directory exists
+   *
+   * @return Core Validation Object with predicate and error message.
+   */
+  public static Validation<File> isDirectoryExists() {
+    return DIRECTORY_EXISTS;
   }
 
   /**
@@ -34,8 +147,7 @@ public class Nem12Validators {
    * @return Core Validation Object with predicate and error message.
    */
   public static Validation<List<String>> isFileEmpty() {
-    return Nem12Validation.from(elem -> (elem != null && !elem.isEmpty()),
-        format("The input file doesn't have any meter records"));
+    return FILE_NOT_EMPTY;
   }
 
   /**
@@ -44,8 +156,9 @@ public class Nem12Validators {
    * @return Core Validation Object with predicate and error message.
    */
   public static Validation<String> isValidNmi(Integer nmiLength) {
-    return Nem12Validation.from(elem -> (elem.length() == nmiLength),
-        format("the number of characters should be %s", nmiLength));
+    return VALID_NMIS.computeIfAbsent(nmiLength, length ->
+        Nem12Validation.from(ValidationRule.NMI, elem -> (elem.length() == length),
+            () -> format("the number of characters should be %s", length)));
   }
 
   /**
@@ -54,8 +167,7 @@ public class Nem12Validators {
    * @return Core Validation Object with predicate and error message.
    */
   public static Validation<String> isValidEnergyUnit() {
-    return Nem12Validation.from(elem -> (elem.equals(EnergyUnit.KWH.toString())),
-        format("EnergyUnit value should be %s", EnergyUnit.KWH));
+    return VALID_ENERGY_UNIT;
   }
 
   /**
@@ -64,9 +176,123 @@ public class Nem12Validators {
    * @return Core Validation Object with predicate and error message.
    */
   public static Validation<String> isValidQuality() {
-    return Nem12Validation.from(elem -> (elem.equals(Quality.A.toString())
-            || elem.equals(Quality.E.toString())),
-        format("Quality should be either %s or %s", Quality.A, Quality.E));
+    return VALID_QUALITY;
+  }
+
+  /**
+   * Validates the quality method of a full NEM12 300 or 400 record
+   *
+   * @return Core Validation Object with predicate and error message.
+   */
+  public static Validation<String> isValidIntervalQuality() {
+    return VALID_INTERVAL_QUALITY;
+  }
+
+  /**
+   * Validates the interval length of a full NEM12 200 record, in minutes
+   *
+   * @return Core Validation Object with predicate and error message.
+   */
+  public static Validation<Integer> isValidIntervalLength() {
+    return VALID_INTERVAL_LENGTH;
+  }
+
+  /**
+   * Validates a one based interval of a 400 record is within the intervals it may cover
+   *
+   * @return Core Validation Object with predicate and error message.
+   */
+  public static Validation<Integer> isValidInterval(Integer lastInterval) {
+    return VALID_INTERVALS.computeIfAbsent(lastInterval, last ->
+        Nem12Validation.from(ValidationRule.INTERVAL, elem -> (elem >= 1 && elem <= last),
+            () -> format("Interval should be between 1 and %s", last)));
+  }
+
+  /**
+   * Validates the record only holds ASCII characters
+   *
+   * @return Core Validation Object with predicate and error message.
+   */
+  public static Validation<String> isAscii() {
+    return VALID_ASCII;
+  }
+
+  /**
+   * Validates the record has the fields its record type needs
+   *
+   * @return Core Validation Object with predicate and error message.
+   */
+  public static Validation<Integer> isValidFieldCount(RecordType recordType, Integer fieldCount) {
+    return Nem12Validation.from(ValidationRule.FIELD_COUNT, elem -> (elem >= fieldCount),
+        () -> format("RecordType %s must have %s fields", recordType, fieldCount));
+  }
+
+  /**
+   * Validates the volume is a decimal number
+   *
+   * @return Core Validation Object with predicate and error message.
+   */
+  public static Validation<String> isValidVolume() {
+    return VALID_VOLUME;
+  }
+
+  /**
+   * Validates the number of decimal places of a fixed point volume
+   *
+   * @return Core Validation Object with predicate and error message.
+   */
+  public static Validation<Integer> isValidVolumeScale(Integer maxScale) {
+    return VALID_VOLUME_SCALES.computeIfAbsent(maxScale, scale ->
+        Nem12Validation.from(ValidationRule.VOLUME_SCALE, elem -> (elem <= scale),
+            () -> format("Volume should have at most %s decimal places", scale)));
+  }
+
+  /**
+   * Validates the scale of a volume fits the byte of columnar storage
+   *
+   * @return Core Validation Object with predicate and error message.
+   */
+  public static Validation<Integer> isValidColumnarVolumeScale() {
+    return VALID_COLUMNAR_VOLUME_SCALE;
+  }
+
+  /**
+   * Validates a volume fits a fixed point long
+   *
+   * @return Core Validation Object with predicate and error message.
+   */
+  public static Validation<BigDecimal> isValidFixedPointVolume() {
+    return VALID_FIXED_POINT_VOLUME;
+  }
+
+  /**
+   * Validates a date was not read before, given whether it was
+   *
+   * @return Core Validation Object with predicate and error message.
+   */
+  public static Validation<Boolean> isFirstRead() {
+    return VALID_FIRST_READ;
+  }
+
+  /**
+   * Validates the number of invalid records is within the error budget
+   *
+   * @return Core Validation Object with predicate and error message.
+   */
+  public static Validation<Integer> isWithinErrorBudget(Integer maxErrors) {
+    return VALID_ERROR_COUNTS.computeIfAbsent(maxErrors, budget ->
+        Nem12Validation.from(ValidationRule.ERROR_BUDGET, elem -> (elem <= budget),
+            () -> format("More than %s invalid meter records in the file", budget)));
+  }
+
+  /**
+   * Validates the file has meter records, a 100 first line and a 900 last line,
+   * reading only the head and tail of the file.
+   *
+   * @return Core Validation Object reading the first and last line.
+   */
+  public static Validation<File> isValidFileBoundaries() {
+    return VALID_FILE_BOUNDARIES;
   }
 
   /**
@@ -76,8 +302,7 @@ public class Nem12Validators {
    */
   public static Validation<Optional<String>> isValidStartLine(
       RecordType recordTypeStart) {
-    return Nem12Validation.from(elem -> elem.isPresent(),
-        format("RecordType %s must be the first line in the file", recordTypeStart));
+    return VALID_START_LINES.get(recordTypeStart);
   }
 
   /**
@@ -87,7 +312,6 @@ public class Nem12Validators {
    */
   public static Validation<Optional<String>> isValidEndLine(
       RecordType recordTypeEnd) {
-    return Nem12Validation.from(elem -> elem.isPresent(),
-        format("RecordType %s must be the last line in the file", recordTypeEnd));
+    return VALID_END_LINES.get(recordTypeEnd);
   }
 }
@@ -0,0 +1,31 @@
+package com.redenergy.validation;
+
+/**
+ * The rule a failed validation broke, a stable key to count failures by where the reason of
+ * the failure also carries the offending value.
+ */
+public enum ValidationRule {
+  FILE_EXISTS,
+  DIRECTORY_EXISTS,
+  FILE_NOT_EMPTY,
+  FILE_READABLE,
+  START_LINE,
+  END_LINE,
+  ASCII,
+  FIELD_COUNT,
+  NMI,
+  ENERGY_UNIT,
+  DATE,
+  DUPLICATE_DATE,
+  QUALITY,
+  VOLUME,
+  FIXED_POINT_VOLUME,
+  VOLUME_SCALE,
+  INTERVAL_LENGTH,
+  INTERVAL,
+  ERROR_BUDGET,
+  /**
+   * A validation not tagged with a rule.
+   */
+  OTHER
+}
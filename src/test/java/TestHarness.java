@@ -1,10 +1,10 @@
 // Copyright Red Energy Limited 2017
 
 import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterReadIndex;
 import com.redenergy.service.SimpleNem12ParserImpl;
 
 import java.io.File;
-import java.util.Collection;
 
 /**
  * Simple test harness for trying out SimpleNem12Parser implementation
@@ -15,16 +15,14 @@ public class TestHarness {
     File simpleNem12File = new File("src/main/resources/SimpleNem12.csv");
 
     // Uncomment below to try out test harness.
-    Collection<MeterRead> meterReads =
+    MeterReadIndex meterReads =
         new SimpleNem12ParserImpl().parseSimpleNem12(simpleNem12File);
 
-    MeterRead read6123456789 =
-        meterReads.stream().filter(mr -> mr.getNmi().equals("6123456789")).findFirst().get();
+    MeterRead read6123456789 = meterReads.get("6123456789");
     System.out.println(String.format("Total volume for NMI 6123456789 is %f",
         read6123456789.getTotalVolume()));  // Should be -36.84
 
-    MeterRead read6987654321 =
-        meterReads.stream().filter(mr -> mr.getNmi().equals("6987654321")).findFirst().get();
+    MeterRead read6987654321 = meterReads.get("6987654321");
     System.out.println(String.format("Total volume for NMI 6987654321 is %f",
         read6987654321.getTotalVolume()));  // Should be 14.33
   }
@@ -0,0 +1,113 @@
+package com.energy.generator;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.generator.SimpleNem12GenerationResult;
+import com.redenergy.generator.SimpleNem12Generator;
+import com.redenergy.generator.SimpleNem12GeneratorConfig;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterReadIndex;
+import com.redenergy.model.Quality;
+import com.redenergy.model.VolumeAggregate;
+import com.redenergy.service.ErrorMode;
+import com.redenergy.service.MeterReadCursor;
+import com.redenergy.service.SimpleNem12ParserConfig;
+import com.redenergy.service.SimpleNem12ParserImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SimpleNem12Generator.
+ */
+public class SimpleNem12GeneratorTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Verify the same seed gives the same bytes and the parsed volumes match the expected totals,
+   * duplicate blocks replacing earlier volumes.
+   */
+  @Test
+  public void testGenerateValidFile() throws IOException, SimpleNem12ParserException {
+    SimpleNem12GeneratorConfig config = new SimpleNem12GeneratorConfig();
+    config.setSeed(42L);
+    config.setNmiCount(50);
+    config.setDaysPerNmi(40);
+    config.setDuplicateBlockRate(0.5);
+    File first = temporaryFolder.newFile("first.csv");
+    File second = temporaryFolder.newFile("second.csv");
+
+    SimpleNem12GenerationResult result = new SimpleNem12Generator(config).generate(first);
+    new SimpleNem12Generator(config).generate(second);
+
+    assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+    assertEquals(first.length(), result.getByteCount());
+    assertEquals(50, result.getNmiCount());
+    assertEquals(50 * 40, result.getVolumeCount());
+    assertTrue(result.getDuplicateBlockCount() > 0);
+    assertEquals(0, result.getBadRecordCount());
+
+    MeterReadIndex meterReads = new SimpleNem12ParserImpl().parseSimpleNem12(first);
+    assertExpectedTotals(result.getExpectedTotals(), meterReads);
+    long estimatedCount = meterReads.stream().flatMap(meterRead ->
+        meterRead.getVolumes().values().stream())
+        .filter(meterVolume -> meterVolume.getQuality() == Quality.E).count();
+    assertEquals(result.getEstimatedCount(), estimatedCount);
+  }
+
+  /**
+   * Verify every bad record is skipped in the LENIENT error mode and the rest match the expected
+   * totals, and generation stops starting NMIs at the target size.
+   */
+  @Test
+  public void testGenerateCorruptedFile() throws IOException, SimpleNem12ParserException {
+    SimpleNem12GeneratorConfig config = new SimpleNem12GeneratorConfig();
+    config.setNmiCount(1000);
+    config.setDaysPerNmi(30);
+    config.setDuplicateBlockRate(0.2);
+    config.setBadFieldRate(0.05);
+    config.setTargetBytes(64 * 1024);
+    File corrupted = temporaryFolder.newFile("corrupted.csv");
+
+    SimpleNem12GenerationResult result = new SimpleNem12Generator(config).generate(corrupted);
+    assertTrue(result.getByteCount() >= 64 * 1024);
+    assertTrue(result.getNmiCount() < 1000);
+    assertTrue(result.getBadRecordCount() > 0);
+
+    SimpleNem12ParserConfig parserConfig = new SimpleNem12ParserConfig();
+    parserConfig.setErrorMode(ErrorMode.LENIENT);
+    parserConfig.setMaxErrors(100_000);
+    MeterReadIndex meterReads = new MeterReadIndex();
+    try (MeterReadCursor meterReadCursor =
+             new SimpleNem12ParserImpl(parserConfig).openSimpleNem12(corrupted)) {
+      MeterRead meterRead;
+      while ((meterRead = meterReadCursor.next()) != null) {
+        meterReads.add(meterRead);
+      }
+      assertEquals(result.getBadRecordCount(), meterReadCursor.getMeterRecordErrors().size());
+    }
+    assertExpectedTotals(result.getExpectedTotals(), meterReads);
+  }
+
+  private static void assertExpectedTotals(Map<String, VolumeAggregate> expectedTotals,
+                                           MeterReadIndex meterReads) {
+    assertEquals(expectedTotals.size(), meterReads.size());
+    for (Map.Entry<String, VolumeAggregate> expected : expectedTotals.entrySet()) {
+      MeterRead meterRead = meterReads.get(expected.getKey());
+      assertEquals(expected.getValue().getCount(), meterRead.getVolumeCount());
+      assertEquals(0, expected.getValue().getSum().compareTo(meterRead.getTotalVolume()));
+      assertEquals(0, expected.getValue().getMin().get()
+          .compareTo(meterRead.getMinVolume().get()));
+      assertEquals(0, expected.getValue().getMax().get()
+          .compareTo(meterRead.getMaxVolume().get()));
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.energy.model;
+
+import com.redenergy.model.ColumnarMeterVolumes;
+import com.redenergy.model.MeterVolume;
+import com.redenergy.model.Quality;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the columnar MeterRead volume store.
+ */
+public class ColumnarMeterVolumesTest {
+
+  private static final LocalDate DAY = LocalDate.of(2016, 11, 13);
+
+  /**
+   * Verify volumes put out of order read back sorted and equal to a TreeMap.
+   */
+  @Test
+  public void testOutOfOrderPut() {
+    SortedMap<LocalDate, MeterVolume> treeMap = new TreeMap<>();
+    ColumnarMeterVolumes columnar = new ColumnarMeterVolumes();
+    int[] days = {3, 0, 5, 1, 4, 2};
+    for (int day : days) {
+      MeterVolume meterVolume = new MeterVolume(new BigDecimal(day + ".50"),
+          day % 2 == 0 ? Quality.A : Quality.E);
+      treeMap.put(DAY.plusDays(day), meterVolume);
+      columnar.put(DAY.plusDays(day), meterVolume);
+    }
+    assertEquals(treeMap, columnar);
+    assertEquals(columnar, treeMap);
+    assertEquals(treeMap.hashCode(), columnar.hashCode());
+    assertEquals(DAY, columnar.firstKey());
+    assertEquals(DAY.plusDays(5), columnar.lastKey());
+    assertEquals(new BigDecimal("3.50"), columnar.get(DAY.plusDays(3)).getVolume());
+  }
+
+  /**
+   * Verify replacing a date and the date bounded views.
+   */
+  @Test
+  public void testReplaceAndSubMap() {
+    ColumnarMeterVolumes columnar = new ColumnarMeterVolumes();
+    for (int day = 0; day < 10; day++) {
+      columnar.put(DAY.plusDays(day).toEpochDay(), -day, 1, Quality.A);
+    }
+    MeterVolume previous = columnar.put(DAY.plusDays(4), new MeterVolume(new BigDecimal("7"), Quality.E));
+    assertEquals(new MeterVolume(new BigDecimal("-0.4"), Quality.A), previous);
+    assertEquals(10, columnar.size());
+
+    SortedMap<LocalDate, MeterVolume> subMap = columnar.subMap(DAY.plusDays(3), DAY.plusDays(6));
+    assertEquals(3, subMap.size());
+    assertEquals(new MeterVolume(new BigDecimal("7"), Quality.E), subMap.get(DAY.plusDays(4)));
+    assertNull(subMap.get(DAY.plusDays(6)));
+    assertEquals(DAY.plusDays(5), subMap.lastKey());
+
+    subMap.clear();
+    assertEquals(7, columnar.size());
+    assertEquals(3, columnar.headMap(DAY.plusDays(5)).size());
+    assertEquals(4, columnar.tailMap(DAY.plusDays(3)).size());
+  }
+
+  /**
+   * Verify the running total, min and max follow appended, replaced and removed volumes.
+   */
+  @Test
+  public void testRunningStatistics() {
+    ColumnarMeterVolumes columnar = new ColumnarMeterVolumes();
+    columnar.put(DAY.toEpochDay(), -508, 1, Quality.A);
+    columnar.put(DAY.plusDays(1).toEpochDay(), 2396, 2, Quality.A);
+    columnar.put(DAY.plusDays(2).toEpochDay(), -33, 0, Quality.E);
+    assertEquals(new BigDecimal("-59.84"), columnar.getTotalVolume());
+    assertEquals(new BigDecimal("-50.8"), columnar.getMinVolume().get());
+    assertEquals(new BigDecimal("23.96"), columnar.getMaxVolume().get());
+
+    columnar.remove(DAY);
+    assertEquals(new BigDecimal("-9.04"), columnar.getTotalVolume());
+    assertEquals(new BigDecimal("-33"), columnar.getMinVolume().get());
+
+    columnar.put(DAY.plusDays(1).toEpochDay(), Long.MAX_VALUE, 0, Quality.A);
+    columnar.put(DAY.plusDays(3).toEpochDay(), 1, 0, Quality.A);
+    assertEquals(new BigDecimal(Long.MAX_VALUE).add(new BigDecimal("-32")),
+        columnar.getTotalVolume());
+    assertEquals(new BigDecimal("-33"), columnar.headMap(DAY.plusDays(3)).values().stream()
+        .map(MeterVolume::getVolume).min(BigDecimal::compareTo).get());
+  }
+}
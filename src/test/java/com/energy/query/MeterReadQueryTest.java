@@ -0,0 +1,114 @@
+package com.energy.query;
+
+import com.energy.service.SimpleNem12ParserImplTestBase;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterReadIndex;
+import com.redenergy.model.Quality;
+import com.redenergy.model.VolumeAggregate;
+import com.redenergy.query.GroupBy;
+import com.redenergy.query.MeterReadQuery;
+import com.redenergy.query.VolumeGroup;
+import com.redenergy.query.VolumeQueryResult;
+import com.redenergy.service.DecimalMode;
+import com.redenergy.service.SimpleNem12ParserConfig;
+import com.redenergy.service.SimpleNem12ParserImpl;
+import com.redenergy.service.VolumeStorage;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MeterReadQuery.
+ */
+public class MeterReadQueryTest extends SimpleNem12ParserImplTestBase {
+
+  /**
+   * Verify totals grouped by NMI and quality, within a date range, for both volume storages.
+   */
+  @Test
+  public void testGroupByNmiAndQuality() {
+    SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+    config.setDecimalMode(DecimalMode.FIXED_POINT);
+    config.setVolumeStorage(VolumeStorage.COLUMNAR);
+    Collection<MeterRead> columnar =
+        new SimpleNem12ParserImpl(config).parseSimpleNem12(getFile("SimpleNem12.csv"));
+
+    for (Collection<MeterRead> meterReads : Arrays.asList(getMeterReadRecords(), columnar)) {
+      VolumeQueryResult byNmi = MeterReadQuery.over(meterReads).groupBy(GroupBy.NMI).execute();
+      assertEquals(new BigDecimal("-36.84"),
+          byNmi.get(new VolumeGroup("6123456789", null, null, null)).getSum());
+      assertEquals(new BigDecimal("14.33"),
+          byNmi.get(new VolumeGroup("6987654321", null, null, null)).getSum());
+      assertEquals(13, byNmi.getTotal().getCount());
+
+      VolumeQueryResult byQuality = MeterReadQuery.over(meterReads)
+          .between(LocalDate.of(2016, 11, 14), LocalDate.of(2016, 12, 17))
+          .groupBy(GroupBy.QUALITY)
+          .parallel(false)
+          .execute();
+      VolumeAggregate estimated = byQuality.get(new VolumeGroup(null, null, null, Quality.E));
+      assertEquals(1, estimated.getCount());
+      assertEquals(0, BigDecimal.ZERO.compareTo(estimated.getSum()));
+      VolumeAggregate actual = byQuality.get(new VolumeGroup(null, null, null, Quality.A));
+      assertEquals(7, actual.getCount());
+      assertEquals(0, new BigDecimal("-33").compareTo(actual.getMin().get()));
+      assertEquals(0, new BigDecimal("32").compareTo(actual.getMax().get()));
+    }
+  }
+
+  /**
+   * Verify monthly totals of selected NMIs, and quality and NMI filters.
+   */
+  @Test
+  public void testMonthlyTotals() {
+    MeterReadIndex meterReads = new MeterReadIndex(getMeterReadRecords());
+
+    VolumeQueryResult monthly = MeterReadQuery.over(meterReads)
+        .forNmis(Collections.singleton("6987654321"))
+        .groupBy(GroupBy.NMI, GroupBy.MONTH)
+        .execute();
+    assertEquals(1, monthly.getGroups().size());
+    VolumeGroup december = monthly.getGroups().firstKey();
+    assertEquals(YearMonth.of(2016, 12), december.getMonth());
+    assertEquals("6987654321", december.getNmi());
+    assertNull(december.getDate());
+    assertEquals(new BigDecimal("14.33"), monthly.getTotal().getSum());
+
+    VolumeQueryResult daily = MeterReadQuery.over(meterReads)
+        .withQuality(Quality.E)
+        .groupBy(GroupBy.DAY)
+        .execute();
+    assertEquals(3, daily.getGroups().size());
+    assertEquals(LocalDate.of(2016, 11, 18), daily.getGroups().firstKey().getDate());
+    assertEquals(new BigDecimal("26.43"), daily.getTotal().getSum());
+
+    assertTrue(MeterReadQuery.over(meterReads).forNmis(Collections.singleton("6000000000"))
+        .execute().getGroups().isEmpty());
+  }
+
+  /**
+   * Verify aggregates fall back to BigDecimal once the fixed point sum overflows.
+   */
+  @Test
+  public void testVolumeAggregateOverflow() {
+    VolumeAggregate volumeAggregate = new VolumeAggregate();
+    volumeAggregate.add(Long.MAX_VALUE, 2);
+    volumeAggregate.add(new BigDecimal("0.5"));
+    VolumeAggregate other = new VolumeAggregate();
+    other.add(new BigDecimal("123456789012345678901234567890"));
+    volumeAggregate.merge(other);
+    assertEquals(3, volumeAggregate.getCount());
+    assertEquals(BigDecimal.valueOf(Long.MAX_VALUE, 2).add(new BigDecimal("0.5"))
+        .add(new BigDecimal("123456789012345678901234567890")), volumeAggregate.getSum());
+    assertEquals(new BigDecimal("0.5"), volumeAggregate.getMin().get());
+    assertEquals(new BigDecimal("123456789012345678901234567890"),
+        volumeAggregate.getMax().get());
+  }
+}
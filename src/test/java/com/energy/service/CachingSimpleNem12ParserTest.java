@@ -0,0 +1,150 @@
+package com.energy.service;
+
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterReadIndex;
+import com.redenergy.service.CachingSimpleNem12Parser;
+import com.redenergy.service.ParseCacheStats;
+import com.redenergy.service.SimpleNem12ParserImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CachingSimpleNem12Parser.
+ */
+public class CachingSimpleNem12ParserTest extends SimpleNem12ParserImplTestBase {
+
+  private static final String ONE_VOLUME = "100\n200,6123456789,KWH\n300,20161113,1.5,A\n900\n";
+  private static final String TWO_VOLUMES = "100\n200,6123456789,KWH\n300,20161113,1.5,A\n"
+      + "300,20161114,2,E\n900\n";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Verify repeat parses are cache hits, and changed files are parsed again or evicted.
+   */
+  @Test
+  public void testCacheHitsAndEviction() throws Exception {
+    File first = writeFile("first.csv", ONE_VOLUME);
+    File second = writeFile("second.csv", ONE_VOLUME);
+    CachingSimpleNem12Parser cachingParser =
+        new CachingSimpleNem12Parser(new SimpleNem12ParserImpl(), 900, true);
+
+    Collection<MeterRead> meterReads = cachingParser.parseSimpleNem12(first);
+    assertSame(meterReads, cachingParser.parseSimpleNem12(new File(first.getPath())));
+    ParseCacheStats stats = cachingParser.getStats();
+    assertEquals(1, stats.getHitCount());
+    assertEquals(1, stats.getMissCount());
+    assertEquals(1, stats.getEntryCount());
+
+    //the shared result is read only
+    MeterReadIndex cachedIndex = (MeterReadIndex) meterReads;
+    assertEquals("1.5", cachedIndex.get("6123456789").getTotalVolume().toPlainString());
+    try {
+      cachedIndex.add(new MeterReadIndex(cachedIndex).get(0));
+      fail("the cached result is read only");
+    } catch (UnsupportedOperationException ex) {
+      assertEquals(1, cachedIndex.size());
+    }
+    try {
+      meterReads.clear();
+      fail("the cached result is read only");
+    } catch (UnsupportedOperationException ex) {
+      assertEquals(1, cachingParser.parseSimpleNem12(first).size());
+    }
+
+    //a rewrite of the same size within the same modified time is caught by the content hash
+    long lastModified = first.lastModified();
+    Files.write(first.toPath(), ONE_VOLUME.replace("1.5", "2.5").getBytes(StandardCharsets.UTF_8));
+    assertTrue(first.setLastModified(lastModified));
+    Collection<MeterRead> rewritten = cachingParser.parseSimpleNem12(first);
+    assertNotSame(meterReads, rewritten);
+    assertEquals("2.5", rewritten.iterator().next().getTotalVolume().toPlainString());
+    assertEquals(1, cachingParser.getStats().getEvictionCount());
+
+    //two results of one volume fit the budget, the least recently used goes for a third
+    cachingParser.parseSimpleNem12(second);
+    cachingParser.parseSimpleNem12(first);
+    cachingParser.parseSimpleNem12(writeFile("third.csv", ONE_VOLUME));
+    stats = cachingParser.getStats();
+    assertEquals(2, stats.getEntryCount());
+    assertEquals(2, stats.getEvictionCount());
+    assertSame(rewritten, cachingParser.parseSimpleNem12(first));
+
+    //heavier than the budget, returned but never cached
+    File heavy = writeFile("heavy.csv", TWO_VOLUMES.replace("900\n",
+        "300,20161115,1,A\n300,20161116,1,A\n300,20161117,1,A\n900\n"));
+    assertNotSame(cachingParser.parseSimpleNem12(heavy), cachingParser.parseSimpleNem12(heavy));
+    assertEquals(2, cachingParser.getStats().getEntryCount());
+  }
+
+  /**
+   * Verify concurrent parses of one file are coalesced into a single parse.
+   */
+  @Test
+  public void testConcurrentParsesAreCoalesced() throws Exception {
+    File file = writeFile("coalesced.csv", TWO_VOLUMES);
+    CountDownLatch parseStarted = new CountDownLatch(1);
+    CountDownLatch releaseParse = new CountDownLatch(1);
+    AtomicInteger parseCount = new AtomicInteger();
+    SimpleNem12ParserImpl slowParser = new SimpleNem12ParserImpl() {
+      @Override
+      public MeterReadIndex parseSimpleNem12(File simpleNem12File) {
+        parseCount.incrementAndGet();
+        parseStarted.countDown();
+        try {
+          releaseParse.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+        return super.parseSimpleNem12(simpleNem12File);
+      }
+    };
+    CachingSimpleNem12Parser cachingParser =
+        new CachingSimpleNem12Parser(slowParser, Long.MAX_VALUE);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Collection<MeterRead>>> parses = new ArrayList<>();
+      parses.add(executorService.submit(() -> cachingParser.parseSimpleNem12(file)));
+      assertTrue(parseStarted.await(10, TimeUnit.SECONDS));
+      for (int i = 0; i < 3; i++) {
+        parses.add(executorService.submit(() -> cachingParser.parseSimpleNem12(file)));
+      }
+      while (cachingParser.getStats().getCoalescedCount() < 3) {
+        Thread.sleep(1);
+      }
+      releaseParse.countDown();
+      for (Future<Collection<MeterRead>> parse : parses) {
+        assertSame(parses.get(0).get(), parse.get());
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+    assertEquals(1, parseCount.get());
+    assertEquals(1, cachingParser.getStats().getMissCount());
+  }
+
+  private File writeFile(String fileName, String content) throws IOException {
+    File file = temporaryFolder.newFile(fileName);
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+}
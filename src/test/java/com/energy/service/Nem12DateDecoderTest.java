@@ -0,0 +1,71 @@
+package com.energy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.repository.MeterRecordLine;
+import com.redenergy.service.Nem12DateDecoder;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the yyyyMMdd date decoder.
+ */
+public class Nem12DateDecoderTest {
+
+  private final Nem12DateDecoder dateDecoder = new Nem12DateDecoder();
+  private final MeterRecordLine meterRecordLine = new MeterRecordLine();
+
+  /**
+   * Verify the decoder accepts and rejects the same dates as LocalDate.parse with yyyyMMdd.
+   */
+  @Test
+  public void testMatchesDateTimeFormatter() {
+    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
+    int[] years = {0, 1, 1900, 1970, 2000, 2015, 2016, 2100, 9999};
+    for (int year : years) {
+      for (int month = 0; month <= 13; month++) {
+        for (int day = 0; day <= 32; day++) {
+          String date = String.format("%04d%02d%02d", year, month, day);
+          LocalDate expected;
+          try {
+            expected = LocalDate.parse(date, formatter);
+          } catch (DateTimeParseException e) {
+            expected = null;
+          }
+          assertEquals(date, expected, decode(date));
+        }
+      }
+    }
+    assertNull(decode("2016111"));
+    assertNull(decode("2016111113"));
+    assertNull(decode("2016-1-1"));
+  }
+
+  /**
+   * Verify decoded dates are shared and the error message is kept.
+   */
+  @Test
+  public void testCachedDatesAndError() throws SimpleNem12ParserException {
+    LocalDate first = dateDecoder.decode(meterRecordLine.tokenize("300,20161113", 1), 1);
+    LocalDate second = dateDecoder.decode(meterRecordLine.tokenize("300,20161113", 2), 1);
+    assertSame(first, second);
+    try {
+      dateDecoder.decode(meterRecordLine.tokenize("300,2016111113", 3), 1);
+      fail("Expected SimpleNem12ParserException");
+    } catch (SimpleNem12ParserException ex) {
+      assertEquals("Input date 2016111113 cannot be parsed", ex.getMessage());
+    }
+  }
+
+  private LocalDate decode(String date) {
+    try {
+      return dateDecoder.decode(meterRecordLine.tokenize(date, 1), 0);
+    } catch (SimpleNem12ParserException e) {
+      return null;
+    }
+  }
+}
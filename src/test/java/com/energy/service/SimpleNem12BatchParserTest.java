@@ -0,0 +1,236 @@
+package com.energy.service;
+
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.ColumnarMeterVolumes;
+import com.redenergy.model.EnergyUnit;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.Quality;
+import com.redenergy.service.BatchParseResult;
+import com.redenergy.service.ConcurrentNmiAggregator;
+import com.redenergy.service.DuplicateDatePolicy;
+import com.redenergy.service.FileParseResult;
+import com.redenergy.service.RollupMode;
+import com.redenergy.service.SimpleNem12BatchParser;
+import com.redenergy.service.SimpleNem12ParserConfig;
+import com.redenergy.service.SimpleNem12ParserImpl;
+import com.redenergy.service.VolumeStorage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SimpleNem12BatchParser.
+ */
+public class SimpleNem12BatchParserTest extends SimpleNem12ParserImplTestBase {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Verify a bad file is reported without stopping the batch, and NMIs are merged across files.
+   */
+  @Test
+  public void testParseFilesMergesByNmi() throws SimpleNem12ParserException {
+    File laterReads = getFile("SimpleNem12.csv");
+    File invalidDate = getFile("SimpleNem12_InvalidDate.csv");
+    File morningReads = writeFile("morning.csv",
+        "100\n200,6123456789,KWH\n300,20161120,1.5,A\n300,20161113,2,E\n900\n");
+    List<File> files = Arrays.asList(laterReads, invalidDate, morningReads);
+
+    BatchParseResult batchParseResult =
+        new SimpleNem12BatchParser(new SimpleNem12ParserImpl(), 2, 1).parseSimpleNem12Files(files);
+
+    assertEquals(3, batchParseResult.getFileResults().size());
+    assertEquals(2, batchParseResult.getFileResults().get(0).getMeterReads().size());
+    List<FileParseResult> failures = batchParseResult.getFailures();
+    assertEquals(1, failures.size());
+    assertEquals(invalidDate, failures.get(0).getFile());
+    assertEquals("Input date 2016111113 cannot be parsed", failures.get(0).getFailure().getMessage());
+
+    Iterator<MeterRead> meterReads = batchParseResult.getMeterReads().iterator();
+    MeterRead merged = meterReads.next();
+    assertEquals("6123456789", merged.getNmi());
+    assertEquals(8, merged.getVolumeCount());
+    assertEquals(0, new BigDecimal("17.46").compareTo(merged.getTotalVolume()));
+    assertEquals("6987654321", meterReads.next().getNmi());
+    assertFalse(meterReads.hasNext());
+    //the parsed MeterRead of the first file is not changed by the merge
+    assertEquals(7, batchParseResult.getFileResults().get(0).getMeterReads().get(0).getVolumeCount());
+  }
+
+  /**
+   * Verify a NMI read in several files keeps its rollup and columnar volumes once merged.
+   */
+  @Test
+  public void testMergeKeepsRollupsAndColumnarVolumes() throws SimpleNem12ParserException {
+    File laterReads = getFile("SimpleNem12.csv");
+    File morningReads = writeFile("morning.csv",
+        "100\n200,6123456789,KWH\n300,20161120,1.5,A\n300,20161112,2,E\n900\n");
+    SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+    config.setVolumeStorage(VolumeStorage.COLUMNAR);
+    config.setRollupMode(RollupMode.WITH_VOLUMES);
+
+    BatchParseResult batchParseResult =
+        new SimpleNem12BatchParser(new SimpleNem12ParserImpl(config), 2, 1)
+            .parseSimpleNem12Files(Arrays.asList(laterReads, morningReads));
+
+    MeterRead merged = batchParseResult.getMeterReads().get("6123456789");
+    assertTrue(merged.getVolumes() instanceof ColumnarMeterVolumes);
+    assertEquals(9, merged.getVolumeCount());
+    assertEquals(9, merged.getRollup().getCount());
+    assertEquals(0, merged.getTotalVolume().compareTo(merged.getRollup().getTotal().getSum()));
+    assertEquals(2, merged.getRollup().getEstimatedCount());
+    //the parsed MeterRead of the first file is not changed by the merge
+    assertEquals(7, batchParseResult.getFileResults().get(0).getMeterReads().get(0)
+        .getRollup().getCount());
+  }
+
+  /**
+   * Verify every file of a directory is parsed and a missing directory is rejected.
+   */
+  @Test
+  public void testParseDirectory() throws IOException, SimpleNem12ParserException {
+    writeFile("a.csv", "100\n200,6123456789,KWH\n300,20161113,1,A\n900\n");
+    writeFile("b.csv", "100\n200,6987654321,KWH\n300,20161113,2,A\n900\n");
+    SimpleNem12BatchParser batchParser = new SimpleNem12BatchParser();
+
+    BatchParseResult batchParseResult =
+        batchParser.parseSimpleNem12Directory(temporaryFolder.getRoot());
+    assertTrue(batchParseResult.getFailures().isEmpty());
+    assertEquals(2, batchParseResult.getMeterReads().size());
+
+    try {
+      batchParser.parseSimpleNem12Directory(new File(temporaryFolder.getRoot(), "missing"));
+      fail("missing directory should be rejected");
+    } catch (SimpleNem12ParserException ex) {
+      assertEquals("The Directory Does Not Exists", ex.getMessage());
+    }
+  }
+
+  /**
+   * Verify files aggregated while they are parsed give the MeterRead records of the merged batch,
+   * failed files add nothing, and the ERROR policy rejects a MeterRead whose date was already
+   * aggregated.
+   */
+  @Test
+  public void testAggregateSimpleNem12Files() throws SimpleNem12ParserException {
+    File laterReads = getFile("SimpleNem12.csv");
+    File invalidDate = getFile("SimpleNem12_InvalidDate.csv");
+    File morningReads = writeFile("morning.csv",
+        "100\n200,6123456789,KWH\n300,20161120,1.5,A\n300,20161112,2,E\n900\n");
+    SimpleNem12BatchParser batchParser =
+        new SimpleNem12BatchParser(new SimpleNem12ParserImpl(), 3, 1024 * 1024);
+
+    //the files share no date, so the merge does not depend on which thread adds last
+    ConcurrentNmiAggregator aggregator = new ConcurrentNmiAggregator();
+    List<FileParseResult> fileResults = batchParser.aggregateSimpleNem12Files(
+        Arrays.asList(laterReads, invalidDate, morningReads), aggregator);
+    assertEquals(3, fileResults.size());
+    assertTrue(fileResults.get(0).getMeterReads().isEmpty());
+    assertEquals(invalidDate, fileResults.get(1).getFile());
+    assertFalse(fileResults.get(1).isSuccess());
+
+    BatchParseResult batchParseResult =
+        batchParser.parseSimpleNem12Files(Arrays.asList(laterReads, morningReads));
+    assertEquals(batchParseResult.getMeterReads().size(), aggregator.getNmiCount());
+    assertEquals(0, aggregator.getDuplicateCount());
+    for (MeterRead expected : batchParseResult.getMeterReads()) {
+      MeterRead aggregated = aggregator.getMeterReads().get(expected.getNmi());
+      assertEquals(expected.getEnergyUnit(), aggregated.getEnergyUnit());
+      assertEquals(expected.getVolumes(), aggregated.getVolumes());
+      assertEquals(0, expected.getTotalVolume()
+          .compareTo(aggregator.getVolumeAggregate(expected.getNmi()).getSum()));
+    }
+
+    //a file failing after a complete 200 block, or missing its trailer, adds nothing
+    File lateError = writeFile("late-error.csv", "100\n200,9999999999,KWH\n300,20161113,1,A\n"
+        + "200,6123456789,KWH\n300,2016111,1,A\n900\n");
+    File noTrailer = writeFile("no-trailer.csv", "100\n200,8888888888,KWH\n300,20161113,1,A\n");
+    fileResults = batchParser.aggregateSimpleNem12Files(Arrays.asList(lateError, noTrailer),
+        aggregator);
+    assertFalse(fileResults.get(0).isSuccess());
+    assertFalse(fileResults.get(1).isSuccess());
+    assertEquals(batchParseResult.getMeterReads().size(), aggregator.getNmiCount());
+    assertNull(aggregator.getVolumeAggregate("9999999999"));
+    assertNull(aggregator.getVolumeAggregate("8888888888"));
+
+    ConcurrentNmiAggregator strictAggregator =
+        new ConcurrentNmiAggregator(DuplicateDatePolicy.ERROR);
+    fileResults = batchParser.aggregateSimpleNem12Files(
+        Arrays.asList(laterReads, laterReads), strictAggregator);
+    //whichever file adds its first 200 block second is rejected
+    assertTrue(fileResults.get(0).isSuccess() != fileResults.get(1).isSuccess());
+    assertEquals(1, strictAggregator.getDuplicateCount());
+    assertEquals(7, strictAggregator.getMeterReads().get("6123456789").getVolumeCount());
+  }
+
+  /**
+   * Verify volumes of the same NMIs added from many threads are all kept, and a date added twice
+   * keeps one volume.
+   */
+  @Test
+  public void testAggregatorAddsFromManyThreads() throws Exception {
+    ConcurrentNmiAggregator aggregator = new ConcurrentNmiAggregator();
+    int threadCount = 8;
+    int daysPerThread = 500;
+    ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<Void>> tasks = new ArrayList<>();
+      for (int t = 0; t < threadCount; t++) {
+        long firstDay = (long) t * daysPerThread;
+        tasks.add(executorService.submit(() -> {
+          for (long day = firstDay; day < firstDay + daysPerThread; day++) {
+            aggregator.add("NMI" + (day % 4), EnergyUnit.KWH, day, 15, 1, Quality.A);
+          }
+          //the last day of the previous thread, added again
+          aggregator.add("NMI" + ((firstDay + 3) % 4), EnergyUnit.KWH, firstDay - 1, 15, 1,
+              Quality.E);
+          return null;
+        }));
+      }
+      for (Future<Void> task : tasks) {
+        task.get();
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    assertEquals(4, aggregator.getNmiCount());
+    assertEquals(threadCount - 1, aggregator.getDuplicateCount());
+    long volumeCount = 0;
+    BigDecimal total = BigDecimal.ZERO;
+    for (MeterRead meterRead : aggregator.getMeterReads()) {
+      volumeCount += meterRead.getVolumeCount();
+      total = total.add(meterRead.getTotalVolume());
+    }
+    //the first thread adds day -1 as a new date
+    assertEquals(threadCount * daysPerThread + 1, volumeCount);
+    assertEquals(0, new BigDecimal("1.5").multiply(BigDecimal.valueOf(volumeCount))
+        .compareTo(total));
+  }
+
+  private File writeFile(String name, String content) {
+    try {
+      File file = temporaryFolder.newFile(name);
+      Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+      return file;
+    } catch (IOException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
@@ -1,13 +1,64 @@
 package com.energy.service;
 
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.IntervalQuality;
+import com.redenergy.model.IntervalReads;
 import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterReadIndex;
+import com.redenergy.model.MeterReadRollup;
+import com.redenergy.model.Quality;
+import com.redenergy.repository.MappedMeterRecordsReader;
+import com.redenergy.repository.MeterRecordsReader;
+import com.redenergy.repository.MeterRecordLine;
+import com.redenergy.service.DecimalMode;
+import com.redenergy.service.ErrorMode;
+import com.redenergy.service.FollowCheckpoint;
+import com.redenergy.service.FollowingMeterReadCursor;
+import com.redenergy.service.MeterRecordError;
+import com.redenergy.service.MeterReadCursor;
+import com.redenergy.service.Nem12Format;
+import com.redenergy.service.ParallelSimpleNem12Parser;
+import com.redenergy.service.ParseMetrics;
+import com.redenergy.service.ParseStage;
+import com.redenergy.service.ReaderMode;
+import com.redenergy.service.RollupMode;
+import com.redenergy.service.SimpleNem12Parser;
+import com.redenergy.service.SimpleNem12ParserConfig;
+import com.redenergy.service.VolumeStorage;
 import com.redenergy.service.SimpleNem12ParserImpl;
 import nl.altindag.log.LogCaptor;
+import com.redenergy.validation.Nem12Validators;
+import com.redenergy.validation.Validation;
+import com.redenergy.validation.ValidationRule;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.Assert.*;
 
@@ -16,6 +67,9 @@ import static org.junit.Assert.*;
  */
 public class SimpleNem12ParserImplTest extends SimpleNem12ParserImplTestBase {
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private SimpleNem12ParserImpl simpleNem12Parser;
   private LogCaptor<SimpleNem12ParserImpl> logCaptor;
 
@@ -93,4 +147,843 @@ public class SimpleNem12ParserImplTest extends SimpleNem12ParserImplTestBase {
     assertTrue(logCaptor.getErrorLogs().toString().trim()
         .contains("EnergyUnit value should be KWH"));
   }
+
+  /**
+   * Verify the streamed MeterReads match the collected MeterReads, volumes included.
+   */
+  @Test
+  public void testStreamMeterRecords() throws SimpleNem12ParserException {
+    File simpleNem12File = getFile("SimpleNem12.csv");
+    List<MeterRead> streamedMeterReads = new ArrayList<>();
+    simpleNem12Parser.parseSimpleNem12(simpleNem12File, streamedMeterReads::add);
+
+    assertSameMeterReads(simpleNem12Parser.parseSimpleNem12(simpleNem12File), streamedMeterReads);
+  }
+
+  /**
+   * Test streaming reports a missing 900 trailer.
+   */
+  @Test
+  public void testStreamInvalidLastLineInCsv() {
+    try (MeterReadCursor meterReadCursor =
+             simpleNem12Parser.openSimpleNem12(getFile("SimpleNem12_InvalidLastLine.csv"))) {
+      while (meterReadCursor.next() != null) {
+        // drain the cursor until the trailer check
+      }
+      fail("Expected SimpleNem12ParserException");
+    } catch (SimpleNem12ParserException ex) {
+      assertEquals("RecordType 900 must be the last line in the file", ex.getMessage());
+    }
+  }
+
+  /**
+   * Verify the memory mapped reader mode gives the same MeterReads as the line reader.
+   */
+  @Test
+  public void testMappedMeterRecords() {
+    File simpleNem12File = getFile("SimpleNem12.csv");
+    assertSameMeterReads(simpleNem12Parser.parseSimpleNem12(simpleNem12File),
+        new SimpleNem12ParserImpl(ReaderMode.MAPPED).parseSimpleNem12(simpleNem12File));
+  }
+
+  /**
+   * Verify the memory mapped reader tokenizes lines running across mapped windows.
+   */
+  @Test
+  public void testMappedReaderWindows() throws SimpleNem12ParserException {
+    try (MappedMeterRecordsReader reader =
+             MappedMeterRecordsReader.open(getFile("SimpleNem12.csv"), 7)) {
+      MeterRecordLine meterRecordLine = reader.nextRecord();
+      assertEquals("100", meterRecordLine.toString());
+      meterRecordLine = reader.nextRecord();
+      assertEquals(3, meterRecordLine.getFieldCount());
+      assertEquals("6123456789", meterRecordLine.fieldAsString(1));
+      assertTrue(reader.nextRecord().fieldEquals(2, "-50.8"));
+      int lines = 3;
+      while (reader.nextRecord() != null) {
+        lines++;
+      }
+      assertEquals(17, lines);
+    }
+  }
+
+  /**
+   * Test for invalid date in the memory mapped reader mode
+   */
+  @Test
+  public void testMappedInvalidDate() {
+    assertTrue(new SimpleNem12ParserImpl(ReaderMode.MAPPED)
+        .parseSimpleNem12(getFile("SimpleNem12_InvalidDate.csv")).isEmpty());
+    assertTrue(logCaptor.getErrorLogs().toString().trim()
+        .contains("Input date 2016111113 cannot be parsed"));
+  }
+
+  /**
+   * Verify parsing in chunks on several threads gives the same MeterReads in file order, on a
+   * pool given to the parser and shared by its parses, and that '\r' and "\r\n" end lines for
+   * every reader.
+   */
+  @Test
+  public void testParallelMeterRecords() throws IOException {
+    File simpleNem12File = getFile("SimpleNem12.csv");
+    Collection<MeterRead> expected = simpleNem12Parser.parseSimpleNem12(simpleNem12File);
+    assertSameMeterReads(expected,
+        new ParallelSimpleNem12Parser(4, 1).parseSimpleNem12(simpleNem12File));
+
+    String csv = new String(Files.readAllBytes(simpleNem12File.toPath()),
+        StandardCharsets.US_ASCII).replace("\r\n", "\n");
+    ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+    try (ParallelSimpleNem12Parser parallelParser =
+             new ParallelSimpleNem12Parser(forkJoinPool, 1, new SimpleNem12ParserConfig())) {
+      for (String lineEnd : Arrays.asList("\r", "\r\n")) {
+        File lineEndFile = writeFile(csv.replace("\n", lineEnd));
+        assertSameMeterReads(expected, parallelParser.parseSimpleNem12(lineEndFile));
+        for (ReaderMode readerMode : ReaderMode.values()) {
+          assertSameMeterReads(expected,
+              new SimpleNem12ParserImpl(readerMode).parseSimpleNem12(lineEndFile));
+        }
+      }
+    }
+    assertFalse(forkJoinPool.isShutdown());
+    forkJoinPool.shutdown();
+  }
+
+  /**
+   * Test the parallel parser reports the first error in file order.
+   */
+  @Test
+  public void testParallelInvalidFile() {
+    LogCaptor<ParallelSimpleNem12Parser> parallelLogCaptor =
+        LogCaptor.forClass(ParallelSimpleNem12Parser.class);
+    ParallelSimpleNem12Parser parallelParser = new ParallelSimpleNem12Parser(4, 1);
+    assertTrue(parallelParser.parseSimpleNem12(getFile("SimpleNem12_InvalidDate.csv")).isEmpty());
+    assertTrue(parallelParser.parseSimpleNem12(getFile("SimpleNem12_InvalidLastLine.csv")).isEmpty());
+    assertTrue(parallelParser.parseSimpleNem12(getFile("SimpleNem12_Empty.csv")).isEmpty());
+    String errorLogs = parallelLogCaptor.getErrorLogs().toString();
+    assertTrue(errorLogs.contains("Input date 2016111113 cannot be parsed"));
+    assertTrue(errorLogs.contains("RecordType 900 must be the last line in the file"));
+    assertTrue(errorLogs.contains("The input file doesn't have any meter records"));
+  }
+
+  /**
+   * Verify MeterReads with columnar volume storage read back the same volumes.
+   */
+  @Test
+  public void testColumnarVolumeStorage() {
+    SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+    config.setReaderMode(ReaderMode.MAPPED);
+    config.setVolumeStorage(VolumeStorage.COLUMNAR);
+    File simpleNem12File = getFile("SimpleNem12.csv");
+    Collection<MeterRead> meterReads = new SimpleNem12ParserImpl(config).parseSimpleNem12(simpleNem12File);
+    assertSameMeterReads(simpleNem12Parser.parseSimpleNem12(simpleNem12File), meterReads);
+    assertEquals(0, new BigDecimal("-36.84").compareTo(meterReads.iterator().next().getTotalVolume()));
+  }
+
+  /**
+   * Verify volumes beyond the fixed point range of columnar storage are reported as invalid
+   * records in the BIG_DECIMAL decimal mode, and kept with tree map storage.
+   */
+  @Test
+  public void testColumnarVolumeRange() throws IOException, SimpleNem12ParserException {
+    File simpleNem12File = writeFile("100\n"
+        + "200,6123456789,KWH\n"
+        + "300,20161113,1.5,A\n"
+        + "300,20161114,12345678901234567890.1,A\n"
+        + "300,20161115,1E-200,A\n"
+        + "300,20161116,0E+200,A\n"
+        + "900\n");
+    SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+    config.setErrorMode(ErrorMode.LENIENT);
+    assertEquals(4, new SimpleNem12ParserImpl(config).parseSimpleNem12(simpleNem12File)
+        .get("6123456789").getVolumeCount());
+
+    config.setVolumeStorage(VolumeStorage.COLUMNAR);
+    try (MeterReadCursor meterReadCursor =
+             new SimpleNem12ParserImpl(config).openSimpleNem12(simpleNem12File)) {
+      assertEquals(1, meterReadCursor.next().getVolumeCount());
+      List<MeterRecordError> errors = meterReadCursor.getMeterRecordErrors();
+      assertEquals(3, errors.size());
+      assertEquals("Volume should fit 18 significant digits", errors.get(0).getReason());
+      assertEquals("Volume scale should be between -128 and 127", errors.get(1).getReason());
+      assertEquals("Volume scale should be between -128 and 127", errors.get(2).getReason());
+    }
+  }
+
+  /**
+   * Verify fixed point volumes give exactly the BigDecimal volumes and totals.
+   */
+  @Test
+  public void testFixedPointVolumes() {
+    File simpleNem12File = getFile("SimpleNem12.csv");
+    Collection<MeterRead> expected = simpleNem12Parser.parseSimpleNem12(simpleNem12File);
+    for (VolumeStorage volumeStorage : VolumeStorage.values()) {
+      SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+      config.setDecimalMode(DecimalMode.FIXED_POINT);
+      config.setVolumeStorage(volumeStorage);
+      Collection<MeterRead> meterReads = new SimpleNem12ParserImpl(config).parseSimpleNem12(simpleNem12File);
+      assertSameMeterReads(expected, meterReads);
+      Iterator<MeterRead> expectedIterator = expected.iterator();
+      for (MeterRead meterRead : meterReads) {
+        MeterRead expectedMeterRead = expectedIterator.next();
+        assertEquals(expectedMeterRead.getTotalVolume(), meterRead.getTotalVolume());
+        assertEquals(expectedMeterRead.getMinVolume(), meterRead.getMinVolume());
+        assertEquals(expectedMeterRead.getMaxVolume(), meterRead.getMaxVolume());
+      }
+    }
+  }
+
+  /**
+   * Verify an exponent volume keeps the scale BigDecimal parses, with every reader, and is
+   * reported as an invalid record when its scale does not fit columnar storage.
+   */
+  @Test
+  public void testFixedPointExponentVolume() throws IOException, SimpleNem12ParserException {
+    File simpleNem12File = writeFile("100\n"
+        + "200,6123456789,KWH\n"
+        + "300,20161113,1.5E+2,A\n"
+        + "300,20161114,1E+200,A\n"
+        + "300,20161115,0E+200,E\n"
+        + "300,20161116,-2E+3,A\n"
+        + "900\n");
+    Collection<MeterRead> expected = simpleNem12Parser.parseSimpleNem12(simpleNem12File);
+    for (ReaderMode readerMode : ReaderMode.values()) {
+      SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+      config.setReaderMode(readerMode);
+      config.setDecimalMode(DecimalMode.FIXED_POINT);
+      Collection<MeterRead> meterReads =
+          new SimpleNem12ParserImpl(config).parseSimpleNem12(simpleNem12File);
+      assertSameMeterReads(expected, meterReads);
+      MeterRead meterRead = meterReads.iterator().next();
+      assertEquals(new BigDecimal("1.5E+2"),
+          meterRead.getVolumes().get(LocalDate.of(2016, 11, 13)).getVolume());
+      assertEquals(expected.iterator().next().getTotalVolume(), meterRead.getTotalVolume());
+
+      config.setVolumeStorage(VolumeStorage.COLUMNAR);
+      assertTrue(new SimpleNem12ParserImpl(config).parseSimpleNem12(simpleNem12File).isEmpty());
+
+      config.setErrorMode(ErrorMode.LENIENT);
+      try (MeterReadCursor meterReadCursor =
+               new SimpleNem12ParserImpl(config).openSimpleNem12(simpleNem12File)) {
+        meterRead = meterReadCursor.next();
+        assertEquals(2, meterRead.getVolumeCount());
+        assertEquals(new BigDecimal("15E+1"),
+            meterRead.getVolumes().get(LocalDate.of(2016, 11, 13)).getVolume());
+        assertEquals(new BigDecimal("-2E+3"),
+            meterRead.getVolumes().get(LocalDate.of(2016, 11, 16)).getVolume());
+        assertNull(meterReadCursor.next());
+        List<MeterRecordError> errors = meterReadCursor.getMeterRecordErrors();
+        assertEquals(2, errors.size());
+        assertEquals(4, errors.get(0).getLineNumber());
+        assertEquals("Volume scale should be between -128 and 127", errors.get(0).getReason());
+        assertEquals(5, errors.get(1).getLineNumber());
+      }
+    }
+  }
+
+  /**
+   * Verify a volume with more decimal places than the max volume scale is an invalid record
+   * in the FIXED_POINT decimal mode only.
+   */
+  @Test
+  public void testFixedPointMaxVolumeScale() throws IOException, SimpleNem12ParserException {
+    File simpleNem12File = writeFile("100\n"
+        + "200,6123456789,KWH\n"
+        + "300,20161113,1.25,A\n"
+        + "300,20161114,0.1234567,A\n"
+        + "900\n");
+    SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+    config.setErrorMode(ErrorMode.LENIENT);
+    assertEquals(2, new SimpleNem12ParserImpl(config).parseSimpleNem12(simpleNem12File)
+        .get("6123456789").getVolumeCount());
+
+    config.setDecimalMode(DecimalMode.FIXED_POINT);
+    try (MeterReadCursor meterReadCursor =
+             new SimpleNem12ParserImpl(config).openSimpleNem12(simpleNem12File)) {
+      assertEquals(1, meterReadCursor.next().getVolumeCount());
+      List<MeterRecordError> errors = meterReadCursor.getMeterRecordErrors();
+      assertEquals(1, errors.size());
+      assertEquals(4, errors.get(0).getLineNumber());
+      assertEquals("Volume should have at most 6 decimal places", errors.get(0).getReason());
+    }
+
+    config.setMaxVolumeScale(7);
+    assertEquals(2, new SimpleNem12ParserImpl(config).parseSimpleNem12(simpleNem12File)
+        .get("6123456789").getVolumeCount());
+  }
+
+  /**
+   * Records with a non ASCII character are rejected the same way by every reader, whether the
+   * file is valid UTF-8 or not, plain or compressed.
+   */
+  @Test
+  public void testNonAsciiRecords() throws IOException, SimpleNem12ParserException {
+    ByteArrayOutputStream csv = new ByteArrayOutputStream();
+    csv.write("100\n200,61234567\u00e98,KWH\n300,20161113,1.5,A\n200,6987654321,KWH\n"
+        .getBytes(StandardCharsets.UTF_8));
+    csv.write("300,20161113,2,".getBytes(StandardCharsets.US_ASCII));
+    csv.write(0xc1);
+    csv.write("\n300,20161114,3,A\n900\n".getBytes(StandardCharsets.US_ASCII));
+    File plainFile = temporaryFolder.newFile("NonAscii.csv");
+    Files.write(plainFile.toPath(), csv.toByteArray());
+    File gzipFile = temporaryFolder.newFile("NonAscii.csv.gz");
+    try (OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(gzipFile))) {
+      outputStream.write(csv.toByteArray());
+    }
+    for (File simpleNem12File : Arrays.asList(plainFile, gzipFile)) {
+      for (ReaderMode readerMode : ReaderMode.values()) {
+        SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+        config.setReaderMode(readerMode);
+        assertTrue(new SimpleNem12ParserImpl(config).parseSimpleNem12(simpleNem12File).isEmpty());
+
+        config.setErrorMode(ErrorMode.LENIENT);
+        try (MeterReadCursor meterReadCursor =
+                 new SimpleNem12ParserImpl(config).openSimpleNem12(simpleNem12File)) {
+          MeterRead meterRead = meterReadCursor.next();
+          assertEquals("6987654321", meterRead.getNmi());
+          assertEquals(1, meterRead.getVolumeCount());
+          assertNull(meterReadCursor.next());
+          List<MeterRecordError> errors = meterReadCursor.getMeterRecordErrors();
+          assertEquals(2, errors.size());
+          assertEquals(2, errors.get(0).getLineNumber());
+          assertEquals(5, errors.get(1).getLineNumber());
+          for (MeterRecordError error : errors) {
+            assertEquals(ValidationRule.ASCII, error.getRule());
+            assertEquals("Meter record should only hold ASCII characters", error.getReason());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Test the header and trailer are checked from the ends of the file before parsing.
+   */
+  @Test
+  public void testFileBoundariesPreValidation() throws IOException {
+    Validation<File> fileBoundaries = Nem12Validators.isValidFileBoundaries();
+    assertTrue(fileBoundaries.test(getFile("SimpleNem12.csv")).isValid());
+    assertEquals("RecordType 900 must be the last line in the file",
+        fileBoundaries.test(getFile("SimpleNem12_InvalidLastLine.csv")).getReason());
+    assertEquals("RecordType 100 must be the first line in the file",
+        fileBoundaries.test(getFile("SimpleNem12_InvalidFirstLine.csv")).getReason());
+    assertEquals("The input file doesn't have any meter records",
+        fileBoundaries.test(getFile("SimpleNem12_Empty.csv")).getReason());
+    assertTrue(fileBoundaries.test(writeFile(" 100 \r\n200,6123456789,KWH\r\n900\r\n")).isValid());
+    assertFalse(fileBoundaries.test(writeFile("100\n200,6123456789,KWH\n900\n\n")).isValid());
+    assertFalse(fileBoundaries.test(writeFile("100,\n9000")).isValid());
+  }
+
+  /**
+   * Verify the lenient mode skips invalid records and blocks, reporting their lines, with every
+   * reader, and stops once the error budget is used up.
+   */
+  @Test
+  public void testLenientErrorMode() throws IOException, SimpleNem12ParserException {
+    File simpleNem12File = writeFile("100\n"
+        + "200,6123456789,KWH\n"
+        + "300,20161113,-50.8,A\n"
+        + "300,2016111,23.96,A\n"
+        + "300,20161115,abc,A\n"
+        + "300,20161116,-33,X\n"
+        + "200,612345678,KWH\n"
+        + "300,20161215,-3.8,A\n"
+        + "200,6987654321,KWH\n"
+        + "300,20161216,4.5,E\n"
+        + "900\n");
+
+    for (ReaderMode readerMode : ReaderMode.values()) {
+      SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+      config.setErrorMode(ErrorMode.LENIENT);
+      config.setReaderMode(readerMode);
+      SimpleNem12ParserImpl lenientParser = new SimpleNem12ParserImpl(config);
+
+      List<MeterRead> meterReads = new ArrayList<>(lenientParser.parseSimpleNem12(simpleNem12File));
+      assertEquals(2, meterReads.size());
+      assertEquals(1, meterReads.get(0).getVolumeCount());
+      assertEquals("6987654321", meterReads.get(1).getNmi());
+      assertSameMeterReads(meterReads,
+          new ParallelSimpleNem12Parser(4, 1, config).parseSimpleNem12(simpleNem12File));
+
+      try (MeterReadCursor meterReadCursor = lenientParser.openSimpleNem12(simpleNem12File)) {
+        while (meterReadCursor.next() != null) {
+        }
+        List<MeterRecordError> errors = meterReadCursor.getMeterRecordErrors();
+        assertEquals(4, errors.size());
+        assertEquals(4, errors.get(0).getLineNumber());
+        assertEquals("Input date 2016111 cannot be parsed", errors.get(0).getReason());
+        assertEquals("Volume should be a decimal number", errors.get(1).getReason());
+        assertEquals("Quality should be either A or E", errors.get(2).getReason());
+        assertEquals(7, errors.get(3).getLineNumber());
+        assertEquals("the number of characters should be 10", errors.get(3).getReason());
+        assertEquals(readerMode == ReaderMode.MAPPED ? 44 : -1, errors.get(0).getByteOffset());
+      }
+
+      config.setMaxErrors(3);
+      assertTrue(lenientParser.parseSimpleNem12(simpleNem12File).isEmpty());
+      assertTrue(logCaptor.getErrorLogs().toString()
+          .contains("More than 3 invalid meter records in the file"));
+    }
+  }
+
+  /**
+   * Verify repeated 200 blocks of a NMI are merged and found by NMI, with every reader and
+   * across parallel chunks.
+   */
+  @Test
+  public void testMeterReadIndex() throws IOException {
+    File simpleNem12File = writeFile("100\n"
+        + "200,6123456789,KWH\n"
+        + "300,20161113,-50.8,A\n"
+        + "300,20161114,23.96,A\n"
+        + "200,6987654321,KWH\n"
+        + "300,20161215,-3.8,A\n"
+        + "200,6123456789,KWH\n"
+        + "300,20161114,24,E\n"
+        + "300,20161115,32.0,A\n"
+        + "900\n");
+
+    for (ReaderMode readerMode : ReaderMode.values()) {
+      MeterReadIndex meterReads =
+          new SimpleNem12ParserImpl(readerMode).parseSimpleNem12(simpleNem12File);
+      assertEquals(2, meterReads.size());
+      assertEquals(Arrays.asList("6123456789", "6987654321"),
+          meterReads.stream().map(MeterRead::getNmi).collect(Collectors.toList()));
+      MeterRead meterRead = meterReads.get("6123456789");
+      assertEquals(3, meterRead.getVolumeCount());
+      assertEquals(0, new BigDecimal("5.2").compareTo(meterRead.getTotalVolume()));
+      assertTrue(meterReads.contains(new MeterRead("6987654321", null)));
+      assertNull(meterReads.get("6000000000"));
+      assertSameMeterReads(meterReads,
+          new ParallelSimpleNem12Parser(4, 1).parseSimpleNem12(simpleNem12File));
+    }
+  }
+
+  /**
+   * Verify a file still being written is followed block by block, and a follower resumed from
+   * the checkpoint reads only the open block onwards.
+   */
+  @Test
+  public void testFollowSimpleNem12() throws Exception {
+    String head = "100\n200,6123456789,KWH\n300,20161113,-50.8,A\n300,201611";
+    String body = "14,23.96,A\n200,6987654321,KWH\n300,20161215,-3.8,A\n";
+    File simpleNem12File = writeFile(head);
+    Thread writer = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+        Files.write(simpleNem12File.toPath(), body.getBytes(StandardCharsets.US_ASCII),
+            StandardOpenOption.APPEND);
+        Thread.sleep(50);
+        Files.write(simpleNem12File.toPath(), "900".getBytes(StandardCharsets.US_ASCII),
+            StandardOpenOption.APPEND);
+      } catch (Exception ex) {
+        throw new IllegalStateException(ex);
+      }
+    });
+    writer.start();
+
+    SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+    config.setFollowPollMillis(10);
+    config.setFollowIdleTimeoutMillis(10000);
+    SimpleNem12ParserImpl follower = new SimpleNem12ParserImpl(config);
+    FollowCheckpoint checkpoint;
+    try (FollowingMeterReadCursor cursor =
+             follower.followSimpleNem12(simpleNem12File, FollowCheckpoint.START)) {
+      MeterRead first = cursor.next();
+      assertEquals("6123456789", first.getNmi());
+      assertEquals(2, first.getVolumeCount());
+      checkpoint = cursor.getCheckpoint();
+      assertEquals((head + body).indexOf("200,6987654321"), checkpoint.getByteOffset());
+      assertEquals(4, checkpoint.getLineNumber());
+
+      assertEquals("6987654321", cursor.next().getNmi());
+      assertNull(cursor.next());
+      assertTrue(cursor.getCheckpoint().isComplete());
+      assertEquals(simpleNem12File.length(), cursor.getCheckpoint().getByteOffset());
+    }
+    writer.join();
+
+    try (FollowingMeterReadCursor resumed =
+             follower.followSimpleNem12(simpleNem12File, checkpoint)) {
+      MeterRead second = resumed.next();
+      assertEquals("6987654321", second.getNmi());
+      assertEquals(1, second.getVolumeCount());
+      assertNull(resumed.next());
+      assertEquals(7, resumed.getCheckpoint().getLineNumber());
+      try (FollowingMeterReadCursor completed =
+               follower.followSimpleNem12(simpleNem12File, resumed.getCheckpoint())) {
+        assertNull(completed.next());
+      }
+    }
+  }
+
+  /**
+   * Verify gzip and zip files are detected from their content and parsed by every parser,
+   * each zip entry being validated as a file of its own.
+   */
+  @Test
+  public void testCompressedInput() throws IOException, SimpleNem12ParserException {
+    byte[] csv = Files.readAllBytes(getFile("SimpleNem12.csv").toPath());
+    File gzipFile = temporaryFolder.newFile("SimpleNem12.dat");
+    try (OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(gzipFile))) {
+      outputStream.write(csv);
+    }
+    File zipFile = temporaryFolder.newFile("SimpleNem12.zip");
+    try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(zipFile))) {
+      outputStream.putNextEntry(new ZipEntry("first/"));
+      outputStream.putNextEntry(new ZipEntry("first/SimpleNem12.csv"));
+      outputStream.write(csv);
+      outputStream.putNextEntry(new ZipEntry("second.csv"));
+      outputStream.write("100\n200,6123456789,KWH\n300,20161120,1.5,A\n900\n"
+          .getBytes(StandardCharsets.US_ASCII));
+    }
+
+    Collection<MeterRead> expected =
+        simpleNem12Parser.parseSimpleNem12(getFile("SimpleNem12.csv"));
+    assertEquals(new MeterRecordsReader().readLines(getFile("SimpleNem12.csv")),
+        new MeterRecordsReader().readLines(gzipFile));
+    SimpleNem12ParserConfig mapped = new SimpleNem12ParserConfig();
+    mapped.setReaderMode(ReaderMode.MAPPED);
+    List<SimpleNem12Parser> parsers = Arrays.asList(simpleNem12Parser,
+        new SimpleNem12ParserImpl(mapped), new ParallelSimpleNem12Parser(4, 1));
+    for (SimpleNem12Parser parser : parsers) {
+      assertSameMeterReads(expected, parser.parseSimpleNem12(gzipFile));
+      MeterReadIndex zipped = (MeterReadIndex) parser.parseSimpleNem12(zipFile);
+      assertEquals(2, zipped.size());
+      assertEquals(8, zipped.get("6123456789").getVolumeCount());
+    }
+
+    File invalidZip = temporaryFolder.newFile("Invalid.zip");
+    try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(invalidZip))) {
+      outputStream.putNextEntry(new ZipEntry("valid.csv"));
+      outputStream.write(csv);
+      outputStream.putNextEntry(new ZipEntry("truncated.csv"));
+      outputStream.write("100\n200,6123456789,KWH\n".getBytes(StandardCharsets.US_ASCII));
+    }
+    try (MeterReadCursor meterReadCursor = simpleNem12Parser.openSimpleNem12(invalidZip)) {
+      assertEquals("6123456789", meterReadCursor.next().getNmi());
+      assertEquals("6987654321", meterReadCursor.next().getNmi());
+      meterReadCursor.next();
+      fail("the second entry has no 900 trailer");
+    } catch (SimpleNem12ParserException ex) {
+      assertEquals("RecordType 900 must be the last line in the file", ex.getMessage());
+    }
+  }
+
+  /**
+   * Every parse path reports the counts, failures by rule and stage times of the file to an
+   * enabled metrics sink, once per file.
+   */
+  @Test
+  public void testMetricsSink() throws IOException {
+    File simpleNem12File = writeFile("100\n"
+        + "200,6123456789,KWH\n"
+        + "300,20161113,-50.8,A\n"
+        + "300,2016111,23.96,A\n"
+        + "300,20161115,abc,A\n"
+        + "300,20161116,-33,X\n"
+        + "200,612345678,KWH\n"
+        + "300,20161215,-3.8,A\n"
+        + "200,6987654321,KWH\n"
+        + "300,20161216,4.5,E\n"
+        + "900\n");
+    List<ParseMetrics> reported = new ArrayList<>();
+
+    for (ReaderMode readerMode : ReaderMode.values()) {
+      SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+      config.setErrorMode(ErrorMode.LENIENT);
+      config.setReaderMode(readerMode);
+      config.setMetricsSink(reported::add);
+      List<SimpleNem12Parser> parsers = Arrays.asList(new SimpleNem12ParserImpl(config),
+          new ParallelSimpleNem12Parser(4, 1, config));
+      for (SimpleNem12Parser parser : parsers) {
+        reported.clear();
+        assertEquals(2, parser.parseSimpleNem12(simpleNem12File).size());
+        assertEquals(1, reported.size());
+        ParseMetrics parseMetrics = reported.get(0);
+        assertTrue(parseMetrics.isSuccessful());
+        assertEquals(simpleNem12File.length(), parseMetrics.getBytesRead());
+        assertEquals(11, parseMetrics.getLineCount());
+        assertEquals(3, parseMetrics.getParentRecordCount());
+        assertEquals(5, parseMetrics.getChildRecordCount());
+        assertEquals(2, parseMetrics.getMeterReadCount());
+        assertEquals(4, parseMetrics.getFailuresByRule().size());
+        for (ValidationRule rule : Arrays.asList(ValidationRule.DATE, ValidationRule.VOLUME,
+            ValidationRule.QUALITY, ValidationRule.NMI)) {
+          assertEquals(Long.valueOf(1), parseMetrics.getFailuresByRule().get(rule));
+        }
+        assertTrue(parseMetrics.getStageNanos(ParseStage.VALIDATE) > 0);
+        assertTrue(parseMetrics.getStageNanos(ParseStage.PARSE) > 0);
+        assertTrue(parseMetrics.getLinesPerSecond() > 0);
+        assertTrue(parseMetrics.getAllocatedBytes() != 0);
+      }
+    }
+
+    reported.clear();
+    SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+    config.setMetricsSink(reported::add);
+    try (MeterReadCursor meterReadCursor = new SimpleNem12ParserImpl(config)
+        .openSimpleNem12(getFile("SimpleNem12_InvalidDate.csv"))) {
+      while (meterReadCursor.next() != null) {
+      }
+      fail("the date is invalid");
+    } catch (SimpleNem12ParserException ex) {
+      assertEquals(ValidationRule.DATE, ex.getRule());
+    }
+    new SimpleNem12ParserImpl(config).parseSimpleNem12(getFile("SimpleNem12_InvalidLastLine.csv"));
+    assertEquals(2, reported.size());
+    assertFalse(reported.get(0).isSuccessful());
+    assertEquals(Long.valueOf(1), reported.get(0).getFailuresByRule().get(ValidationRule.DATE));
+    assertEquals(Long.valueOf(1),
+        reported.get(1).getFailuresByRule().get(ValidationRule.END_LINE));
+    assertEquals(0, reported.get(1).getStageNanos(ParseStage.PARSE));
+  }
+
+  /**
+   * Rollups kept while parsing match the volumes whatever the decimal mode, storage and parser,
+   * and the rollup only mode keeps no volumes.
+   */
+  @Test
+  public void testRollups() {
+    File simpleNem12File = getFile("SimpleNem12.csv");
+    for (DecimalMode decimalMode : DecimalMode.values()) {
+      for (RollupMode rollupMode : Arrays.asList(RollupMode.WITH_VOLUMES,
+          RollupMode.ROLLUP_ONLY)) {
+        SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+        config.setDecimalMode(decimalMode);
+        config.setVolumeStorage(decimalMode == DecimalMode.FIXED_POINT
+            ? VolumeStorage.COLUMNAR : VolumeStorage.TREE_MAP);
+        config.setRollupMode(rollupMode);
+        List<SimpleNem12Parser> parsers = Arrays.asList(new SimpleNem12ParserImpl(config),
+            new ParallelSimpleNem12Parser(4, 1, config));
+        for (SimpleNem12Parser parser : parsers) {
+          MeterReadIndex meterReads = (MeterReadIndex) parser.parseSimpleNem12(simpleNem12File);
+          assertEquals(rollupMode == RollupMode.ROLLUP_ONLY ? 0 : 7,
+              meterReads.get("6123456789").getVolumeCount());
+
+          Map<String, MeterReadRollup> rollups = meterReads.getRollups();
+          assertEquals(Arrays.asList("6123456789", "6987654321"),
+              new ArrayList<>(rollups.keySet()));
+          MeterReadRollup november = rollups.get("6123456789");
+          assertEquals(7, november.getCount());
+          assertEquals(1, november.getEstimatedCount());
+          assertEquals(0, new BigDecimal("-36.84").compareTo(november.getTotal().getSum()));
+          assertEquals(0, new BigDecimal("-50.8").compareTo(november.getTotal().getMin().get()));
+          assertEquals(0, new BigDecimal("32.0").compareTo(november.getTotal().getMax().get()));
+          assertEquals(LocalDate.of(2016, 11, 13), november.getFirstReadDate().get());
+          assertEquals(LocalDate.of(2016, 11, 19), november.getLastReadDate().get());
+          assertEquals(Collections.singleton(YearMonth.of(2016, 11)),
+              november.getMonthly().keySet());
+
+          MeterReadRollup december = rollups.get("6987654321");
+          assertEquals(2, december.getEstimatedCount());
+          assertEquals(0, new BigDecimal("14.33").compareTo(
+              december.getMonthly().get(YearMonth.of(2016, 12)).getSum()));
+          assertEquals(0, new BigDecimal("26.43").compareTo(
+              december.getByQuality(Quality.E).getSum()));
+          assertEquals(LocalDate.of(2016, 12, 21), december.getLastReadDate().get());
+        }
+      }
+    }
+  }
+
+  /**
+   * A date read twice is rolled up with its last volume, within a 200 block and across blocks
+   * of a NMI, and is an invalid record when only the rollup is kept.
+   */
+  @Test
+  public void testDuplicateDateRollups() throws IOException, SimpleNem12ParserException {
+    File simpleNem12File = writeFile("100\n"
+        + "200,6123456789,KWH\n"
+        + "300,20161113,10.5,A\n"
+        + "300,20161114,2,E\n"
+        + "300,20161113,1.25,E\n"
+        + "200,6123456789,KWH\n"
+        + "300,20161114,3,A\n"
+        + "300,20161115,4,A\n"
+        + "300,20161112,1,A\n"
+        + "900\n");
+    for (DecimalMode decimalMode : DecimalMode.values()) {
+      SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+      config.setDecimalMode(decimalMode);
+      config.setVolumeStorage(decimalMode == DecimalMode.FIXED_POINT
+          ? VolumeStorage.COLUMNAR : VolumeStorage.TREE_MAP);
+      config.setRollupMode(RollupMode.WITH_VOLUMES);
+      try (MeterReadCursor meterReadCursor =
+               new SimpleNem12ParserImpl(config).openSimpleNem12(simpleNem12File)) {
+        MeterReadRollup firstBlock = meterReadCursor.next().getRollup();
+        assertEquals(2, firstBlock.getCount());
+        assertEquals(2, firstBlock.getEstimatedCount());
+        assertEquals(0, new BigDecimal("3.25").compareTo(firstBlock.getTotal().getSum()));
+      }
+      for (SimpleNem12Parser parser : Arrays.asList(new SimpleNem12ParserImpl(config),
+          new ParallelSimpleNem12Parser(4, 1, config))) {
+        MeterRead meterRead =
+            ((MeterReadIndex) parser.parseSimpleNem12(simpleNem12File)).get("6123456789");
+        MeterReadRollup rollup = meterRead.getRollup();
+        assertEquals(4, meterRead.getVolumeCount());
+        assertEquals(4, rollup.getCount());
+        assertEquals(1, rollup.getEstimatedCount());
+        assertEquals(0, meterRead.getTotalVolume().compareTo(rollup.getTotal().getSum()));
+        assertEquals(0, BigDecimal.ONE.compareTo(rollup.getTotal().getMin().get()));
+        assertEquals(0, new BigDecimal("4").compareTo(rollup.getTotal().getMax().get()));
+        assertEquals(LocalDate.of(2016, 11, 12), rollup.getFirstReadDate().get());
+        assertTrue(rollup.isRead(LocalDate.of(2016, 11, 15).toEpochDay()));
+        assertFalse(rollup.isRead(LocalDate.of(2016, 11, 16).toEpochDay()));
+      }
+
+      config.setRollupMode(RollupMode.ROLLUP_ONLY);
+      assertTrue(new SimpleNem12ParserImpl(config).parseSimpleNem12(simpleNem12File).isEmpty());
+      config.setErrorMode(ErrorMode.LENIENT);
+      try (MeterReadCursor meterReadCursor =
+               new SimpleNem12ParserImpl(config).openSimpleNem12(simpleNem12File)) {
+        MeterReadRollup firstBlock = meterReadCursor.next().getRollup();
+        assertEquals(2, firstBlock.getCount());
+        assertEquals(0, new BigDecimal("12.5").compareTo(firstBlock.getTotal().getSum()));
+        assertEquals(3, meterReadCursor.next().getRollup().getCount());
+        List<MeterRecordError> errors = meterReadCursor.getMeterRecordErrors();
+        assertEquals(1, errors.size());
+        assertEquals(5, errors.get(0).getLineNumber());
+        assertEquals(ValidationRule.DUPLICATE_DATE, errors.get(0).getRule());
+      }
+    }
+  }
+
+  /**
+   * Published MeterReads are only parsed as they are asked for, cancelling stops the parse and
+   * an invalid file is handed to the subscriber as an error.
+   */
+  @Test
+  public void testPublishSimpleNem12() {
+    SimpleNem12Parser parser = new SimpleNem12ParserImpl();
+    List<Object> signals = new ArrayList<>();
+    Flow.Subscription[] subscription = new Flow.Subscription[1];
+    Flow.Subscriber<MeterRead> subscriber = new Flow.Subscriber<MeterRead>() {
+      @Override
+      public void onSubscribe(Flow.Subscription s) {
+        subscription[0] = s;
+      }
+
+      @Override
+      public void onNext(MeterRead meterRead) {
+        signals.add(meterRead.getNmi());
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        signals.add(throwable);
+      }
+
+      @Override
+      public void onComplete() {
+        signals.add("complete");
+      }
+    };
+
+    parser.publishSimpleNem12(getFile("SimpleNem12.csv"), Runnable::run).subscribe(subscriber);
+    assertTrue(signals.isEmpty());
+    subscription[0].request(1);
+    assertEquals(Collections.singletonList("6123456789"), signals);
+    subscription[0].request(Long.MAX_VALUE);
+    assertEquals(Arrays.asList("6123456789", "6987654321", "complete"), signals);
+
+    signals.clear();
+    parser.publishSimpleNem12(getFile("SimpleNem12.csv"), Runnable::run).subscribe(subscriber);
+    subscription[0].request(1);
+    subscription[0].cancel();
+    subscription[0].request(1);
+    assertEquals(Collections.singletonList("6123456789"), signals);
+
+    signals.clear();
+    parser.publishSimpleNem12(getFile("SimpleNem12_InvalidLastLine.csv"), Runnable::run)
+        .subscribe(subscriber);
+    subscription[0].request(1);
+    assertEquals(1, signals.size());
+    assertTrue(signals.get(0) instanceof SimpleNem12ParserException);
+  }
+
+  /**
+   * Full NEM12 intervals are packed per day with the qualities of their 400 records, the data
+   * streams of a NMI are merged by NMI suffix and the interval length comes from the 200 record.
+   */
+  @Test
+  public void testFullNem12Intervals() throws IOException, SimpleNem12ParserException {
+    String header = "100,NEM12,200506081149,UNITEDDP,NEMMCO\n";
+    String content = header
+        + "200,NEM1201009,E1E2,1,E1,N1,01009,kWh,30,20050610\n"
+        + intervalDay("20050301", 48, "1.5", "A") + ",,,20050310121004,20050310182204\n"
+        + intervalDay("20050302", 48, "0.125", "V") + ",,,20050310121004,20050310182204\n"
+        + "400,1,20,F14,76,\n"
+        + "400,21,48,A,,\n"
+        + "200,NEM1201009,E1E2,2,E2,N2,01009,kWh,30,20050610\n"
+        + intervalDay("20050301", 48, "2", "E52") + "\n"
+        + "500,O,S01009,20050310121004,\n"
+        + "200,NEM1201010,E1,1,E1,N1,01010,kWh,15,20050610\n"
+        + intervalDay("20050301", 96, "-0.001", "S53") + "\n"
+        + "900\n";
+    SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+    config.setNem12Format(Nem12Format.FULL);
+    for (ReaderMode readerMode : ReaderMode.values()) {
+      config.setReaderMode(readerMode);
+      MeterReadIndex meterReads = new SimpleNem12ParserImpl(config)
+          .parseSimpleNem12(writeFile(content));
+      assertEquals(2, meterReads.size());
+
+      Map<String, IntervalReads> streams = meterReads.get("NEM1201009").getIntervalReads();
+      assertEquals(Arrays.asList("E1", "E2"), new ArrayList<>(streams.keySet()));
+      IntervalReads e1 = streams.get("E1");
+      assertEquals(48, e1.getIntervalsPerDay());
+      assertEquals("kWh", e1.getUnitOfMeasure());
+      assertEquals(2, e1.getDayCount());
+      assertEquals(LocalDate.of(2005, 3, 2), e1.getDate(1));
+      assertEquals(1, e1.getScale(0));
+      assertEquals(new BigDecimal("1.5"), e1.getValue(0, 1));
+      assertEquals(new BigDecimal("0.000"), e1.getValue(1, 0));
+      assertEquals(IntervalQuality.A, e1.getQuality(0, 47));
+      assertEquals(IntervalQuality.F, e1.getQuality(1, 19));
+      assertEquals(IntervalQuality.A, e1.getQuality(1, 20));
+      assertEquals(0, new BigDecimal("36").compareTo(e1.getDayAggregate(0).getSum()));
+      assertEquals(IntervalQuality.E, streams.get("E2").getQuality(0, 0));
+
+      IntervalReads fifteenMinutes =
+          meterReads.get("NEM1201010").getIntervalReads().get("E1");
+      assertEquals(96, fifteenMinutes.getIntervalsPerDay());
+      assertEquals(IntervalQuality.S, fifteenMinutes.getQuality(0, 95));
+      assertEquals(0, new BigDecimal("-0.048")
+          .compareTo(fifteenMinutes.getVolumeAggregate().getSum()));
+    }
+
+    File invalidEvent = writeFile(header
+        + "200,NEM1201009,E1E2,1,E1,N1,01009,kWh,30,20050610\n"
+        + intervalDay("20050302", 48, "1", "V") + "\n"
+        + "400,20,49,F14,76,\n"
+        + "900\n");
+    config.setReaderMode(ReaderMode.LINES);
+    try (MeterReadCursor meterReadCursor =
+             new SimpleNem12ParserImpl(config).openSimpleNem12(invalidEvent)) {
+      while (meterReadCursor.next() != null) {
+      }
+      fail("the 400 record ends past the last interval");
+    } catch (SimpleNem12ParserException ex) {
+      assertEquals(ValidationRule.INTERVAL, ex.getRule());
+    }
+  }
+
+  /**
+   * A full NEM12 300 record of a day, every odd interval holding the value and every even one
+   * zero, ending with the quality method.
+   */
+  private static String intervalDay(String date, int intervals, String value,
+                                    String qualityMethod) {
+    StringBuilder intervalDay = new StringBuilder("300,").append(date);
+    for (int interval = 0; interval < intervals; interval++) {
+      intervalDay.append(',').append(interval % 2 == 0 ? "0" : value);
+    }
+    return intervalDay.append(',').append(qualityMethod).toString();
+  }
+
+  private File writeFile(String content) throws IOException {
+    File file = temporaryFolder.newFile();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+    return file;
+  }
 }
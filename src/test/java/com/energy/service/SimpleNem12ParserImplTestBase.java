@@ -13,6 +13,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+
 /**
  * SimpleNem12ParserImpl test base class.
  */
@@ -57,6 +59,22 @@ public abstract class SimpleNem12ParserImplTestBase {
     return meterReadList;
   }
 
+  /**
+   * Assert both collections hold the same MeterReads in the same order, volumes included.
+   *
+   * @param expected expected MeterReads
+   * @param actual   actual MeterReads
+   */
+  protected void assertSameMeterReads(Collection<MeterRead> expected,
+                                      Collection<MeterRead> actual) {
+    List<MeterRead> expectedList = new ArrayList<>(expected);
+    List<MeterRead> actualList = new ArrayList<>(actual);
+    assertEquals(expectedList, actualList);
+    for (int i = 0; i < expectedList.size(); i++) {
+      assertEquals(expectedList.get(i).getVolumes(), actualList.get(i).getVolumes());
+    }
+  }
+
   /**
    * Create MeterVolume
    *
@@ -0,0 +1,117 @@
+package com.energy.service;
+
+import com.redenergy.model.EnergyUnit;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterVolume;
+import com.redenergy.model.Quality;
+import com.redenergy.repository.Compression;
+import com.redenergy.service.DecimalMode;
+import com.redenergy.service.ReaderMode;
+import com.redenergy.service.SimpleNem12ParserConfig;
+import com.redenergy.service.SimpleNem12ParserImpl;
+import com.redenergy.service.SimpleNem12Writer;
+import com.redenergy.service.VolumeStorage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SimpleNem12Writer.
+ */
+public class SimpleNem12WriterTest extends SimpleNem12ParserImplTestBase {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Verify written files parse back to the same MeterReads, compressed or not, from both
+   * volume storages.
+   */
+  @Test
+  public void testRoundTrip() throws Exception {
+    File simpleNem12File = getFile("SimpleNem12.csv");
+    SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+    config.setDecimalMode(DecimalMode.FIXED_POINT);
+    config.setVolumeStorage(VolumeStorage.COLUMNAR);
+    SimpleNem12ParserImpl columnarParser = new SimpleNem12ParserImpl(config);
+    SimpleNem12ParserImpl parser = new SimpleNem12ParserImpl();
+    Collection<MeterRead> expected = parser.parseSimpleNem12(simpleNem12File);
+
+    File written = temporaryFolder.newFile("Written.csv");
+    new SimpleNem12Writer().writeSimpleNem12(expected, written);
+    assertArrayEquals(Files.readAllBytes(simpleNem12File.toPath()),
+        Files.readAllBytes(written.toPath()));
+    assertSameMeterReads(expected, parser.parseSimpleNem12(written));
+
+    File gzipped = temporaryFolder.newFile("Written.csv.gz");
+    new SimpleNem12Writer(Compression.GZIP)
+        .writeSimpleNem12(columnarParser.parseSimpleNem12(simpleNem12File), gzipped);
+    assertEquals(Compression.GZIP, Compression.detect(gzipped));
+    assertSameMeterReads(expected, parser.parseSimpleNem12(gzipped));
+  }
+
+  /**
+   * Verify volume scales, signs and the extremes of dates and fixed point volumes are kept.
+   */
+  @Test
+  public void testVolumesAndDates() throws Exception {
+    MeterRead meterRead = new MeterRead("6123456789", EnergyUnit.KWH);
+    meterRead.appendVolume(LocalDate.of(1, 1, 1),
+        new MeterVolume(new BigDecimal("0.005"), Quality.A));
+    meterRead.appendVolume(LocalDate.of(1999, 12, 31),
+        new MeterVolume(new BigDecimal("-0.50"), Quality.E));
+    meterRead.appendVolume(LocalDate.of(2016, 2, 29),
+        new MeterVolume(new BigDecimal("-12345.6789"), Quality.A));
+    meterRead.appendVolume(LocalDate.of(2100, 3, 1),
+        new MeterVolume(new BigDecimal(BigInteger.valueOf(Long.MIN_VALUE), 3), Quality.A));
+    meterRead.appendVolume(LocalDate.of(9999, 12, 31),
+        new MeterVolume(new BigDecimal("123456789012345678901234567890.1"), Quality.E));
+    Collection<MeterRead> meterReads = Collections.singletonList(meterRead);
+
+    File written = temporaryFolder.newFile("Volumes.csv");
+    new SimpleNem12Writer().writeSimpleNem12(meterReads, written);
+    assertSameMeterReads(meterReads, new SimpleNem12ParserImpl().parseSimpleNem12(written));
+    assertTrue(Files.readAllLines(written.toPath(), StandardCharsets.US_ASCII).containsAll(
+        Arrays.asList("300,00010101,0.005,A", "300,19991231,-0.50,E")));
+  }
+
+  /**
+   * Verify volumes with a negative scale are written with an exponent and keep their scale.
+   */
+  @Test
+  public void testExponentVolumes() throws Exception {
+    MeterRead meterRead = new MeterRead("6123456789", EnergyUnit.KWH);
+    meterRead.appendVolume(LocalDate.of(2016, 11, 13),
+        new MeterVolume(new BigDecimal("1.5E+2"), Quality.A));
+    meterRead.appendVolume(LocalDate.of(2016, 11, 14),
+        new MeterVolume(new BigDecimal("-7E+10"), Quality.E));
+    meterRead.appendVolume(LocalDate.of(2016, 11, 15),
+        new MeterVolume(new BigDecimal("0E+200"), Quality.A));
+    meterRead.appendVolume(LocalDate.of(2016, 11, 16),
+        new MeterVolume(new BigDecimal("123456789012345678901234567890E+3"), Quality.A));
+    Collection<MeterRead> meterReads = Collections.singletonList(meterRead);
+
+    File written = temporaryFolder.newFile("Exponents.csv");
+    new SimpleNem12Writer().writeSimpleNem12(meterReads, written);
+    assertTrue(Files.readAllLines(written.toPath(), StandardCharsets.US_ASCII).containsAll(
+        Arrays.asList("300,20161113,15E+1,A", "300,20161114,-7E+10,E",
+            "300,20161115,0E+200,A", "300,20161116,123456789012345678901234567890E+3,A")));
+    for (ReaderMode readerMode : ReaderMode.values()) {
+      SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+      config.setReaderMode(readerMode);
+      assertSameMeterReads(meterReads, new SimpleNem12ParserImpl(config).parseSimpleNem12(written));
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.energy.snapshot;
+
+import com.energy.service.SimpleNem12ParserImplTestBase;
+import com.redenergy.exception.SimpleNem12ParserException;
+import com.redenergy.model.EnergyUnit;
+import com.redenergy.model.MeterRead;
+import com.redenergy.model.MeterReadIndex;
+import com.redenergy.model.MeterVolume;
+import com.redenergy.model.Quality;
+import com.redenergy.service.DecimalMode;
+import com.redenergy.service.SimpleNem12ParserConfig;
+import com.redenergy.service.SimpleNem12ParserImpl;
+import com.redenergy.service.VolumeStorage;
+import com.redenergy.snapshot.MeterReadSnapshotReader;
+import com.redenergy.snapshot.MeterReadSnapshotWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MeterReadSnapshotWriter and MeterReadSnapshotReader.
+ */
+public class MeterReadSnapshotTest extends SimpleNem12ParserImplTestBase {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Verify MeterReads of both volume storages load back from a snapshot unchanged.
+   */
+  @Test
+  public void testSnapshotRoundTrip() throws Exception {
+    SimpleNem12ParserConfig config = new SimpleNem12ParserConfig();
+    config.setDecimalMode(DecimalMode.FIXED_POINT);
+    config.setVolumeStorage(VolumeStorage.COLUMNAR);
+    Collection<MeterRead> columnar =
+        new SimpleNem12ParserImpl(config).parseSimpleNem12(getFile("SimpleNem12.csv"));
+
+    File snapshotFile = temporaryFolder.newFile("SimpleNem12.snapshot");
+    MeterReadSnapshotWriter snapshotWriter = new MeterReadSnapshotWriter();
+    snapshotWriter.writeSnapshot(getMeterReadRecords(), snapshotFile);
+    MeterReadIndex treeMap =
+        new MeterReadSnapshotReader(VolumeStorage.TREE_MAP).readSnapshot(snapshotFile);
+    assertSameMeterReads(getMeterReadRecords(), treeMap);
+    assertTrue(snapshotFile.length() < getFile("SimpleNem12.csv").length());
+
+    snapshotWriter.writeSnapshot(columnar, snapshotFile);
+    MeterReadIndex loaded = new MeterReadSnapshotReader().readSnapshot(snapshotFile);
+    assertSameMeterReads(columnar, loaded);
+    assertEquals(columnar.iterator().next().getTotalVolume(), loaded.get(0).getTotalVolume());
+  }
+
+  /**
+   * Verify a corrupt snapshot is rejected by its checksum.
+   */
+  @Test
+  public void testCorruptSnapshot() throws Exception {
+    File snapshotFile = temporaryFolder.newFile("Corrupt.snapshot");
+    new MeterReadSnapshotWriter().writeSnapshot(getMeterReadRecords(), snapshotFile);
+    try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+      long offset = file.length() - 2;
+      file.seek(offset);
+      int flipped = file.read() ^ 1;
+      file.seek(offset);
+      file.write(flipped);
+    }
+    try {
+      new MeterReadSnapshotReader().readSnapshot(snapshotFile);
+      fail("the snapshot is corrupt");
+    } catch (SimpleNem12ParserException ex) {
+      assertEquals("Snapshot " + snapshotFile + " is corrupt", ex.getMessage());
+    }
+  }
+
+  /**
+   * Verify a snapshot of tree map volumes with a scale beyond the byte of columnar volumes loads
+   * into tree map volumes and is rejected as corrupt when loaded into columnar volumes.
+   */
+  @Test
+  public void testSnapshotScaleOutOfColumnarRange() throws Exception {
+    MeterRead meterRead = new MeterRead("6123456789", EnergyUnit.KWH);
+    meterRead.appendVolume(LocalDate.of(2016, 11, 13),
+        new MeterVolume(new BigDecimal("0E+200"), Quality.A));
+    File snapshotFile = temporaryFolder.newFile("Scale.snapshot");
+    new MeterReadSnapshotWriter().writeSnapshot(Collections.singletonList(meterRead),
+        snapshotFile);
+
+    assertSameMeterReads(Collections.singletonList(meterRead),
+        new MeterReadSnapshotReader(VolumeStorage.TREE_MAP).readSnapshot(snapshotFile));
+    try {
+      new MeterReadSnapshotReader(VolumeStorage.COLUMNAR).readSnapshot(snapshotFile);
+      fail("the scale does not fit columnar volumes");
+    } catch (SimpleNem12ParserException ex) {
+      assertEquals("Snapshot " + snapshotFile + " is corrupt", ex.getMessage());
+      assertTrue(ex.getCause() instanceof ArithmeticException);
+    }
+  }
+}
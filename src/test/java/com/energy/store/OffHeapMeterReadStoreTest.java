@@ -0,0 +1,124 @@
+package com.energy.store;
+
+import com.energy.service.SimpleNem12ParserImplTestBase;
+import com.redenergy.model.MeterRead;
+import com.redenergy.query.GroupBy;
+import com.redenergy.query.MeterReadQuery;
+import com.redenergy.service.SimpleNem12ParserImpl;
+import com.redenergy.store.OffHeapMeterReadStore;
+import com.redenergy.store.OffHeapMeterReadStoreWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for OffHeapMeterReadStoreWriter and OffHeapMeterReadStore.
+ */
+public class OffHeapMeterReadStoreTest extends SimpleNem12ParserImplTestBase {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Verify MeterReads streamed into a store read back unchanged, by position and by NMI.
+   */
+  @Test
+  public void testStoreRoundTrip() throws Exception {
+    SimpleNem12ParserImpl simpleNem12Parser = new SimpleNem12ParserImpl();
+    List<MeterRead> expected =
+        new ArrayList<>(simpleNem12Parser.parseSimpleNem12(getFile("SimpleNem12.csv")));
+    File storeFile = temporaryFolder.newFile("SimpleNem12.store");
+    try (OffHeapMeterReadStore store = OffHeapMeterReadStore.load(simpleNem12Parser,
+        getFile("SimpleNem12.csv"), storeFile)) {
+      assertStored(expected, store);
+    }
+    try (OffHeapMeterReadStore store = OffHeapMeterReadStore.open(storeFile)) {
+      assertStored(expected, store);
+      assertNull(store.get("0000000000"));
+      assertFalse(store.containsNmi("0000000000"));
+
+      MeterRead meterRead = store.get(0);
+      LocalDate first = meterRead.getVolumes().firstKey();
+      assertEquals(expected.get(0).getVolumes().tailMap(first.plusDays(1)),
+          meterRead.getVolumes().tailMap(first.plusDays(1)));
+      assertEquals(expected.get(0).getTotalVolume(), meterRead.getTotalVolume());
+      assertSameMeterRead(expected.get(0), meterRead.copy());
+      assertEquals(
+          MeterReadQuery.over(expected).groupBy(GroupBy.NMI).execute().getGroups().toString(),
+          MeterReadQuery.over(store).groupBy(GroupBy.NMI).execute().getGroups().toString());
+    }
+  }
+
+  /**
+   * Verify the blocks of a NMI read more than once are merged as the parser merges them, a
+   * date read again keeping the volume read last.
+   */
+  @Test
+  public void testDuplicateNmisMerged() throws Exception {
+    File simpleNem12File = temporaryFolder.newFile("Duplicates.csv");
+    Files.write(simpleNem12File.toPath(), ("100\n"
+        + "200,6123456789,KWH\n"
+        + "300,20161113,1.5,A\n"
+        + "300,20161115,2.5,A\n"
+        + "200,9876543210,KWH\n"
+        + "300,20161113,7,E\n"
+        + "200,6123456789,KWH\n"
+        + "300,20161114,3.25,E\n"
+        + "300,20161115,-4,A\n"
+        + "200,6123456789,KWH\n"
+        + "300,20161112,5,A\n"
+        + "900\n").getBytes(StandardCharsets.US_ASCII));
+    SimpleNem12ParserImpl simpleNem12Parser = new SimpleNem12ParserImpl();
+    List<MeterRead> expected = new ArrayList<>(simpleNem12Parser.parseSimpleNem12(simpleNem12File));
+    assertEquals(2, expected.size());
+    try (OffHeapMeterReadStore store = OffHeapMeterReadStore.load(simpleNem12Parser,
+        simpleNem12File, temporaryFolder.newFile("Duplicates.store"))) {
+      assertStored(expected, store);
+      assertEquals(new BigDecimal("-4"),
+          store.get("6123456789").getVolumes().get(LocalDate.of(2016, 11, 15)).getVolume());
+    }
+  }
+
+  /**
+   * Verify a temporary store deletes its file once closed.
+   */
+  @Test
+  public void testTemporaryStore() throws Exception {
+    OffHeapMeterReadStoreWriter writer = OffHeapMeterReadStoreWriter.createTemporary();
+    for (MeterRead meterRead : getMeterReadRecords()) {
+      writer.add(meterRead);
+    }
+    OffHeapMeterReadStore store = writer.finish();
+    assertEquals(getMeterReadRecords().size(), store.size());
+    store.close();
+    assertFalse(store.getStoreFile().exists());
+  }
+
+  private static void assertStored(List<MeterRead> expected, OffHeapMeterReadStore store) {
+    assertEquals(expected.size(), store.size());
+    long volumeCount = 0;
+    for (int i = 0; i < expected.size(); i++) {
+      MeterRead meterRead = expected.get(i);
+      assertSameMeterRead(meterRead, store.get(i));
+      assertSameMeterRead(meterRead, store.get(meterRead.getNmi()));
+      volumeCount += meterRead.getVolumeCount();
+    }
+    assertEquals(volumeCount, store.getVolumeCount());
+  }
+
+  private static void assertSameMeterRead(MeterRead expected, MeterRead actual) {
+    assertEquals(expected.getNmi(), actual.getNmi());
+    assertEquals(expected.getEnergyUnit(), actual.getEnergyUnit());
+    assertEquals(expected.getVolumes(), actual.getVolumes());
+  }
+}